@@ -4,8 +4,10 @@ import org.gradle.internal.os.OperatingSystem
 plugins {
     java
     id("java-library")
+    id("java-test-fixtures")
     id("io.freefair.lombok") version "5.3.0"
     id("com.github.johnrengelman.shadow") version "4.0.4"
+    id("me.champeau.gradle.jmh") version "0.5.3"
 }
 
 val lwjglVersion = "3.2.3"
@@ -88,6 +90,17 @@ dependencies {
 
     testCompileOnly("org.projectlombok:lombok:1.18.16")
     testAnnotationProcessor("org.projectlombok:lombok:1.18.16")
+    testImplementation("junit:junit:4.13.2")
+
+    // The stub cache manager in src/testFixtures is shared by the tests and the benchmarks.
+    "jmh"(testFixtures(project))
+}
+
+jmh {
+    jmhVersion = "1.27"
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    (project.findProperty("jmhIncludes") as String?)?.let { include = listOf(it) }
 }
 
 tasks {
@@ -0,0 +1,189 @@
+package nl.tue.visualcomputingproject.group9a.project.chart.extractor;
+
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.gce.geotiff.GeoTiffWriter;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.operation.TransformException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compares the number of points per second extracted from a map sheet by evaluating
+ * the coverage per cell, by reading blocks of samples from the coverage, and by reading
+ * the decoded {@link SheetRaster}. Every invocation extracts all chunks of a locally
+ * generated GeoTIFF sheet. The points per second are reported by the {@link Points} counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractorBenchmark {
+	/** The distance in meters between two neighbouring cells, as used by the 5m and 0.5m sheets. */
+	@Param({"5", "0.5"})
+	public double resolution;
+	/** The width and height of the sheet in cells. */
+	@Param({"1000"})
+	public int cells;
+
+	private File dir;
+	private GridCoverage2D coverage;
+	private CoverageExtractor coverageExtractor;
+	private SheetRaster raster;
+	private List<ChunkPosition> positions;
+
+	/**
+	 * Counts the extracted points, such that JMH reports them per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Points {
+		public long points;
+	}
+
+	@Setup
+	public void setup()
+			throws IOException, FactoryException, TransformException {
+		dir = Files.createTempDirectory("extractor-benchmark").toFile();
+		File tiff = new File(dir, "sheet.tif");
+		File rasterFile = new File(dir, "sheet.raster");
+
+		// Generate a smooth terrain with some noise, located in the Netherlands.
+		double minX = 155000;
+		double minY = 385000;
+		double size = cells * resolution;
+		Random random = new Random(42);
+		float[][] heights = new float[cells][cells];
+		for (int row = 0; row < cells; row++) {
+			for (int col = 0; col < cells; col++) {
+				heights[row][col] = (float) (10 * Math.sin(col * 0.01) * Math.cos(row * 0.013)
+						+ random.nextGaussian() * 0.1);
+			}
+		}
+		ReferencedEnvelope envelope = new ReferencedEnvelope(
+				minX, minX + size, minY, minY + size,
+				CRS.decode("EPSG:28992"));
+		GridCoverage2D generated = new GridCoverageFactory().create("heights", heights, envelope);
+		GeoTiffWriter writer = new GeoTiffWriter(tiff);
+		try {
+			writer.write(generated, null);
+		} finally {
+			writer.dispose();
+		}
+
+		coverage = new GeoTiffReader(tiff).read(null);
+		coverageExtractor = new CoverageExtractor(coverage);
+		try (OutputStream os = new BufferedOutputStream(new FileOutputStream(rasterFile))) {
+			SheetRaster.write(coverage, os);
+		}
+		raster = SheetRaster.open(rasterFile);
+
+		positions = new ArrayList<>();
+		for (int y = 0; y < size; y += Settings.CHUNK_HEIGHT) {
+			for (int x = 0; x < size; x += Settings.CHUNK_WIDTH) {
+				positions.add(new ChunkPosition(minX + x, minY + y, Settings.CHUNK_WIDTH, Settings.CHUNK_HEIGHT));
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown()
+			throws IOException {
+		raster.close();
+		coverage.dispose(true);
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+			}
+		}
+		//noinspection ResultOfMethodCallIgnored
+		dir.delete();
+	}
+
+	private static long serial(List<ChunkPosition> positions, ToIntFunction<ChunkPosition> extractor, Points points) {
+		long count = 0;
+		for (ChunkPosition pos : positions) {
+			count += extractor.applyAsInt(pos);
+		}
+		points.points += count;
+		return count;
+	}
+
+	private static long parallel(List<ChunkPosition> positions, ToIntFunction<ChunkPosition> extractor, Points points) {
+		ForkJoinPool pool = Settings.generatorPool == null ? ForkJoinPool.commonPool() : Settings.generatorPool;
+		long count = pool.submit(() -> positions.parallelStream()
+				.mapToLong(extractor::applyAsInt)
+				.sum())
+				.join();
+		points.points += count;
+		return count;
+	}
+
+	/**
+	 * Measures the original extraction, which transforms and evaluates every cell.
+	 */
+	@Benchmark
+	public long perPixel(Points points) {
+		return serial(positions, pos -> {
+			try {
+				return CoverageExtractor.extractPerPixel(coverage, pos).length / 3;
+			} catch (TransformException e) {
+				throw new IllegalStateException(e);
+			}
+		}, points);
+	}
+
+	/**
+	 * Measures the extraction reading every chunk as one block of samples from the coverage.
+	 */
+	@Benchmark
+	public long block(Points points) {
+		return serial(positions, pos -> coverageExtractor.extract(pos).size(), points);
+	}
+
+	/**
+	 * Measures the extraction reading blocks of samples from the coverage in parallel.
+	 */
+	@Benchmark
+	public long blockParallel(Points points) {
+		return parallel(positions, pos -> coverageExtractor.extract(pos).size(), points);
+	}
+
+	/**
+	 * Measures the extraction from the decoded sheet raster.
+	 */
+	@Benchmark
+	public long raster(Points points) {
+		return serial(positions, pos -> raster.extract(pos).size(), points);
+	}
+
+	/**
+	 * Measures the extraction from the decoded sheet raster in parallel.
+	 */
+	@Benchmark
+	public long rasterParallel(Points points) {
+		return parallel(positions, pos -> raster.extract(pos).size(), points);
+	}
+
+}
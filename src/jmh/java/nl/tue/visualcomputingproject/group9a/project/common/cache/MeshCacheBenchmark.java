@@ -0,0 +1,120 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache;
+
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.stream.FileStreamFactory;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.stream.MappedFileStreamFactory;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.stream.ZipBufferedFileStreamFactory;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.write_back.WriteBackReadCacheClaim;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.SyntheticChunks;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.TreeMLSGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency and throughput of a disk cache hit of a {@link MeshChunkData}
+ * object stored in the compressed format with the mapped, page-aligned format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeshCacheBenchmark {
+	@Param({"zip", "mapped"})
+	public String format;
+	@Param({"FIVE_BY_FIVE", "HALF_BY_HALF"})
+	public QualityLevel quality;
+
+	private File cacheDir;
+	private FileId id;
+	private FileStreamFactory streamFactory;
+	private ObjectSerializer<MeshChunkData> serializer;
+
+	@Setup
+	public void setup()
+			throws IOException {
+		switch (format) {
+			case "zip":
+				streamFactory = new ZipBufferedFileStreamFactory();
+				serializer = MeshChunkData.createSerializer();
+				break;
+			case "mapped":
+				streamFactory = new MappedFileStreamFactory();
+				serializer = MeshChunkData.createMappedSerializer(Settings.VERTEX_TYPE);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown format: " + format);
+		}
+
+		ChunkPosition crop = SyntheticChunks.crop(Settings.CHUNK_WIDTH);
+		MeshChunkData data = new TreeMLSGenerator<MeshChunkId, PointCloudChunkData>().generateChunkData(
+				SyntheticChunks.create(quality, Settings.CHUNK_WIDTH, 0.1, 42),
+				crop);
+
+		cacheDir = Files.createTempDirectory("mesh-cache-benchmark").toFile();
+		id = () -> "mesh";
+		try (OutputStream os = streamFactory.write(new File(cacheDir, id.getPath() + Settings.CACHE_EXT))) {
+			serializer.serialize(os, data);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		File[] files = cacheDir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+			}
+		}
+		//noinspection ResultOfMethodCallIgnored
+		cacheDir.delete();
+	}
+
+	private MeshChunkData read() {
+		return new WriteBackReadCacheClaim<>(
+				id,
+				new MemoryStore<>(),
+				cacheDir,
+				streamFactory,
+				serializer
+		).get();
+	}
+
+	/**
+	 * Measures the cache hit until the data is available to the renderer.
+	 */
+	@Benchmark
+	public MeshChunkData hit() {
+		return read();
+	}
+
+	/**
+	 * Measures the cache hit including a pass over all data, as done by
+	 * the upload to the GPU, such that lazily mapped pages are read as well.
+	 */
+	@Benchmark
+	public double hitAndRead() {
+		MeshChunkData data = read();
+		double sum = 0;
+		ByteBuffer vertices = data.getVertexByteBuffer();
+		while (vertices.hasRemaining()) {
+			sum += vertices.get();
+		}
+		IntBuffer mesh = data.getMeshBuffer();
+		while (mesh.hasRemaining()) {
+			sum += mesh.get();
+		}
+		return sum;
+	}
+
+}
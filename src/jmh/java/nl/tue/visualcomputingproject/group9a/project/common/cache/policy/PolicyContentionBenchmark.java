@@ -0,0 +1,84 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.policy;
+
+import nl.tue.visualcomputingproject.group9a.project.common.cache.FileId;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link CachePolicy#track} and {@link CachePolicy#update}
+ * when many threads use the same policy, as the caches of all modules do.
+ * Run with {@code -t} to vary the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class PolicyContentionBenchmark {
+	/** The size of each file. */
+	private static final long FILE_SIZE = 64 * CachePolicy.SIZE_KiB;
+
+	@Param({"lru", "concurrent"})
+	public String policyType;
+	/** The number of distinct files accessed. */
+	@Param({"4096"})
+	public int numFiles;
+	/** The number of files fitting in the cache. */
+	@Param({"1024"})
+	public int capacity;
+
+	private CachePolicy policy;
+	private StubCache manager;
+	private FileId[] ids;
+	private StubCache.Claim[] claims;
+
+	@Setup
+	public void setup() {
+		long maxSize = capacity * FILE_SIZE;
+		switch (policyType) {
+			case "lru":
+				policy = new LRUCachePolicy(maxSize);
+				break;
+			case "concurrent":
+				policy = new ConcurrentLRUCachePolicy(maxSize);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown policy: " + policyType);
+		}
+		manager = new StubCache();
+		ids = new FileId[numFiles];
+		claims = new StubCache.Claim[numFiles];
+		for (int i = 0; i < numFiles; i++) {
+			String path = "file_" + i;
+			ids[i] = () -> path;
+			claims[i] = manager.claim(ids[i], FILE_SIZE);
+		}
+	}
+
+	/**
+	 * Updates a random file, and tracks it again if it was evicted.
+	 */
+	@Benchmark
+	public boolean trackOrUpdate() {
+		int i = ThreadLocalRandom.current().nextInt(numFiles);
+		if (policy.update(ids[i])) {
+			return true;
+		}
+		policy.track(ids[i], manager, claims[i]);
+		return false;
+	}
+
+	/**
+	 * Only tracks random files, which continuously causes evictions.
+	 */
+	@Benchmark
+	public void track() {
+		int i = ThreadLocalRandom.current().nextInt(numFiles);
+		policy.track(ids[i], manager, claims[i]);
+	}
+
+}
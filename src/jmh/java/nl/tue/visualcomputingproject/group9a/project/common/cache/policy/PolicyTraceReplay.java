@@ -0,0 +1,183 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.policy;
+
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.FileId;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.common.event.ChunkStatusTrace;
+import nl.tue.visualcomputingproject.group9a.project.common.event.RendererChunkStatusEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.LongFunction;
+
+/**
+ * Replays a sequence of {@link RendererChunkStatusEvent}s against several cache policies
+ * and prints their hit rates. <br>
+ * <br>
+ * Every chunk requested by the renderer is counted as a hit if the policy still tracks it,
+ * and is tracked as a new file of a fixed size otherwise. Unloading a chunk in the renderer
+ * does not affect the cache. <br>
+ * <br>
+ * Usage: {@code PolicyTraceReplay [trace-file] [capacity-in-chunks]}. The trace file is
+ * recorded using the {@code cache.tracefile} setting. If no trace file is given, a synthetic
+ * trace is replayed in which the camera wanders around a home area, interrupted by long
+ * fly-throughs which are never revisited.
+ */
+public class PolicyTraceReplay {
+	/** The size of a single cached chunk. */
+	private static final long CHUNK_SIZE = CachePolicy.SIZE_MiB;
+
+	/**
+	 * File ID of a chunk position.
+	 */
+	private static class TraceId
+			implements FileId {
+		private final ChunkPosition pos;
+
+		TraceId(ChunkPosition pos) {
+			this.pos = pos;
+		}
+
+		@Override
+		public String getPath() {
+			return FileId.genPath(pos.getX(), pos.getY(), pos.getWidth(), pos.getHeight());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof TraceId && pos.equals(((TraceId) obj).pos);
+		}
+
+		@Override
+		public int hashCode() {
+			return pos.hashCode();
+		}
+	}
+
+	public static void main(String[] args)
+			throws IOException {
+		List<RendererChunkStatusEvent> trace;
+		if (args.length > 0 && !args[0].equals("-")) {
+			trace = ChunkStatusTrace.read(new File(args[0]));
+		} else {
+			trace = syntheticTrace(42);
+		}
+		int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+
+		Map<String, LongFunction<CachePolicy>> policies = new LinkedHashMap<>();
+		policies.put("lru (locked)", LRUCachePolicy::new);
+		policies.put("lru (concurrent)", ConcurrentLRUCachePolicy::new);
+		policies.put("tinylfu", TinyLFUCachePolicy::new);
+
+		long requests = trace.stream().mapToLong((e) -> e.getNewChunks().size()).sum();
+		System.out.printf("Replaying %d events with %d chunk requests, capacity of %d chunks.%n",
+				trace.size(), requests, capacity);
+		for (Map.Entry<String, LongFunction<CachePolicy>> entry : policies.entrySet()) {
+			CachePolicy policy = entry.getValue().apply(capacity * CHUNK_SIZE);
+			long hits = replay(trace, policy);
+			System.out.printf("%-20s hit rate: %6.2f%% (%d / %d)%n",
+					entry.getKey(), 100.0 * hits / requests, hits, requests);
+		}
+	}
+
+	/**
+	 * Replays the trace against the given policy.
+	 *
+	 * @param trace  The trace to replay.
+	 * @param policy The policy to replay the trace against.
+	 *
+	 * @return The number of cache hits.
+	 */
+	public static long replay(List<RendererChunkStatusEvent> trace, CachePolicy policy) {
+		StubCache manager = new StubCache();
+		long hits = 0;
+		for (RendererChunkStatusEvent e : trace) {
+			for (ChunkPosition pos : e.getNewChunks()) {
+				TraceId id = new TraceId(pos);
+				if (policy.update(id)) {
+					hits++;
+				} else {
+					policy.track(id, manager, manager.claim(id, CHUNK_SIZE));
+				}
+			}
+			if (policy instanceof ConcurrentLRUCachePolicy) {
+				// Apply the eviction before the next event, as the renderer would be slower.
+				((ConcurrentLRUCachePolicy) policy).cleanUp();
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Generates a trace in which the camera wanders around a home area for a while,
+	 * after which it flies in a straight line away from it and teleports back.
+	 *
+	 * @param seed The seed of the random generator.
+	 *
+	 * @return The generated trace.
+	 */
+	public static List<RendererChunkStatusEvent> syntheticTrace(long seed) {
+		final int radius = 5;
+		final int homeSize = 12;
+		final int scanLength = 150;
+		Random random = new Random(seed);
+		List<RendererChunkStatusEvent> trace = new ArrayList<>();
+		Set<ChunkPosition> loaded = new HashSet<>();
+
+		int x = 0;
+		int y = 0;
+		for (int round = 0; round < 40; round++) {
+			// Wander around the home area.
+			for (int step = 0; step < 60; step++) {
+				x = Math.max(-homeSize, Math.min(homeSize, x + random.nextInt(3) - 1));
+				y = Math.max(-homeSize, Math.min(homeSize, y + random.nextInt(3) - 1));
+				moveCamera(trace, loaded, x, y, radius);
+			}
+			// Fly through an area which is never visited again.
+			int dx = random.nextBoolean() ? 1 : -1;
+			int dy = random.nextInt(3) - 1;
+			int sx = x + dx * 1_000 * (round + 1);
+			int sy = y + dy * 1_000 * (round + 1);
+			for (int step = 0; step < scanLength; step++) {
+				moveCamera(trace, loaded, sx + dx * step, sy + dy * step, radius);
+			}
+		}
+		return trace;
+	}
+
+	private static void moveCamera(
+			List<RendererChunkStatusEvent> trace,
+			Set<ChunkPosition> loaded,
+			int cx, int cy,
+			int radius) {
+		Set<ChunkPosition> visible = new HashSet<>();
+		for (int dx = -radius; dx <= radius; dx++) {
+			for (int dy = -radius; dy <= radius; dy++) {
+				visible.add(new ChunkPosition(
+						(cx + dx) * Settings.CHUNK_WIDTH,
+						(cy + dy) * Settings.CHUNK_HEIGHT,
+						Settings.CHUNK_WIDTH,
+						Settings.CHUNK_HEIGHT));
+			}
+		}
+		List<ChunkPosition> newChunks = new ArrayList<>();
+		for (ChunkPosition pos : visible) {
+			if (!loaded.contains(pos)) newChunks.add(pos);
+		}
+		List<ChunkPosition> unloaded = new ArrayList<>();
+		for (ChunkPosition pos : loaded) {
+			if (!visible.contains(pos)) unloaded.add(pos);
+		}
+		loaded.clear();
+		loaded.addAll(visible);
+		if (!newChunks.isEmpty() || !unloaded.isEmpty()) {
+			trace.add(new RendererChunkStatusEvent(newChunks, unloaded, new ChunkPosition(
+					cx * Settings.CHUNK_WIDTH,
+					cy * Settings.CHUNK_HEIGHT,
+					Settings.CHUNK_WIDTH,
+					Settings.CHUNK_HEIGHT)));
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator;
+
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the full {@link Generator#generateChunkData(Chunk, ChunkPosition)} call
+ * of all generators on synthetic chunks of varying density and size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+	@Param({"FIVE_BY_FIVE", "HALF_BY_HALF"})
+	public QualityLevel quality;
+	/** The width and height of the chunk without border. */
+	@Param({"50", "100", "200"})
+	public int size;
+
+	private Chunk<MeshChunkId, PointCloudChunkData> chunk;
+	private ChunkPosition crop;
+
+	@Setup
+	public void setup() {
+		chunk = SyntheticChunks.create(quality, size, 0.1, 42);
+		crop = SyntheticChunks.crop(size);
+	}
+
+	@Benchmark
+	public MeshChunkData treeMLS() {
+		return new TreeMLSGenerator<MeshChunkId, PointCloudChunkData>().generateChunkData(chunk, crop);
+	}
+
+	@Benchmark
+	public MeshChunkData rimls() {
+		return new RIMLSGenerator<MeshChunkId, PointCloudChunkData>().generateChunkData(chunk, crop);
+	}
+
+	@Benchmark
+	public MeshChunkData rimlsSerial() {
+		return new RIMLSGenerator<MeshChunkId, PointCloudChunkData>(null).generateChunkData(chunk, crop);
+	}
+
+	@Benchmark
+	public MeshChunkData raw() {
+		return new RawGenerator<MeshChunkId, PointCloudChunkData>().generateChunkData(chunk, crop);
+	}
+
+}
@@ -0,0 +1,89 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator;
+
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.mesh.FullMeshGenerator;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.ArrayStore;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PointIndexData;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PrimitiveStore;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.Store;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.pre_processing.PreProcessing;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.GridTransform;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.ScaleGridTransform;
+import org.joml.Vector3d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the stages of the generators which modify their input.
+ * The inputs are recreated before every invocation, outside of the measured time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MutatingStageBenchmark {
+	@Param({"FIVE_BY_FIVE", "HALF_BY_HALF"})
+	public QualityLevel quality;
+	/** The width and height of the chunk without border. */
+	@Param({"50", "100", "200"})
+	public int size;
+	/** The fraction of the chunk which contains no data, e.g. a chunk at sea. */
+	@Param({"0.1", "0.8"})
+	public double waterFraction;
+
+	private Chunk<MeshChunkId, PointCloudChunkData> chunk;
+	private ScaleGridTransform transform;
+	private Vector3d offset;
+
+	private Store<PointIndexData> arrayStore;
+	private PrimitiveStore primitiveStore;
+	private PrimitiveStore filledPrimitiveStore;
+
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		chunk = SyntheticChunks.create(quality, size, waterFraction, 42);
+		ChunkPosition crop = SyntheticChunks.crop(size);
+		transform = GridTransform.createTransformFor(chunk, crop);
+		offset = new Vector3d(crop.getX(), 0, crop.getY());
+	}
+
+	@Setup(Level.Invocation)
+	public void setupInvocation() {
+		arrayStore = new ArrayStore<>(chunk.getPosition(), transform);
+		arrayStore.addPoints(offset, chunk.getData().getVector3D(), PointIndexData::new);
+		FullMeshGenerator.preprocess(arrayStore);
+
+		primitiveStore = new PrimitiveStore(chunk.getPosition(), transform);
+		primitiveStore.addPoints(offset, chunk.getData());
+		FullMeshGenerator.preprocess(primitiveStore);
+
+		filledPrimitiveStore = new PrimitiveStore(chunk.getPosition(), transform);
+		filledPrimitiveStore.addPoints(offset, chunk.getData());
+		FullMeshGenerator.preprocess(filledPrimitiveStore);
+		PreProcessing.fillNullPoints(filledPrimitiveStore);
+	}
+
+	@Benchmark
+	public int fillNullPointsArrayStore() {
+		return PreProcessing.fillNullPoints(arrayStore, PointIndexData::new);
+	}
+
+	@Benchmark
+	public int fillNullPointsPrimitiveStore() {
+		return PreProcessing.fillNullPoints(primitiveStore);
+	}
+
+	@Benchmark
+	public int fillNullPointsStarPrimitiveStore() {
+		return PreProcessing.fillNullPointsStar(primitiveStore);
+	}
+
+	@Benchmark
+	public int treeSmoothing2PrimitiveStore() {
+		return PreProcessing.treeSmoothing2(filledPrimitiveStore);
+	}
+
+}
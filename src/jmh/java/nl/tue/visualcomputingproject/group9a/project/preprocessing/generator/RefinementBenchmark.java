@@ -0,0 +1,56 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator;
+
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.HeightGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the refinement of a {@link QualityLevel#FIVE_BY_FIVE} chunk to a
+ * {@link QualityLevel#HALF_BY_HALF} chunk, with and without using the heights
+ * of the coarse mesh as seed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RefinementBenchmark {
+	/** The fraction of the chunk which contains no data. */
+	@Param({"0.1", "0.4"})
+	public double waterFraction;
+
+	private Chunk<MeshChunkId, PointCloudChunkData> chunk;
+	private ChunkPosition crop;
+	private HeightGrid seed;
+
+	@Setup
+	public void setup() {
+		crop = SyntheticChunks.crop(Settings.CHUNK_WIDTH);
+		chunk = SyntheticChunks.create(QualityLevel.HALF_BY_HALF, Settings.CHUNK_WIDTH, waterFraction, 42);
+		Chunk<MeshChunkId, PointCloudChunkData> coarse = SyntheticChunks.create(
+				QualityLevel.FIVE_BY_FIVE, Settings.CHUNK_WIDTH, waterFraction, 42);
+		MeshChunkData coarseData = new TreeMLSGenerator<MeshChunkId, PointCloudChunkData>()
+				.generateChunkData(coarse, crop);
+		seed = HeightGrid.fromMesh(coarse.getChunkId(), coarseData);
+	}
+
+	@Benchmark
+	public MeshChunkData unseeded() {
+		return new TreeMLSGenerator<MeshChunkId, PointCloudChunkData>().generateChunkData(chunk, crop);
+	}
+
+	@Benchmark
+	public MeshChunkData seeded() {
+		return new TreeMLSGenerator<MeshChunkId, PointCloudChunkData>().generateChunkData(chunk, crop, seed);
+	}
+
+	@Benchmark
+	public MeshChunkData interim() {
+		return new TreeMLSGenerator<MeshChunkId, PointCloudChunkData>().generateInterimChunkData(chunk, crop, seed);
+	}
+
+}
@@ -0,0 +1,149 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator;
+
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.buffer_manager.VertexBufferManager;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.mesh.FullMeshGenerator;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.*;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.pre_processing.PreProcessing;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.pre_processing.VegetationClassifier;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.GridTransform;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.ScaleGridTransform;
+import org.joml.Vector3d;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the separate stages of the generators which do not modify their input.
+ * The stages which do modify their input are benchmarked in {@link MutatingStageBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StageBenchmark {
+	@Param({"FIVE_BY_FIVE", "HALF_BY_HALF"})
+	public QualityLevel quality;
+	/** The width and height of the chunk without border. */
+	@Param({"50", "100", "200"})
+	public int size;
+
+	private Chunk<MeshChunkId, PointCloudChunkData> chunk;
+	private ChunkPosition crop;
+	private ScaleGridTransform transform;
+	private Vector3d offset;
+
+	/** Filled store used as input for the tree smoothing. */
+	private Store<PointIndexData> filledArrayStore;
+	/** Filled store used as input for the tree classification. */
+	private PrimitiveStore filledPrimitiveStore;
+	/** Classifier reused between invocations, as done by the generators. */
+	private VegetationClassifier classifier;
+	/** Filled store containing normals. */
+	private Store<PointNormalIndexData> normalStore;
+	/** Store with vertex indices, used as input for the mesh generation. */
+	private Store<PointIndexData> meshArrayStore;
+	/** Store with vertex indices, used as input for the mesh generation. */
+	private PrimitiveStore meshPrimitiveStore;
+
+	@Setup
+	public void setup() {
+		chunk = SyntheticChunks.create(quality, size, 0.1, 42);
+		crop = SyntheticChunks.crop(size);
+		transform = GridTransform.createTransformFor(chunk, crop);
+		offset = new Vector3d(crop.getX(), 0, crop.getY());
+		ChunkPosition refinedCrop = Generator.refineCrop(crop, transform);
+
+		filledArrayStore = addArrayPoints();
+		FullMeshGenerator.preprocess(filledArrayStore);
+		PreProcessing.fillNullPoints(filledArrayStore, PointIndexData::new);
+
+		filledPrimitiveStore = addPrimitivePoints();
+		FullMeshGenerator.preprocess(filledPrimitiveStore);
+		PreProcessing.fillNullPoints(filledPrimitiveStore);
+		classifier = new VegetationClassifier(0.1);
+
+		normalStore = new ArrayStore<>(chunk.getPosition(), transform);
+		normalStore.addPoints(offset, chunk.getData().getVector3D(), PointNormalIndexData::new);
+		PreProcessing.fillNullPoints(normalStore, PointNormalIndexData::new);
+
+		meshArrayStore = filledArrayStore;
+		meshArrayStore.addToVertexManagerGenWLSNormals(
+				VertexBufferManager.createManagerFor(Settings.VERTEX_TYPE, meshArrayStore.countCropped(refinedCrop)),
+				refinedCrop);
+
+		meshPrimitiveStore = addPrimitivePoints();
+		FullMeshGenerator.preprocess(meshPrimitiveStore);
+		PreProcessing.fillNullPoints(meshPrimitiveStore);
+		meshPrimitiveStore.addToVertexManagerGenWLSNormals(
+				VertexBufferManager.createManagerFor(Settings.VERTEX_TYPE, meshPrimitiveStore.countCropped(refinedCrop)),
+				refinedCrop);
+	}
+
+	private Store<PointIndexData> addArrayPoints() {
+		Store<PointIndexData> store = new ArrayStore<>(chunk.getPosition(), transform);
+		store.addPoints(offset, chunk.getData().getVector3D(), PointIndexData::new);
+		return store;
+	}
+
+	private PrimitiveStore addPrimitivePoints() {
+		PrimitiveStore store = new PrimitiveStore(chunk.getPosition(), transform);
+		store.addPoints(offset, chunk.getData());
+		return store;
+	}
+
+	@Benchmark
+	public Store<PointIndexData> addPointsArrayStore() {
+		return addArrayPoints();
+	}
+
+	@Benchmark
+	public PrimitiveStore addPointsPrimitiveStore() {
+		return addPrimitivePoints();
+	}
+
+	@Benchmark
+	public Store<PointIndexData> treeSmoothing2ArrayStore() {
+		Store<PointIndexData> trgStore = new ArrayStore<>(chunk.getPosition(), transform);
+		PreProcessing.treeSmoothing2(filledArrayStore, trgStore, PointIndexData::new);
+		return trgStore;
+	}
+
+	@Benchmark
+	public boolean[] classifyTreesIntervalList() {
+		int cells = filledPrimitiveStore.getWidth() * filledPrimitiveStore.getHeight();
+		boolean[] isTree = new boolean[cells];
+		PreProcessing.classifyTreesIntervalList(filledPrimitiveStore, transform.getScaleX() * 2.5,
+				isTree, new double[cells], new double[cells]);
+		return isTree;
+	}
+
+	@Benchmark
+	public boolean[] classifyTreesSlidingWindow() {
+		classifier.classify(filledPrimitiveStore, transform.getScaleX() * 2.5);
+		return classifier.getIsTree();
+	}
+
+	@Benchmark
+	public Store<PointNormalIndexData> genWLSNormals() {
+		Store.genWLSNormals(normalStore, transform.getScaleX() * 1.5);
+		return normalStore;
+	}
+
+	@Benchmark
+	public ByteBuffer generateMeshArrayStore() {
+		return FullMeshGenerator.generateMesh(
+				meshArrayStore, chunk, Generator.refineCrop(crop, transform), false);
+	}
+
+	@Benchmark
+	public ByteBuffer generateMeshPrimitiveStore() {
+		return FullMeshGenerator.generateMesh(
+				meshPrimitiveStore, chunk, Generator.refineCrop(crop, transform), false);
+	}
+
+}
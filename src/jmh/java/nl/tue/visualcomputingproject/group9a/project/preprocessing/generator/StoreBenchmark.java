@@ -0,0 +1,95 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator;
+
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.buffer_manager.VertexBufferManager;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.mesh.FullMeshGenerator;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.ArrayStore;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PointIndexData;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.Store;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.pre_processing.PreProcessing;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.GridTransform;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.ScaleGridTransform;
+import org.joml.Vector2f;
+import org.joml.Vector3d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link TreeMLSGenerator} pipeline on an {@link ArrayStore} with the
+ * same pipeline on a {@link nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PrimitiveStore}.
+ * Run with the gc profiler to compare the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreBenchmark {
+	@Param({"FIVE_BY_FIVE", "HALF_BY_HALF"})
+	public QualityLevel quality;
+
+	private Chunk<MeshChunkId, PointCloudChunkData> chunk;
+	/** The same chunk stored as a grid. */
+	private Chunk<MeshChunkId, GridPointData> gridChunk;
+	private ChunkPosition crop;
+
+	@Setup
+	public void setup() {
+		chunk = SyntheticChunks.create(quality, Settings.CHUNK_WIDTH, 0.1, 42);
+		gridChunk = SyntheticChunks.createGrid(quality, Settings.CHUNK_WIDTH, 0.1, 42);
+		crop = SyntheticChunks.crop(Settings.CHUNK_WIDTH);
+	}
+
+	/**
+	 * The {@link TreeMLSGenerator} pipeline as it was implemented on top of {@link ArrayStore}.
+	 */
+	@Benchmark
+	public MeshChunkData arrayStore() {
+		ChunkPosition pos = chunk.getPosition();
+		ScaleGridTransform transform = GridTransform.createTransformFor(chunk, crop);
+		Vector3d offset = new Vector3d(crop.getX(), 0, crop.getY());
+		ChunkPosition refinedCrop = Generator.refineCrop(crop, transform);
+		Store<PointIndexData> store = new ArrayStore<>(pos, transform);
+		store.addPoints(
+				offset,
+				chunk.getData().getVector3D(),
+				PointIndexData::new
+		);
+
+		FullMeshGenerator.preprocess(store);
+		PreProcessing.fillNullPoints(store, PointIndexData::new);
+
+		if (chunk.getQualityLevel().getOrder() >= QualityLevel.HALF_BY_HALF.getOrder()) {
+			Store<PointIndexData> newStore = new ArrayStore<>(pos, transform);
+			PreProcessing.treeSmoothing2(store, newStore, PointIndexData::new);
+			store = newStore;
+		}
+
+		VertexBufferManager vertexManager = VertexBufferManager.createManagerFor(
+				Settings.VERTEX_TYPE, store.countCropped(refinedCrop)
+		);
+		store.addToVertexManagerGenWLSNormals(vertexManager, refinedCrop);
+
+		return new MeshChunkData(
+				vertexManager.finalizeBuffer(),
+				FullMeshGenerator.generateMesh(store, chunk, refinedCrop, false),
+				new Vector2f((float) offset.x(), (float) offset.z()));
+	}
+
+	@Benchmark
+	public MeshChunkData primitiveStore() {
+		return new TreeMLSGenerator<MeshChunkId, PointCloudChunkData>().generateChunkData(chunk, crop);
+	}
+
+	/**
+	 * The {@link TreeMLSGenerator} pipeline on grid data, which is placed into the store without binning.
+	 */
+	@Benchmark
+	public MeshChunkData primitiveStoreGrid() {
+		return new TreeMLSGenerator<MeshChunkId, GridPointData>().generateChunkData(gridChunk, crop);
+	}
+
+}
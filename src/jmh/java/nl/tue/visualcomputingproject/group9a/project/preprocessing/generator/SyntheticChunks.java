@@ -0,0 +1,154 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator;
+
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
+
+import java.util.Random;
+
+/**
+ * Factory class for synthetic point cloud chunks, used to benchmark the
+ * generators without network access.
+ * <br>
+ * The generated terrain consists of a smooth relief, some flat building blocks,
+ * patches of noisy tree canopy, and a strip of NoData values (water).
+ */
+public final class SyntheticChunks {
+	/** The value used by the AHN sheets for missing data. */
+	public static final double NO_DATA = 3.4028234663852886E38;
+	/** The x-coordinate of the generated chunks. */
+	private static final double ORIGIN_X = 162_000;
+	/** The z-coordinate of the generated chunks. */
+	private static final double ORIGIN_Z = -384_300;
+
+	// Disallow instantiation.
+	private SyntheticChunks() {
+	}
+
+	/**
+	 * @param size The width and height of the chunk.
+	 *
+	 * @return The crop of a chunk of the given size, i.e. the position of the chunk without border.
+	 */
+	public static ChunkPosition crop(double size) {
+		return new ChunkPosition(ORIGIN_X, ORIGIN_Z, size, size);
+	}
+
+	/**
+	 * Creates a synthetic chunk as it is passed to {@link Generator#generateChunkData(Chunk, ChunkPosition)}
+	 * by the pre-processing module, i.e. including a border of {@link Settings#CHUNK_VERTEX_BORDER}.
+	 *
+	 * @param quality       The quality level of the chunk. Determines the point density.
+	 * @param size          The width and height of the chunk without border.
+	 * @param waterFraction The fraction of the chunk which contains no data.
+	 * @param seed          The seed of the random generator.
+	 *
+	 * @return A synthetic chunk.
+	 */
+	public static Chunk<MeshChunkId, PointCloudChunkData> create(
+			QualityLevel quality,
+			double size,
+			double waterFraction,
+			long seed) {
+		MeshChunkId id = new MeshChunkId(
+				crop(size),
+				quality,
+				Settings.VERTEX_TYPE,
+				Settings.MESH_TYPE
+		).asExtraBorder(Settings.CHUNK_VERTEX_BORDER);
+		ChunkPosition pos = id.getPosition();
+		double scale = scaleOf(quality);
+		int n = (int) (pos.getWidth() / scale) + 1;
+		Random random = new Random(seed);
+
+		double[] points = new double[3 * n * n];
+		int ctr = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				double x = pos.getX() + i * scale;
+				double z = pos.getY() + j * scale;
+				points[ctr++] = x;
+				points[ctr++] = -z;
+				points[ctr++] = heightAt(i * scale, j * scale, pos.getWidth(), waterFraction, random);
+			}
+		}
+
+		PointCloudChunkData data = new PointCloudChunkData();
+		data.setInterleavedPoints(points);
+		return new Chunk<>(id, data);
+	}
+
+	/**
+	 * Creates the same chunk as {@link #create(QualityLevel, double, double, long)},
+	 * but stores the points as {@link GridPointData} as done by the extractor.
+	 *
+	 * @param quality       The quality level of the chunk. Determines the point density.
+	 * @param size          The width and height of the chunk without border.
+	 * @param waterFraction The fraction of the chunk which contains no data.
+	 * @param seed          The seed of the random generator.
+	 *
+	 * @return A synthetic chunk.
+	 */
+	public static Chunk<MeshChunkId, GridPointData> createGrid(
+			QualityLevel quality,
+			double size,
+			double waterFraction,
+			long seed) {
+		Chunk<MeshChunkId, PointCloudChunkData> chunk = create(quality, size, waterFraction, seed);
+		ChunkPosition pos = chunk.getPosition();
+		double scale = scaleOf(quality);
+		int n = (int) (pos.getWidth() / scale) + 1;
+
+		// The interleaved points are stored column by column.
+		double[] points = chunk.getData().getInterleavedPoints();
+		float[] heights = new float[n * n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				heights[i + j*n] = (float) points[3 * (i*n + j) + 2];
+			}
+		}
+		return new Chunk<>(chunk.getChunkId(), new GridPointData(
+				pos.getX(), -pos.getY(),
+				scale, -scale,
+				n, n,
+				heights));
+	}
+
+	/**
+	 * @param quality The quality level.
+	 *
+	 * @return The distance between two points of the given quality level.
+	 */
+	public static double scaleOf(QualityLevel quality) {
+		switch (quality) {
+			case FIVE_BY_FIVE:
+				return 5;
+			case HALF_BY_HALF:
+				return 0.5;
+			default:
+				throw new IllegalArgumentException("Unsupported quality level: " + quality);
+		}
+	}
+
+	private static double heightAt(double lx, double lz, double size, double waterFraction, Random random) {
+		// Water: a strip along the lower edge of the chunk.
+		if (lz < waterFraction * size) {
+			return NO_DATA;
+		}
+		// Smooth relief.
+		double h = 2 * Math.sin(lx / 17.0) * Math.cos(lz / 23.0) + 0.5 * Math.sin(lx / 3.1 + lz / 4.3);
+		// Building blocks on a 40m raster.
+		double bx = lx % 40;
+		double bz = lz % 40;
+		if (10 <= bx && bx < 25 && 10 <= bz && bz < 25) {
+			return h + 9;
+		}
+		// Tree canopies with gaps on a 30m raster.
+		double tx = (lx + 15) % 30 - 7.5;
+		double tz = (lz + 15) % 30 - 7.5;
+		if (tx*tx + tz*tz < 36 && random.nextDouble() < 0.7) {
+			return h + 6 + 4 * random.nextDouble();
+		}
+		return h;
+	}
+
+}
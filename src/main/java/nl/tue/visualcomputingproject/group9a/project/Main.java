@@ -1,12 +1,16 @@
 package nl.tue.visualcomputingproject.group9a.project;
 
-import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
 import nl.tue.visualcomputingproject.group9a.project.chart.ChartingModule;
 import nl.tue.visualcomputingproject.group9a.project.common.Module;
 import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.CachePolicy;
-import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.LRUCachePolicy;
+import nl.tue.visualcomputingproject.group9a.project.common.event.ChartTextureAvailableEvent;
+import nl.tue.visualcomputingproject.group9a.project.common.event.ChunkStatusTrace;
+import nl.tue.visualcomputingproject.group9a.project.common.event.EventDispatcher;
+import nl.tue.visualcomputingproject.group9a.project.common.event.ProcessorChunkLoadedEvent;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import nl.tue.visualcomputingproject.group9a.project.common.util.Pair;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.PreProcessingModule;
 import nl.tue.visualcomputingproject.group9a.project.renderer.RendererModule;
 import org.slf4j.Logger;
@@ -14,7 +18,6 @@ import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
 import java.io.File;
-import java.util.concurrent.Executors;
 
 /**
  * The main class and start point of the application.
@@ -45,6 +48,27 @@ public class Main {
 		new Main().run(args);
 	}
 
+	/**
+	 * Creates the event bus connecting the modules, with the schedulers registered on it.
+	 * 
+	 * @return The new event bus.
+	 */
+	public static EventBus createEventBus() {
+		EventDispatcher bus = new EventDispatcher(
+				"events",
+				Settings.EVENT_QUEUE_CAPACITY,
+				Settings.EVENT_STATS_INTERVAL);
+		// Only the latest of the duplicate chunk and texture events has to be delivered.
+		bus.coalesce(ProcessorChunkLoadedEvent.class, e -> e.getChunk().getChunkId());
+		bus.coalesce(ChartTextureAvailableEvent.class, e -> new Pair<>(e.getPosition(), e.getType()));
+		// Prioritize the pipeline tasks on the position of the camera. The schedulers handle the
+		// chunk status events before the modules, such that the tasks of a chunk are dropped
+		// and restored in the same order as the chunk is unloaded and loaded by the modules.
+		bus.registerDirect(Settings.scheduler);
+		bus.registerDirect(Settings.textureScheduler);
+		return bus;
+	}
+
 	/**
 	 * The non-static entry point of the application.
 	 * 
@@ -53,11 +77,21 @@ public class Main {
 	public void run(String[] args) {
 		try {
 			logger.info("Setting up cache manager...");
-			CachePolicy diskPolicy = new LRUCachePolicy(5 * CachePolicy.SIZE_GiB);
-			CachePolicy memoryPolicy = new LRUCachePolicy(2 * CachePolicy.SIZE_GiB);
+			String policyName = Settings.SETTINGS.getValue(Settings.SETTINGS_CACHE_POLICY, "lru");
+			CachePolicy diskPolicy = CachePolicy.create(policyName, 5 * CachePolicy.SIZE_GiB);
+			CachePolicy memoryPolicy = CachePolicy.create(policyName, 2 * CachePolicy.SIZE_GiB);
 			logger.info("Starting up modules...");
-			EventBus bus = new AsyncEventBus(Executors.newFixedThreadPool(1));
-//			EventBus bus = new AsyncEventBus(Settings.executorService);
+			EventBus bus = createEventBus();
+			String traceFile = Settings.SETTINGS.getValue(Settings.SETTINGS_CHUNK_TRACE_FILE);
+			if (traceFile != null && !traceFile.isEmpty()) {
+				logger.info("Recording chunk status trace to " + traceFile);
+				bus.register(new ChunkStatusTrace(new File(traceFile)));
+			}
+			String metricsFile = Settings.SETTINGS.getValue(Settings.SETTINGS_METRICS_FILE);
+			if (metricsFile != null && !metricsFile.isEmpty()) {
+				logger.info("Writing pipeline metrics to " + metricsFile);
+				MetricsRegistry.scheduleDumps(new File(metricsFile), Settings.METRICS_INTERVAL);
+			}
 			for (Module mod : modules) {
 				mod.startup(bus, diskPolicy, memoryPolicy);
 			}
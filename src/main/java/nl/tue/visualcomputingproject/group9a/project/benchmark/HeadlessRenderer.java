@@ -0,0 +1,261 @@
+package nl.tue.visualcomputingproject.group9a.project.benchmark;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
+import nl.tue.visualcomputingproject.group9a.project.common.event.ProcessorChunkLoadedEvent;
+import nl.tue.visualcomputingproject.group9a.project.common.event.RendererChunkStatusEvent;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.LatencyHistogram;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stand-in for the renderer module which requests chunks without OpenGL. <br>
+ * <br>
+ * Like the chunk manager of the renderer, the chunks within the load distance of the camera
+ * are requested and the chunks outside the unload distance are unloaded using
+ * {@link RendererChunkStatusEvent}s. The received meshes are not rendered, but the time between
+ * requesting a chunk and receiving its first mesh and its best quality mesh is recorded.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class HeadlessRenderer {
+	/** The logger of this class. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The time between requesting a chunk and receiving its first mesh. */
+	private static final LatencyHistogram FIRST_MESH_LATENCY = MetricsRegistry.histogram("benchmark.time-to-first-mesh");
+	/** The time between requesting a chunk and receiving its best quality mesh. */
+	private static final LatencyHistogram BEST_MESH_LATENCY = MetricsRegistry.histogram("benchmark.time-to-best-quality");
+
+	/**
+	 * The timing of a single request of a chunk.
+	 */
+	@Getter
+	public static class ChunkTiming {
+		/** The position of the chunk. */
+		private final ChunkPosition position;
+		/** The value of {@link System#nanoTime()} when the chunk was requested. */
+		private final long requested;
+		/** The time between the request and the first mesh in nanoseconds, or {@code -1} if not received. */
+		private long firstMesh = -1;
+		/** The quality of the first mesh, or {@code null} if not received. */
+		private QualityLevel firstQuality = null;
+		/** The time between the request and the best quality mesh in nanoseconds, or {@code -1} if not received. */
+		private long bestMesh = -1;
+		/** Whether the chunk was unloaded before the end of the run. */
+		private boolean unloaded = false;
+
+		ChunkTiming(ChunkPosition position, long requested) {
+			this.position = position;
+			this.requested = requested;
+		}
+	}
+
+	/** The event bus used in the application. */
+	private final EventBus eventBus;
+	/** The lock guarding the state of the renderer. */
+	private final Lock lock = new ReentrantLock();
+	/** The condition signalled when a mesh is received. */
+	private final Condition received = lock.newCondition();
+	/** The timings of the loaded chunks. */
+	private final Map<ChunkPosition, ChunkTiming> loaded = new HashMap<>();
+	/** The timings of the unloaded chunks. */
+	private final List<ChunkTiming> finished = new ArrayList<>();
+	/** The chunk index of the camera along the x-axis. */
+	private int cameraX;
+	/** The chunk index of the camera along the z-axis. */
+	private int cameraZ;
+	/** Whether the camera has been positioned. */
+	private boolean positioned = false;
+
+	/**
+	 * Creates a new headless renderer and registers it on the given event bus.
+	 *
+	 * @param eventBus The event bus used in the application.
+	 */
+	public HeadlessRenderer(EventBus eventBus) {
+		this.eventBus = eventBus;
+		eventBus.register(this);
+	}
+
+	/**
+	 * Moves the camera, and requests and unloads the chunks accordingly
+	 * if the camera moved to another chunk.
+	 *
+	 * @param x The x-coordinate of the camera, in renderer coordinates.
+	 * @param z The z-coordinate of the camera, in renderer coordinates.
+	 */
+	public void moveCamera(double x, double z) {
+		final int cx = (int) Math.floor(x / Settings.CHUNK_WIDTH);
+		final int cz = (int) Math.floor(z / Settings.CHUNK_HEIGHT);
+		final List<ChunkPosition> newChunks = new ArrayList<>();
+		final List<ChunkPosition> unloadedChunks = new ArrayList<>();
+		lock.lock();
+		try {
+			if (positioned && cx == cameraX && cz == cameraZ) return;
+			positioned = true;
+			cameraX = cx;
+			cameraZ = cz;
+
+			// Request the chunks in the load distance in rings around the camera, nearest first.
+			final int loadX = (int) Math.ceil(Settings.getChunkLoadDistance() / Settings.CHUNK_WIDTH);
+			final int loadZ = (int) Math.ceil(Settings.getChunkLoadDistance() / Settings.CHUNK_HEIGHT);
+			for (int r = 0; r <= Math.max(loadX, loadZ); r++) {
+				for (int dx = -Math.min(r, loadX); dx <= Math.min(r, loadX); dx++) {
+					for (int dz = -Math.min(r, loadZ); dz <= Math.min(r, loadZ); dz++) {
+						if (Math.max(Math.abs(dx), Math.abs(dz)) != r) continue;
+						ChunkPosition cp = chunkAt(cx + dx, cz + dz);
+						if (!loaded.containsKey(cp)) newChunks.add(cp);
+					}
+				}
+			}
+
+			final int unloadX = (int) Math.ceil(Settings.getChunkUnloadDistance() / Settings.CHUNK_WIDTH);
+			final int unloadZ = (int) Math.ceil(Settings.getChunkUnloadDistance() / Settings.CHUNK_HEIGHT);
+			for (ChunkPosition cp : loaded.keySet()) {
+				int ix = (int) Math.floor(cp.getX() / Settings.CHUNK_WIDTH);
+				int iz = (int) Math.floor(cp.getY() / Settings.CHUNK_HEIGHT);
+				if (Math.abs(ix - cx) >= unloadX || Math.abs(iz - cz) >= unloadZ) {
+					unloadedChunks.add(cp);
+				}
+			}
+			apply(newChunks, unloadedChunks);
+
+		} finally {
+			lock.unlock();
+		}
+		if (!newChunks.isEmpty() || !unloadedChunks.isEmpty()) {
+			eventBus.post(new RendererChunkStatusEvent(newChunks, unloadedChunks, chunkAt(cx, cz)));
+		}
+	}
+
+	/**
+	 * Posts a recorded status event, and tracks the chunks it requests and unloads.
+	 *
+	 * @param event The recorded event.
+	 */
+	public void replay(RendererChunkStatusEvent event) {
+		lock.lock();
+		try {
+			apply(event.getNewChunks(), event.getUnloadedChunks());
+		} finally {
+			lock.unlock();
+		}
+		eventBus.post(event);
+	}
+
+	/**
+	 * Starts tracking the new chunks and stops tracking the unloaded chunks.
+	 * Must be called while holding {@link #lock}.
+	 */
+	private void apply(Collection<ChunkPosition> newChunks, Collection<ChunkPosition> unloadedChunks) {
+		final long now = System.nanoTime();
+		for (ChunkPosition cp : unloadedChunks) {
+			ChunkTiming timing = loaded.remove(cp);
+			if (timing == null) continue;
+			timing.unloaded = true;
+			finished.add(timing);
+		}
+		for (ChunkPosition cp : newChunks) {
+			loaded.putIfAbsent(cp, new ChunkTiming(cp, now));
+		}
+	}
+
+	private static ChunkPosition chunkAt(int ix, int iz) {
+		return new ChunkPosition(
+				ix * Settings.CHUNK_WIDTH,
+				iz * Settings.CHUNK_HEIGHT,
+				Settings.CHUNK_WIDTH,
+				Settings.CHUNK_HEIGHT);
+	}
+
+	/**
+	 * Records the arrival of a mesh.
+	 *
+	 * @param event The chunk loaded event.
+	 */
+	@Subscribe
+	public void receiveEvent(ProcessorChunkLoadedEvent event) {
+		final long now = System.nanoTime();
+		lock.lock();
+		try {
+			ChunkTiming timing = loaded.get(event.getChunk().getPosition());
+			if (timing == null) {
+				// Ignore the event if it is not requested anymore.
+				return;
+			}
+			if (timing.firstMesh < 0) {
+				timing.firstMesh = now - timing.requested;
+				timing.firstQuality = event.getChunk().getQualityLevel();
+				FIRST_MESH_LATENCY.record(timing.firstMesh);
+			}
+			if (timing.bestMesh < 0 && event.getChunk().getQualityLevel() == QualityLevel.getBest()) {
+				timing.bestMesh = now - timing.requested;
+				BEST_MESH_LATENCY.record(timing.bestMesh);
+				received.signalAll();
+			}
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until all loaded chunks have received their best quality mesh.
+	 *
+	 * @param timeout The maximum time to wait.
+	 * @param unit    The unit of the timeout.
+	 *
+	 * @return {@code true} if all chunks have the best quality,
+	 *     {@code false} if the timeout elapsed before.
+	 *
+	 * @throws InterruptedException If the thread was interrupted while waiting.
+	 */
+	public boolean awaitBestQuality(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		long remaining = unit.toNanos(timeout);
+		lock.lock();
+		try {
+			while (true) {
+				int missing = 0;
+				for (ChunkTiming timing : loaded.values()) {
+					if (timing.bestMesh < 0) missing++;
+				}
+				if (missing == 0) return true;
+				if (remaining <= 0) {
+					LOGGER.warn("{} chunks did not reach the best quality before the timeout.", missing);
+					return false;
+				}
+				remaining = received.awaitNanos(remaining);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return The timings of all chunks requested so far, in order of request.
+	 */
+	public List<ChunkTiming> getTimings() {
+		lock.lock();
+		try {
+			List<ChunkTiming> timings = new ArrayList<>(finished);
+			timings.addAll(loaded.values());
+			timings.sort(Comparator.comparingLong(ChunkTiming::getRequested));
+			return timings;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,281 @@
+package nl.tue.visualcomputingproject.group9a.project.benchmark;
+
+import com.google.common.eventbus.EventBus;
+import nl.tue.visualcomputingproject.group9a.project.Main;
+import nl.tue.visualcomputingproject.group9a.project.chart.ChartingModule;
+import nl.tue.visualcomputingproject.group9a.project.chart.source.LocalSheetSource;
+import nl.tue.visualcomputingproject.group9a.project.common.Module;
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.CachePolicy;
+import nl.tue.visualcomputingproject.group9a.project.common.event.ChunkStatusTrace;
+import nl.tue.visualcomputingproject.group9a.project.common.event.RendererChunkStatusEvent;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import nl.tue.visualcomputingproject.group9a.project.common.util.Pair;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.PreProcessingModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless benchmark of the chunk pipeline along a camera path. <br>
+ * <br>
+ * Starts the charting and pre-processing modules without the renderer, and moves the camera of a
+ * {@link HeadlessRenderer} along a scripted path or replays a trace recorded using the
+ * {@link Settings#SETTINGS_CHUNK_TRACE_FILE} setting. Once the camera stops, the benchmark waits
+ * until all loaded chunks have their best quality mesh, and reports the time to the first mesh and
+ * to the best quality mesh per chunk, the latencies of the stages recorded in the
+ * {@link MetricsRegistry}, the CPU time per stage and the peak memory usage. <br>
+ * <br>
+ * Usage: {@code ReplayBenchmark [options]}, with the options:
+ * <ul>
+ *     <li>{@code --trace <file>}: replay the given trace at its recorded pace.</li>
+ *     <li>{@code --path <x,z;x,z;...>}: fly along the given waypoints in renderer coordinates.
+ *         Defaults to a straight path of 2 km starting at {@link Settings#INITIAL_POSITION}.</li>
+ *     <li>{@code --speed <m/s>}: the speed along the path, defaults to {@link Settings#MOVE_SPEED}.</li>
+ *     <li>{@code --timeout <s>}: the maximum time to wait for the best quality, defaults to 300.</li>
+ *     <li>{@code --cache <dir>}: the cache directory, defaults to {@link Settings#CACHE_DIR}.</li>
+ *     <li>{@code --sheets <dir>}: read the sheets from the given local mirror instead of downloading them,
+ *         see {@link LocalSheetSource}. Defaults to {@link Settings#SETTINGS_SHEET_DIRECTORY}.</li>
+ *     <li>{@code --csv <file>}: write the timings of every chunk to the given file.</li>
+ *     <li>{@code --textures}: also render the textures of the chunks.</li>
+ * </ul>
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class ReplayBenchmark {
+	/** The logger of this class. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The interval between two camera updates along a path in milliseconds. */
+	private static final long TICK = 50;
+
+	/** The trace to replay, or {@code null} to fly along {@link #path}. */
+	private File trace = null;
+	/** The waypoints of the path, as {@code {x, z}} pairs in renderer coordinates. */
+	private final List<double[]> path = new ArrayList<>();
+	/** The speed along the path in meters per second. */
+	private double speed = Settings.MOVE_SPEED;
+	/** The maximum time to wait for the best quality in seconds. */
+	private long timeout = 300;
+	/** The file to write the timings of every chunk to, or {@code null} if not written. */
+	private File csv = null;
+	/** Whether the textures of the chunks are rendered. */
+	private boolean textures = false;
+	/** The directory of the local mirror of the sheets, or {@code null} to use the configured source. */
+	private File sheets = null;
+
+	public static void main(String[] args) {
+		int status;
+		try {
+			status = new ReplayBenchmark().run(args);
+		} catch (Exception e) {
+			LOGGER.error("The benchmark failed!", e);
+			status = 1;
+		}
+		// Some modules use non-daemon threads.
+		System.exit(status);
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The commandline arguments.
+	 *
+	 * @return The exit status: {@code 0} if all chunks reached the best quality, {@code 2} otherwise.
+	 *
+	 * @throws Exception If the modules could not be started or the trace could not be read.
+	 */
+	public int run(String[] args)
+			throws Exception {
+		parseArgs(args);
+		if (trace == null && path.isEmpty()) {
+			path.add(new double[] {Settings.INITIAL_POSITION.x, Settings.INITIAL_POSITION.z});
+			path.add(new double[] {Settings.INITIAL_POSITION.x + 2000, Settings.INITIAL_POSITION.z});
+		}
+
+		String policyName = Settings.SETTINGS.getValue(Settings.SETTINGS_CACHE_POLICY, "lru");
+		CachePolicy diskPolicy = CachePolicy.create(policyName, 5 * CachePolicy.SIZE_GiB);
+		CachePolicy memoryPolicy = CachePolicy.create(policyName, 2 * CachePolicy.SIZE_GiB);
+		EventBus bus = Main.createEventBus();
+		HeadlessRenderer renderer = new HeadlessRenderer(bus);
+		Module[] modules = {
+				sheets == null ? new ChartingModule(textures) : new ChartingModule(textures, sheets),
+				new PreProcessingModule(),
+		};
+		for (Module mod : modules) {
+			mod.startup(bus, diskPolicy, memoryPolicy);
+		}
+
+		LOGGER.info("Starting the benchmark...");
+		ResourceMonitor monitor = new ResourceMonitor();
+		monitor.start();
+		final long start = System.nanoTime();
+		if (trace != null) {
+			replayTrace(renderer);
+		} else {
+			flyPath(renderer);
+		}
+		final long moved = System.nanoTime();
+		boolean complete = renderer.awaitBestQuality(timeout, TimeUnit.SECONDS);
+		final long end = System.nanoTime();
+		monitor.stop();
+
+		List<HeadlessRenderer.ChunkTiming> timings = renderer.getTimings();
+		report(timings, monitor, moved - start, end - start);
+		if (csv != null) {
+			writeCsv(timings);
+		}
+		return complete ? 0 : 2;
+	}
+
+	private void parseArgs(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--textures")) {
+				textures = true;
+				continue;
+			}
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value of " + arg);
+			}
+			String value = args[++i];
+			switch (arg) {
+				case "--trace":
+					trace = new File(value);
+					break;
+				case "--path":
+					for (String point : value.split(";")) {
+						String[] v = point.split(",");
+						if (v.length != 2) {
+							throw new IllegalArgumentException("Malformed waypoint: " + point);
+						}
+						path.add(new double[] {Double.parseDouble(v[0]), Double.parseDouble(v[1])});
+					}
+					break;
+				case "--speed":
+					speed = Double.parseDouble(value);
+					break;
+				case "--timeout":
+					timeout = Long.parseLong(value);
+					break;
+				case "--cache":
+					Settings.CACHE_DIR = new File(value);
+					break;
+				case "--sheets":
+					sheets = new File(value);
+					break;
+				case "--csv":
+					csv = new File(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+		}
+	}
+
+	/**
+	 * Posts the events of the trace at the times they were recorded.
+	 */
+	private void replayTrace(HeadlessRenderer renderer)
+			throws IOException, InterruptedException {
+		List<Pair<Long, RendererChunkStatusEvent>> events = ChunkStatusTrace.readTimed(trace);
+		LOGGER.info("Replaying {} events of {}.", events.size(), trace);
+		final long start = System.currentTimeMillis();
+		for (Pair<Long, RendererChunkStatusEvent> event : events) {
+			long delay = event.getFirst() - (System.currentTimeMillis() - start);
+			if (delay > 0) Thread.sleep(delay);
+			renderer.replay(event.getSecond());
+		}
+	}
+
+	/**
+	 * Moves the camera along the path at a constant speed.
+	 */
+	private void flyPath(HeadlessRenderer renderer)
+			throws InterruptedException {
+		LOGGER.info("Flying along {} waypoints at {} m/s.", path.size(), speed);
+		double[] from = path.get(0);
+		renderer.moveCamera(from[0], from[1]);
+		for (int i = 1; i < path.size(); i++) {
+			double[] to = path.get(i);
+			double length = Math.hypot(to[0] - from[0], to[1] - from[1]);
+			final long start = System.nanoTime();
+			double t;
+			do {
+				Thread.sleep(TICK);
+				t = length == 0 ? 1 : Math.min(1, (System.nanoTime() - start) / 1e9 * speed / length);
+				renderer.moveCamera(
+						from[0] + t * (to[0] - from[0]),
+						from[1] + t * (to[1] - from[1]));
+			} while (t < 1);
+			from = to;
+		}
+	}
+
+	private static double toSeconds(long nanos) {
+		return nanos / 1e9;
+	}
+
+	private void report(List<HeadlessRenderer.ChunkTiming> timings, ResourceMonitor monitor, long moving, long total) {
+		int first = 0;
+		int best = 0;
+		for (HeadlessRenderer.ChunkTiming timing : timings) {
+			if (timing.getFirstMesh() >= 0) first++;
+			if (timing.getBestMesh() >= 0) best++;
+		}
+		StringBuilder sb = new StringBuilder();
+		String nl = System.lineSeparator();
+		sb.append(String.format("Camera moved for %.1f s, finished after %.1f s.", toSeconds(moving), toSeconds(total))).append(nl);
+		sb.append(String.format("Requested %d chunks: %d received a mesh, %d reached the best quality.",
+				timings.size(), first, best)).append(nl);
+		sb.append(nl).append("Latencies:").append(nl).append(MetricsRegistry.dump());
+		sb.append(nl).append("CPU time per stage:").append(nl);
+		for (Map.Entry<String, Long> entry : monitor.getCpuTimeByStage().entrySet()) {
+			sb.append(String.format("%-40s %10.2f s", entry.getKey(), toSeconds(entry.getValue()))).append(nl);
+		}
+		sb.append(nl).append("CPU time per thread group:").append(nl);
+		for (Map.Entry<String, Long> entry : monitor.getCpuTimeByGroup().entrySet()) {
+			sb.append(String.format("%-40s %10.2f s", entry.getKey(), toSeconds(entry.getValue()))).append(nl);
+		}
+		sb.append(nl).append(String.format("Peak heap usage: %.1f MiB, peak direct buffer usage: %.1f MiB",
+				monitor.getPeakHeap() / (double) CachePolicy.SIZE_MiB,
+				monitor.getPeakDirect() / (double) CachePolicy.SIZE_MiB)).append(nl);
+		System.out.print(sb);
+	}
+
+	/**
+	 * @return The given duration in milliseconds, or an empty string if it is negative.
+	 */
+	private static String toMillis(long nanos) {
+		return nanos < 0 ? "" : String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+	}
+
+	private void writeCsv(List<HeadlessRenderer.ChunkTiming> timings)
+			throws IOException {
+		try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8))) {
+			pw.println("x,z,requested_ms,first_mesh_ms,first_quality,best_quality_ms,unloaded");
+			long start = timings.isEmpty() ? 0 : timings.get(0).getRequested();
+			for (HeadlessRenderer.ChunkTiming timing : timings) {
+				pw.println(String.format(Locale.ROOT, "%s,%s,%s,%s,%s,%s,%b",
+						timing.getPosition().getX(),
+						timing.getPosition().getY(),
+						toMillis(timing.getRequested() - start),
+						toMillis(timing.getFirstMesh()),
+						timing.getFirstQuality() == null ? "" : timing.getFirstQuality(),
+						toMillis(timing.getBestMesh()),
+						timing.isUnloaded()));
+			}
+		}
+		LOGGER.info("Wrote the timings of {} chunks to {}.", timings.size(), csv);
+	}
+
+}
@@ -0,0 +1,161 @@
+package nl.tue.visualcomputingproject.group9a.project.benchmark;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.StageCpuTime;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the CPU time of all threads and the memory usage of the JVM during a benchmark. <br>
+ * <br>
+ * The CPU time per stage is the CPU time recorded by the stages themselves in
+ * {@link StageCpuTime} during the benchmark. The CPU time is also reported per group of threads,
+ * where the group of a thread is its name without the trailing index, e.g. {@code pipeline-worker}
+ * for {@code pipeline-worker-3}. The groups do not correspond to the stages, since the scheduler
+ * workers run the lookup, extraction and generation, and the generator pool is shared by the
+ * extraction and generation. The peak memory is the largest sampled heap usage and the largest
+ * sampled usage of direct buffers, which hold the vertex and mesh data of the chunks.
+ */
+public class ResourceMonitor {
+	/** The interval between two samples in milliseconds. */
+	private static final long SAMPLE_INTERVAL = 100;
+
+	/** The bean providing the CPU time of the threads. */
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	/** The CPU time of the threads when they were first sampled, by thread id. */
+	private final Map<Long, Long> startCpu = new HashMap<>();
+	/** The CPU time of the threads when they were last sampled, by thread id. */
+	private final Map<Long, Long> lastCpu = new HashMap<>();
+	/** The names of the sampled threads, by thread id. */
+	private final Map<Long, String> names = new HashMap<>();
+	/** The CPU time of the stages at the start, by name of the stage. */
+	private Map<String, Long> startStageCpu = Collections.emptyMap();
+	/** The CPU time of the stages at the stop, or {@code null} while sampling. */
+	private Map<String, Long> stopStageCpu;
+	/** The thread taking the samples. */
+	private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "resource-monitor");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/** The largest sampled heap usage in bytes. */
+	@Getter
+	private long peakHeap;
+	/** The largest sampled usage of direct buffers in bytes. */
+	@Getter
+	private long peakDirect;
+	/** Whether the threads started before the monitor have been sampled. */
+	private boolean started = false;
+
+	/**
+	 * Takes the initial sample and starts sampling periodically.
+	 * The CPU time spent by the existing threads before this call is not counted.
+	 */
+	public void start() {
+		if (threads.isThreadCpuTimeSupported()) {
+			threads.setThreadCpuTimeEnabled(true);
+		}
+		synchronized (this) {
+			startStageCpu = StageCpuTime.byStage();
+		}
+		sample();
+		sampler.scheduleAtFixedRate(this::sample, SAMPLE_INTERVAL, SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Takes the final sample and stops sampling.
+	 */
+	public void stop() {
+		sampler.shutdownNow();
+		sample();
+		synchronized (this) {
+			stopStageCpu = StageCpuTime.byStage();
+		}
+	}
+
+	/**
+	 * Samples the CPU time of all live threads and the memory usage.
+	 */
+	private synchronized void sample() {
+		for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+			if (info == null) continue;
+			long cpu = threads.getThreadCpuTime(info.getThreadId());
+			if (cpu < 0) continue;
+			// Threads created after the start are counted from zero.
+			startCpu.putIfAbsent(info.getThreadId(), started ? 0 : cpu);
+			lastCpu.put(info.getThreadId(), cpu);
+			names.put(info.getThreadId(), info.getThreadName());
+		}
+		started = true;
+
+		peakHeap = Math.max(peakHeap, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if (pool.getName().equals("direct")) {
+				peakDirect = Math.max(peakDirect, pool.getMemoryUsed());
+			}
+		}
+	}
+
+	/**
+	 * @return The CPU time in nanoseconds spent by every group of threads since the start,
+	 *     in descending order of CPU time.
+	 */
+	public synchronized Map<String, Long> getCpuTimeByGroup() {
+		Map<String, Long> groups = new HashMap<>();
+		for (Map.Entry<Long, Long> entry : lastCpu.entrySet()) {
+			long cpu = entry.getValue() - startCpu.get(entry.getKey());
+			if (cpu <= 0) continue;
+			groups.merge(groupOf(names.get(entry.getKey())), cpu, Long::sum);
+		}
+		return sortDescending(groups);
+	}
+
+	/**
+	 * @return The CPU time in nanoseconds spent by every stage since the start, in descending
+	 *     order of CPU time. The CPU time is counted until the stop, or until now while sampling.
+	 */
+	public synchronized Map<String, Long> getCpuTimeByStage() {
+		Map<String, Long> stages = new HashMap<>();
+		Map<String, Long> end = stopStageCpu == null ? StageCpuTime.byStage() : stopStageCpu;
+		for (Map.Entry<String, Long> entry : end.entrySet()) {
+			long cpu = entry.getValue() - startStageCpu.getOrDefault(entry.getKey(), 0L);
+			if (cpu <= 0) continue;
+			stages.put(entry.getKey(), cpu);
+		}
+		return sortDescending(stages);
+	}
+
+	/**
+	 * @param values The values to sort.
+	 *
+	 * @return The entries of the given map in descending order of value.
+	 */
+	private static Map<String, Long> sortDescending(Map<String, Long> values) {
+		List<Map.Entry<String, Long>> sorted = new ArrayList<>(values.entrySet());
+		sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+		Map<String, Long> result = new LinkedHashMap<>();
+		for (Map.Entry<String, Long> entry : sorted) {
+			result.put(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * @param name The name of a thread.
+	 *
+	 * @return The name of the group of the thread.
+	 */
+	static String groupOf(String name) {
+		String group = name.replaceAll("-?\\d+$", "");
+		return group.isEmpty() ? name : group;
+	}
+
+}
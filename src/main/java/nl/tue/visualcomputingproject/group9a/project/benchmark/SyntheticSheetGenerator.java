@@ -0,0 +1,459 @@
+package nl.tue.visualcomputingproject.group9a.project.benchmark;
+
+import nl.tue.visualcomputingproject.group9a.project.chart.LogUtil;
+import nl.tue.visualcomputingproject.group9a.project.chart.source.LocalSheetSource;
+import nl.tue.visualcomputingproject.group9a.project.chart.source.SheetIndexFile;
+import nl.tue.visualcomputingproject.group9a.project.chart.source.SheetSource;
+import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.coverage.grid.io.imageio.GeoToolsWriteParams;
+import org.geotools.gce.geotiff.GeoTiffWriteParams;
+import org.geotools.gce.geotiff.GeoTiffWriter;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.SourcelessOpImage;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates a directory of synthetic AHN map sheets, which can be served by a {@link LocalSheetSource}. <br>
+ * <br>
+ * The sheets are GeoTIFF files of {@link SyntheticTerrain} at 5m and 0.5m resolution, zipped and named
+ * like the sheets of PDOK, together with a matching sheet index file. Like the AHN3 sheets, every sheet
+ * covers {@value #SHEET_WIDTH} by {@value #SHEET_HEIGHT} meters in EPSG:28992, i.e. 1000 by 1250 cells
+ * at 5m and 10000 by 12500 cells at 0.5m. The sheet names are modelled after the map sheet division of
+ * the AHN, e.g. {@code 37en1}: a map of 40 by 25 km is divided into eight parts {@code a} to {@code h},
+ * which are halved into a north ({@code n}) and south ({@code z}) part, which in turn are halved into a
+ * west ({@code 1}) and east ({@code 2}) sheet. The maps are numbered row by row on a regular grid, so
+ * the names do not match the real sheets at the same location. <br>
+ * <br>
+ * The heights are computed lazily per tile while the GeoTIFF is written, so generating a sheet of
+ * 0.5m does not hold all of its 125 million heights in memory. Sheets of which the file already exists
+ * are skipped, and the sheets already listed in the index are kept, so a directory can be extended
+ * by running the generator again. <br>
+ * <br>
+ * Usage: {@code SyntheticSheetGenerator <directory> [options]}, with the options:
+ * <ul>
+ *     <li>{@code --bounds <minX,minY,maxX,maxY>}: generate all sheets overlapping the given
+ *         bounds in EPSG:28992.</li>
+ *     <li>{@code --count <n>}: generate the {@code n} sheets nearest to {@link Settings#INITIAL_POSITION}.
+ *         Defaults to 1 if no bounds are given.</li>
+ *     <li>{@code --levels <5|0.5,...>}: the resolutions to generate, defaults to {@code 5,0.5}.</li>
+ *     <li>{@code --seed <n>}: the seed of the terrain, defaults to 42.</li>
+ *     <li>{@code --threads <n>}: the number of sheets generated concurrently,
+ *         defaults to the number of processors.</li>
+ * </ul>
+ */
+public class SyntheticSheetGenerator {
+	/** The logger of this class. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The width of a sheet in meters. */
+	public static final int SHEET_WIDTH = 5000;
+	/** The height of a sheet in meters. */
+	public static final int SHEET_HEIGHT = 6250;
+	/** The number of sheets in a row of a map. */
+	private static final int MAP_COLUMNS = 8;
+	/** The number of sheets in a column of a map. */
+	private static final int MAP_ROWS = 4;
+	/** The number of maps in a row of the grid of maps. */
+	private static final int GRID_COLUMNS = 8;
+	/** The x-coordinate of the west edge of the grid of maps. */
+	private static final int GRID_MIN_X = -10000;
+	/** The y-coordinate of the north edge of the grid of maps. */
+	private static final int GRID_MAX_Y = 625000;
+	/** The width and height of the tiles of the generated images and GeoTIFF files. */
+	private static final int TILE_SIZE = 256;
+
+	/** The directory to write the sheets to. */
+	private final File directory;
+	/** The terrain of the sheets. */
+	private final SyntheticTerrain terrain;
+	/** The coordinate reference system of the sheets. */
+	private final CoordinateReferenceSystem crs;
+	/** The factory of the geometries of the sheets. */
+	private final GeometryFactory factory = new GeometryFactory();
+
+	/**
+	 * Creates a new generator.
+	 *
+	 * @param directory The directory to write the sheets and the sheet index to.
+	 * @param seed      The seed of the terrain.
+	 *
+	 * @throws FactoryException If the coordinate reference system could not be decoded.
+	 */
+	public SyntheticSheetGenerator(File directory, long seed) throws FactoryException {
+		this.directory = directory;
+		this.terrain = new SyntheticTerrain(seed);
+		this.crs = CRS.decode(SheetSource.CRS_CODE);
+	}
+
+	/**
+	 * @param column The index of the sheet along the x-axis, where sheet {@code 0} starts at {@link #GRID_MIN_X}.
+	 * @param row    The index of the sheet along the negative y-axis, where sheet {@code 0} ends at {@link #GRID_MAX_Y}.
+	 *
+	 * @return The name of the sheet.
+	 */
+	static String bladnrOf(int column, int row) {
+		int map = (row / MAP_ROWS) * GRID_COLUMNS + column / MAP_COLUMNS + 1;
+		int c = column % MAP_COLUMNS;
+		int r = row % MAP_ROWS;
+		// The west half of a map contains parts a to d, the east half e to h.
+		char part = (char) ('a' + (c / 4) * 4 + (r / 2) * 2 + (c % 4) / 2);
+		char half = r % 2 == 0 ? 'n' : 'z';
+		return String.format("%02d%c%c%d", map, part, half, c % 2 + 1);
+	}
+
+	/**
+	 * @return The envelope of the given sheet.
+	 */
+	private ReferencedEnvelope envelopeOf(int column, int row) {
+		double minX = GRID_MIN_X + (double) column * SHEET_WIDTH;
+		double maxY = GRID_MAX_Y - (double) row * SHEET_HEIGHT;
+		return new ReferencedEnvelope(minX, minX + SHEET_WIDTH, maxY - SHEET_HEIGHT, maxY, crs);
+	}
+
+	/**
+	 * Creates the sheet at the given position in the grid of sheets.
+	 *
+	 * @param column The index of the sheet along the x-axis.
+	 * @param row    The index of the sheet along the negative y-axis.
+	 * @param levels The quality levels which are generated.
+	 *
+	 * @return The sheet.
+	 */
+	private MapSheet createSheet(int column, int row, Collection<QualityLevel> levels) {
+		ReferencedEnvelope env = envelopeOf(column, row);
+		Polygon polygon = factory.createPolygon(new Coordinate[] {
+				new Coordinate(env.getMinX(), env.getMinY()),
+				new Coordinate(env.getMaxX(), env.getMinY()),
+				new Coordinate(env.getMaxX(), env.getMaxY()),
+				new Coordinate(env.getMinX(), env.getMaxY()),
+				new Coordinate(env.getMinX(), env.getMinY()),
+		});
+		return new MapSheet(
+				factory.createMultiPolygon(new Polygon[] {polygon}),
+				bladnrOf(column, row),
+				levels.contains(QualityLevel.HALF_BY_HALF),
+				levels.contains(QualityLevel.FIVE_BY_FIVE),
+				false);
+	}
+
+	/**
+	 * Lists the sheets overlapping the given bounds, ignoring the parts outside the grid of maps.
+	 *
+	 * @return The column and row of every sheet.
+	 */
+	static List<int[]> sheetsIn(double minX, double minY, double maxX, double maxY) {
+		List<int[]> sheets = new ArrayList<>();
+		int c0 = (int) Math.floor((minX - GRID_MIN_X) / SHEET_WIDTH);
+		int c1 = (int) Math.ceil((maxX - GRID_MIN_X) / SHEET_WIDTH);
+		int r0 = (int) Math.floor((GRID_MAX_Y - maxY) / SHEET_HEIGHT);
+		int r1 = (int) Math.ceil((GRID_MAX_Y - minY) / SHEET_HEIGHT);
+		for (int row = Math.max(0, r0); row < r1; row++) {
+			for (int column = Math.max(0, c0); column < Math.min(c1, GRID_COLUMNS * MAP_COLUMNS); column++) {
+				sheets.add(new int[] {column, row});
+			}
+		}
+		return sheets;
+	}
+
+	/**
+	 * Lists the given number of sheets nearest to the given point.
+	 *
+	 * @return The column and row of every sheet.
+	 */
+	static List<int[]> sheetsNear(double x, double y, int count) {
+		int radius = (int) Math.ceil(Math.sqrt(count) / 2) + 1;
+		List<int[]> sheets = sheetsIn(
+				x - radius * SHEET_WIDTH, y - radius * SHEET_HEIGHT,
+				x + radius * SHEET_WIDTH, y + radius * SHEET_HEIGHT);
+		sheets.sort(Comparator.comparingDouble(s -> {
+			double dx = GRID_MIN_X + (s[0] + 0.5) * SHEET_WIDTH - x;
+			double dy = GRID_MAX_Y - (s[1] + 0.5) * SHEET_HEIGHT - y;
+			return dx * dx + dy * dy;
+		}));
+		return new ArrayList<>(sheets.subList(0, Math.min(count, sheets.size())));
+	}
+
+	/**
+	 * @param level The quality level.
+	 *
+	 * @return The distance between two cells of the sheets of the given quality level.
+	 */
+	static double resolutionOf(QualityLevel level) {
+		switch (level) {
+			case FIVE_BY_FIVE:
+				return 5;
+			case HALF_BY_HALF:
+				return 0.5;
+			default:
+				throw new IllegalArgumentException("Unsupported quality level: " + level);
+		}
+	}
+
+	/**
+	 * Generates the given sheets, and adds them to the sheet index of the directory.
+	 *
+	 * @param sheets  The column and row of every sheet.
+	 * @param levels  The quality levels to generate.
+	 * @param threads The number of sheets generated concurrently.
+	 *
+	 * @throws Exception If a sheet or the index could not be written.
+	 */
+	public void generate(List<int[]> sheets, Collection<QualityLevel> levels, int threads)
+			throws Exception {
+		Map<String, MapSheet> index = new TreeMap<>();
+		File indexFile = new File(directory, LocalSheetSource.INDEX_FILE);
+		if (indexFile.exists()) {
+			for (MapSheet sheet : SheetIndexFile.read(indexFile, factory)) {
+				index.put(sheet.getBladnr(), sheet);
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "sheet-generator");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int[] s : sheets) {
+				MapSheet sheet = createSheet(s[0], s[1], levels);
+				ReferencedEnvelope env = envelopeOf(s[0], s[1]);
+				for (QualityLevel level : levels) {
+					futures.add(executor.submit(() -> {
+						writeSheet(sheet, env, level);
+						return null;
+					}));
+				}
+				MapSheet existing = index.get(sheet.getBladnr());
+				if (existing != null) {
+					sheet.setHas_data_05m_dsm(sheet.isHas_data_05m_dsm() || existing.isHas_data_05m_dsm());
+					sheet.setHas_data_5m_dsm(sheet.isHas_data_5m_dsm() || existing.isHas_data_5m_dsm());
+				}
+				index.put(sheet.getBladnr(), sheet);
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		SheetIndexFile.write(indexFile, index.values());
+		LOGGER.info("Wrote the index of {} sheets to {}.", index.size(), indexFile);
+	}
+
+	/**
+	 * Writes the zipped GeoTIFF file of a sheet, unless it already exists.
+	 */
+	private void writeSheet(MapSheet sheet, ReferencedEnvelope env, QualityLevel level)
+			throws IOException {
+		String name = SheetSource.getFileName(sheet, level);
+		File file = new File(directory, name);
+		if (file.exists()) {
+			LOGGER.info("Skipping {} since it already exists.", file);
+			return;
+		}
+		File parent = file.getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Could not create " + parent);
+		}
+
+		final long start = System.nanoTime();
+		double resolution = resolutionOf(level);
+		TerrainImage image = new TerrainImage(terrain, env, resolution);
+		GridCoverage2D coverage = new GridCoverageFactory().create(sheet.getBladnr(), image, env);
+
+		File tiff = new File(parent, file.getName() + ".tif.tmp");
+		File tmpZip = new File(parent, file.getName() + ".tmp");
+		try {
+			GeoTiffWriteParams params = new GeoTiffWriteParams();
+			params.setTilingMode(GeoTiffWriteParams.MODE_EXPLICIT);
+			params.setTiling(TILE_SIZE, TILE_SIZE);
+			ParameterValue<GeoToolsWriteParams> value = AbstractGridFormat.GEOTOOLS_WRITE_PARAMS.createValue();
+			value.setValue(params);
+			GeoTiffWriter writer = new GeoTiffWriter(tiff);
+			try {
+				writer.write(coverage, new GeneralParameterValue[] {value});
+			} finally {
+				writer.dispose();
+				coverage.dispose(true);
+			}
+
+			// The GeoTIFF inside the zip is named after the zip, e.g. R_37EN1.TIF in R_37EN1.ZIP.
+			String entry = file.getName().replaceFirst("\\.[^.]*$", "") + ".TIF";
+			try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmpZip)))) {
+				zip.putNextEntry(new ZipEntry(entry));
+				Files.copy(tiff.toPath(), zip);
+				zip.closeEntry();
+			}
+			Files.move(tmpZip.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tiff.toPath());
+			Files.deleteIfExists(tmpZip.toPath());
+		}
+		LOGGER.info("Generated {} ({}x{} cells) in {} s.", file, image.getWidth(), image.getHeight(),
+				String.format("%.1f", (System.nanoTime() - start) / 1e9));
+	}
+
+	/**
+	 * Image of the heights of a sheet, of which the tiles are computed when they are requested.
+	 */
+	private static class TerrainImage
+			extends SourcelessOpImage {
+		/** The terrain to sample. */
+		private final SyntheticTerrain terrain;
+		/** The x-coordinate of the west edge of the sheet. */
+		private final double minX;
+		/** The y-coordinate of the north edge of the sheet. */
+		private final double maxY;
+		/** The distance between two cells. */
+		private final double resolution;
+
+		TerrainImage(SyntheticTerrain terrain, ReferencedEnvelope env, double resolution) {
+			this(terrain, env, resolution,
+					(int) Math.round(env.getWidth() / resolution),
+					(int) Math.round(env.getHeight() / resolution),
+					RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT, TILE_SIZE, TILE_SIZE, 1));
+		}
+
+		private TerrainImage(SyntheticTerrain terrain, ReferencedEnvelope env, double resolution,
+							 int width, int height, SampleModel sampleModel) {
+			super(new ImageLayout(0, 0, width, height, 0, 0, TILE_SIZE, TILE_SIZE,
+							sampleModel, PlanarImage.createColorModel(sampleModel)),
+					null, sampleModel, 0, 0, width, height);
+			this.terrain = terrain;
+			this.minX = env.getMinX();
+			this.maxY = env.getMaxY();
+			this.resolution = resolution;
+		}
+
+		@Override
+		protected void computeRect(PlanarImage[] sources, WritableRaster dest, Rectangle destRect) {
+			float[] row = new float[destRect.width];
+			for (int y = destRect.y; y < destRect.y + destRect.height; y++) {
+				// The heights are sampled at the centers of the cells, and the rows run from north to south.
+				double wy = maxY - (y + 0.5) * resolution;
+				for (int x = 0; x < destRect.width; x++) {
+					row[x] = terrain.heightAt(minX + (destRect.x + x + 0.5) * resolution, wy);
+				}
+				dest.setSamples(destRect.x, y, destRect.width, 1, 0, row);
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		try {
+			run(args);
+		} catch (Exception e) {
+			LOGGER.error("Could not generate the sheets!", e);
+			System.exit(1);
+		}
+	}
+
+	private static void run(String[] args)
+			throws Exception {
+		if (args.length == 0) {
+			throw new IllegalArgumentException("Usage: SyntheticSheetGenerator <directory> [options]");
+		}
+		File directory = new File(args[0]);
+		double[] bounds = null;
+		int count = -1;
+		List<QualityLevel> levels = Arrays.asList(QualityLevel.FIVE_BY_FIVE, QualityLevel.HALF_BY_HALF);
+		long seed = 42;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 1; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value of " + arg);
+			}
+			String value = args[++i];
+			switch (arg) {
+				case "--bounds":
+					String[] v = value.split(",");
+					if (v.length != 4) {
+						throw new IllegalArgumentException("Malformed bounds: " + value);
+					}
+					bounds = new double[4];
+					for (int j = 0; j < 4; j++) {
+						bounds[j] = Double.parseDouble(v[j]);
+					}
+					break;
+				case "--count":
+					count = Integer.parseInt(value);
+					break;
+				case "--levels":
+					levels = new ArrayList<>();
+					for (String level : value.split(",")) {
+						switch (level) {
+							case "5":
+								levels.add(QualityLevel.FIVE_BY_FIVE);
+								break;
+							case "0.5":
+								levels.add(QualityLevel.HALF_BY_HALF);
+								break;
+							default:
+								throw new IllegalArgumentException("Unsupported resolution: " + level);
+						}
+					}
+					break;
+				case "--seed":
+					seed = Long.parseLong(value);
+					break;
+				case "--threads":
+					threads = Math.max(1, Integer.parseInt(value));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+		}
+
+		List<int[]> sheets;
+		if (bounds != null) {
+			sheets = sheetsIn(bounds[0], bounds[1], bounds[2], bounds[3]);
+		} else {
+			// The initial position is in renderer coordinates, where the z-axis points south.
+			sheets = sheetsNear(Settings.INITIAL_POSITION.x, -Settings.INITIAL_POSITION.z, Math.max(1, count));
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create " + directory);
+		}
+		LogUtil.setupGeotools();
+		LOGGER.info("Generating {} sheets at {} in {}...", sheets.size(), levels, directory);
+		new SyntheticSheetGenerator(directory, seed).generate(sheets, levels, threads);
+	}
+
+}
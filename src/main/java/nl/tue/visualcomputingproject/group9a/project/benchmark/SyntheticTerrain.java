@@ -0,0 +1,193 @@
+package nl.tue.visualcomputingproject.group9a.project.benchmark;
+
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.GridPointData;
+
+/**
+ * Deterministic synthetic terrain in the style of the AHN digital surface model. <br>
+ * <br>
+ * The height is a function of the world coordinates and the seed only, so neighbouring sheets
+ * fit seamlessly and the sheets of all quality levels describe the same terrain. The terrain
+ * consists of:
+ * <ul>
+ *     <li>fractal relief, i.e. value noise summed over several octaves, with fine roughness;</li>
+ *     <li>flat-roofed building blocks, which are dense in urban areas and rare elsewhere;</li>
+ *     <li>tree canopies with gaps through which the ground is visible, mostly in forest areas;</li>
+ *     <li>lakes and meandering rivers without data, i.e. {@link GridPointData#NO_DATA}.</li>
+ * </ul>
+ * The buildings, trees and gaps are placed on grids of cells using a hash of the cell coordinates,
+ * so the height of a point is computed without any state and can be evaluated in parallel.
+ */
+public class SyntheticTerrain {
+	/** The salt of the hashes of the relief. */
+	private static final long RELIEF = 1;
+	/** The salt of the hashes of the fine roughness. */
+	private static final long ROUGHNESS = 2;
+	/** The salt of the hashes of the lakes. */
+	private static final long LAKE = 3;
+	/** The salt of the hashes of the rivers. */
+	private static final long RIVER = 4;
+	/** The salt of the hashes of the urban density. */
+	private static final long URBAN = 5;
+	/** The salt of the hashes of the buildings. */
+	private static final long BUILDING = 6;
+	/** The salt of the hashes of the forest density. */
+	private static final long FOREST = 7;
+	/** The salt of the hashes of the trees. */
+	private static final long TREE = 8;
+	/** The salt of the hashes of the gaps in the canopies. */
+	private static final long GAP = 9;
+
+	/** The size of a cell containing at most one building in meters. */
+	private static final double BUILDING_CELL = 50;
+	/** The size of a cell containing at most one tree in meters. */
+	private static final double TREE_CELL = 10;
+	/** The size of a cell deciding whether a point in a canopy is a gap in meters. */
+	private static final double GAP_CELL = 0.5;
+
+	/** The seed of the terrain. */
+	private final long seed;
+
+	/**
+	 * @param seed The seed of the terrain. Equal seeds produce equal terrains.
+	 */
+	public SyntheticTerrain(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Computes the height of the surface at the given point.
+	 *
+	 * @param x The x-coordinate in EPSG:28992.
+	 * @param y The y-coordinate in EPSG:28992.
+	 *
+	 * @return The height in meters, or {@link GridPointData#NO_DATA} on water.
+	 */
+	public float heightAt(double x, double y) {
+		if (isWater(x, y)) {
+			return GridPointData.NO_DATA;
+		}
+		double ground = groundAt(x, y);
+
+		// Buildings take precedence over trees.
+		long bx = (long) Math.floor(x / BUILDING_CELL);
+		long by = (long) Math.floor(y / BUILDING_CELL);
+		double urban = 0.5 + 0.5 * noise(x / 2500, y / 2500, URBAN);
+		long h = hash(bx, by, BUILDING);
+		if (unit(h) < 1.2 * urban - 0.5) {
+			double w = 10 + 30 * unit(h = mix(h));
+			double d = 10 + 30 * unit(h = mix(h));
+			double ox = (BUILDING_CELL - w) * unit(h = mix(h));
+			double oy = (BUILDING_CELL - d) * unit(h = mix(h));
+			double lx = x - bx * BUILDING_CELL - ox;
+			double ly = y - by * BUILDING_CELL - oy;
+			if (0 <= lx && lx < w && 0 <= ly && ly < d) {
+				// The roof is flat, so it is placed relative to the ground at a corner of the building.
+				double height = 3 + 6 * unit(h = mix(h)) + (unit(mix(h)) < 0.05 ? 30 : 0);
+				return (float) (groundAt(bx * BUILDING_CELL + ox, by * BUILDING_CELL + oy) + height);
+			}
+		}
+
+		long tx = (long) Math.floor(x / TREE_CELL);
+		long ty = (long) Math.floor(y / TREE_CELL);
+		double forest = 0.5 + 0.5 * noise(x / 1200, y / 1200, FOREST);
+		h = hash(tx, ty, TREE);
+		if (unit(h) < 1.4 * forest - 0.45) {
+			double radius = 2 + 3 * unit(h = mix(h));
+			double cx = tx * TREE_CELL + radius + (TREE_CELL - 2 * radius) * unit(h = mix(h));
+			double cy = ty * TREE_CELL + radius + (TREE_CELL - 2 * radius) * unit(h = mix(h));
+			double r2 = ((x - cx) * (x - cx) + (y - cy) * (y - cy)) / (radius * radius);
+			if (r2 < 1) {
+				// Gaps in the canopy become more likely towards its edge.
+				long gap = hash((long) Math.floor(x / GAP_CELL), (long) Math.floor(y / GAP_CELL), GAP);
+				if (unit(gap) >= 0.15 + 0.5 * r2) {
+					double height = 8 + 12 * unit(h = mix(h));
+					return (float) (ground + height * Math.sqrt(1 - r2) + unit(mix(gap)));
+				}
+			}
+		}
+		return (float) ground;
+	}
+
+	/**
+	 * @return Whether the given point lies in a lake or river.
+	 */
+	private boolean isWater(double x, double y) {
+		return noise(x / 1500, y / 1500, LAKE) > 0.65
+				|| Math.abs(fractal(x / 6000, y / 6000, 3, RIVER)) < 0.012;
+	}
+
+	/**
+	 * @return The height of the ground without buildings and trees at the given point.
+	 */
+	private double groundAt(double x, double y) {
+		return 12 * fractal(x / 3000, y / 3000, 6, RELIEF)
+				+ 0.15 * noise(x / 4, y / 4, ROUGHNESS);
+	}
+
+	/**
+	 * Sums the given number of octaves of value noise, halving the wavelength
+	 * and the amplitude every octave.
+	 *
+	 * @return The fractal noise, roughly in the range {@code [-1, 1]}.
+	 */
+	private double fractal(double x, double y, int octaves, long salt) {
+		double sum = 0;
+		double amplitude = 0.5;
+		for (int i = 0; i < octaves; i++) {
+			sum += amplitude * noise(x, y, salt + 16 * i);
+			x *= 2;
+			y *= 2;
+			amplitude *= 0.5;
+		}
+		return sum;
+	}
+
+	/**
+	 * Computes value noise, i.e. the smooth interpolation of random values at the integer lattice.
+	 *
+	 * @return The noise in the range {@code [-1, 1]}.
+	 */
+	private double noise(double x, double y, long salt) {
+		long ix = (long) Math.floor(x);
+		long iy = (long) Math.floor(y);
+		double fx = smooth(x - ix);
+		double fy = smooth(y - iy);
+		double v00 = unit(hash(ix, iy, salt));
+		double v10 = unit(hash(ix + 1, iy, salt));
+		double v01 = unit(hash(ix, iy + 1, salt));
+		double v11 = unit(hash(ix + 1, iy + 1, salt));
+		double v0 = v00 + fx * (v10 - v00);
+		double v1 = v01 + fx * (v11 - v01);
+		return 2 * (v0 + fy * (v1 - v0)) - 1;
+	}
+
+	private static double smooth(double t) {
+		return t * t * (3 - 2 * t);
+	}
+
+	/**
+	 * @return A hash of the given lattice point, which is uniformly distributed for every salt.
+	 */
+	private long hash(long x, long y, long salt) {
+		long h = mix(seed ^ (salt * 0xD6E8FEB86659FD93L));
+		h = mix(h + x * 0x9E3779B97F4A7C15L);
+		return mix(h + y * 0xC2B2AE3D27D4EB4FL);
+	}
+
+	/**
+	 * The finalizer of SplitMix64, used to derive further random values from a hash.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return The given hash as a value in the range {@code [0, 1)}.
+	 */
+	private static double unit(long h) {
+		return (h >>> 11) * 0x1.0p-53;
+	}
+
+}
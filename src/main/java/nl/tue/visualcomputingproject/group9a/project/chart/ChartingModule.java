@@ -4,13 +4,18 @@ import com.google.common.eventbus.EventBus;
 import nl.tue.visualcomputingproject.group9a.project.chart.assembly.ChunkAssemblyManager;
 import nl.tue.visualcomputingproject.group9a.project.chart.download.DownloadManager;
 import nl.tue.visualcomputingproject.group9a.project.chart.extractor.Extractor;
+import nl.tue.visualcomputingproject.group9a.project.chart.source.HttpSheetSource;
+import nl.tue.visualcomputingproject.group9a.project.chart.source.LocalSheetSource;
+import nl.tue.visualcomputingproject.group9a.project.chart.source.SheetSource;
 import nl.tue.visualcomputingproject.group9a.project.chart.tile.TileManager;
 import nl.tue.visualcomputingproject.group9a.project.common.Module;
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.CachePolicy;
 import org.geotools.ows.ServiceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 
@@ -30,6 +35,46 @@ public class ChartingModule
 	private LookupManager lookupManager;
 	private Extractor extractor;
 	private TileManager tileManager;
+	/** Whether the textures of the chunks are rendered. */
+	private final boolean textures;
+	/** The directory of the local mirror of the sheets, or {@code null} if the sheets are downloaded. */
+	private final File sheetDirectory;
+	
+	/**
+	 * Creates a new charting module which provides both the point data and the textures of the chunks.
+	 */
+	public ChartingModule() {
+		this(true);
+	}
+	
+	/**
+	 * Creates a new charting module which reads the sheets from the directory configured using
+	 * {@link Settings#SETTINGS_SHEET_DIRECTORY}, or downloads them if it is not configured.
+	 * 
+	 * @param textures Whether the textures of the chunks are rendered. If {@code false}, then
+	 *                 only the point data is provided, and no tile services are contacted.
+	 */
+	public ChartingModule(boolean textures) {
+		this(textures, getConfiguredSheetDirectory());
+	}
+	
+	/**
+	 * Creates a new charting module.
+	 * 
+	 * @param textures       Whether the textures of the chunks are rendered. If {@code false}, then
+	 *                       only the point data is provided, and no tile services are contacted.
+	 * @param sheetDirectory The directory of a local mirror of the sheets, see {@link LocalSheetSource},
+	 *                       or {@code null} to look up and download the sheets from PDOK.
+	 */
+	public ChartingModule(boolean textures, File sheetDirectory) {
+		this.textures = textures;
+		this.sheetDirectory = sheetDirectory;
+	}
+	
+	private static File getConfiguredSheetDirectory() {
+		String dir = Settings.SETTINGS.getValue(Settings.SETTINGS_SHEET_DIRECTORY);
+		return dir == null || dir.isEmpty() ? null : new File(dir);
+	}
 	
 	@Override
 	public void startup(EventBus eventBus, CachePolicy diskPolicy, CachePolicy memoryPolicy)
@@ -37,11 +82,16 @@ public class ChartingModule
 		logger.info("Charting starting up!");
 		LogUtil.setupGeotools();
 		this.cacheManager = new MapSheetCacheManager(diskPolicy);
+		SheetSource source = sheetDirectory == null
+				? new HttpSheetSource(new File(Settings.CACHE_DIR, LocalSheetSource.INDEX_FILE))
+				: new LocalSheetSource(sheetDirectory);
 		assemblyManager = new ChunkAssemblyManager(eventBus);
-		downloadManager = new DownloadManager(eventBus, this.cacheManager);
-		lookupManager = new LookupManager(eventBus, downloadManager, assemblyManager);
+		downloadManager = new DownloadManager(eventBus, this.cacheManager, source);
+		lookupManager = new LookupManager(eventBus, downloadManager, assemblyManager, source);
 		extractor = new Extractor(eventBus, this.cacheManager);
-		tileManager = new TileManager(eventBus, this.lookupManager.getApi().getCrs(), diskPolicy);
+		if (textures) {
+			tileManager = new TileManager(eventBus, source.getCrs(), diskPolicy);
+		}
 		logger.info("Charting is ready!");
 	}
 }
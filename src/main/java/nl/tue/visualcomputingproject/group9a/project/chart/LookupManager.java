@@ -5,19 +5,22 @@ import com.google.common.eventbus.Subscribe;
 import lombok.Getter;
 import nl.tue.visualcomputingproject.group9a.project.chart.assembly.ChunkAssemblyManager;
 import nl.tue.visualcomputingproject.group9a.project.chart.download.DownloadManager;
+import nl.tue.visualcomputingproject.group9a.project.chart.source.SheetSource;
 import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
-import nl.tue.visualcomputingproject.group9a.project.chart.wfs.WFSApi;
 import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkId;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
 import nl.tue.visualcomputingproject.group9a.project.common.event.ProcessorChunkRequestedEvent;
-import org.locationtech.jts.geom.Geometry;
-import org.opengis.referencing.FactoryException;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.Counter;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.LatencyHistogram;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.StageCpuTime;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationStats;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -28,15 +31,21 @@ public class LookupManager {
 	 * The logger of this class.
 	 */
 	static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The latency of the lookups in the sheet index. */
+	private static final LatencyHistogram LOOKUP_LATENCY = MetricsRegistry.histogram("chart.lookup");
+	/** The CPU time spent on the lookups. */
+	private static final Counter LOOKUP_CPU = StageCpuTime.counter("chart.lookup");
 	
 	private final EventBus eventBus;
 	private final DownloadManager downloadManager;
 	private final ChunkAssemblyManager assemblyManager;
+	/** The source used to look up the sheets. */
 	@Getter
-	private final WFSApi api = new WFSApi();
+	private final SheetSource source;
 	
-	public LookupManager(EventBus eventBus, DownloadManager downloadManager, ChunkAssemblyManager assemblyManager) throws IOException {
+	public LookupManager(EventBus eventBus, DownloadManager downloadManager, ChunkAssemblyManager assemblyManager, SheetSource source) {
 		this.eventBus = eventBus;
+		this.source = source;
 		this.downloadManager = downloadManager;
 		this.assemblyManager = assemblyManager;
 		eventBus.register(this);
@@ -45,81 +54,92 @@ public class LookupManager {
 	
 	@Subscribe
 	public void onChunkRequest(ProcessorChunkRequestedEvent event) {
-		Settings.executorService.submit(() -> {
-			try {
-				Collection<MapSheet> sheets = api.query(event.getNewChunksRequested()
-						.stream()
-						.map(ChunkId::getPosition)
-						.collect(Collectors.toSet()));
+		// Prioritize the lookup using the nearest requested chunk and the coarsest quality.
+		List<ChunkPosition> requested = event.getNewChunksRequested().stream()
+				.map(id -> id.getPosition().transformed())
+				.collect(Collectors.toList());
+		QualityLevel quality = event.getNewChunksRequested().stream()
+				.map(ChunkId::getQuality)
+				.min(Comparator.comparingInt(QualityLevel::getOrder))
+				.orElse(null);
+		Settings.scheduler.submit(requested, quality, StageCpuTime.wrap(LOOKUP_CPU, () -> {
+			// Skip the chunks which were unloaded while the lookup was queued.
+			final long start = System.nanoTime();
+			Map<ChunkPosition, CancellationToken> tokens = new HashMap<>();
+			List<ChunkId> chunks = new ArrayList<>();
+			for (ChunkId id : event.getNewChunksRequested()) {
+				CancellationToken token = event.getToken(id);
+				if (token.isCancelled()) continue;
+				tokens.put(id.getPosition(), token);
+				chunks.add(id);
+			}
+			CancellationStats.cancelled(CancellationStats.Stage.LOOKUP,
+					event.getNewChunksRequested().size() - chunks.size());
+			if (chunks.isEmpty()) return;
+			
+			final long queryStart = System.nanoTime();
+			Map<ChunkPosition, List<MapSheet>> sheetsByChunk = source.getIndex().query(chunks
+					.stream()
+					.map(ChunkId::getPosition)
+					.collect(Collectors.toSet()));
+			LOOKUP_LATENCY.recordSince(queryStart);
 
-				logger.info("API returned {} sheets!", sheets.size());
+			logger.info("Index returned sheets for {} of {} chunks!", sheetsByChunk.size(), chunks.size());
 
-				//Assemble the chunk sheets to prepare the chunk assembly manager.
-				Map<ChunkId, List<MapSheet>> chunkSheets = new HashMap<>();
+			//Assemble the chunk sheets to prepare the chunk assembly manager.
+			Map<ChunkId, List<MapSheet>> chunkSheets = new HashMap<>();
 
-				//Iterate over and collect the sheet requests from the sheets.
-				Map<MapSheet, Map<QualityLevel, List<ChunkPosition>>> sheetRequests = new HashMap<>();
-				for (MapSheet sheet : sheets) {
-					Map<QualityLevel, List<ChunkPosition>> requests = new HashMap<>();
-					for (ChunkId requestedChunk : event.getNewChunksRequested()) {
-						Geometry chunkGeom = requestedChunk.getPosition().getJtsGeometry(api.getGeometryFactory(), api.getCrs());
-						if (chunkGeom.intersects(sheet.getGeom())) {
-							//We now know that requestedChunk needs data from sheet.
-							//Make sure we cover both the requested and higher qualities.
-							QualityLevel q = requestedChunk.getQuality();
-							while (q.getOrder() <= Settings.MAX_DOWNLOAD_QUALITY.getOrder()) {
-								//Make sure the chunk will get registered with the assembly manager.
-								ChunkId newChunkId = new ChunkId(requestedChunk.getPosition(), q);
-								List<MapSheet> c = chunkSheets.getOrDefault(newChunkId, new ArrayList<>());
-								c.add(sheet);
-								chunkSheets.put(newChunkId, c);
+			//Iterate over and collect the sheet requests of the chunks.
+			Map<MapSheet, Map<QualityLevel, Map<ChunkPosition, CancellationToken>>> sheetRequests = new HashMap<>();
+			for (ChunkId requestedChunk : chunks) {
+				for (MapSheet sheet : sheetsByChunk.getOrDefault(requestedChunk.getPosition(), Collections.emptyList())) {
+					//We now know that requestedChunk needs data from sheet.
+					Map<QualityLevel, Map<ChunkPosition, CancellationToken>> requests =
+							sheetRequests.computeIfAbsent(sheet, k -> new HashMap<>());
+					//Make sure we cover both the requested and higher qualities.
+					QualityLevel q = requestedChunk.getQuality();
+					while (q.getOrder() <= Settings.MAX_DOWNLOAD_QUALITY.getOrder()) {
+						//Make sure the chunk will get registered with the assembly manager.
+						ChunkId newChunkId = new ChunkId(requestedChunk.getPosition(), q);
+						chunkSheets.computeIfAbsent(newChunkId, k -> new ArrayList<>()).add(sheet);
 
-								//Register the chunk with the requests.
-								if (requests.containsKey(q)) {
-									requests.get(q).add(requestedChunk.getPosition());
-								} else {
-									List<ChunkPosition> l = new ArrayList<>();
-									l.add(requestedChunk.getPosition());
-									requests.put(q, l);
-								}
+						//Register the chunk with the requests.
+						requests.computeIfAbsent(q, k -> new HashMap<>())
+								.put(requestedChunk.getPosition(), tokens.get(requestedChunk.getPosition()));
 
-								if (q != QualityLevel.getBest()) {
-									q = q.next();
-								} else {
-									break;
-								}
-							}
+						if (q != QualityLevel.getBest()) {
+							q = q.next();
+						} else {
+							break;
 						}
 					}
-					sheetRequests.put(sheet, requests);
 				}
+			}
 
-				logger.info("Going to request {} chunks!", chunkSheets.size());
+			logger.info("Going to request {} chunks!", chunkSheets.size());
 
-				//Register these chunks with the assembly manager.
-				for (Map.Entry<ChunkId, List<MapSheet>> e : chunkSheets.entrySet()) {
-					assemblyManager.assembleChunkRequest(e.getKey(), e.getValue());
-				}
+			//Register these chunks with the assembly manager.
+			for (Map.Entry<ChunkId, List<MapSheet>> e : chunkSheets.entrySet()) {
+				assemblyManager.assembleChunkRequest(e.getKey(), e.getValue(), tokens.get(e.getKey().getPosition()));
+			}
 
-				//Iterate over the requests and either send them off for extraction or send it to the download manager.
-				for (Map.Entry<MapSheet, Map<QualityLevel, List<ChunkPosition>>> r : sheetRequests.entrySet()) {
-					MapSheet sheet = r.getKey();
-					Map<QualityLevel, List<ChunkPosition>> requests = r.getValue();
+			//Iterate over the requests and either send them off for extraction or send it to the download manager.
+			for (Map.Entry<MapSheet, Map<QualityLevel, Map<ChunkPosition, CancellationToken>>> r : sheetRequests.entrySet()) {
+				MapSheet sheet = r.getKey();
+				Map<QualityLevel, Map<ChunkPosition, CancellationToken>> requests = r.getValue();
 
-					for (Map.Entry<QualityLevel, List<ChunkPosition>> e : requests.entrySet()) {
-						QualityLevel qualityLevel = e.getKey();
-						List<ChunkPosition> positions = e.getValue();
+				for (Map.Entry<QualityLevel, Map<ChunkPosition, CancellationToken>> e : requests.entrySet()) {
+					QualityLevel qualityLevel = e.getKey();
+					Map<ChunkPosition, CancellationToken> positions = e.getValue();
 
-						if (!positions.isEmpty()) {
-							//See the commends in requestDownload as to why we always request a dl
-							// and never send events directly to the extractor.
-							downloadManager.requestDownload(sheet, positions, qualityLevel);
-						}
+					if (!positions.isEmpty()) {
+						//See the commends in requestDownload as to why we always request a dl
+						// and never send events directly to the extractor.
+						downloadManager.requestDownload(sheet, positions, qualityLevel);
 					}
 				}
-			} catch (FactoryException | IOException e) {
-				e.printStackTrace();
 			}
-		});
+			CancellationStats.completed(CancellationStats.Stage.LOOKUP, start, chunks.size());
+		}));
 	}
 }
@@ -18,16 +18,32 @@ import java.util.Objects;
 
 public class MapSheetCacheManager {
 	private final FileCacheManager cacheManager;
+	/** The cache manager storing the decoded sheets as {@link nl.tue.visualcomputingproject.group9a.project.chart.extractor.SheetRaster}. */
+	private final FileCacheManager rasterCacheManager;
 	
 	public MapSheetCacheManager(CachePolicy policy) {
 		cacheManager = new FileCacheManager(policy, Settings.CACHE_DIR, "mapsheets");
 		cacheManager.indexCache(MapSheetFileId.createFactory());
+		rasterCacheManager = new FileCacheManager(policy, Settings.CACHE_DIR, "mapsheet_rasters");
+		rasterCacheManager.indexCache(MapSheetFileId.createRasterFactory());
 	}
 	
 	public void releaseClaim(FileReadCacheClaim claim) {
 		cacheManager.releaseCacheClaim(claim);
 	}
 	
+	public void releaseClaim(FileReadWriteCacheClaim claim) {
+		cacheManager.releaseCacheClaim(claim);
+	}
+	
+	public void releaseRasterClaim(FileReadCacheClaim claim) {
+		rasterCacheManager.releaseCacheClaim(claim);
+	}
+	
+	public void releaseRasterClaim(FileReadWriteCacheClaim claim) {
+		rasterCacheManager.releaseCacheClaim(claim);
+	}
+	
 	public FileReadCacheClaim attemptClaimSheet(MapSheet sheet, QualityLevel level) {
 		MapSheetFileId id = new MapSheetFileId(sheet.getBladnr(), level);
 		FileReadCacheClaim read = cacheManager.requestReadClaim(id);
@@ -43,25 +59,66 @@ public class MapSheetCacheManager {
 		return cacheManager.degradeClaim(claim);
 	}
 	
+	/**
+	 * @param sheet The map sheet.
+	 * @param level The quality level of the sheet.
+	 *
+	 * @return A read claim on the decoded raster of the sheet, or {@code null} if the
+	 *     sheet has not been decoded yet or is currently being decoded.
+	 */
+	public FileReadCacheClaim attemptClaimRaster(MapSheet sheet, QualityLevel level) {
+		return rasterCacheManager.requestReadClaim(new MapSheetFileId(MapSheetFileId.RASTER_PRE, sheet.getBladnr(), level));
+	}
+	
+	/**
+	 * @param sheet The map sheet.
+	 * @param level The quality level of the sheet.
+	 *
+	 * @return A read-write claim to store the decoded raster of the sheet in, or
+	 *     {@code null} if the raster is currently claimed by another thread.
+	 */
+	public FileReadWriteCacheClaim attemptClaimRasterWrite(MapSheet sheet, QualityLevel level) {
+		return rasterCacheManager.requestReadWriteClaim(new MapSheetFileId(MapSheetFileId.RASTER_PRE, sheet.getBladnr(), level));
+	}
+	
+	public FileReadCacheClaim downgradeRasterClaim(FileReadWriteCacheClaim claim) {
+		return rasterCacheManager.degradeClaim(claim);
+	}
+	
 	@ToString
 	@EqualsAndHashCode
 	@AllArgsConstructor
 	static class MapSheetFileId
 			implements FileId {
 		private static final String PRE = "sheet";
+		/** The prefix of the decoded rasters of the sheets. */
+		private static final String RASTER_PRE = "sheet-raster";
 		
+		private final String pre;
 		private final String bladnr;
 		private final QualityLevel level;
 		
+		MapSheetFileId(String bladnr, QualityLevel level) {
+			this(PRE, bladnr, level);
+		}
+		
 		@Override
 		public String getPath() {
-			return FileId.genPath(PRE, bladnr, level.getOrder());
+			return FileId.genPath(pre, bladnr, level.getOrder());
 		}
 		
 		public static FileIdFactory<MapSheetFileId> createFactory() {
+			return createFactory(PRE);
+		}
+		
+		public static FileIdFactory<MapSheetFileId> createRasterFactory() {
+			return createFactory(RASTER_PRE);
+		}
+		
+		private static FileIdFactory<MapSheetFileId> createFactory(String pre) {
 			return (String path) -> {
 				String[] split = path.split(FileId.DELIM);
-				if (split.length != 3 || !Objects.equals(split[0], PRE)) {
+				if (split.length != 3 || !Objects.equals(split[0], pre)) {
 					return null;
 				}
 				String bladnr = split[1];
@@ -71,7 +128,7 @@ public class MapSheetCacheManager {
 				} catch (NumberFormatException e) {
 					return null;
 				}
-				return new MapSheetFileId(bladnr, level);
+				return new MapSheetFileId(pre, bladnr, level);
 			};
 		}
 	}
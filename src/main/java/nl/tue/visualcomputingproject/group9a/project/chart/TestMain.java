@@ -6,7 +6,6 @@ import nl.tue.visualcomputingproject.group9a.project.chart.visualize.Visualizer;
 import nl.tue.visualcomputingproject.group9a.project.common.Module;
 import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.CachePolicy;
-import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.LRUCachePolicy;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkId;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
@@ -47,8 +46,9 @@ public class TestMain {
 	public void run(String[] args) {
 		try {
 			logger.info("Setting up cache manager...");
-			CachePolicy diskPolicy = new LRUCachePolicy(5 * CachePolicy.SIZE_GiB);
-			CachePolicy memoryPolicy = new LRUCachePolicy(2 * CachePolicy.SIZE_GiB);
+			String policyName = Settings.SETTINGS.getValue(Settings.SETTINGS_CACHE_POLICY, "lru");
+			CachePolicy diskPolicy = CachePolicy.create(policyName, 5 * CachePolicy.SIZE_GiB);
+			CachePolicy memoryPolicy = CachePolicy.create(policyName, 2 * CachePolicy.SIZE_GiB);
 			logger.info("Starting up modules...");
 			EventBus bus = new AsyncEventBus(Settings.executorService);
 			for (Module mod : modules) {
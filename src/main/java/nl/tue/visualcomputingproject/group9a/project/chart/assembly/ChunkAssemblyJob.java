@@ -2,27 +2,35 @@ package nl.tue.visualcomputingproject.group9a.project.chart.assembly;
 
 import lombok.Getter;
 import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
-import nl.tue.visualcomputingproject.group9a.project.common.Point;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.Chunk;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkId;
-import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointCloudChunkData;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.CompositePointData;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointData;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
 public class ChunkAssemblyJob {
 	@Getter
 	private final ChunkId chunkId;
+	/** The cancellation token of the request of the chunk. */
+	@Getter
+	private final CancellationToken token;
+	/** The value of {@link System#nanoTime()} when the assembly was requested. */
+	@Getter
+	private final long requested = System.nanoTime();
 	private final Set<MapSheet> sheetsLeft;
-	private final List<Chunk<ChunkId, PointCloudChunkData>> partialChunks = new ArrayList<>();
+	/** The data of the partial chunks received so far, which is added as it arrives. */
+	private final CompositePointData partialChunks = new CompositePointData();
 	
-	public ChunkAssemblyJob(ChunkId chunkId, Set<MapSheet> sheetsLeft) {
+	public ChunkAssemblyJob(ChunkId chunkId, Set<MapSheet> sheetsLeft, CancellationToken token) {
 		this.chunkId = chunkId;
+		this.token = token;
 		this.sheetsLeft = sheetsLeft;
 	}
 	
-	public void newPartialChunk(Chunk<ChunkId, PointCloudChunkData> chunk, MapSheet sheet) {
+	public void newPartialChunk(Chunk<ChunkId, PointData> chunk, MapSheet sheet) {
 		if (!sheetsLeft.contains(sheet)) {
 			//Either we were never meant to get data from this sheet or we already have it.
 			throw new IllegalStateException("New partial chunk of sheet that we're not looking for data from.");
@@ -32,7 +40,7 @@ public class ChunkAssemblyJob {
 		}
 		
 		sheetsLeft.remove(sheet);
-		partialChunks.add(chunk);
+		partialChunks.add(chunk.getData());
 	}
 	
 	public boolean isReadyForAssembly() {
@@ -40,27 +48,22 @@ public class ChunkAssemblyJob {
 	}
 	
 	public int getNumberOfPartialChunks() {
-		return partialChunks.size();
+		return partialChunks.getParts().size();
 	}
 	
-	public Chunk<ChunkId, PointCloudChunkData> assembleChunk() {
-		PointCloudChunkData points = new PointCloudChunkData();
-		int numData = 0;
-		for (Chunk<ChunkId, PointCloudChunkData> chunk : partialChunks) {
-			numData += chunk.getData().getInterleavedPoints().length;
+	/**
+	 * Assembles the partial chunks into a single chunk. The data of the partial chunks is not
+	 * copied: the data of a single partial chunk is used as is, and the data of several partial
+	 * chunks is combined in a {@link CompositePointData} view.
+	 * 
+	 * @return The assembled chunk.
+	 */
+	public Chunk<ChunkId, PointData> assembleChunk() {
+		List<PointData> parts = partialChunks.getParts();
+		if (parts.size() == 1) {
+			return new Chunk<>(chunkId, parts.get(0));
 		}
-		
-		double[] newPoints = new double[numData];
-		int ctr = 0;
-		
-		for (Chunk<ChunkId, PointCloudChunkData> chunk : partialChunks) {
-			System.arraycopy(chunk.getData().getInterleavedPoints(), 0, newPoints, ctr, chunk.getData().getInterleavedPoints().length);
-			ctr += chunk.getData().getInterleavedPoints().length;
-		}
-		
-		points.setInterleavedPoints(newPoints);
-		
-		return new Chunk<>(chunkId, points);
+		return new Chunk<>(chunkId, partialChunks);
 	}
 	
 	@Override
@@ -5,11 +5,14 @@ import com.google.common.eventbus.Subscribe;
 import nl.tue.visualcomputingproject.group9a.project.chart.ChartingModule;
 import nl.tue.visualcomputingproject.group9a.project.chart.events.PartialChunkAvailableEvent;
 import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
-import nl.tue.visualcomputingproject.group9a.project.common.Settings;
-import nl.tue.visualcomputingproject.group9a.project.common.chunk.Chunk;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkId;
-import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointCloudChunkData;
 import nl.tue.visualcomputingproject.group9a.project.common.event.ChartChunkLoadedEvent;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.Counter;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.LatencyHistogram;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.StageCpuTime;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationStats;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +27,12 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ChunkAssemblyManager {
 	/** The logger of this class. */
 	static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The latency of assembling a chunk from its partial chunks. */
+	private static final LatencyHistogram ASSEMBLY_LATENCY = MetricsRegistry.histogram("chart.assembly");
+	/** The time between requesting the assembly of a chunk and assembling it. */
+	private static final LatencyHistogram ASSEMBLY_WAIT = MetricsRegistry.histogram("chart.assembly.wait");
+	/** The CPU time spent on handling partial chunks and assembling chunks. */
+	private static final Counter ASSEMBLY_CPU = StageCpuTime.counter("chart.assembly");
 	
 	private final Map<ChunkId, ChunkAssemblyJob> assemblyRequests = new ConcurrentHashMap<>();
 	private final EventBus eventBus;
@@ -34,12 +43,18 @@ public class ChunkAssemblyManager {
 		logger.info("Chunk assembly manager ready!");
 	}
 	
-	public void assembleChunkRequest(final ChunkId chunk, Collection<MapSheet> sheets) {
+	public void assembleChunkRequest(final ChunkId chunk, Collection<MapSheet> sheets, CancellationToken token) {
+		// Forget the jobs of cancelled requests, since their remaining partial chunks will not be extracted.
+		assemblyRequests.values().removeIf(job -> {
+			if (!job.getToken().isCancelled()) return false;
+			CancellationStats.cancelled(CancellationStats.Stage.ASSEMBLY, 1);
+			return true;
+		});
 		assemblyRequests.compute(chunk, (key, old) -> {
 			if (old != null) {
 				throw new IllegalStateException("Attempted to request assembly of chunk that's already being assembled.");
 			}
-			return new ChunkAssemblyJob(chunk, new HashSet<>(sheets));
+			return new ChunkAssemblyJob(chunk, new HashSet<>(sheets), token);
 		});
 //		synchronized (assemblyRequests) {
 //			if (assemblyRequests.containsKey(chunk)) {
@@ -55,39 +70,59 @@ public class ChunkAssemblyManager {
 	
 	@Subscribe
 	public void partialChunkAvailable(PartialChunkAvailableEvent event) {
+		final long cpuStart = StageCpuTime.now();
+		try {
+			addPartialChunk(event);
+		} finally {
+			StageCpuTime.recordSince(ASSEMBLY_CPU, cpuStart);
+		}
+	}
+	
+	/**
+	 * Adds the partial chunk to the job of its chunk, and assembles
+	 * and posts the chunk if all its partial chunks have been received.
+	 * 
+	 * @param event The event containing the partial chunk.
+	 */
+	private void addPartialChunk(PartialChunkAvailableEvent event) {
 		// Retrieve the job.
+		final long start = System.nanoTime();
 		ChunkAssemblyJob job = assemblyRequests.get(event.getChunk().getChunkId());
 		if (job == null) {
-			throw new IllegalStateException("Chunk data provided for job that is not in progress!");
+			// The partial chunk was extracted before the request was cancelled.
+			logger.info("Ignoring partial chunk of {} since its assembly has been cancelled.", event.getChunk().getChunkId());
+			return;
+		}
+		if (job.getToken().isCancelled()) {
+			if (assemblyRequests.remove(job.getChunkId(), job)) {
+				CancellationStats.cancelled(CancellationStats.Stage.ASSEMBLY, 1);
+			}
+			return;
 		}
 		logger.info("Partial chunk received for chunk {}.", job.getChunkId());
 		
 		// Add the sub-chunk to the job, and remove
 		// the job from the map if it is ready for assembly.
 		// Notice that a job cannot be removed if it has pending chunks,
-		// i.e. only the last partial chunk event can remove it.
+		// i.e. only the last partial chunk event can remove it,
+		// unless its request is cancelled.
 		boolean isReadyForAssembly = (assemblyRequests.computeIfPresent(event.getChunk().getChunkId(), (id, j) -> {
 			j.newPartialChunk(event.getChunk(), event.getSheet());
 			return (j.isReadyForAssembly() ? null : j);
 		}) == null);
 		
 		// Do assembly / posting only if needed.
-		if (!isReadyForAssembly) return;
+		// The job may also have been removed in the meantime since its request was cancelled.
+		if (!isReadyForAssembly || !job.isReadyForAssembly()) return;
 		
 		logger.info("Chunk {} is ready for assembly!", job.getChunkId());
 		
-		Settings.executorService.submit(() -> {
-			logger.info("Chunk {} is being assembled!", job.getChunkId());
-			
-			Chunk<ChunkId, PointCloudChunkData> assembledChunk = event.getChunk();
-			
-			if (job.getNumberOfPartialChunks() > 1) {
-				// This chunk needs assembly.
-				assembledChunk = job.assembleChunk();
-			}
-			
-			eventBus.post(new ChartChunkLoadedEvent(assembledChunk));
-		});
+		// The assembly does not copy the partial chunks, so it is done directly.
+		ChartChunkLoadedEvent loaded = new ChartChunkLoadedEvent(job.assembleChunk());
+		ASSEMBLY_LATENCY.recordSince(start);
+		ASSEMBLY_WAIT.recordSince(job.getRequested());
+		eventBus.post(loaded);
+		CancellationStats.completed(CancellationStats.Stage.ASSEMBLY, start, 1);
 	}
 	
 	
@@ -5,13 +5,15 @@ import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.disk.FileReadWriteCacheClaim;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
 
-import java.util.Set;
+import java.util.Map;
 
 @Value
 public class DownloadJob {
 	FileReadWriteCacheClaim claim;
 	MapSheet sheet;
 	QualityLevel level;
-	Set<ChunkPosition> chunksRequested;
+	/** The requested positions, mapped to the cancellation tokens of their requests. */
+	Map<ChunkPosition, CancellationToken> chunksRequested;
 }
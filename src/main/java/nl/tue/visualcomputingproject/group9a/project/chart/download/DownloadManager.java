@@ -3,11 +3,14 @@ package nl.tue.visualcomputingproject.group9a.project.chart.download;
 import com.google.common.eventbus.EventBus;
 import nl.tue.visualcomputingproject.group9a.project.chart.MapSheetCacheManager;
 import nl.tue.visualcomputingproject.group9a.project.chart.events.ExtractionRequestEvent;
+import nl.tue.visualcomputingproject.group9a.project.chart.source.SheetSource;
 import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.disk.FileReadCacheClaim;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.disk.FileReadWriteCacheClaim;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationStats;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,16 +30,30 @@ public class DownloadManager {
 	private final MapSheetCacheManager cacheManager;
 	private final DownloadThread downloadThread;
 	
-	public DownloadManager(EventBus eventbus, MapSheetCacheManager cacheManager) {
+	public DownloadManager(EventBus eventbus, MapSheetCacheManager cacheManager, SheetSource source) {
 		this.eventbus = eventbus;
 		this.cacheManager = cacheManager;
-		downloadThread = new DownloadThread(this, cacheManager);
+		downloadThread = new DownloadThread(this, cacheManager, source);
 		downloadThread.start();
 		logger.info("Download manager ready!");
 	}
 	
 	public Optional<DownloadJob> getNextJob() {
 		synchronized (queues) {
+			// Drop the queued jobs of which all requests have been cancelled.
+			for (Queue<DownloadJob> queue : queues.values()) {
+				Iterator<DownloadJob> it = queue.iterator();
+				while (it.hasNext()) {
+					DownloadJob job = it.next();
+					if (CancellationToken.allCancelled(job.getChunksRequested().values())) {
+						it.remove();
+						logger.info("Dropping download job {} since it is not needed anymore.", job);
+						cacheManager.releaseClaim(job.getClaim());
+						CancellationStats.cancelled(CancellationStats.Stage.DOWNLOAD, 1);
+					}
+				}
+			}
+			
 			QualityLevel q = QualityLevel.getWorst();
 			while (true) {
 				Queue<DownloadJob> queue = queues.get(q);
@@ -55,7 +72,7 @@ public class DownloadManager {
 		}
 	}
 	
-	public void requestDownload(MapSheet sheet, Collection<ChunkPosition> positions, QualityLevel level) {
+	public void requestDownload(MapSheet sheet, Map<ChunkPosition, CancellationToken> positions, QualityLevel level) {
 		synchronized (queues) {
 			//This check makes more logical sense in LookupManager, but is here to avoid a race condition.
 			//Namely:
@@ -72,7 +89,7 @@ public class DownloadManager {
 				Queue<DownloadJob> existingJobs = queues.get(level);
 				for (DownloadJob job : existingJobs) {
 					if (job.getSheet().equals(sheet)) {
-						job.getChunksRequested().addAll(positions);
+						job.getChunksRequested().putAll(positions);
 						return;
 					}
 				}
@@ -87,21 +104,47 @@ public class DownloadManager {
 					throw new IllegalStateException("Not able to claim sheet for writing! (invalid)");
 				}
 				
-				DownloadJob newJob = new DownloadJob(writeClaim, sheet, level, new HashSet<>(positions));
+				DownloadJob newJob = new DownloadJob(writeClaim, sheet, level, new HashMap<>(positions));
 				existingJobs.add(newJob);
 				logger.info("New download job! {}", newJob);
 			}
 		}
 	}
 	
-	public void cancelDownload(Collection<ChunkPosition> positions) {
+	/**
+	 * Cancels the given running download job if all of its requests have been cancelled.
+	 * If so, then the job is removed, such that no new requests can be added to it.
+	 * The caller must delete the partially downloaded file and release the claim
+	 * using {@link #downloadCancelled(DownloadJob)}.
+	 * 
+	 * @param job The running download job.
+	 * 
+	 * @return Whether the job has been cancelled.
+	 */
+	public boolean cancelDownload(DownloadJob job) {
 		synchronized (queues) {
+			if (!CancellationToken.allCancelled(job.getChunksRequested().values())) {
+				return false;
+			}
 			for (Queue<DownloadJob> jobs : queues.values()) {
-				for (DownloadJob job : jobs) {
-					job.getChunksRequested().removeAll(positions);
-				}
+				jobs.remove(job);
 			}
+			return true;
+		}
+	}
+	
+	/**
+	 * Deletes the partially downloaded file of a job cancelled by {@link #cancelDownload(DownloadJob)}.
+	 * 
+	 * @param job The cancelled job.
+	 */
+	public void downloadCancelled(DownloadJob job) {
+		logger.info("Download job {} has been cancelled!", job);
+		FileReadWriteCacheClaim claim = job.getClaim();
+		if (claim.exists()) {
+			claim.delete();
 		}
+		cacheManager.releaseClaim(claim);
 	}
 	
 	public void downloadCompleted(DownloadJob job) {
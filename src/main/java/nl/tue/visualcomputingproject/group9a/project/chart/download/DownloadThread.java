@@ -1,6 +1,12 @@
 package nl.tue.visualcomputingproject.group9a.project.chart.download;
 
 import nl.tue.visualcomputingproject.group9a.project.chart.MapSheetCacheManager;
+import nl.tue.visualcomputingproject.group9a.project.chart.source.SheetSource;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.Counter;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.LatencyHistogram;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.StageCpuTime;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -8,21 +14,31 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
-import java.net.URL;
 import java.util.Optional;
 
 public class DownloadThread
 		extends Thread {
 	/** The logger of this class. */
 	static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The number of buffers read between two checks whether the download has been cancelled. */
+	private static final int CANCEL_CHECK_INTERVAL = 64;
+	/** The latency of the completed downloads. */
+	private static final LatencyHistogram DOWNLOAD_LATENCY = MetricsRegistry.histogram("chart.download");
+	/** The number of downloaded bytes, including those of cancelled downloads. */
+	private static final Counter DOWNLOAD_BYTES = MetricsRegistry.counter("chart.download.bytes");
+	/** The CPU time spent on downloading, including cancelled downloads. */
+	private static final Counter DOWNLOAD_CPU = StageCpuTime.counter("chart.download");
 	
 	private final DownloadManager manager;
 	private final MapSheetCacheManager cacheManager;
+	/** The source the sheets are read from. */
+	private final SheetSource source;
 	
-	public DownloadThread(DownloadManager manager, MapSheetCacheManager cacheManager) {
+	public DownloadThread(DownloadManager manager, MapSheetCacheManager cacheManager, SheetSource source) {
 		super("download-thread");
 		this.manager = manager;
 		this.cacheManager = cacheManager;
+		this.source = source;
 		setDaemon(true);
 	}
 	
@@ -33,7 +49,12 @@ public class DownloadThread
 				Optional<DownloadJob> optionalJob = manager.getNextJob();
 				if (optionalJob.isPresent()) {
 					
-					doJob(optionalJob.get());
+					final long cpuStart = StageCpuTime.now();
+					try {
+						doJob(optionalJob.get());
+					} finally {
+						StageCpuTime.recordSince(DOWNLOAD_CPU, cpuStart);
+					}
 					
 				} else {
 					Thread.sleep(1000);
@@ -45,21 +66,35 @@ public class DownloadThread
 	}
 	
 	private void doJob(DownloadJob job) throws IOException {
-		URL url = job.getSheet().getDownloadUrl(job.getLevel());
-		logger.info("Downloading {} for {}...", url, job);
+		logger.info("Downloading {} for {}...", source.getLocation(job.getSheet(), job.getLevel()), job);
+		final long start = System.nanoTime();
 		
-		try (BufferedInputStream in = new BufferedInputStream(url.openStream())) {
+		boolean cancelled = false;
+		try (BufferedInputStream in = new BufferedInputStream(source.open(job.getSheet(), job.getLevel()))) {
 			try (OutputStream out = job.getClaim().getOutputStream()) {
 				byte dataBuffer[] = new byte[1024];
 				int bytesRead;
+				int reads = 0;
 				while ((bytesRead = in.read(dataBuffer, 0, 1024)) != -1) {
 					out.write(dataBuffer, 0, bytesRead);
+					DOWNLOAD_BYTES.add(bytesRead);
+					if (++reads % CANCEL_CHECK_INTERVAL == 0 && manager.cancelDownload(job)) {
+						cancelled = true;
+						break;
+					}
 				}
 			}
 			
 		}
 		
+		if (cancelled) {
+			manager.downloadCancelled(job);
+			CancellationStats.cancelled(CancellationStats.Stage.DOWNLOAD, start, 1);
+			return;
+		}
 		manager.downloadCompleted(job);
+		DOWNLOAD_LATENCY.recordSince(start);
+		CancellationStats.completed(CancellationStats.Stage.DOWNLOAD, start, 1);
 		logger.info("Done!");
 	}
 }
@@ -6,8 +6,9 @@ import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.disk.FileReadCacheClaim;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
 
-import java.util.Collection;
+import java.util.Map;
 
 @Data
 @AllArgsConstructor
@@ -15,5 +16,6 @@ public class ExtractionRequestEvent {
 	FileReadCacheClaim claim;
 	MapSheet sheet;
 	QualityLevel level;
-	Collection<ChunkPosition> positions;
+	/** The requested positions, mapped to the cancellation tokens of their requests. */
+	Map<ChunkPosition, CancellationToken> positions;
 }
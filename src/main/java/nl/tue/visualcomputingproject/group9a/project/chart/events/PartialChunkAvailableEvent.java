@@ -5,11 +5,11 @@ import lombok.Data;
 import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.Chunk;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkId;
-import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointCloudChunkData;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointData;
 
 @Data
 @AllArgsConstructor
 public class PartialChunkAvailableEvent {
-	Chunk<ChunkId, PointCloudChunkData> chunk;
+	Chunk<ChunkId, PointData> chunk;
 	MapSheet sheet;
 }
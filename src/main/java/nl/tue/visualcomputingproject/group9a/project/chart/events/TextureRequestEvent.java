@@ -3,9 +3,12 @@ package nl.tue.visualcomputingproject.group9a.project.chart.events;
 import lombok.Value;
 import nl.tue.visualcomputingproject.group9a.project.common.TextureType;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
 
 @Value
 public class TextureRequestEvent {
 	TextureType type;
 	ChunkPosition position;
+	/** The cancellation token of the texture, which is cancelled when the chunk is unloaded. */
+	CancellationToken token;
 }
@@ -0,0 +1,196 @@
+package nl.tue.visualcomputingproject.group9a.project.chart.extractor;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.GridPointData;
+import org.geotools.coverage.grid.GridCoordinates2D;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.geometry.DirectPosition2D;
+import org.opengis.referencing.operation.TransformException;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+
+/**
+ * Extracts the points of chunk positions from a decoded coverage. <br>
+ * <br>
+ * The grid-to-world transform of the map sheets is affine without rotation, so it is
+ * evaluated once and the coordinates of the cells are derived arithmetically. The heights
+ * of a chunk are read as one rectangular block of samples from the image of the coverage,
+ * instead of evaluating the coverage per cell, and are kept as {@link GridPointData}.
+ * Apart from the cells without data, the points of the grid equal the points returned by
+ * {@link #extractPerPixel(GridCoverage2D, ChunkPosition)}.
+ */
+public class CoverageExtractor {
+	/** The image containing the heights. */
+	private final RenderedImage image;
+	/** The lowest x-coordinate of the grid range. */
+	@Getter
+	private final int lowX;
+	/** The lowest y-coordinate of the grid range. */
+	@Getter
+	private final int lowY;
+	/** The number of columns of the grid. */
+	@Getter
+	private final int width;
+	/** The number of rows of the grid. */
+	@Getter
+	private final int height;
+	/** The world x-coordinate of the center of cell {@code (lowX, lowY)}. */
+	@Getter
+	private final double originX;
+	/** The world y-coordinate of the center of cell {@code (lowX, lowY)}. */
+	@Getter
+	private final double originY;
+	/** The world distance between two neighbouring columns. */
+	@Getter
+	private final double scaleX;
+	/** The world distance between two neighbouring rows. Negative for north-up rasters. */
+	@Getter
+	private final double scaleY;
+
+	/**
+	 * Creates a new extractor for the given coverage.
+	 *
+	 * @param coverage The coverage to extract from.
+	 *
+	 * @throws TransformException If the grid to world transform could not be evaluated.
+	 */
+	public CoverageExtractor(GridCoverage2D coverage) throws TransformException {
+		GridEnvelope2D range = coverage.getGridGeometry().getGridRange2D();
+		lowX = range.getLow(0);
+		lowY = range.getLow(1);
+		width = range.getSpan(0);
+		height = range.getSpan(1);
+
+		// Determine the affine transform by transforming the centers of three cells.
+		double[] coord = new double[] {
+				lowX, lowY,
+				lowX + 1, lowY,
+				lowX, lowY + 1
+		};
+		double[] world = new double[6];
+		coverage.getGridGeometry().getGridToCRS2D().transform(coord, 0, world, 0, 3);
+		originX = world[0];
+		originY = world[1];
+		scaleX = world[2] - world[0];
+		scaleY = world[5] - world[1];
+
+		image = coverage.getRenderedImage();
+	}
+
+	/**
+	 * Reads a block of heights. The image is read while holding its lock, since the image
+	 * reader used by lazily decoded coverages is not thread-safe.
+	 *
+	 * @param x    The first column, relative to {@link #getLowX()}.
+	 * @param y    The first row, relative to {@link #getLowY()}.
+	 * @param w    The number of columns.
+	 * @param h    The number of rows.
+	 * @param dest The array to store the heights in, in row-major order.
+	 *
+	 * @return {@code dest}, or a new array if {@code dest} is {@code null}.
+	 */
+	public float[] getSamples(int x, int y, int w, int h, float[] dest) {
+		int ix = image.getMinX() + x;
+		int iy = image.getMinY() + y;
+		Raster data;
+		synchronized (image) {
+			data = image.getData(new Rectangle(ix, iy, w, h));
+		}
+		return data.getSamples(ix, iy, w, h, 0, dest);
+	}
+
+	/**
+	 * Converts a world x-coordinate to the column containing it.
+	 */
+	private int toGridX(double x) {
+		return lowX + (int) Math.floor((x - originX) / scaleX + 0.5);
+	}
+
+	/**
+	 * Converts a world y-coordinate to the row containing it.
+	 */
+	private int toGridY(double y) {
+		return lowY + (int) Math.floor((y - originY) / scaleY + 0.5);
+	}
+
+	/**
+	 * Extracts the cells overlapping the given position as a grid.
+	 *
+	 * @param pos The position to extract.
+	 *
+	 * @return The grid of the cells, which is empty if the position does not overlap the coverage.
+	 */
+	public GridPointData extract(ChunkPosition pos) {
+		// The corners are swapped for rasters which are not north-up.
+		int x0 = toGridX(pos.getX());
+		int x1 = toGridX(pos.getX() + pos.getWidth());
+		int y0 = toGridY(pos.getY() + pos.getHeight());
+		int y1 = toGridY(pos.getY());
+		int beginX = Math.max(Math.min(x0, x1), lowX);
+		int endX = Math.min(Math.max(x0, x1), lowX + width - 1);
+		int beginY = Math.max(Math.min(y0, y1), lowY);
+		int endY = Math.min(Math.max(y0, y1), lowY + height - 1);
+
+		int w = Math.max(0, endX - beginX + 1);
+		int h = Math.max(0, endY - beginY + 1);
+		float[] samples = w == 0 || h == 0
+				? new float[0]
+				: getSamples(beginX - lowX, beginY - lowY, w, h, null);
+		return new GridPointData(
+				originX + (beginX - lowX) * scaleX,
+				originY + (beginY - lowY) * scaleY,
+				scaleX, scaleY,
+				w, h,
+				samples);
+	}
+
+	/**
+	 * Extracts the points of the cells overlapping the given position by transforming
+	 * and evaluating every cell separately. Only used as reference in benchmarks.
+	 *
+	 * @param coverage The coverage to extract from.
+	 * @param pos      The position to extract.
+	 *
+	 * @return The interleaved points.
+	 *
+	 * @throws TransformException If the grid to world transform could not be evaluated.
+	 */
+	public static double[] extractPerPixel(GridCoverage2D coverage, ChunkPosition pos) throws TransformException {
+		double[] vals = new double[1];
+		double[] coord = new double[coverage.getGridGeometry().getGridToCRS2D().getSourceDimensions()];
+		double[] p = new double[coverage.getGridGeometry().getGridToCRS2D().getTargetDimensions()];
+		GridCoordinates2D c = new GridCoordinates2D();
+		DirectPosition2D bl = new DirectPosition2D(pos.getX(), pos.getY());
+		DirectPosition2D tr = new DirectPosition2D(pos.getX() + pos.getWidth(), pos.getY() + pos.getHeight());
+		GridCoordinates2D blg = coverage.getGridGeometry().worldToGrid(bl);
+		GridCoordinates2D trg = coverage.getGridGeometry().worldToGrid(tr);
+		GridEnvelope2D range = coverage.getGridGeometry().getGridRange2D();
+
+		int w = (int) ((Math.min(trg.getX(), range.getHigh(0)) - (int) Math.max(blg.getX(), range.getLow(0))) + 1);
+		int h = (int) (Math.min(blg.getY(), range.getHigh(1)) - Math.max(trg.getY(), range.getLow(1)) + 1);
+
+		double[] points = new double[Math.max(0, w) * Math.max(0, h) * 3];
+		int ctr = 0;
+
+		for (int i = (int) Math.max(blg.getX(), range.getLow(0)); i <= Math.min(trg.getX(), range.getHigh(0)); i++) {
+			for (int j = (int) Math.max(trg.getY(), range.getLow(1)); j <= Math.min(blg.getY(), range.getHigh(1)); j++) {
+				coord[0] = i;
+				coord[1] = j;
+				c.setLocation(i, j);
+				coverage.getGridGeometry().getGridToCRS2D().transform(coord, 0, p, 0, 1);
+
+				coverage.evaluate(c, vals);
+
+				points[ctr++] = p[0];
+				points[ctr++] = p[1];
+				points[ctr++] = vals[0];
+			}
+		}
+		return points;
+	}
+
+}
@@ -7,27 +7,38 @@ import nl.tue.visualcomputingproject.group9a.project.chart.events.ExtractionRequ
 import nl.tue.visualcomputingproject.group9a.project.chart.events.PartialChunkAvailableEvent;
 import nl.tue.visualcomputingproject.group9a.project.common.Point;
 import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.disk.FileReadCacheClaim;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.disk.FileReadWriteCacheClaim;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.Chunk;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkId;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
-import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointCloudChunkData;
-import org.geotools.coverage.grid.GridCoordinates2D;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.GridPointData;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointData;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.Counter;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.LatencyHistogram;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.StageCpuTime;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationStats;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.gce.geotiff.GeoTiffReader;
-import org.geotools.geometry.DirectPosition2D;
-import org.opengis.coverage.grid.GridEnvelope;
-import org.opengis.geometry.DirectPosition;
 import org.opengis.referencing.operation.TransformException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.awt.geom.Point2D;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -37,6 +48,12 @@ public class Extractor {
 	 * The logger of this class.
 	 */
 	static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The latency of extracting the requested positions of a sheet. */
+	private static final LatencyHistogram EXTRACTION_LATENCY = MetricsRegistry.histogram("chart.extraction");
+	/** The number of extracted points. */
+	private static final Counter EXTRACTION_POINTS = MetricsRegistry.counter("chart.extraction.points");
+	/** The CPU time spent on decoding sheets and extracting their points, including the pool workers. */
+	private static final Counter EXTRACTION_CPU = StageCpuTime.counter("chart.extraction");
 	
 	private final EventBus eventBus;
 	private final MapSheetCacheManager cacheManager;
@@ -48,84 +65,151 @@ public class Extractor {
 		logger.info("Extractor is ready!");
 	}
 	
+	/**
+	 * Decodes the GeoTIFF file in the given zip stream.
+	 */
+	private static GridCoverage2D readCoverage(InputStream inputStream) throws IOException {
+		ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+		ZipEntry entry = zipInputStream.getNextEntry();
+		logger.info("Zip contents: {}", entry);
+		
+		GeoTiffReader reader = new GeoTiffReader(zipInputStream);
+		return (GridCoverage2D) reader.read(null);
+	}
+	
+	/**
+	 * Extracts the requested chunks from the decoded raster of the sheet. If the sheet
+	 * has not been decoded yet, then it is decoded once and stored in the raster cache.
+	 * If the raster is currently being written by another thread, then the chunks are
+	 * extracted directly from the GeoTIFF file using {@link #handleGeotiffFile(ExtractionRequestEvent)}.
+	 * 
+	 * @param event The extraction request.
+	 */
+	public void handleRaster(ExtractionRequestEvent event) throws IOException, TransformException {
+		FileReadCacheClaim rasterClaim = cacheManager.attemptClaimRaster(event.getSheet(), event.getLevel());
+		if (rasterClaim == null) {
+			FileReadWriteCacheClaim writeClaim = cacheManager.attemptClaimRasterWrite(event.getSheet(), event.getLevel());
+			if (writeClaim == null) {
+				logger.info("Raster of sheet {} is claimed, extracting from the GeoTIFF file.", event.getSheet().getBladnr());
+				handleGeotiffFile(event);
+				return;
+			}
+			
+			logger.info("Decoding sheet {} into the raster cache...", event.getSheet().getBladnr());
+			try {
+				try (InputStream inputStream = event.getClaim().getInputStream();
+					 OutputStream outputStream = new BufferedOutputStream(writeClaim.getOutputStream())) {
+					SheetRaster.write(readCoverage(inputStream), outputStream);
+				}
+			} catch (IOException | TransformException | RuntimeException e) {
+				// Do not keep a partially written raster.
+				writeClaim.delete();
+				cacheManager.releaseRasterClaim(writeClaim);
+				throw e;
+			}
+			rasterClaim = cacheManager.downgradeRasterClaim(writeClaim);
+			if (rasterClaim == null) {
+				throw new IOException("Decoded raster of sheet " + event.getSheet().getBladnr() + " disappeared.");
+			}
+		}
+		
+		try (SheetRaster raster = SheetRaster.open(rasterClaim.getFile())) {
+			// The raster is closed before the claim is released, such that the file can be evicted.
+			extractAll(event, raster::extract);
+			
+		} finally {
+			cacheManager.releaseRasterClaim(rasterClaim);
+		}
+	}
+	
 	public void handleGeotiffFile(ExtractionRequestEvent event) throws IOException, TransformException {
 		try (InputStream inputStream = event.getClaim().getInputStream()) {
-			ZipInputStream zipInputStream = new ZipInputStream(inputStream);
-			ZipEntry entry = zipInputStream.getNextEntry();
-			logger.info("Zip contents: {}", entry);
-			
-			GeoTiffReader reader = new GeoTiffReader(zipInputStream);
-			GridCoverage2D coverage = (GridCoverage2D) reader.read(null);
+			GridCoverage2D coverage = readCoverage(inputStream);
 			
 			//Assumption: CRS of the geotiff is EPSG:28992
 			//If not, useful link: https://gis.stackexchange.com/questions/278350/obtaining-longitude-and-latitude-from-geotiff-with-geotools
 			
 			logger.info("Sheet info: {}x{} - {}x{}", coverage.getEnvelope2D().getMinX(), coverage.getEnvelope2D().getMinY(), coverage.getEnvelope2D().getMaxX(), coverage.getEnvelope2D().getMaxY());
 			
-			long count = 0;
-			double[] vals = new double[1];
-			double[] coord = new double[coverage.getGridGeometry().getGridToCRS2D().getSourceDimensions()];
-			double[] p = new double[coverage.getGridGeometry().getGridToCRS2D().getTargetDimensions()];
-			GridCoordinates2D c = new GridCoordinates2D();
-			for (ChunkPosition pos : event.getPositions()) {
-				Chunk<ChunkId, PointCloudChunkData> chunk = new Chunk<>(new ChunkId(pos, event.getLevel()), new PointCloudChunkData());
-				DirectPosition2D bl = new DirectPosition2D(chunk.getPosition().getX(), chunk.getPosition().getY());
-				DirectPosition2D tr = new DirectPosition2D(chunk.getPosition().getX() + chunk.getPosition().getWidth(), chunk.getPosition().getY() + chunk.getPosition().getHeight());
-				GridCoordinates2D blg = coverage.getGridGeometry().worldToGrid(bl);
-				GridCoordinates2D trg = coverage.getGridGeometry().worldToGrid(tr);
-				GridEnvelope2D range = coverage.getGridGeometry().getGridRange2D();
-				logger.info("Chunk: {} {} {} {} - {} {} {} {}", bl, tr, blg, trg, range.getLow(0), range.getHigh(0), range.getLow(1), range.getHigh(1));
-				
-				int w = (int) ((Math.min(trg.getX(), range.getHigh(0)) - (int) Math.max(blg.getX(), range.getLow(0))) + 1);
-				int h = (int) (Math.min(blg.getY(), range.getHigh(1)) - Math.max(trg.getY(), range.getLow(1)) + 1);
-				
-				double[] points = new double[w*h*3];
-				int ctr = 0;
-				
-				for (int i = (int) Math.max(blg.getX(), range.getLow(0)); i <= Math.min(trg.getX(), range.getHigh(0)); i++) {
-					for (int j = (int) Math.max(trg.getY(), range.getLow(1)); j <= Math.min(blg.getY(), range.getHigh(1)); j++) {
-						coord[0] = i;
-						coord[1] = j;
-						c.setLocation(i, j);
-						coverage.getGridGeometry().getGridToCRS2D().transform(coord, 0, p, 0, 1);
-						
-						coverage.evaluate(c, vals);
-						
-						points[ctr++] = p[0];
-						points[ctr++] = p[1];
-						points[ctr++] = vals[0];
-						count++;
-					}
-				}
-				
-				chunk.getData().setInterleavedPoints(points);
-				
-				eventBus.post(new PartialChunkAvailableEvent(chunk, event.getSheet()));
+			extractAll(event, new CoverageExtractor(coverage)::extract);
+		}
+	}
+	
+	/**
+	 * Extracts the points of all requested positions of the sheet in parallel using
+	 * {@link Settings#generatorPool}, and posts the partial chunks afterwards.
+	 * The positions of which the request has been cancelled are skipped.
+	 * 
+	 * @param event     The extraction request.
+	 * @param extractor The function extracting the grid of a position.
+	 */
+	private void extractAll(ExtractionRequestEvent event, Function<ChunkPosition, GridPointData> extractor) {
+		final long start = System.nanoTime();
+		final List<ChunkPosition> positions = new ArrayList<>(event.getPositions().keySet());
+		final GridPointData[] points = new GridPointData[positions.size()];
+		final IntConsumer extract = StageCpuTime.forked(i -> {
+			if (!event.getPositions().get(positions.get(i)).isCancelled()) {
+				points[i] = extractor.apply(positions.get(i));
+			}
+		});
+		final ForkJoinPool pool = Settings.generatorPool;
+		if (pool == null || positions.size() <= 1) {
+			for (int i = 0; i < positions.size(); i++) {
+				extract.accept(i);
 			}
+		} else {
+			pool.invoke(ForkJoinTask.adapt(() -> IntStream.range(0, positions.size())
+					.parallel()
+					.forEach(extract)));
+		}
+		
+		long count = 0;
+		int extracted = 0;
+		for (int i = 0; i < positions.size(); i++) {
+			if (points[i] == null) continue;
+			extracted++;
+			Chunk<ChunkId, PointData> chunk = new Chunk<>(new ChunkId(positions.get(i), event.getLevel()), points[i]);
+			count += points[i].size();
 			
-			logger.info("Extracted {} points.", count);
+			eventBus.post(new PartialChunkAvailableEvent(chunk, event.getSheet()));
 		}
+		logger.info("Extracted {} points of {} chunks in {} ms.", count, extracted, (System.nanoTime() - start) / 1_000_000);
+		EXTRACTION_LATENCY.recordSince(start);
+		EXTRACTION_POINTS.add(count);
+		CancellationStats.completed(CancellationStats.Stage.EXTRACTION, start, extracted);
+		CancellationStats.cancelled(CancellationStats.Stage.EXTRACTION, positions.size() - extracted);
 	}
 	
 	@Subscribe
 	public void request(ExtractionRequestEvent event) {
-		Settings.executorService.submit(() -> {
+		// The extraction is not dropped by the scheduler, since it has to release the claim of the sheet.
+		// The positions of cancelled requests are skipped when the extraction runs instead.
+		List<ChunkPosition> positions = event.getPositions().keySet().stream()
+				.map(ChunkPosition::transformed)
+				.collect(Collectors.toList());
+		Settings.scheduler.submit(positions, event.getLevel(), StageCpuTime.wrap(EXTRACTION_CPU, () -> {
 			try {
-				logger.info("Extracting {}...", event);
+				if (CancellationToken.allCancelled(event.getPositions().values())) {
+					// Do not decode the sheet if none of its chunks are needed anymore.
+					logger.info("Skipping extraction of sheet {} since it is not needed anymore.", event.getSheet().getBladnr());
+					CancellationStats.cancelled(CancellationStats.Stage.EXTRACTION, event.getPositions().size());
+				} else {
+					logger.info("Extracting {}...", event);
 
-				switch (event.getLevel()) {
-					case FIVE_BY_FIVE:
-					case HALF_BY_HALF:
-						handleGeotiffFile(event);
-						break;
-					case LAS:
-						throw new UnsupportedOperationException("Unimplemented: LAZ");
+					switch (event.getLevel()) {
+						case FIVE_BY_FIVE:
+						case HALF_BY_HALF:
+							handleRaster(event);
+							break;
+						case LAS:
+							throw new UnsupportedOperationException("Unimplemented: LAZ");
+					}
 				}
 
 			} catch (IOException | TransformException e) {
 				e.printStackTrace();
 			}
 			cacheManager.releaseClaim(event.getClaim());
-		});
+		}));
 	}
 }
@@ -0,0 +1,257 @@
+package nl.tue.visualcomputingproject.group9a.project.chart.extractor;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.GridPointData;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.opengis.referencing.operation.TransformException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decoded map sheet stored as an uncompressed, tiled raster of {@code float} heights. <br>
+ * <br>
+ * The file starts with a header containing the grid range and the affine transform from
+ * grid to world coordinates, followed by the tiles in row-major order. Every tile contains
+ * {@link #TILE_SIZE} by {@link #TILE_SIZE} heights in row-major order, where the tiles at the
+ * right and bottom edges are padded. Extracting a chunk only reads the rows of the tiles
+ * overlapping it from the file. The file is not mapped into memory, since a mapped file cannot
+ * be deleted on Windows until the mapping is garbage collected. Instead, the file is kept open
+ * until the raster is closed, after which the cache can delete it. <br>
+ * <br>
+ * The grid returned by {@link #extract(ChunkPosition)} contains the heights obtained by
+ * evaluating the original coverage at the grid coordinates of the chunk.
+ */
+public class SheetRaster
+		implements Closeable {
+	/** The magic number at the start of the file. */
+	private static final int MAGIC = 0x53525354;
+	/** The version of the file format. */
+	private static final int VERSION = 1;
+	/** The number of bytes of the header. */
+	private static final int HEADER_SIZE = 4 * Integer.BYTES + 4 * Integer.BYTES + 4 * Double.BYTES;
+	/** The width and height of a tile. */
+	public static final int TILE_SIZE = 256;
+	/** The number of bytes of a tile. */
+	private static final int TILE_BYTES = TILE_SIZE * TILE_SIZE * Float.BYTES;
+
+	/** The lowest x-coordinate of the grid range. */
+	@Getter
+	private final int lowX;
+	/** The lowest y-coordinate of the grid range. */
+	@Getter
+	private final int lowY;
+	/** The number of columns of the grid. */
+	@Getter
+	private final int width;
+	/** The number of rows of the grid. */
+	@Getter
+	private final int height;
+	/** The world x-coordinate of the center of cell {@code (lowX, lowY)}. */
+	private final double originX;
+	/** The world y-coordinate of the center of cell {@code (lowX, lowY)}. */
+	private final double originY;
+	/** The world distance between two neighbouring columns. */
+	private final double scaleX;
+	/** The world distance between two neighbouring rows. Negative for north-up rasters. */
+	private final double scaleY;
+	/** The number of tiles in a row of tiles. */
+	private final int tilesX;
+	/** The channel of the file, which is only read using positional reads. */
+	private final FileChannel channel;
+
+	private SheetRaster(FileChannel channel) throws IOException {
+		this.channel = channel;
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(buffer, 0);
+		buffer.flip();
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != TILE_SIZE) {
+			throw new IOException("Invalid sheet raster file.");
+		}
+		buffer.getInt(); // Reserved.
+		lowX = buffer.getInt();
+		lowY = buffer.getInt();
+		width = buffer.getInt();
+		height = buffer.getInt();
+		originX = buffer.getDouble();
+		originY = buffer.getDouble();
+		scaleX = buffer.getDouble();
+		scaleY = buffer.getDouble();
+		tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+		int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+		if (channel.size() - HEADER_SIZE < (long) tilesX * tilesY * TILE_BYTES) {
+			throw new IOException("Truncated sheet raster file.");
+		}
+	}
+
+	/**
+	 * Opens the given sheet raster file. The file stays open until the raster is closed.
+	 *
+	 * @param file The file to open.
+	 *
+	 * @return The raster.
+	 *
+	 * @throws IOException If the file could not be read or is not a sheet raster.
+	 */
+	public static SheetRaster open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			return new SheetRaster(channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the file of the raster, after which no chunks can be extracted anymore.
+	 *
+	 * @throws IOException If the file could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Reads the file starting at the given position until the buffer is full.
+	 * Positional reads do not modify the channel, so this is thread-safe.
+	 */
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new EOFException("Truncated sheet raster file.");
+			}
+			position += read;
+		}
+	}
+
+	/**
+	 * Decodes the given coverage and writes it as sheet raster.
+	 * The coverage is read one row of tiles at a time using {@link CoverageExtractor}.
+	 *
+	 * @param coverage The coverage to write.
+	 * @param out      The stream to write the raster to.
+	 *
+	 * @throws IOException        If the raster could not be written.
+	 * @throws TransformException If the grid to world transform could not be evaluated.
+	 */
+	public static void write(GridCoverage2D coverage, OutputStream out)
+			throws IOException, TransformException {
+		CoverageExtractor source = new CoverageExtractor(coverage);
+		int width = source.getWidth();
+		int height = source.getHeight();
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(TILE_SIZE).putInt(0);
+		header.putInt(source.getLowX()).putInt(source.getLowY()).putInt(width).putInt(height);
+		header.putDouble(source.getOriginX()).putDouble(source.getOriginY());
+		header.putDouble(source.getScaleX()).putDouble(source.getScaleY());
+		out.write(header.array());
+
+		int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+		float[] samples = new float[TILE_SIZE * width];
+		ByteBuffer tileRow = ByteBuffer.allocate(tilesX * TILE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		FloatBuffer tileRowFloats = tileRow.asFloatBuffer();
+		for (int ty = 0; ty < height; ty += TILE_SIZE) {
+			int rows = Math.min(TILE_SIZE, height - ty);
+			source.getSamples(0, ty, width, rows, samples);
+
+			tileRowFloats.clear();
+			for (int tx = 0; tx < width; tx += TILE_SIZE) {
+				int cols = Math.min(TILE_SIZE, width - tx);
+				for (int y = 0; y < TILE_SIZE; y++) {
+					if (y < rows) {
+						tileRowFloats.put(samples, y * width + tx, cols);
+						for (int x = cols; x < TILE_SIZE; x++) tileRowFloats.put(Float.NaN);
+					} else {
+						for (int x = 0; x < TILE_SIZE; x++) tileRowFloats.put(Float.NaN);
+					}
+				}
+			}
+			out.write(tileRow.array(), 0, tileRow.capacity());
+		}
+	}
+
+	/**
+	 * Converts a world x-coordinate to the column containing it.
+	 */
+	private int toGridX(double x) {
+		return lowX + (int) Math.floor((x - originX) / scaleX + 0.5);
+	}
+
+	/**
+	 * Converts a world y-coordinate to the row containing it.
+	 */
+	private int toGridY(double y) {
+		return lowY + (int) Math.floor((y - originY) / scaleY + 0.5);
+	}
+
+	/**
+	 * Extracts the cells overlapping the given position as a grid.
+	 *
+	 * @param pos The position to extract.
+	 *
+	 * @return The grid of the cells, which is empty if the position does not overlap the raster.
+	 *
+	 * @throws UncheckedIOException If the file could not be read.
+	 */
+	public GridPointData extract(ChunkPosition pos) {
+		// The corners are swapped for rasters which are not north-up.
+		int x0 = toGridX(pos.getX());
+		int x1 = toGridX(pos.getX() + pos.getWidth());
+		int y0 = toGridY(pos.getY() + pos.getHeight());
+		int y1 = toGridY(pos.getY());
+		int beginX = Math.max(Math.min(x0, x1), lowX) - lowX;
+		int endX = Math.min(Math.max(x0, x1), lowX + width - 1) - lowX;
+		int beginY = Math.max(Math.min(y0, y1), lowY) - lowY;
+		int endY = Math.min(Math.max(y0, y1), lowY + height - 1) - lowY;
+
+		int w = Math.max(0, endX - beginX + 1);
+		int h = Math.max(0, endY - beginY + 1);
+		float[] heights = new float[w * h];
+		try {
+			// Read the overlapping rows of every overlapping tile at once, since they are consecutive in the file.
+			ByteBuffer rows = null;
+			for (int ty = beginY / TILE_SIZE; h > 0 && ty <= endY / TILE_SIZE; ty++) {
+				int tileBeginY = Math.max(beginY, ty * TILE_SIZE);
+				int tileEndY = Math.min(endY, ty * TILE_SIZE + TILE_SIZE - 1);
+				int numRows = tileEndY - tileBeginY + 1;
+				for (int tx = beginX / TILE_SIZE; w > 0 && tx <= endX / TILE_SIZE; tx++) {
+					int tileBeginX = Math.max(beginX, tx * TILE_SIZE);
+					int tileEndX = Math.min(endX, tx * TILE_SIZE + TILE_SIZE - 1);
+					int n = tileEndX - tileBeginX + 1;
+
+					int size = numRows * TILE_SIZE * Float.BYTES;
+					if (rows == null || rows.capacity() < size) {
+						rows = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+					}
+					rows.clear().limit(size);
+					long tile = (long) ty * tilesX + tx;
+					readFully(rows, HEADER_SIZE + (tile * TILE_SIZE * TILE_SIZE + (long) (tileBeginY % TILE_SIZE) * TILE_SIZE) * Float.BYTES);
+					rows.flip();
+					FloatBuffer view = rows.asFloatBuffer();
+					for (int y = tileBeginY; y <= tileEndY; y++) {
+						view.position((y - tileBeginY) * TILE_SIZE + tileBeginX % TILE_SIZE);
+						view.get(heights, (y - beginY) * w + (tileBeginX - beginX), n);
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new GridPointData(
+				originX + beginX * scaleX,
+				originY + beginY * scaleY,
+				scaleX, scaleY,
+				w, h,
+				heights);
+	}
+
+}
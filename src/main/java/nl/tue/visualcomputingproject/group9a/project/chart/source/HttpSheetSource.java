@@ -0,0 +1,106 @@
+package nl.tue.visualcomputingproject.group9a.project.chart.source;
+
+import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
+import nl.tue.visualcomputingproject.group9a.project.chart.wfs.WFSApi;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.URL;
+import java.util.Collection;
+
+/**
+ * Sheet source which downloads the sheets from PDOK. <br>
+ * <br>
+ * The index of all sheets is fetched once from the WFS of the nationaal georegister,
+ * and persisted as sheet index file, see {@link SheetIndexFile}. Afterwards, the index
+ * is read from that file, so the WFS is not contacted anymore. Delete the file to
+ * fetch the index again.
+ */
+public class HttpSheetSource
+		implements SheetSource {
+	/** The logger of this class. */
+	static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The base URL of the AHN3 downloads of PDOK. */
+	public static final String PDOK_DOWNLOAD_URL = "https://download.pdok.nl/rws/ahn3/v1_0";
+	
+	/** The coordinate reference system of the sheets. */
+	private final CoordinateReferenceSystem crs;
+	/** The index of all sheets. */
+	private final SheetIndex index;
+	
+	/**
+	 * Creates a new source, and reads the sheet index from the given file.
+	 * If the file does not exist, then the index is fetched from the WFS and written to the file.
+	 * 
+	 * @param indexFile The file persisting the sheet index.
+	 * 
+	 * @throws IOException If the index could not be read, fetched or written.
+	 */
+	public HttpSheetSource(File indexFile) throws IOException {
+		try {
+			crs = CRS.decode(CRS_CODE);
+		} catch (FactoryException e) {
+			throw new IOException("Could not decode " + CRS_CODE, e);
+		}
+		
+		Collection<MapSheet> sheets;
+		if (indexFile.exists()) {
+			sheets = SheetIndexFile.read(indexFile, getGeometryFactory());
+			logger.info("Read {} sheets from {}.", sheets.size(), indexFile);
+		} else {
+			try {
+				sheets = new WFSApi().queryAll();
+			} catch (FactoryException e) {
+				throw new IOException("Could not fetch the sheet index!", e);
+			}
+			File parent = indexFile.getAbsoluteFile().getParentFile();
+			if (!parent.isDirectory() && !parent.mkdirs()) {
+				throw new IOException("Could not create " + parent);
+			}
+			SheetIndexFile.write(indexFile, sheets);
+			logger.info("Fetched {} sheets and wrote them to {}.", sheets.size(), indexFile);
+		}
+		index = new SheetIndex(sheets);
+	}
+	
+	@Override
+	public CoordinateReferenceSystem getCrs() {
+		return crs;
+	}
+	
+	@Override
+	public SheetIndex getIndex() {
+		return index;
+	}
+	
+	@Override
+	public InputStream open(MapSheet sheet, QualityLevel level) throws IOException {
+		return getUrl(sheet, level).openStream();
+	}
+	
+	@Override
+	public String getLocation(MapSheet sheet, QualityLevel level) {
+		return PDOK_DOWNLOAD_URL + "/" + SheetSource.getFileName(sheet, level);
+	}
+	
+	/**
+	 * @param sheet The sheet.
+	 * @param level The quality level of the file.
+	 * 
+	 * @return The download URL of the file of the sheet.
+	 * 
+	 * @throws IOException If the URL is malformed.
+	 */
+	public URL getUrl(MapSheet sheet, QualityLevel level) throws IOException {
+		return new URL(getLocation(sheet, level));
+	}
+	
+}
@@ -0,0 +1,87 @@
+package nl.tue.visualcomputingproject.group9a.project.chart.source;
+
+import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Sheet source which serves the sheets from a local directory, e.g. a mirror of PDOK on a NAS. <br>
+ * <br>
+ * The directory contains the files of the sheets at the same relative paths as on PDOK,
+ * see {@link SheetSource#getFileName(MapSheet, QualityLevel)}, and a sheet index file named
+ * {@link #INDEX_FILE} listing the sheets, see {@link SheetIndexFile}. The index is read once,
+ * and kept in memory as {@link SheetIndex}.
+ */
+public class LocalSheetSource
+		implements SheetSource {
+	/** The logger of this class. */
+	static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The name of the sheet index file in the directory. */
+	public static final String INDEX_FILE = "sheets.tsv";
+	
+	/** The directory containing the sheets. */
+	private final File directory;
+	/** The coordinate reference system of the sheets. */
+	private final CoordinateReferenceSystem crs;
+	/** The index of all sheets in the directory. */
+	private final SheetIndex index;
+	
+	/**
+	 * Creates a new source and reads the sheet index of the given directory.
+	 * 
+	 * @param directory The directory containing the sheets and the sheet index file.
+	 * 
+	 * @throws IOException If the sheet index could not be read.
+	 */
+	public LocalSheetSource(File directory) throws IOException {
+		this.directory = directory;
+		try {
+			crs = CRS.decode(CRS_CODE);
+		} catch (FactoryException e) {
+			throw new IOException("Could not decode " + CRS_CODE, e);
+		}
+		index = new SheetIndex(SheetIndexFile.read(new File(directory, INDEX_FILE), getGeometryFactory()));
+		logger.info("Read {} sheets from {}.", index.getSize(), directory);
+	}
+	
+	@Override
+	public CoordinateReferenceSystem getCrs() {
+		return crs;
+	}
+	
+	@Override
+	public SheetIndex getIndex() {
+		return index;
+	}
+	
+	@Override
+	public InputStream open(MapSheet sheet, QualityLevel level) throws IOException {
+		return new FileInputStream(getFile(sheet, level));
+	}
+	
+	@Override
+	public String getLocation(MapSheet sheet, QualityLevel level) {
+		return getFile(sheet, level).getPath();
+	}
+	
+	/**
+	 * @param sheet The sheet.
+	 * @param level The quality level of the file.
+	 * 
+	 * @return The file of the sheet in the directory.
+	 */
+	public File getFile(MapSheet sheet, QualityLevel level) {
+		return new File(directory, SheetSource.getFileName(sheet, level));
+	}
+	
+}
@@ -0,0 +1,108 @@
+package nl.tue.visualcomputingproject.group9a.project.chart.source;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.*;
+
+/**
+ * In-memory spatial index of all map sheets of a {@link SheetSource}. <br>
+ * <br>
+ * The sheets are stored in an STR-tree by their envelopes. A chunk is looked up by querying
+ * the tree with the envelope of the chunk, and testing the candidates against the geometry of
+ * the sheet. Since the sheets are nearly always rectangles, the envelope test is exact for
+ * most sheets, and the other sheets are tested using a prepared geometry, so no geometries are
+ * created per lookup. A chunk intersects a sheet if they share at least a point, as with
+ * {@link org.locationtech.jts.geom.Geometry#intersects}. <br>
+ * <br>
+ * The tree is built in the constructor and not modified afterwards,
+ * so the index can be queried from multiple threads.
+ */
+public class SheetIndex {
+	/** The number of sheets in the index. */
+	@Getter
+	private final int size;
+	/** The entries of the sheets by their envelopes. */
+	private final STRtree tree = new STRtree();
+	/** The factory used to create the geometries of chunks which are tested against non-rectangular sheets. */
+	private final GeometryFactory factory = new GeometryFactory();
+	
+	/**
+	 * An indexed sheet.
+	 */
+	private static class Entry {
+		/** The sheet. */
+		final MapSheet sheet;
+		/** The prepared geometry of the sheet, or {@code null} if the sheet is a rectangle. */
+		final PreparedGeometry prepared;
+		
+		Entry(MapSheet sheet) {
+			this.sheet = sheet;
+			boolean rectangle = sheet.getGeom().getNumGeometries() == 1
+					&& ((Polygon) sheet.getGeom().getGeometryN(0)).isRectangle();
+			this.prepared = rectangle ? null : PreparedGeometryFactory.prepare(sheet.getGeom());
+		}
+	}
+	
+	/**
+	 * Creates a new index of the given sheets.
+	 * 
+	 * @param sheets The sheets to index.
+	 */
+	public SheetIndex(Collection<MapSheet> sheets) {
+		for (MapSheet sheet : sheets) {
+			tree.insert(sheet.getGeom().getEnvelopeInternal(), new Entry(sheet));
+		}
+		// Build the tree now, since building it lazily on the first query is not thread-safe.
+		tree.build();
+		size = sheets.size();
+	}
+	
+	/**
+	 * Looks up the sheets intersecting a chunk.
+	 * 
+	 * @param position The position of the chunk, in chart coordinates.
+	 * 
+	 * @return The sheets intersecting the chunk.
+	 */
+	public List<MapSheet> query(ChunkPosition position) {
+		Envelope envelope = new Envelope(
+				position.getX(), position.getX() + position.getWidth(),
+				position.getY(), position.getY() + position.getHeight());
+		List<MapSheet> sheets = new ArrayList<>();
+		for (Object o : tree.query(envelope)) {
+			Entry entry = (Entry) o;
+			if (!envelope.intersects(entry.sheet.getGeom().getEnvelopeInternal())) continue;
+			if (entry.prepared == null || entry.prepared.intersects(factory.toGeometry(envelope))) {
+				sheets.add(entry.sheet);
+			}
+		}
+		return sheets;
+	}
+	
+	/**
+	 * Looks up the sheets intersecting each of the given chunks.
+	 * 
+	 * @param positions The positions of the chunks, in chart coordinates.
+	 * 
+	 * @return The sheets intersecting each chunk, by position. Chunks without sheets are absent.
+	 */
+	public Map<ChunkPosition, List<MapSheet>> query(Collection<ChunkPosition> positions) {
+		Map<ChunkPosition, List<MapSheet>> result = new HashMap<>();
+		for (ChunkPosition position : positions) {
+			List<MapSheet> sheets = query(position);
+			if (!sheets.isEmpty()) {
+				result.put(position, sheets);
+			}
+		}
+		return result;
+	}
+	
+}
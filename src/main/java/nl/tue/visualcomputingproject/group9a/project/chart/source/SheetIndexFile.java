@@ -0,0 +1,146 @@
+package nl.tue.visualcomputingproject.group9a.project.chart.source;
+
+import nl.tue.visualcomputingproject.group9a.project.chart.LogUtil;
+import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
+import nl.tue.visualcomputingproject.group9a.project.chart.wfs.WFSApi;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+import org.locationtech.jts.io.WKTWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes sheet index files. <br>
+ * <br>
+ * A sheet index file lists the sheets of a {@link LocalSheetSource}, or persists those fetched
+ * by a {@link HttpSheetSource}. It is a UTF-8 text file with a line per sheet, containing the tab
+ * separated fields {@code bladnr}, {@code has_data_05m_dsm}, {@code has_data_5m_dsm},
+ * {@code has_data_laz} and the geometry of the sheet in WKT, in the same order as the WFS.
+ * Empty lines and lines starting with {@code #} are ignored. <br>
+ * <br>
+ * The index of all sheets can be exported from the WFS by running this class with
+ * the path of the index file as argument.
+ */
+public final class SheetIndexFile {
+	/** The logger of this class. */
+	static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The separator of the fields of a line. */
+	private static final String SEPARATOR = "\t";
+	/** The extension of a partially written index file. */
+	private static final String TMP_EXT = ".tmp";
+	
+	// Disallow instantiation.
+	private SheetIndexFile() {
+	}
+	
+	/**
+	 * Reads a sheet index file.
+	 * 
+	 * @param file    The index file.
+	 * @param factory The factory used to create the geometries of the sheets.
+	 * 
+	 * @return The sheets in the file.
+	 * 
+	 * @throws IOException If the file could not be read or is malformed.
+	 */
+	public static List<MapSheet> read(File file, GeometryFactory factory) throws IOException {
+		WKTReader reader = new WKTReader(factory);
+		List<MapSheet> sheets = new ArrayList<>();
+		try (BufferedReader br = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			int lineNr = 0;
+			while ((line = br.readLine()) != null) {
+				lineNr++;
+				if (line.isEmpty() || line.startsWith("#")) continue;
+				String[] fields = line.split(SEPARATOR);
+				if (fields.length != 5) {
+					throw new IOException(String.format("Malformed sheet at %s:%d", file, lineNr));
+				}
+				try {
+					sheets.add(new MapSheet(
+						toMultiPolygon(reader.read(fields[4]), factory),
+						fields[0],
+						Boolean.parseBoolean(fields[1]),
+						Boolean.parseBoolean(fields[2]),
+						Boolean.parseBoolean(fields[3])
+					));
+				} catch (ParseException | IllegalArgumentException e) {
+					throw new IOException(String.format("Malformed geometry at %s:%d", file, lineNr), e);
+				}
+			}
+		}
+		return sheets;
+	}
+	
+	private static MultiPolygon toMultiPolygon(Geometry geom, GeometryFactory factory) {
+		if (geom instanceof MultiPolygon) {
+			return (MultiPolygon) geom;
+		} else if (geom instanceof Polygon) {
+			return factory.createMultiPolygon(new Polygon[] {(Polygon) geom});
+		}
+		throw new IllegalArgumentException("Expected a (multi)polygon, but got " + geom.getGeometryType());
+	}
+	
+	/**
+	 * Writes a sheet index file. The file is replaced atomically.
+	 * 
+	 * @param file   The index file.
+	 * @param sheets The sheets to write.
+	 * 
+	 * @throws IOException If the file could not be written.
+	 */
+	public static void write(File file, Collection<MapSheet> sheets) throws IOException {
+		File tmpFile = new File(file.getPath() + TMP_EXT);
+		WKTWriter writer = new WKTWriter();
+		try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8))) {
+			pw.println("# bladnr\thas_data_05m_dsm\thas_data_5m_dsm\thas_data_laz\tgeom");
+			for (MapSheet sheet : sheets) {
+				pw.println(String.join(SEPARATOR,
+					sheet.getBladnr(),
+					Boolean.toString(sheet.isHas_data_05m_dsm()),
+					Boolean.toString(sheet.isHas_data_5m_dsm()),
+					Boolean.toString(sheet.isHas_data_laz()),
+					writer.write(sheet.getGeom())));
+			}
+		}
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	/**
+	 * Exports the index of all sheets from the WFS.
+	 * 
+	 * @param args The path of the index file to write.
+	 */
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			System.err.println("Usage: SheetIndexFile <index-file>");
+			System.exit(1);
+		}
+		try {
+			LogUtil.setupGeotools();
+			Collection<MapSheet> sheets = new WFSApi().queryAll();
+			write(new File(args[0]), sheets);
+			logger.info("Wrote {} sheets to {}.", sheets.size(), args[0]);
+		} catch (Exception e) {
+			logger.error("Could not export the sheet index!", e);
+			System.exit(1);
+		}
+	}
+	
+}
@@ -0,0 +1,85 @@
+package nl.tue.visualcomputingproject.group9a.project.chart.source;
+
+import nl.tue.visualcomputingproject.group9a.project.chart.wfs.MapSheet;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.util.factory.Hints;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Source of the AHN map sheets. <br>
+ * <br>
+ * The lookup manager looks up the sheets covering the requested chunks in the {@link SheetIndex}
+ * of a source, and the download thread reads the files of those sheets from the same source into
+ * the cache. The files of a source are named like those of PDOK, see {@link #getFileName(MapSheet, QualityLevel)}.
+ */
+public interface SheetSource {
+	/** The code of the coordinate reference system of the AHN sheets. */
+	String CRS_CODE = "EPSG:28992";
+	
+	/**
+	 * @return The coordinate reference system of the geometries of the sheets.
+	 */
+	CoordinateReferenceSystem getCrs();
+	
+	/**
+	 * @return A geometry factory for geometries in {@link #getCrs()}.
+	 */
+	default GeometryFactory getGeometryFactory() {
+		return JTSFactoryFinder.getGeometryFactory(new Hints(
+			Hints.CRS,
+			getCrs()
+		));
+	}
+	
+	/**
+	 * @return The index of all sheets of this source.
+	 */
+	SheetIndex getIndex();
+	
+	/**
+	 * Opens the file of a sheet at the given quality level.
+	 * 
+	 * @param sheet The sheet to open.
+	 * @param level The quality level of the file.
+	 * 
+	 * @return A stream of the contents of the file. The caller must close it.
+	 * 
+	 * @throws IOException If the file could not be opened.
+	 */
+	InputStream open(MapSheet sheet, QualityLevel level) throws IOException;
+	
+	/**
+	 * @param sheet The sheet.
+	 * @param level The quality level of the file.
+	 * 
+	 * @return A description of the location of the file, e.g. its URL or path.
+	 */
+	String getLocation(MapSheet sheet, QualityLevel level);
+	
+	/**
+	 * Returns the path of the file of a sheet relative to the root of a source,
+	 * as used by PDOK, e.g. {@code 05m_dsm/R_37EN1.ZIP}.
+	 * 
+	 * @param sheet The sheet.
+	 * @param level The quality level of the file.
+	 * 
+	 * @return The relative path of the file, separated by {@code /}.
+	 */
+	static String getFileName(MapSheet sheet, QualityLevel level) {
+		switch (level) {
+			case FIVE_BY_FIVE:
+				return String.format("5m_dsm/R5_%s.ZIP", sheet.getBladnr().toUpperCase());
+			case HALF_BY_HALF:
+				return String.format("05m_dsm/R_%s.ZIP", sheet.getBladnr().toUpperCase());
+			case LAS:
+				return String.format("laz/C_%s.LAZ", sheet.getBladnr().toUpperCase());
+		}
+		throw new IllegalArgumentException("No sheets exist for quality level " + level);
+	}
+	
+}
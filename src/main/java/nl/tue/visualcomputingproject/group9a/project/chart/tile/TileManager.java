@@ -8,15 +8,19 @@ import lombok.ToString;
 import nl.tue.visualcomputingproject.group9a.project.chart.events.TextureRequestEvent;
 import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.TextureType;
-import nl.tue.visualcomputingproject.group9a.project.common.cache.FileId;
-import nl.tue.visualcomputingproject.group9a.project.common.cache.FileIdFactory;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.*;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.disk.FileCacheManager;
-import nl.tue.visualcomputingproject.group9a.project.common.cache.disk.FileReadCacheClaim;
-import nl.tue.visualcomputingproject.group9a.project.common.cache.disk.FileReadWriteCacheClaim;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.CachePolicy;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.segment.SegmentCacheManager;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
 import nl.tue.visualcomputingproject.group9a.project.common.event.ChartTextureAvailableEvent;
 import nl.tue.visualcomputingproject.group9a.project.common.event.RendererChunkStatusEvent;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.Counter;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.LatencyHistogram;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.StageCpuTime;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationStats;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.ows.ServiceException;
 import org.opengis.referencing.FactoryException;
@@ -35,17 +39,27 @@ import java.io.OutputStream;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 @SuppressWarnings("UnstableApiUsage")
 public class TileManager {
 	private static final Logger logger = LoggerFactory.getLogger(TileManager.class);
+	/** The latency of rendering a texture from its tiles. */
+	private static final LatencyHistogram RENDER_LATENCY = MetricsRegistry.histogram("chart.texture.render");
+	/** The latency of reading and decoding a cached texture. */
+	private static final LatencyHistogram CACHED_LATENCY = MetricsRegistry.histogram("chart.texture.cached");
+	/** The CPU time spent on loading textures. */
+	private static final Counter TEXTURE_CPU = StageCpuTime.counter("chart.texture");
 	private final EventBus eventBus;
 	private final Map<TextureType, TileRenderer> rendererMap;
 	private final CoordinateReferenceSystem crs;
-	private final FileCacheManager cacheManager;
+	private final CacheManager<? extends StreamReadCacheClaim, ? extends StreamReadWriteCacheClaim> cacheManager;
+	/** The cancellation tokens of the textures of the loaded chunks. */
+	private final Map<ChunkPosition, CancellationToken> tokens = new ConcurrentHashMap<>();
 	private final static String AERIALURL = "https://services.arcgisonline.com/arcgis/rest/services/World_Imagery/MapServer/WMTS/1.0.0/WMTSCapabilities.xml";
 	private final static String PDOKWMS = "https://service.pdok.nl/hwh/luchtfotorgb/wms/v1_0?&request=GetCapabilities&service=wms";
 	private final static String PDOKWMTS = "https://service.pdok.nl/hwh/luchtfotorgb/wmts/v1_0?&request=GetCapabilities&service=wmts";
@@ -61,72 +75,106 @@ public class TileManager {
 //		rendererMap.put(TextureType.Aerial, new TileRenderer(new WMSTileProvider(new URL(PDOKWMS), "Actueel_ortho25")));
 //		rendererMap.put(TextureType.Aerial, new TileRenderer(new WMTSTileProvider(new URL(PDOKWMTS),"Actueel_ortho25")));
 		rendererMap.put(TextureType.OpenStreetMap, new TileRenderer(new OSMTileProvider()));
-		cacheManager = new FileCacheManager(policy, Settings.CACHE_DIR, "textures");
+		if (Settings.TEXTURE_CACHE_SEGMENTS) {
+			cacheManager = new SegmentCacheManager(policy, Settings.CACHE_DIR, "textures_segments");
+		} else {
+			cacheManager = new FileCacheManager(policy, Settings.CACHE_DIR, "textures");
+		}
 		cacheManager.indexCache(TextureFileId.createFactory());
 	}
 	
 	@Subscribe
 	public void onChunkStatus(RendererChunkStatusEvent event) {
+		for (ChunkPosition position : event.getUnloadedChunks()) {
+			CancellationToken token = tokens.remove(position);
+			if (token != null) token.cancel();
+		}
 		for (ChunkPosition position : event.getNewChunks()) {
-			//eventBus.post(new TextureRequestEvent(TextureType.OpenStreetMap, position));
-			eventBus.post(new TextureRequestEvent(TextureType.Aerial, position));
+			CancellationToken token = new CancellationToken();
+			tokens.put(position, token);
+			//eventBus.post(new TextureRequestEvent(TextureType.OpenStreetMap, position, token));
+			eventBus.post(new TextureRequestEvent(TextureType.Aerial, position, token));
 		}
 	}
 	
 	@Subscribe
 	public void onRequest(TextureRequestEvent event) {
-		Settings.textureExecutorService.submit(() -> {
+		// The texture is not needed anymore if the chunk is unloaded before it is loaded.
+		Settings.textureScheduler.submit(Collections.singletonList(event.getPosition()), null, StageCpuTime.wrap(TEXTURE_CPU, () -> {
+			if (event.getToken().isCancelled()) {
+				CancellationStats.cancelled(CancellationStats.Stage.TEXTURE, 1);
+				return;
+			}
+			final long start = System.nanoTime();
 			try {
-				logger.info("Loading texture of type {} for chunk {}...", event.getType(), event.getPosition());
-				TextureFileId id = new TextureFileId(event.getType(), event.getPosition());
-				FileReadCacheClaim readClaim = cacheManager.requestReadClaim(id);
-				if (readClaim != null) {
-					logger.info("Found in cache!");
-					//File available for reading!
-					try (InputStream stream = readClaim.getInputStream()) {
-						BufferedImage image = ImageIO.read(stream);
-						ByteBuffer buffer = convertImageData(image);
-						eventBus.post(new ChartTextureAvailableEvent(
-								event.getPosition(),
-								event.getType(),
-								buffer,
-								image.getWidth(),
-								image.getHeight())
-						);
-					}
-					cacheManager.releaseCacheClaim(readClaim);
-					
-				} else {
-					logger.info("Downloading...");
-					FileReadWriteCacheClaim writeClaim = cacheManager.requestReadWriteClaim(id);
-					if (writeClaim != null) {
-						ReferencedEnvelope envelope = event.getPosition()
-								.transformedAddBorder(Settings.CHUNK_TILE_BORDER)
-								.getReferencedEnvelope(crs);
-						int image_width = (int) envelope.getWidth() * 2;
-						int image_height = (int) envelope.getHeight() * 2;
-						BufferedImage image = rendererMap
-								.get(event.getType())
-								.render(envelope, image_width, image_height);
-						try (OutputStream stream = writeClaim.getOutputStream()) {
-							ImageIO.write(image, "png", stream);
-						}
-						ByteBuffer buffer = convertImageData(image);
-						eventBus.post(new ChartTextureAvailableEvent(
-								event.getPosition(),
-								event.getType(),
-								buffer,
-								image.getWidth(),
-								image.getHeight())
-						);
-					} else {
-						throw new RuntimeException("Unable to get cache worked out for texture event!");
-					}
-				}
+				loadTexture(cacheManager, event);
+				CancellationStats.completed(CancellationStats.Stage.TEXTURE, start, 1);
 			} catch (TransformException | FactoryException | IOException e) {
 				e.printStackTrace();
 			}
-		});
+		}), () -> CancellationStats.cancelled(CancellationStats.Stage.TEXTURE, 1));
+	}
+	
+	private <Read extends StreamReadCacheClaim, ReadWrite extends StreamReadWriteCacheClaim> void loadTexture(
+			CacheManager<Read, ReadWrite> cacheManager,
+			TextureRequestEvent event)
+			throws TransformException, FactoryException, IOException {
+		logger.info("Loading texture of type {} for chunk {}...", event.getType(), event.getPosition());
+		TextureFileId id = new TextureFileId(event.getType(), event.getPosition());
+		Read readClaim = cacheManager.requestReadClaim(id);
+		if (readClaim != null) {
+			logger.info("Found in cache!");
+			//File available for reading!
+			final long start = System.nanoTime();
+			try (InputStream stream = readClaim.getInputStream()) {
+				BufferedImage image = ImageIO.read(stream);
+				ByteBuffer buffer = convertImageData(image);
+				CACHED_LATENCY.recordSince(start);
+				eventBus.post(new ChartTextureAvailableEvent(
+						event.getPosition(),
+						event.getType(),
+						buffer,
+						image.getWidth(),
+						image.getHeight())
+				);
+			}
+			cacheManager.releaseCacheClaim(readClaim);
+			
+		} else {
+			logger.info("Downloading...");
+			ReadWrite writeClaim = cacheManager.requestReadWriteClaim(id);
+			if (writeClaim != null) {
+				ReferencedEnvelope envelope = event.getPosition()
+						.transformedAddBorder(Settings.CHUNK_TILE_BORDER)
+						.getReferencedEnvelope(crs);
+				int image_width = (int) envelope.getWidth() * 2;
+				int image_height = (int) envelope.getHeight() * 2;
+				final long start = System.nanoTime();
+				BufferedImage image = rendererMap
+						.get(event.getType())
+						.render(envelope, image_width, image_height);
+				RENDER_LATENCY.recordSince(start);
+				try (OutputStream stream = writeClaim.getOutputStream()) {
+					ImageIO.write(image, "png", stream);
+				}
+				cacheManager.releaseCacheClaim(writeClaim);
+				if (event.getToken().isCancelled()) {
+					// The rendered texture is cached, but not converted for the unloaded chunk.
+					logger.info("Not posting texture of chunk {} since it is not needed anymore.", event.getPosition());
+					return;
+				}
+				ByteBuffer buffer = convertImageData(image);
+				eventBus.post(new ChartTextureAvailableEvent(
+						event.getPosition(),
+						event.getType(),
+						buffer,
+						image.getWidth(),
+						image.getHeight())
+				);
+			} else {
+				throw new RuntimeException("Unable to get cache worked out for texture event!");
+			}
+		}
 	}
 	
 	@ToString
@@ -31,6 +31,10 @@ import java.util.*;
 
 public class WFSApi {
 	static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The bounding box of the Netherlands in EPSG:28992, as {@code {minX, minY, maxX, maxY}}. */
+	private static final double[] NL_BOUNDS = {-7000, 289000, 300000, 629000};
+	/** The size of the blocks in which {@link #queryAll()} queries the sheets, in meters. */
+	private static final double QUERY_BLOCK_SIZE = 50000;
 	
 	private final DataStore dataStore;
 	private final FeatureSource<SimpleFeatureType, SimpleFeature> source;
@@ -145,4 +149,27 @@ public class WFSApi {
 		logger.info("Done! - Fetched {} features!", counter);
 		return sheets;
 	}
+	
+	/**
+	 * Fetches all sheets covering the Netherlands. The sheets are queried in blocks,
+	 * such that the result is not truncated by the maximum number of features of the WFS.
+	 * 
+	 * @return All sheets, once each.
+	 */
+	public Collection<MapSheet> queryAll() throws FactoryException, IOException {
+		Map<String, MapSheet> sheets = new LinkedHashMap<>();
+		for (double x = NL_BOUNDS[0]; x < NL_BOUNDS[2]; x += QUERY_BLOCK_SIZE) {
+			for (double y = NL_BOUNDS[1]; y < NL_BOUNDS[3]; y += QUERY_BLOCK_SIZE) {
+				ReferencedEnvelope bbox = new ReferencedEnvelope(
+					x, Math.min(x + QUERY_BLOCK_SIZE, NL_BOUNDS[2]),
+					y, Math.min(y + QUERY_BLOCK_SIZE, NL_BOUNDS[3]),
+					crs);
+				for (MapSheet sheet : query(bbox)) {
+					sheets.putIfAbsent(sheet.getBladnr(), sheet);
+				}
+			}
+		}
+		logger.info("Fetched {} sheets in total.", sheets.size());
+		return sheets.values();
+	}
 }
@@ -1,14 +1,17 @@
 package nl.tue.visualcomputingproject.group9a.project.common;
 
+import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.CachePolicy;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.MeshBufferType;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.VertexBufferType;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.PriorityScheduler;
 import org.joml.Vector2i;
 import org.joml.Vector3f;
 
 import java.io.File;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Global project settings class.
@@ -44,17 +47,18 @@ public final class Settings {
 				return t;
 			});
 	
-	/** The service used for scheduling texture tasks. */
-	public static final ExecutorService textureExecutorService = Executors.newFixedThreadPool(
-		Math.max(1, Runtime.getRuntime().availableProcessors() - Settings.NUM_DEDICATED_THREADS),
-		r -> {
-			Thread t = Executors.defaultThreadFactory().newThread(r);
-			t.setDaemon(true);
-			t.setUncaughtExceptionHandler((Thread thread, Throwable e) -> {
-				e.printStackTrace();
-			});
-			return t;
-		});
+	/**
+	 * The scheduler used for the tasks of the chunk pipeline, i.e. lookup,
+	 * extraction and generation, in order of distance to the camera.
+	 */
+	public static final PriorityScheduler scheduler = new PriorityScheduler(
+			"pipeline",
+			Math.max(1, Runtime.getRuntime().availableProcessors() - Settings.NUM_DEDICATED_THREADS));
+	
+	/** The scheduler used for the texture tasks, in order of distance to the camera. */
+	public static final PriorityScheduler textureScheduler = new PriorityScheduler(
+			"texture",
+			Math.max(1, Runtime.getRuntime().availableProcessors() - Settings.NUM_DEDICATED_THREADS));
 	
 	
 	/** The directory used for caching. */
@@ -76,6 +80,107 @@ public final class Settings {
 		setChunkLoadDistance(SETTINGS.getValue(SETTINGS_CHUNK_LOAD, 1000.0));
 	}
 
+	/** The key of the setting storing the number of threads used to generate a single chunk. */
+	public static final String SETTINGS_GENERATOR_PARALLELISM = "generator.parallelism";
+	/**
+	 * The pool used by the generators to process a single chunk in parallel,
+	 * or {@code null} if a single chunk is processed serially.
+	 * The parallelism is configured using {@link #SETTINGS_GENERATOR_PARALLELISM}.
+	 */
+	public static final ForkJoinPool generatorPool = createGeneratorPool(SETTINGS.getValue(
+			SETTINGS_GENERATOR_PARALLELISM,
+			Math.max(1, Runtime.getRuntime().availableProcessors() - Settings.NUM_DEDICATED_THREADS)));
+	
+	private static ForkJoinPool createGeneratorPool(int parallelism) {
+		if (parallelism <= 1) return null;
+		return new ForkJoinPool(parallelism);
+	}
+
+	/** The key of the setting storing the cache policy, see {@link CachePolicy#create(String, long)}. */
+	public static final String SETTINGS_CACHE_POLICY = "cache.policy";
+	/** The key of the setting storing the file to record the chunk status events to. Not recorded if absent. */
+	public static final String SETTINGS_CHUNK_TRACE_FILE = "cache.tracefile";
+
+	/** The key of the setting storing the interval in seconds between snapshots of the cache indices. */
+	public static final String SETTINGS_CACHE_INDEX_INTERVAL = "cache.indexinterval";
+	/**
+	 * The interval in seconds between the periodic snapshots of the cache indices.
+	 * The indices are always written on shutdown. A non-positive value disables the
+	 * periodic snapshots. Configured using {@link #SETTINGS_CACHE_INDEX_INTERVAL}.
+	 */
+	public static final int CACHE_INDEX_INTERVAL = SETTINGS.getValue(SETTINGS_CACHE_INDEX_INTERVAL, 60);
+
+	/** The key of the setting storing whether the texture cache is packed into segment files. */
+	public static final String SETTINGS_TEXTURE_CACHE_SEGMENTS = "cache.texturesegments";
+	/**
+	 * Whether the textures are cached in the append-only segment files of a
+	 * {@link nl.tue.visualcomputingproject.group9a.project.common.cache.segment.SegmentCacheManager}
+	 * instead of a file per texture. Configured using {@link #SETTINGS_TEXTURE_CACHE_SEGMENTS}.
+	 */
+	public static final boolean TEXTURE_CACHE_SEGMENTS = SETTINGS.getValue(SETTINGS_TEXTURE_CACHE_SEGMENTS, false);
+
+	/** The key of the setting storing whether the mesh chunk cache is compressed. */
+	public static final String SETTINGS_MESH_CACHE_COMPRESSION = "cache.meshcompression";
+	/**
+	 * Whether the mesh chunks are compressed on disk. Uncompressed mesh chunks
+	 * are read into memory at once on a cache hit instead of being read and inflated.
+	 * Configured using {@link #SETTINGS_MESH_CACHE_COMPRESSION}.
+	 */
+	public static final boolean MESH_CACHE_COMPRESSION = SETTINGS.getValue(SETTINGS_MESH_CACHE_COMPRESSION, false);
+
+	/** The key of the setting storing whether an interim mesh is generated when refining a chunk. */
+	public static final String SETTINGS_INTERIM_MESH = "preprocessing.interimmesh";
+	/**
+	 * Whether the pre-processing module posts a quickly generated interim mesh
+	 * of a refined chunk before the full quality mesh is available.
+	 * Configured using {@link #SETTINGS_INTERIM_MESH}.
+	 */
+	public static final boolean INTERIM_MESH = SETTINGS.getValue(SETTINGS_INTERIM_MESH, false);
+
+	/** The key of the setting storing the number of chunks per side of a generation region. */
+	public static final String SETTINGS_REGION_SIZE = "preprocessing.regionsize";
+	/**
+	 * The number of chunks per side of the aligned blocks in which the pre-processing module
+	 * requests and generates neighbouring chunks together. A value of 1 generates every chunk
+	 * on its own. Configured using {@link #SETTINGS_REGION_SIZE}.
+	 */
+	public static final int REGION_SIZE = Math.max(1, SETTINGS.getValue(SETTINGS_REGION_SIZE, 3));
+
+	/** The key of the setting storing the maximum number of queued events per event subscriber. */
+	public static final String SETTINGS_EVENT_QUEUE_CAPACITY = "event.queuecapacity";
+	/**
+	 * The maximum number of events queued for a single subscriber of the event dispatcher,
+	 * after which posting blocks until the subscriber catches up.
+	 * Configured using {@link #SETTINGS_EVENT_QUEUE_CAPACITY}.
+	 */
+	public static final int EVENT_QUEUE_CAPACITY = SETTINGS.getValue(SETTINGS_EVENT_QUEUE_CAPACITY, 1024);
+
+	/** The key of the setting storing the interval in seconds between the event dispatch reports. */
+	public static final String SETTINGS_EVENT_STATS_INTERVAL = "event.statsinterval";
+	/**
+	 * The interval in seconds between logging the queue depths and dispatch latencies
+	 * of the event subscribers. A non-positive value disables the reports.
+	 * Configured using {@link #SETTINGS_EVENT_STATS_INTERVAL}.
+	 */
+	public static final int EVENT_STATS_INTERVAL = SETTINGS.getValue(SETTINGS_EVENT_STATS_INTERVAL, 60);
+
+	/** The key of the setting storing the file to periodically write the pipeline metrics to. Not written if absent. */
+	public static final String SETTINGS_METRICS_FILE = "metrics.dumpfile";
+	/** The key of the setting storing the interval in seconds between writing the metrics. */
+	public static final String SETTINGS_METRICS_INTERVAL = "metrics.dumpinterval";
+	/**
+	 * The interval in seconds between writing the pipeline metrics to the file configured
+	 * using {@link #SETTINGS_METRICS_FILE}. The metrics are always written on shutdown.
+	 * A non-positive value disables the periodic writes. Configured using {@link #SETTINGS_METRICS_INTERVAL}.
+	 */
+	public static final int METRICS_INTERVAL = SETTINGS.getValue(SETTINGS_METRICS_INTERVAL, 30);
+
+	/**
+	 * The key of the setting storing the directory of a local mirror of the map sheets.
+	 * If absent, the sheets are looked up using the WFS and downloaded from PDOK.
+	 */
+	public static final String SETTINGS_SHEET_DIRECTORY = "chart.sheetdirectory";
+
 	public static double getChunkLoadDistance() {
 		return chunkLoadDistance;
 	}
@@ -89,12 +194,22 @@ public final class Settings {
 	public static final String CACHE_EXT = ".cache";
 	/** The file extension of the temporary cache files. */
 	public static final String TMP_CACHE_EXT = ".part";
+	/** The name of the index file stored in each cache directory. */
+	public static final String CACHE_INDEX_FILE = "cache.index";
 	
 	/** The maximum quality of map sheets the chart module will download. */
 	public static final QualityLevel MAX_DOWNLOAD_QUALITY = QualityLevel.HALF_BY_HALF;
 
-	/** The type used in the vertex buffer. */
-	public static final VertexBufferType VERTEX_TYPE = VertexBufferType.INTERLEAVED_VERTEX_3_FLOAT_NORMAL_3_FLOAT;
+	/** The key of the setting storing whether the vertex buffers are quantized. */
+	public static final String SETTINGS_QUANTIZED_VERTICES = "mesh.quantizedvertices";
+	/**
+	 * The type used in the vertex buffer. Quantized vertices take a third of the memory,
+	 * disk space and upload bandwidth of float vertices.
+	 * Configured using {@link #SETTINGS_QUANTIZED_VERTICES}.
+	 */
+	public static final VertexBufferType VERTEX_TYPE = SETTINGS.getValue(SETTINGS_QUANTIZED_VERTICES, true)
+			? VertexBufferType.INTERLEAVED_QUANTIZED_VERTEX_3_SHORT_NORMAL_2_BYTE
+			: VertexBufferType.INTERLEAVED_VERTEX_3_FLOAT_NORMAL_3_FLOAT;
 	/** The type used in the mesh buffer. */
 	public static final MeshBufferType MESH_TYPE = MeshBufferType.TRIANGLES_COUNTER_CLOCKWISE_3_INT;
 
@@ -61,6 +61,10 @@ public class SettingsFile {
 		updateValue(key, Boolean.toString(value));
 	}
 
+	public void updateValue(String key, int value) {
+		updateValue(key, Integer.toString(value));
+	}
+
 	public void updateValue(String key, float value) {
 		updateValue(key, Float.toString(value));
 	}
@@ -89,6 +93,15 @@ public class SettingsFile {
 		return Boolean.parseBoolean(v);
 	}
 
+	public int getValue(String key, int def) {
+		String v = getValue(key);
+		if (v == null) {
+			updateValue(key, def);
+			return def;
+		}
+		return Integer.parseInt(v);
+	}
+
 	public float getValue(String key, float def) {
 		String v = getValue(key);
 		if (v == null) {
@@ -107,6 +120,15 @@ public class SettingsFile {
 		return Double.parseDouble(v);
 	}
 	
+	public String getValue(String key, String def) {
+		String v = getValue(key);
+		if (v == null) {
+			updateValue(key, def);
+			return def;
+		}
+		return v;
+	}
+	
 	public String getValue(String key) {
 		lock.lock();
 		try {
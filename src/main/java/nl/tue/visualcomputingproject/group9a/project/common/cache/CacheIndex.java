@@ -0,0 +1,272 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the files tracked by a cache manager. <br>
+ * <br>
+ * Indexing a cache directory by listing all files and parsing their names takes several
+ * seconds for large caches. Instead, the cache managers write the paths and sizes of their
+ * tracked files to an index file in their cache directory on shutdown and periodically,
+ * ordered from the first to the last file to evict. At startup, the index is read at once
+ * and the files are tracked in the same order. Afterwards, {@link #reconcile} walks the
+ * directory in the background to correct any drift between the index and the files on disk. <br>
+ * <br>
+ * The index file contains {@link #MAGIC}, {@link #VERSION}, the time of the snapshot and the
+ * number of entries, followed by the path and size of every entry. It ends with the CRC32
+ * checksum of all preceding bytes.
+ */
+public class CacheIndex {
+	/** The logger object of this class. */
+	static private final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The magic number at the start of an index file. */
+	public static final int MAGIC = 0x43494458;
+	/** The version of the index file format. */
+	public static final int VERSION = 1;
+	/** The extension of a partially written index file. */
+	private static final String TMP_EXT = ".tmp";
+	/** The resolution in milliseconds of the modification times of files on disk. */
+	private static final long MTIME_RESOLUTION = 2000;
+	/** The thread used to write the snapshots and reconcile the indices. */
+	private static final ScheduledExecutorService INDEX_THREAD = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "cache-index");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/** The time at which the snapshot was taken. */
+	@Getter
+	private final long timestamp;
+	/** The paths of the indexed files mapped to their size, in eviction order. */
+	@Getter
+	private final LinkedHashMap<String, Long> entries;
+
+	/**
+	 * Callback used to apply the differences found by {@link #reconcile}.
+	 */
+	public interface Reconciler {
+		/**
+		 * Called for a file which is missing from the index, or which has been
+		 * modified since the snapshot. The file should be (re)tracked.
+		 *
+		 * @param path The path of the file, as used by {@link FileIdFactory#fromPath(String)}.
+		 */
+		void refresh(String path);
+
+		/**
+		 * Called for an indexed file which no longer exists. The file should be untracked.
+		 *
+		 * @param path The path of the file, as used by {@link FileIdFactory#fromPath(String)}.
+		 */
+		void missing(String path);
+	}
+
+	private CacheIndex(long timestamp, LinkedHashMap<String, Long> entries) {
+		this.timestamp = timestamp;
+		this.entries = entries;
+	}
+
+	/**
+	 * Reads the index of the given cache directory.
+	 *
+	 * @param cacheDir The cache directory.
+	 *
+	 * @return The index, or {@code null} if there is no valid index.
+	 */
+	public static CacheIndex read(File cacheDir) {
+		File file = new File(cacheDir, Settings.CACHE_INDEX_FILE);
+		if (!file.isFile()) return null;
+		try {
+			byte[] data = Files.readAllBytes(file.toPath());
+			if (data.length < 3 * Integer.BYTES + 2 * Long.BYTES) {
+				LOGGER.warn("Cache index " + file + " is truncated, ignoring it.");
+				return null;
+			}
+			CRC32 crc = new CRC32();
+			crc.update(data, 0, data.length - Long.BYTES);
+			if (ByteBuffer.wrap(data, data.length - Long.BYTES, Long.BYTES).getLong() != crc.getValue()) {
+				LOGGER.warn("Cache index " + file + " has an invalid checksum, ignoring it.");
+				return null;
+			}
+
+			DataInputStream dis = new DataInputStream(
+					new ByteArrayInputStream(data, 0, data.length - Long.BYTES));
+			if (dis.readInt() != MAGIC || dis.readInt() != VERSION) {
+				LOGGER.warn("Cache index " + file + " has an unknown format, ignoring it.");
+				return null;
+			}
+			long timestamp = dis.readLong();
+			int count = dis.readInt();
+			LinkedHashMap<String, Long> entries = new LinkedHashMap<>();
+			for (int i = 0; i < count; i++) {
+				String path = dis.readUTF();
+				entries.put(path, dis.readLong());
+			}
+			return new CacheIndex(timestamp, entries);
+
+		} catch (IOException e) {
+			LOGGER.warn("Could not read cache index " + file + ", ignoring it.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the index of the given cache directory.
+	 * The old index is replaced atomically.
+	 *
+	 * @param cacheDir  The cache directory.
+	 * @param timestamp The time at which the tracked files were collected.
+	 * @param tracked   The tracked files mapped to their size, in eviction order.
+	 *
+	 * @throws IOException If the index could not be written.
+	 */
+	public static synchronized void write(File cacheDir, long timestamp, Map<FileId, Long> tracked)
+			throws IOException {
+		final File file = new File(cacheDir, Settings.CACHE_INDEX_FILE);
+		final File tmpFile = new File(file.getPath() + TMP_EXT);
+		CRC32 crc = new CRC32();
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(
+				new CheckedOutputStream(new FileOutputStream(tmpFile), crc)))) {
+			dos.writeInt(MAGIC);
+			dos.writeInt(VERSION);
+			dos.writeLong(timestamp);
+			dos.writeInt(tracked.size());
+			for (Map.Entry<FileId, Long> entry : tracked.entrySet()) {
+				dos.writeUTF(entry.getKey().getPath());
+				dos.writeLong(entry.getValue());
+			}
+			dos.flush();
+			dos.writeLong(crc.getValue());
+		}
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Writes a snapshot of the index of the given cache directory on shutdown and
+	 * every {@link Settings#CACHE_INDEX_INTERVAL} seconds.
+	 *
+	 * @param cacheDir The cache directory.
+	 * @param tracked  The supplier of the tracked files mapped to their size, in eviction order.
+	 */
+	public static void scheduleSnapshots(File cacheDir, Supplier<Map<FileId, Long>> tracked) {
+		Runnable snapshot = () -> {
+			try {
+				long timestamp = System.currentTimeMillis();
+				write(cacheDir, timestamp, tracked.get());
+
+			} catch (Exception e) {
+				LOGGER.error("Could not write cache index of " + cacheDir, e);
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(new Thread(snapshot, "cache-index-shutdown"));
+		if (Settings.CACHE_INDEX_INTERVAL > 0) {
+			INDEX_THREAD.scheduleWithFixedDelay(
+					snapshot,
+					Settings.CACHE_INDEX_INTERVAL,
+					Settings.CACHE_INDEX_INTERVAL,
+					TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Walks the given cache directory in the background, and reports the differences
+	 * between this index and the files on disk to the reconciler.
+	 *
+	 * @param cacheDir   The cache directory.
+	 * @param startTime  The time at which the cache manager started. Temporary cache files
+	 *                   older than this are left over from a previous run and are deleted.
+	 * @param reconciler The reconciler to report the differences to.
+	 */
+	public void reconcile(File cacheDir, long startTime, Reconciler reconciler) {
+		INDEX_THREAD.execute(() -> {
+			try {
+				LOGGER.info("Reconciling cache index of " + cacheDir + "...");
+				Set<String> unseen = new HashSet<>(entries.keySet());
+				int[] refreshed = {0};
+				walk(cacheDir, startTime, (path, file) -> {
+					Long size = entries.get(path);
+					unseen.remove(path);
+					if (size == null ||
+							size != file.length() ||
+							file.lastModified() + MTIME_RESOLUTION > timestamp) {
+						try {
+							reconciler.refresh(path);
+							refreshed[0]++;
+						} catch (Exception e) {
+							LOGGER.warn("Exception occurred while reconciling " + path, e);
+						}
+					}
+				});
+				for (String path : unseen) {
+					try {
+						reconciler.missing(path);
+					} catch (Exception e) {
+						LOGGER.warn("Exception occurred while reconciling " + path, e);
+					}
+				}
+				LOGGER.info("Reconciled cache index of " + cacheDir + ": " + refreshed[0] +
+						" files refreshed, " + unseen.size() + " files missing.");
+
+			} catch (Exception e) {
+				LOGGER.error("Aborted reconciling cache index of " + cacheDir, e);
+			}
+		});
+	}
+
+	/**
+	 * Walks the given cache directory recursively, and visits all cache files.
+	 *
+	 * @param cacheDir  The cache directory.
+	 * @param tmpBefore Temporary cache files last modified before this time are deleted.
+	 * @param visitor   The visitor of the cache files, which receives the path of the file
+	 *                  relative to the cache directory without extension, and the file itself.
+	 */
+	public static void walk(File cacheDir, long tmpBefore, BiConsumer<String, File> visitor) {
+		String cachePath = cacheDir.getAbsolutePath();
+		int rootDirLength = cachePath.length() +
+				(cachePath.endsWith(File.separator)
+						? 0
+						: File.separator.length());
+		File[] fileArr = cacheDir.listFiles();
+		if (fileArr == null) return;
+		List<File> files = new ArrayList<>(Arrays.asList(fileArr));
+		for (int i = 0; i < files.size(); i++) {
+			File file = files.get(i);
+			if (file.isDirectory()) {
+				fileArr = file.listFiles();
+				if (fileArr != null) {
+					files.addAll(Arrays.asList(fileArr));
+				}
+
+			} else if (file.getName().endsWith(Settings.CACHE_EXT)) {
+				String path = file.getAbsolutePath();
+				visitor.accept(path.substring(
+						rootDirLength,
+						path.length() - Settings.CACHE_EXT.length()), file);
+
+			} else if (file.getName().endsWith(Settings.TMP_CACHE_EXT) && file.lastModified() < tmpBefore) {
+				// Delete old temporary cache files if found.
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+			}
+		}
+	}
+
+}
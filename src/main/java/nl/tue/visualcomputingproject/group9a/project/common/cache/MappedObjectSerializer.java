@@ -0,0 +1,88 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache;
+
+import nl.tue.visualcomputingproject.group9a.project.common.cache.stream.FileStreamFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ObjectSerializer} which can additionally deserialize objects directly
+ * from a file read at once using {@link FileStreamFactory#map(java.io.File)}. <br>
+ * <br>
+ * The deserialized objects may keep references to slices of the buffer
+ * instead of copying the data. Large buffers should therefore be serialized at
+ * offsets which are a multiple of {@link #PAGE_SIZE}.
+ *
+ * @param <T> The target class.
+ */
+public interface MappedObjectSerializer<T>
+		extends ObjectSerializer<T> {
+	/** The alignment of the buffers in the serialized data. */
+	int PAGE_SIZE = 4096;
+
+	/**
+	 * Deserializes the target object from the given buffer.
+	 *
+	 * @param buffer The buffer to read the data from, starting at position {@code 0}.
+	 *
+	 * @return The deserialized object.
+	 *
+	 * @throws IOException If the data is invalid.
+	 */
+	T deserialize(ByteBuffer buffer)
+			throws IOException;
+
+	/**
+	 * @param pos The position to align.
+	 *
+	 * @return The smallest multiple of {@link #PAGE_SIZE} which is at least {@code pos}.
+	 */
+	static long align(long pos) {
+		return (pos + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+	}
+
+	/**
+	 * Writes zeros to the output stream until the next multiple of {@link #PAGE_SIZE}.
+	 *
+	 * @param os  The stream to output the data to.
+	 * @param pos The number of bytes written to the stream so far.
+	 *
+	 * @return The new number of bytes written to the stream.
+	 *
+	 * @throws IOException If some IO exception occurs.
+	 */
+	static long writePadding(OutputStream os, long pos)
+			throws IOException {
+		long aligned = align(pos);
+		if (aligned > pos) {
+			os.write(new byte[(int) (aligned - pos)]);
+		}
+		return aligned;
+	}
+
+	/**
+	 * Serializes all data between the position and the limit of the buffer
+	 * without a size prefix and without modifying the buffer.
+	 *
+	 * @param os     The stream to output the data to.
+	 * @param buffer The buffer to serialize.
+	 *
+	 * @throws IOException If some IO exception occurs.
+	 */
+	static void writeRaw(OutputStream os, ByteBuffer buffer)
+			throws IOException {
+		buffer = buffer.duplicate();
+		if (buffer.hasArray()) {
+			os.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			return;
+		}
+		byte[] buf = new byte[Math.min(buffer.remaining(), 16 * BUFFER_SIZE)];
+		while (buffer.hasRemaining()) {
+			int read = Math.min(buf.length, buffer.remaining());
+			buffer.get(buf, 0, read);
+			os.write(buf, 0, read);
+		}
+	}
+	
+}
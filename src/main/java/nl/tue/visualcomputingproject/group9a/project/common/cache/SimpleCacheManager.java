@@ -292,6 +292,18 @@ public abstract class SimpleCacheManager<Read extends ReadCacheClaim, ReadWrite
 	 * @param id The ID of the file to track.
 	 */
 	protected void track(FileId id) {
+		track(id, -1);
+	}
+
+	/**
+	 * Adds the file with the given ID and known size to the cache policy.
+	 * Only tracks files if they exist.
+	 *
+	 * @param id   The ID of the file to track.
+	 * @param size The size of the file as stored in the {@link CacheIndex},
+	 *             or {@code -1} if the size is unknown.
+	 */
+	protected void track(FileId id, long size) {
 		ClaimElem elem = getOrPutDefaultAndLock(id, (v) -> createClaimElem());
 		try {
 			if (elem.isTracked()) {
@@ -301,6 +313,34 @@ public abstract class SimpleCacheManager<Read extends ReadCacheClaim, ReadWrite
 			}
 			elem.tracked = true;
 			
+			elem.writeClaim = size < 0
+					? createReadWriteClaim(id, elem)
+					: createIndexedReadWriteClaim(id, elem, size);
+			policy.track(id, this, elem.writeClaim);
+
+		} finally {
+			elem.unlock();
+		}
+	}
+
+	/**
+	 * Tracks the file with the given ID again, such that the cache policy
+	 * updates its size. Does nothing if the file is claimed.
+	 *
+	 * @param id The ID of the file to track again.
+	 */
+	protected void retrack(FileId id) {
+		ClaimElem elem = getOrPutDefaultAndLock(id, (v) -> createClaimElem());
+		try {
+			if (elem.isTracked()) {
+				// If the policy fails to untrack the file, then it is being deleted by the policy.
+				if (!policy.untrack(id)) return;
+				elem.writeClaim.invalidate();
+			} else if (elem.hasClaim()) {
+				return;
+			}
+			elem.tracked = true;
+			
 			elem.writeClaim = createReadWriteClaim(id, elem);
 			policy.track(id, this, elem.writeClaim);
 
@@ -309,6 +349,29 @@ public abstract class SimpleCacheManager<Read extends ReadCacheClaim, ReadWrite
 		}
 	}
 
+	/**
+	 * Removes the file with the given ID from the cache policy without deleting it.
+	 * Does nothing if the file is claimed.
+	 *
+	 * @param id The ID of the file to forget.
+	 */
+	protected void forget(FileId id) {
+		ClaimElem elem = getOrPutDefaultAndLock(id, null);
+		if (elem == null) return;
+		try {
+			// If the policy fails to untrack the file, then it is being deleted by the policy.
+			if (!elem.isTracked() || !policy.untrack(id)) return;
+			elem.writeClaim.invalidate();
+			elem.writeClaim = null;
+			elem.tracked = false;
+			elem.valid = false;
+			claimMap.remove(id);
+
+		} finally {
+			elem.unlock();
+		}
+	}
+
 	/**
 	 * @return A new {@link ClaimElem} storing future claims.
 	 */
@@ -337,5 +400,20 @@ public abstract class SimpleCacheManager<Read extends ReadCacheClaim, ReadWrite
 	 * @return A non-null read-write claim for the given file ID.
 	 */
 	protected abstract @NonNull ReadWrite createReadWriteClaim(FileId id, ClaimElem elem);
+
+	/**
+	 * Creates a new read-write claim for a file loaded from the {@link CacheIndex},
+	 * which reports the indexed size instead of querying it.
+	 * Defaults to {@link #createReadWriteClaim(FileId, ClaimElem)}.
+	 *
+	 * @param id   The file ID to create a new read write claim for.
+	 * @param elem The claim element of the file.
+	 * @param size The indexed size of the file.
+	 *
+	 * @return A non-null read-write claim for the given file ID.
+	 */
+	protected @NonNull ReadWrite createIndexedReadWriteClaim(FileId id, ClaimElem elem, long size) {
+		return createReadWriteClaim(id, elem);
+	}
 	
 }
@@ -0,0 +1,21 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A {@link ReadCacheClaim} whose data can be read as a stream,
+ * independent of how the cache manager stores the data.
+ */
+public interface StreamReadCacheClaim
+		extends ReadCacheClaim {
+
+	/**
+	 * @return A stream reading the data of the claimed file.
+	 * 
+	 * @throws IOException If the data could not be read.
+	 */
+	InputStream getInputStream()
+			throws IOException;
+	
+}
@@ -0,0 +1,22 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A {@link ReadWriteCacheClaim} whose data can be written as a stream,
+ * independent of how the cache manager stores the data.
+ * The data is replaced when the stream is closed.
+ */
+public interface StreamReadWriteCacheClaim
+		extends StreamReadCacheClaim, ReadWriteCacheClaim {
+
+	/**
+	 * @return A stream writing the data of the claimed file.
+	 * 
+	 * @throws IOException If the stream could not be created.
+	 */
+	OutputStream getOutputStream()
+			throws IOException;
+	
+}
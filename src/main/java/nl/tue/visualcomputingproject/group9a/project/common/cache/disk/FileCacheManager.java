@@ -1,6 +1,5 @@
 package nl.tue.visualcomputingproject.group9a.project.common.cache.disk;
 
-import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.*;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.CachePolicy;
 import org.slf4j.Logger;
@@ -9,9 +8,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.lang.invoke.MethodHandles;
 import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.Map;
 
 /**
  * A {@link CacheManager} implementation which stores the data on disk.
@@ -36,6 +33,14 @@ public class FileCacheManager
 		this.cacheDir = new File(cacheDir, subDir);
 	}
 
+	/**
+	 * {@inheritDoc} <br>
+	 * <br>
+	 * If the cache directory contains a valid {@link CacheIndex}, then the indexed files
+	 * are tracked without accessing the files, and the directory is reconciled in the background.
+	 * Otherwise, the whole directory is walked. Snapshots of the index are written periodically
+	 * and on shutdown.
+	 */
 	@Override
 	public void indexCache(FileIdFactory<? extends FileId> idFactory) {
 		try {
@@ -52,43 +57,30 @@ public class FileCacheManager
 				return;
 			}
 
-			String cachePath = cacheDir.getAbsolutePath();
-			int rootDirLength = cachePath.length() +
-					(cachePath.endsWith(File.separator)
-							? 0
-							: File.separator.length());
-			File[] fileArr = cacheDir.listFiles();
-			if (fileArr == null) return;
-			List<File> files = new ArrayList<>(Arrays.asList(fileArr));
-			for (int i = 0; i < files.size(); i++) {
-				File file = files.get(i);
-				if (file.isDirectory()) {
-					fileArr = file.listFiles();
-					if (fileArr != null) {
-						files.addAll(Arrays.asList(fileArr));
+			final long startTime = System.currentTimeMillis();
+			CacheIndex index = CacheIndex.read(cacheDir);
+			if (index == null) {
+				CacheIndex.walk(cacheDir, startTime, (name, file) -> track(idFactory, name, -1));
+				
+			} else {
+				for (Map.Entry<String, Long> entry : index.getEntries().entrySet()) {
+					track(idFactory, entry.getKey(), entry.getValue());
+				}
+				index.reconcile(cacheDir, startTime, new CacheIndex.Reconciler() {
+					@Override
+					public void refresh(String path) {
+						FileId id = idFactory.fromPath(path);
+						if (id != null) retrack(id);
 					}
 
-				} else if (file.getName().endsWith(Settings.CACHE_EXT)) {
-					String path = file.getAbsolutePath();
-					String name = path.substring(
-							rootDirLength,
-							path.length() - Settings.CACHE_EXT.length());
-					try {
-						FileId id = idFactory.fromPath(name);
-						if (id != null) {
-							track(id);
-							LOGGER.info("Added " + name + " to disk cache!");
-						}
-					} catch (Exception e) {
-						LOGGER.info("Exception occurred while indexing " + name);
-						e.printStackTrace();
+					@Override
+					public void missing(String path) {
+						FileId id = idFactory.fromPath(path);
+						if (id != null) forget(id);
 					}
-				} else if (file.getName().endsWith(Settings.TMP_CACHE_EXT)) {
-					// Delete old temporary cache files if found.
-					//noinspection ResultOfMethodCallIgnored
-					file.delete();
-				}
+				});
 			}
+			CacheIndex.scheduleSnapshots(cacheDir, () -> policy.getTracked(this));
 
 			LOGGER.info("Finished indexing disk cache!");
 
@@ -98,6 +90,26 @@ public class FileCacheManager
 		}
 	}
 
+	/**
+	 * Tracks the file with the given path.
+	 *
+	 * @param idFactory The factory used to generate the id of the file.
+	 * @param name      The path of the file.
+	 * @param size      The indexed size of the file, or {@code -1} if unknown.
+	 */
+	private void track(FileIdFactory<? extends FileId> idFactory, String name, long size) {
+		try {
+			FileId id = idFactory.fromPath(name);
+			if (id != null) {
+				track(id, size);
+				LOGGER.debug("Added " + name + " to disk cache!");
+			}
+		} catch (Exception e) {
+			LOGGER.info("Exception occurred while indexing " + name);
+			e.printStackTrace();
+		}
+	}
+
 	@Override
 	protected FileReadCacheClaim createReadClaim(FileId id, ClaimElem elem) {
 		return new FileReadCacheClaim(id, cacheDir);
@@ -107,5 +119,10 @@ public class FileCacheManager
 	protected FileReadWriteCacheClaim createReadWriteClaim(FileId id, ClaimElem elem) {
 		return new FileReadWriteCacheClaim(id, cacheDir);
 	}
+
+	@Override
+	protected FileReadWriteCacheClaim createIndexedReadWriteClaim(FileId id, ClaimElem elem, long size) {
+		return new FileReadWriteCacheClaim(id, cacheDir, size);
+	}
 	
 }
@@ -2,8 +2,9 @@ package nl.tue.visualcomputingproject.group9a.project.common.cache.disk;
 
 import lombok.Getter;
 import nl.tue.visualcomputingproject.group9a.project.common.Settings;
-import nl.tue.visualcomputingproject.group9a.project.common.cache.ReadCacheClaim;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.FileId;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.ReadCacheClaim;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.StreamReadCacheClaim;
 import nl.tue.visualcomputingproject.group9a.project.common.util.PostProcessInputStream;
 
 import java.io.File;
@@ -18,7 +19,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * Implementation of {@link ReadCacheClaim} for files stored on disk.
  */
 public class FileReadCacheClaim
-		implements ReadCacheClaim {
+		implements StreamReadCacheClaim {
 	@Getter
 	protected final FileId id;
 	
@@ -95,6 +96,7 @@ public class FileReadCacheClaim
 		return Files.exists(file.toPath());
 	}
 	
+	@Override
 	public InputStream getInputStream()
 			throws IOException {
 		lock.lock();
@@ -4,6 +4,7 @@ import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.util.PostProcessOutputStream;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.ReadWriteCacheClaim;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.FileId;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.StreamReadWriteCacheClaim;
 
 import java.io.*;
 import java.nio.file.Files;
@@ -14,10 +15,23 @@ import java.nio.file.StandardCopyOption;
  */
 public class FileReadWriteCacheClaim
 		extends FileReadCacheClaim
-		implements ReadWriteCacheClaim {
+		implements StreamReadWriteCacheClaim {
+	
+	/** The size of the file as stored in the cache index, or {@code -1} if unknown. */
+	private final long indexedSize;
 	
 	FileReadWriteCacheClaim(FileId id, File cacheDir) {
+		this(id, cacheDir, -1);
+	}
+	
+	FileReadWriteCacheClaim(FileId id, File cacheDir, long indexedSize) {
 		super(id, cacheDir);
+		this.indexedSize = indexedSize;
+	}
+
+	@Override
+	public long size() {
+		return indexedSize < 0 ? super.size() : indexedSize;
 	}
 
 	@Override
@@ -35,6 +49,7 @@ public class FileReadWriteCacheClaim
 		}
 	}
 	
+	@Override
 	public OutputStream getOutputStream()
 			throws IOException {
 		lock.lock();
@@ -2,6 +2,8 @@ package nl.tue.visualcomputingproject.group9a.project.common.cache.policy;
 
 import nl.tue.visualcomputingproject.group9a.project.common.cache.*;
 
+import java.util.LinkedHashMap;
+
 /**
  * Interface for cache policies.
  * A cache policy tracks files registered via {@link #track(FileId, CacheManager, ReadWriteCacheClaim)}.
@@ -79,5 +81,40 @@ public interface CachePolicy {
 	 * @return The current size of all files tracked by this policy.
 	 */
 	long getCurSize();
+
+	/**
+	 * Returns the files tracked for the given cache manager together with their sizes,
+	 * ordered from the first to the last file this policy would currently evict.
+	 * Used to write a {@link CacheIndex} of the manager. <br>
+	 * <br>
+	 * This action is atomic.
+	 * 
+	 * @param manager The manager which requested to track the files.
+	 * 
+	 * @return The tracked files of the manager mapped to their size.
+	 */
+	LinkedHashMap<FileId, Long> getTracked(CacheManager<?, ?> manager);
+
+	/**
+	 * Creates a cache policy by name.
+	 * 
+	 * @param name    The name of the policy: {@code lru} for {@link ConcurrentLRUCachePolicy},
+	 *                or {@code tinylfu} for {@link TinyLFUCachePolicy}.
+	 * @param maxSize The maximum size of all files tracked by the policy.
+	 * 
+	 * @return A new cache policy.
+	 * 
+	 * @throws IllegalArgumentException If the name is unknown.
+	 */
+	static CachePolicy create(String name, long maxSize) {
+		switch (name.toLowerCase()) {
+			case "lru":
+				return new ConcurrentLRUCachePolicy(maxSize);
+			case "tinylfu":
+				return new TinyLFUCachePolicy(maxSize);
+			default:
+				throw new IllegalArgumentException("Unknown cache policy: " + name);
+		}
+	}
 	
 }
@@ -0,0 +1,304 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.policy;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Least Recently Used (LRU) cache policy which can be used concurrently by many threads.
+ * <br>
+ * The tracked files are stored in a {@link ConcurrentHashMap}. Accesses are not applied
+ * directly to the LRU order, but are recorded in a lock-free buffer. The buffer is drained
+ * into a doubly linked list by a maintenance thread, which also deletes the least recently
+ * used files when the maximum size is exceeded. All operations on the list take constant time.
+ * <br>
+ * Since eviction happens off the caller thread, the current size may exceed the
+ * maximum size for a short amount of time.
+ */
+public class ConcurrentLRUCachePolicy
+		implements CachePolicy {
+	/** The number of buffered accesses after which maintenance is scheduled. */
+	private static final int DRAIN_THRESHOLD = 64;
+	/** The counter used to name the maintenance threads. */
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	/** Map mapping the file ID's to their respective node. */
+	private final Map<FileId, Node<?, ?>> nodeMap = new ConcurrentHashMap<>();
+	/** The buffer of nodes which have been accessed since the last maintenance. */
+	private final Queue<Node<?, ?>> accessBuffer = new ConcurrentLinkedQueue<>();
+	/** The number of nodes in {@link #accessBuffer}. */
+	private final AtomicInteger bufferSize = new AtomicInteger();
+	/** Whether maintenance has been scheduled but not yet started. */
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	/** The lock guarding the LRU list. */
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	/** The thread executing the maintenance. */
+	private final ExecutorService maintenanceThread;
+	/** The sentinel of the LRU list. {@code head.next} is the least recently used node. */
+	private final Node<?, ?> head = new Node<>(null, null, null, 0);
+	/** The current size of the cache policy. */
+	private final AtomicLong curSize = new AtomicLong();
+	/** The maximum size of the cache policy. */
+	@Getter
+	private volatile long maxSize;
+
+	/**
+	 * The node of a tracked file.
+	 *
+	 * @param <Read>      The type of the read claims of the manager.
+	 * @param <ReadWrite> The type of the read-write claims of the manager.
+	 */
+	private static class Node<Read extends ReadCacheClaim, ReadWrite extends ReadWriteCacheClaim> {
+		/** The ID of the tracked file. */
+		private final FileId id;
+		/** The manager to notify after deletion. */
+		private final CacheManager<Read, ReadWrite> manager;
+		/** The claim used to delete the file. */
+		private final ReadWrite claim;
+		/** The size used in the size calculation for the file. Guarded by the node. */
+		private long size;
+		/** Whether the node is still tracked. Guarded by the node. */
+		private volatile boolean alive = true;
+		/** The previous node in the LRU list. Guarded by {@link #evictionLock}. */
+		private Node<?, ?> prev;
+		/** The next node in the LRU list. Guarded by {@link #evictionLock}. */
+		private Node<?, ?> next;
+
+		Node(FileId id, CacheManager<Read, ReadWrite> manager, ReadWrite claim, long size) {
+			this.id = id;
+			this.manager = manager;
+			this.claim = claim;
+			this.size = size;
+			prev = next = this;
+		}
+
+		/**
+		 * @return {@code true} if the node is in the LRU list.
+		 */
+		boolean isLinked() {
+			return next != this;
+		}
+
+		void unlink() {
+			prev.next = next;
+			next.prev = prev;
+			prev = next = this;
+		}
+
+		/**
+		 * Releases the claim to this file.
+		 */
+		void release() {
+			manager.releaseCacheClaim(claim);
+		}
+
+	}
+
+	/**
+	 * Creates a new concurrent Least Recently Used (LRU) cache policy.
+	 *
+	 * @param maxSize The maximum size in bytes the sum of the files tracked
+	 *                by this policy should have.
+	 */
+	public ConcurrentLRUCachePolicy(long maxSize) {
+		this.maxSize = maxSize;
+		maintenanceThread = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "cache-policy-maintenance-" + THREAD_COUNTER.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@Override
+	public void setMaxSize(long size) {
+		maxSize = size;
+		scheduleMaintenance();
+	}
+
+	@Override
+	public long getCurSize() {
+		return curSize.get();
+	}
+
+	@Override
+	public <Read extends ReadCacheClaim, ReadWrite extends ReadWriteCacheClaim> void track(
+			FileId id,
+			CacheManager<Read, ReadWrite> manager,
+			ReadWrite claim) {
+		long size = claim.size();
+		Node<Read, ReadWrite> newNode = new Node<>(id, manager, claim, size);
+		Node<?, ?> node;
+		while (true) {
+			node = nodeMap.putIfAbsent(id, newNode);
+			if (node == null) {
+				curSize.addAndGet(size);
+				node = newNode;
+				break;
+			}
+			// Already tracked, so only update the size.
+			// Try again if the node was untracked in the meantime.
+			if (resize(node, size)) break;
+			nodeMap.remove(id, node);
+		}
+		recordAccess(node);
+	}
+
+	@Override
+	public boolean update(FileId id) {
+		Node<?, ?> node = nodeMap.get(id);
+		if (node == null || !resize(node, node.claim.size())) {
+			return false;
+		}
+		recordAccess(node);
+		return true;
+	}
+
+	@Override
+	public boolean untrack(FileId id) {
+		Node<?, ?> node = nodeMap.remove(id);
+		if (node == null) return false;
+		kill(node);
+		recordAccess(node);
+		return true;
+	}
+
+	@Override
+	public LinkedHashMap<FileId, Long> getTracked(CacheManager<?, ?> manager) {
+		LinkedHashMap<FileId, Long> tracked = new LinkedHashMap<>();
+		evictionLock.lock();
+		try {
+			drainAccessBuffer();
+			for (Node<?, ?> node = head.next; node != head; node = node.next) {
+				if (node.manager != manager) continue;
+				synchronized (node) {
+					if (node.alive) tracked.put(node.id, node.size);
+				}
+			}
+			
+		} finally {
+			evictionLock.unlock();
+		}
+		return tracked;
+	}
+
+	/**
+	 * Drains the access buffer and evicts files until the maximum size is no longer
+	 * exceeded on the calling thread. This is normally done by the maintenance thread.
+	 */
+	public void cleanUp() {
+		List<Node<?, ?>> evicted = new ArrayList<>();
+		evictionLock.lock();
+		try {
+			drainAccessBuffer();
+			evict(evicted);
+
+		} finally {
+			evictionLock.unlock();
+		}
+
+		// Delete the files without holding the lock, since releasing the
+		// claim calls back into the cache manager.
+		for (Node<?, ?> node : evicted) {
+			node.claim.delete();
+			node.release();
+		}
+	}
+
+	/**
+	 * Updates the size of the given node.
+	 *
+	 * @param node The node to update.
+	 * @param size The new size of the node.
+	 *
+	 * @return {@code true} if the node is still tracked. {@code false} otherwise.
+	 */
+	private boolean resize(Node<?, ?> node, long size) {
+		synchronized (node) {
+			if (!node.alive) return false;
+			curSize.addAndGet(size - node.size);
+			node.size = size;
+			return true;
+		}
+	}
+
+	/**
+	 * Marks the given node as no longer tracked and removes its size.
+	 *
+	 * @param node The node to remove.
+	 */
+	private void kill(Node<?, ?> node) {
+		synchronized (node) {
+			node.alive = false;
+			curSize.addAndGet(-node.size);
+		}
+	}
+
+	private void recordAccess(Node<?, ?> node) {
+		accessBuffer.add(node);
+		if (bufferSize.incrementAndGet() >= DRAIN_THRESHOLD || curSize.get() > maxSize) {
+			scheduleMaintenance();
+		}
+	}
+
+	private void scheduleMaintenance() {
+		if (scheduled.compareAndSet(false, true)) {
+			maintenanceThread.execute(() -> {
+				scheduled.set(false);
+				cleanUp();
+			});
+		}
+	}
+
+	/**
+	 * Applies all buffered accesses to the LRU list.
+	 * Must be called while holding {@link #evictionLock}.
+	 */
+	private void drainAccessBuffer() {
+		Node<?, ?> node;
+		while ((node = accessBuffer.poll()) != null) {
+			bufferSize.decrementAndGet();
+			if (node.isLinked()) {
+				node.unlink();
+			}
+			if (node.alive) {
+				// Move to the most recently used position.
+				node.prev = head.prev;
+				node.next = head;
+				head.prev.next = node;
+				head.prev = node;
+			}
+		}
+	}
+
+	/**
+	 * Removes the least recently used nodes until the maximum size is no longer exceeded.
+	 * Must be called while holding {@link #evictionLock}.
+	 *
+	 * @param evicted The list to add the evicted nodes to.
+	 */
+	private void evict(List<Node<?, ?>> evicted) {
+		while (curSize.get() > maxSize && head.next != head) {
+			Node<?, ?> node = head.next;
+			node.unlink();
+			// Only evict the node if it was not concurrently untracked or replaced.
+			if (nodeMap.remove(node.id, node)) {
+				kill(node);
+				evicted.add(node);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.policy;
+
+/**
+ * Count-min sketch estimating how often a key has been accessed recently. <br>
+ * <br>
+ * Every key is counted in one saturating 4-bit counter in each of the {@link #DEPTH} rows.
+ * The estimate is the minimum of these counters. To let the sketch forget old
+ * accesses, all counters are halved after every {@code 10 * width} increments.
+ * The sketch grows with the number of keys without losing the counts.
+ * Not thread-safe.
+ */
+class FrequencySketch {
+	/** The number of rows in the sketch. */
+	private static final int DEPTH = 4;
+	/** The maximum value of a counter. */
+	private static final int MAX_COUNT = 15;
+	/** The seeds used to derive the index of a key in each row. */
+	private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+	/** The counters, stored as {@code table[row * width + index]}. */
+	private byte[] table;
+	/** The number of counters per row. Always a power of two. */
+	private int width;
+	/** The number of increments after which the counters are halved. */
+	private int sampleSize;
+	/** The number of increments since the last halving. */
+	private int additions;
+
+	/**
+	 * Creates a new sketch.
+	 *
+	 * @param expectedKeys The expected number of distinct keys.
+	 */
+	FrequencySketch(int expectedKeys) {
+		width = widthFor(expectedKeys);
+		table = new byte[DEPTH * width];
+		sampleSize = 10 * width;
+	}
+
+	/**
+	 * Grows the sketch if it is too small for the given number of keys. <br>
+	 * <br>
+	 * Since the width is a power of two, the index of a key in the grown row is its old
+	 * index plus a multiple of the old width. Every counter is therefore copied to all
+	 * indices it corresponds to, such that the estimates of all keys are preserved.
+	 *
+	 * @param expectedKeys The expected number of distinct keys.
+	 */
+	void ensureCapacity(int expectedKeys) {
+		if (expectedKeys <= width) return;
+		int newWidth = widthFor(expectedKeys);
+		byte[] newTable = new byte[DEPTH * newWidth];
+		for (int row = 0; row < DEPTH; row++) {
+			for (int i = 0; i < newWidth; i++) {
+				newTable[row * newWidth + i] = table[row * width + (i & (width - 1))];
+			}
+		}
+		table = newTable;
+		width = newWidth;
+		sampleSize = 10 * width;
+	}
+
+	private static int widthFor(int expectedKeys) {
+		return Integer.highestOneBit(Math.max(16, expectedKeys - 1)) << 1;
+	}
+
+	/**
+	 * @param hash The hash of the key.
+	 *
+	 * @return The estimated number of recent accesses of the key.
+	 */
+	int frequency(int hash) {
+		int min = MAX_COUNT;
+		for (int row = 0; row < DEPTH; row++) {
+			min = Math.min(min, table[indexOf(hash, row)]);
+		}
+		return min;
+	}
+
+	/**
+	 * Records an access of the key.
+	 *
+	 * @param hash The hash of the key.
+	 */
+	void increment(int hash) {
+		boolean added = false;
+		for (int row = 0; row < DEPTH; row++) {
+			int i = indexOf(hash, row);
+			if (table[i] < MAX_COUNT) {
+				table[i]++;
+				added = true;
+			}
+		}
+		if (added && ++additions >= sampleSize) {
+			reset();
+		}
+	}
+
+	/**
+	 * Halves all counters.
+	 */
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] >>= 1;
+		}
+		additions /= 2;
+	}
+
+	private int indexOf(int hash, int row) {
+		int h = hash * SEEDS[row];
+		h ^= h >>> 16;
+		return row * width + (h & (width - 1));
+	}
+
+}
@@ -5,9 +5,7 @@ import lombok.Getter;
 import lombok.Setter;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.*;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.*;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -156,9 +154,30 @@ public class LRUCachePolicy
 		}
 	}
 
+	@Override
+	public LinkedHashMap<FileId, Long> getTracked(CacheManager<?, ?> manager) {
+		lock.lock();
+		try {
+			List<QueueElem<?, ?>> elems = new ArrayList<>();
+			for (QueueElem<?, ?> elem : elemMap.values()) {
+				if (elem.manager == manager) elems.add(elem);
+			}
+			Collections.sort(elems);
+			
+			LinkedHashMap<FileId, Long> tracked = new LinkedHashMap<>();
+			for (QueueElem<?, ?> elem : elems) {
+				tracked.put(elem.id, elem.size);
+			}
+			return tracked;
+			
+		} finally {
+			lock.unlock();
+		}
+	}
+
 	/**
 	 * Checks whether the maximum size is exceeded.
-	 * If so, it removes the files in order.
+	 * If so, it removes the least recently used files until it is not exceeded anymore.
 	 */
 	private void checkSize() {
 		lock.lock();
@@ -169,6 +188,10 @@ public class LRUCachePolicy
 					curSize = 0;
 					return;
 				}
+				// Forget the file before deleting it, such that it is neither reported
+				// as hit by update() nor listed in the snapshot of getTracked().
+				elemMap.remove(elem.id);
+				curSize -= elem.size;
 				elem.claim.delete();
 				elem.release();
 			}
@@ -0,0 +1,356 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.policy;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Window TinyLFU (W-TinyLFU) cache policy. <br>
+ * <br>
+ * New files enter a small LRU window. Files leaving the window become candidates
+ * for the main cache, which is a segmented LRU with a probation and a protected segment.
+ * When the main cache is full, a candidate is only admitted if it has been accessed
+ * more often than the least recently used file in the probation segment.
+ * The access frequencies are estimated using a {@link FrequencySketch}, which also
+ * remembers files that are no longer tracked. <br>
+ * <br>
+ * This prevents files which are accessed only once, e.g. the chunks of a long
+ * camera fly-through, from evicting files which are accessed regularly.
+ * All operations take constant time. Evicted files are deleted after releasing
+ * the lock of this policy.
+ */
+public class TinyLFUCachePolicy
+		implements CachePolicy {
+	/** The default fraction of the maximum size used by the window. */
+	public static final double DEFAULT_WINDOW_FRACTION = 0.01;
+	/** The fraction of the main cache used by the protected segment. */
+	private static final double PROTECTED_FRACTION = 0.8;
+
+	/** Map mapping the file ID's to their respective node. */
+	private final Map<FileId, Node<?, ?>> nodeMap = new HashMap<>();
+	/** The LRU window. */
+	private final Segment window = new Segment();
+	/** The probation segment of the main cache. */
+	private final Segment probation = new Segment();
+	/** The protected segment of the main cache. */
+	private final Segment protect = new Segment();
+	/** The access frequencies of the files. */
+	private final FrequencySketch sketch = new FrequencySketch(64);
+	/** The lock of this policy. */
+	private final Lock lock = new ReentrantLock();
+	/** The fraction of the maximum size used by the window. */
+	private final double windowFraction;
+	/** The maximum size of the cache policy. */
+	@Getter
+	private long maxSize;
+	/** The current size of the cache policy. */
+	@Getter
+	private long curSize;
+
+	/**
+	 * The node of a tracked file.
+	 *
+	 * @param <Read>      The type of the read claims of the manager.
+	 * @param <ReadWrite> The type of the read-write claims of the manager.
+	 */
+	private static class Node<Read extends ReadCacheClaim, ReadWrite extends ReadWriteCacheClaim> {
+		/** The ID of the tracked file. */
+		private final FileId id;
+		/** The manager to notify after deletion. */
+		private final CacheManager<Read, ReadWrite> manager;
+		/** The claim used to delete the file. */
+		private final ReadWrite claim;
+		/** The size used in the size calculation for the file. */
+		private long size;
+		/** The segment containing this node. */
+		private Segment segment;
+		/** The previous node in the segment. */
+		private Node<?, ?> prev;
+		/** The next node in the segment. */
+		private Node<?, ?> next;
+
+		Node(FileId id, CacheManager<Read, ReadWrite> manager, ReadWrite claim, long size) {
+			this.id = id;
+			this.manager = manager;
+			this.claim = claim;
+			this.size = size;
+		}
+
+		/**
+		 * Releases the claim to this file.
+		 */
+		void release() {
+			manager.releaseCacheClaim(claim);
+		}
+
+	}
+
+	/**
+	 * Doubly linked list of nodes ordered from least to most recently used.
+	 */
+	private static class Segment {
+		/** The least recently used node. */
+		private Node<?, ?> first;
+		/** The most recently used node. */
+		private Node<?, ?> last;
+		/** The sum of the sizes of the nodes in this segment. */
+		private long size;
+
+		void addLast(Node<?, ?> node) {
+			node.segment = this;
+			node.prev = last;
+			node.next = null;
+			if (last == null) first = node;
+			else last.next = node;
+			last = node;
+			size += node.size;
+		}
+
+		void remove(Node<?, ?> node) {
+			if (node.prev == null) first = node.next;
+			else node.prev.next = node.next;
+			if (node.next == null) last = node.prev;
+			else node.next.prev = node.prev;
+			node.prev = node.next = null;
+			node.segment = null;
+			size -= node.size;
+		}
+
+		void moveToLast(Node<?, ?> node) {
+			remove(node);
+			addLast(node);
+		}
+
+	}
+
+	/**
+	 * Creates a new W-TinyLFU cache policy with the default window size.
+	 *
+	 * @param maxSize The maximum size in bytes the sum of the files tracked
+	 *                by this policy should have.
+	 */
+	public TinyLFUCachePolicy(long maxSize) {
+		this(maxSize, DEFAULT_WINDOW_FRACTION);
+	}
+
+	/**
+	 * Creates a new W-TinyLFU cache policy.
+	 *
+	 * @param maxSize        The maximum size in bytes the sum of the files tracked
+	 *                       by this policy should have.
+	 * @param windowFraction The fraction of the maximum size used by the LRU window.
+	 */
+	public TinyLFUCachePolicy(long maxSize, double windowFraction) {
+		this.maxSize = maxSize;
+		this.windowFraction = windowFraction;
+	}
+
+	@Override
+	public void setMaxSize(long size) {
+		List<Node<?, ?>> evicted = new ArrayList<>();
+		lock.lock();
+		try {
+			maxSize = size;
+			evict(evicted);
+
+		} finally {
+			lock.unlock();
+		}
+		delete(evicted);
+	}
+
+	@Override
+	public <Read extends ReadCacheClaim, ReadWrite extends ReadWriteCacheClaim> void track(
+			FileId id,
+			CacheManager<Read, ReadWrite> manager,
+			ReadWrite claim) {
+		List<Node<?, ?>> evicted = new ArrayList<>();
+		lock.lock();
+		try {
+			sketch.increment(hash(id));
+			Node<?, ?> node = nodeMap.get(id);
+			if (node != null) {
+				resize(node, claim.size());
+				onAccess(node);
+
+			} else {
+				node = new Node<>(id, manager, claim, claim.size());
+				nodeMap.put(id, node);
+				sketch.ensureCapacity(nodeMap.size());
+				window.addLast(node);
+				curSize += node.size;
+			}
+
+			evict(evicted);
+
+		} finally {
+			lock.unlock();
+		}
+		delete(evicted);
+	}
+
+	@Override
+	public boolean update(FileId id) {
+		List<Node<?, ?>> evicted = new ArrayList<>();
+		lock.lock();
+		try {
+			Node<?, ?> node = nodeMap.get(id);
+			if (node == null) return false;
+			sketch.increment(hash(id));
+			resize(node, node.claim.size());
+			onAccess(node);
+
+			evict(evicted);
+
+		} finally {
+			lock.unlock();
+		}
+		delete(evicted);
+		return true;
+	}
+
+	@Override
+	public boolean untrack(FileId id) {
+		lock.lock();
+		try {
+			Node<?, ?> node = nodeMap.remove(id);
+			if (node == null) return false;
+			node.segment.remove(node);
+			curSize -= node.size;
+			return true;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc} <br>
+	 * <br>
+	 * The files are ordered by segment: probation, protected and then the window.
+	 */
+	@Override
+	public LinkedHashMap<FileId, Long> getTracked(CacheManager<?, ?> manager) {
+		LinkedHashMap<FileId, Long> tracked = new LinkedHashMap<>();
+		lock.lock();
+		try {
+			for (Segment segment : new Segment[] {probation, protect, window}) {
+				for (Node<?, ?> node = segment.first; node != null; node = node.next) {
+					if (node.manager == manager) tracked.put(node.id, node.size);
+				}
+			}
+			
+		} finally {
+			lock.unlock();
+		}
+		return tracked;
+	}
+
+	private static int hash(FileId id) {
+		int h = id.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private void resize(Node<?, ?> node, long size) {
+		node.segment.size += size - node.size;
+		curSize += size - node.size;
+		node.size = size;
+	}
+
+	/**
+	 * Moves the given node to the most recently used position of its segment,
+	 * and promotes it to the protected segment if it was on probation.
+	 *
+	 * @param node The accessed node.
+	 */
+	private void onAccess(Node<?, ?> node) {
+		if (node.segment != probation) {
+			node.segment.moveToLast(node);
+			return;
+		}
+
+		probation.remove(node);
+		protect.addLast(node);
+		// Demote the least recently used protected nodes if the segment is full.
+		long maxProtected = (long) ((maxSize - windowMaxSize()) * PROTECTED_FRACTION);
+		while (protect.size > maxProtected && protect.first != node) {
+			Node<?, ?> demoted = protect.first;
+			protect.remove(demoted);
+			probation.addLast(demoted);
+		}
+	}
+
+	private long windowMaxSize() {
+		return (long) (maxSize * windowFraction);
+	}
+
+	/**
+	 * Moves the overflow of the window to the main cache, and evicts nodes until
+	 * the maximum size is no longer exceeded.
+	 *
+	 * @param evicted The list to add the evicted nodes to.
+	 */
+	private void evict(List<Node<?, ?>> evicted) {
+		// Files leaving the window become candidates at the end of the probation segment.
+		Node<?, ?> candidate = null;
+		long windowMax = windowMaxSize();
+		while (window.size > windowMax && window.first != null) {
+			Node<?, ?> node = window.first;
+			window.remove(node);
+			probation.addLast(node);
+			if (candidate == null) candidate = node;
+		}
+
+		while (curSize > maxSize) {
+			Node<?, ?> victim = probation.first;
+			if (victim == null) victim = protect.first;
+			if (victim == null) victim = window.first;
+			if (victim == null) {
+				curSize = 0;
+				return;
+			}
+
+			if (candidate == null || candidate == victim) {
+				// No competition, so evict the least recently used node.
+				if (candidate == victim) candidate = candidate.next;
+				evict(victim, evicted);
+			} else if (sketch.frequency(hash(candidate.id)) > sketch.frequency(hash(victim.id))) {
+				// The candidate is admitted at the cost of the victim.
+				evict(victim, evicted);
+			} else {
+				// The candidate is rejected.
+				Node<?, ?> next = candidate.next;
+				evict(candidate, evicted);
+				candidate = next;
+			}
+		}
+	}
+
+	private void evict(Node<?, ?> node, List<Node<?, ?>> evicted) {
+		nodeMap.remove(node.id);
+		node.segment.remove(node);
+		curSize -= node.size;
+		evicted.add(node);
+	}
+
+	/**
+	 * Deletes the evicted files. Must be called without holding the lock,
+	 * since releasing the claim calls back into the cache manager.
+	 *
+	 * @param evicted The evicted nodes.
+	 */
+	private void delete(List<Node<?, ?>> evicted) {
+		for (Node<?, ?> node : evicted) {
+			node.claim.delete();
+			node.release();
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.segment;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.*;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.CachePolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+
+/**
+ * A {@link CacheManager} implementation which packs the data of all files
+ * into the append-only segment files of a {@link SegmentStore}. <br>
+ * <br>
+ * Compared to the {@link nl.tue.visualcomputingproject.group9a.project.common.cache.disk.FileCacheManager},
+ * this avoids the file system overhead of creating, renaming and deleting a file for
+ * every small cache file. The claims have the same semantics.
+ */
+public class SegmentCacheManager
+		extends SimpleCacheManager<SegmentReadCacheClaim, SegmentReadWriteCacheClaim> {
+	/** The logger object of this class. */
+	static private final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+	/** The caching directory of this cache manager. */
+	private final File cacheDir;
+	/** The store containing the data of the files. */
+	@Getter
+	private final SegmentStore store;
+
+	/**
+	 * Creates a new segment cache manager with the given policy and directory.
+	 *
+	 * @param policy   The cache policy used for deleting files.
+	 * @param cacheDir The cache directory to store the segments at.
+	 * @param subDir   The subdirectory this cache manager is managing.
+	 */
+	public SegmentCacheManager(CachePolicy policy, File cacheDir, String subDir) {
+		super(policy);
+		this.cacheDir = new File(cacheDir, subDir);
+		store = new SegmentStore(this.cacheDir);
+	}
+
+	@Override
+	public void indexCache(FileIdFactory<? extends FileId> idFactory) {
+		try {
+			LOGGER.info("Indexing segment cache...");
+			if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+				LOGGER.error("Could not create cache directory: " + cacheDir);
+				LOGGER.error("Continuing without disk cache.");
+				return;
+			}
+
+			if (!Files.isDirectory(cacheDir.toPath())) {
+				LOGGER.error("Disk cache directory is not a directory");
+				LOGGER.error("Continuing without disk cache.");
+				return;
+			}
+
+			LinkedHashMap<FileId, Long> stored = store.open(idFactory);
+			for (FileId id : stored.keySet()) {
+				track(id);
+			}
+			LOGGER.info("Finished indexing segment cache with " + stored.size() + " files!");
+
+		} catch (Exception e) {
+			LOGGER.error("Aborted indexing segment cache!");
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	protected SegmentReadCacheClaim createReadClaim(FileId id, ClaimElem elem) {
+		return new SegmentReadCacheClaim(id, store);
+	}
+
+	@Override
+	protected SegmentReadWriteCacheClaim createReadWriteClaim(FileId id, ClaimElem elem) {
+		return new SegmentReadWriteCacheClaim(id, store);
+	}
+	
+}
@@ -0,0 +1,90 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.segment;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.FileId;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.ReadCacheClaim;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.StreamReadCacheClaim;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of {@link ReadCacheClaim} for files stored in a {@link SegmentStore}.
+ * The data is read at once when the input stream is created, so reading from the
+ * stream never blocks writes to the store.
+ */
+public class SegmentReadCacheClaim
+		implements StreamReadCacheClaim {
+	@Getter
+	protected final FileId id;
+	
+	protected final Lock lock = new ReentrantLock();
+	protected boolean valid = true;
+	
+	protected final SegmentStore store;
+	
+	SegmentReadCacheClaim(FileId id, SegmentStore store) {
+		this.id = id;
+		this.store = store;
+	}
+	
+	protected void checkValid(String msg) {
+		if (!valid) {
+			throw new IllegalStateException("Cannot " + msg + " for an invalidated claim!");
+		}
+	}
+
+	@Override
+	public boolean isValid() {
+		lock.lock();
+		try {
+			return valid;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean invalidate() {
+		lock.lock();
+		try {
+			boolean oldValid = valid;
+			valid = false;
+			return oldValid;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long size() {
+		return Math.max(0L, store.size(id));
+	}
+
+	@Override
+	public boolean exists() {
+		return store.contains(id);
+	}
+
+	@Override
+	public InputStream getInputStream()
+			throws IOException {
+		lock.lock();
+		try {
+			checkValid("create input stream");
+			byte[] data = store.read(id);
+			if (data == null) {
+				throw new FileNotFoundException("No data stored for " + id.getPath());
+			}
+			return new ByteArrayInputStream(data);
+			
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+}
@@ -0,0 +1,57 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.segment;
+
+import nl.tue.visualcomputingproject.group9a.project.common.cache.FileId;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.ReadWriteCacheClaim;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.StreamReadWriteCacheClaim;
+import nl.tue.visualcomputingproject.group9a.project.common.util.PostProcessOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Implementation of {@link ReadWriteCacheClaim} for files stored in a {@link SegmentStore}.
+ * The written data is buffered, and appended to the store at once when the stream is closed.
+ */
+public class SegmentReadWriteCacheClaim
+		extends SegmentReadCacheClaim
+		implements StreamReadWriteCacheClaim {
+	
+	SegmentReadWriteCacheClaim(FileId id, SegmentStore store) {
+		super(id, store);
+	}
+
+	@Override
+	public void delete() {
+		lock.lock();
+		try {
+			checkValid("delete file");
+			store.remove(id);
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+			
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public OutputStream getOutputStream()
+			throws IOException {
+		lock.lock();
+		try {
+			checkValid("create output stream");
+		} finally {
+			lock.unlock();
+		}
+		
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		return new PostProcessOutputStream(buffer, () -> {
+			if (!Thread.currentThread().isInterrupted()) {
+				store.put(id, buffer.toByteArray());
+			}
+		});
+	}
+	
+}
@@ -0,0 +1,638 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.segment;
+
+import lombok.AllArgsConstructor;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.EOFException;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.FileId;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.FileIdFactory;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.CachePolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only store packing the data of many cache files into a few large segment files. <br>
+ * <br>
+ * Every write appends a record to the active segment, and every deletion appends a tombstone.
+ * An in-memory index maps the {@link FileId}s to the location of their latest record, and is
+ * rebuilt at startup by reading the record headers of all segments in order. Once the active
+ * segment exceeds {@link #DEFAULT_SEGMENT_SIZE}, a new segment is started. <br>
+ * <br>
+ * Records which are overwritten or deleted become dead space. A background thread compacts
+ * sealed segments of which less than {@link #COMPACTION_THRESHOLD} is live by appending their
+ * live records to the active segment and deleting the old segment file. <br>
+ * <br>
+ * A record consists of a magic number, the path of the ID, the length of the data
+ * ({@code -1} for a tombstone), the data itself, and the CRC32 checksum of the data.
+ * The checksum is verified on every read. A record with an invalid checksum is dropped
+ * by appending a tombstone, such that it is not indexed again at the next startup.
+ * Reads are served concurrently, while writes, deletions and compaction are exclusive.
+ */
+public class SegmentStore
+		implements Closeable {
+	/** The logger object of this class. */
+	static private final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The file extension of the segment files. */
+	public static final String SEGMENT_EXT = ".seg";
+	/** The default size after which a new segment is started. */
+	public static final long DEFAULT_SEGMENT_SIZE = 64 * CachePolicy.SIZE_MiB;
+	/** The fraction of live data below which a segment is compacted. */
+	public static final double COMPACTION_THRESHOLD = 0.5;
+	/** The prefix of the names of the segment files. */
+	private static final String SEGMENT_PREFIX = "segment_";
+	/** The magic number at the start of every record. */
+	private static final int RECORD_MAGIC = 0x53454752;
+	/** The data length of a tombstone record. */
+	private static final int TOMBSTONE = -1;
+	/** The size of the record header before the path. */
+	private static final int PREFIX_SIZE = Integer.BYTES + Short.BYTES;
+
+	/** The directory containing the segment files. */
+	private final File dir;
+	/** The size after which a new segment is started. */
+	private final long maxSegmentSize;
+	/** The lock guarding the index and the segments. */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	/** Map mapping the file ID's to the location of their latest record. */
+	private final Map<FileId, Location> index = new HashMap<>();
+	/** The segments ordered by sequence number. */
+	private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+	/** The thread executing the compaction. */
+	private final ExecutorService compactionThread;
+	/** Whether compaction has been scheduled but not yet started. */
+	private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+	/** The factory used to parse the paths of the records. */
+	private FileIdFactory<? extends FileId> idFactory;
+	/** The segment new records are appended to. */
+	private Segment active;
+
+	/**
+	 * A segment file.
+	 */
+	private static class Segment {
+		/** The sequence number of the segment. */
+		private final int seq;
+		/** The segment file. */
+		private final File file;
+		/** The channel used to access the segment file. */
+		private final FileChannel channel;
+		/** The number of bytes in the segment. */
+		private long size;
+		/** The number of bytes of records which are still referenced by the index. */
+		private long liveBytes;
+		/** Whether a sealed segment contains a damaged record, such that it must not be compacted. */
+		private boolean damaged;
+
+		Segment(int seq, File file)
+				throws IOException {
+			this.seq = seq;
+			this.file = file;
+			channel = FileChannel.open(file.toPath(),
+					StandardOpenOption.CREATE,
+					StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			size = channel.size();
+		}
+
+		/**
+		 * @return {@code true} if less than {@link #COMPACTION_THRESHOLD} of this segment is live.
+		 */
+		boolean isSparse() {
+			return liveBytes < size * COMPACTION_THRESHOLD;
+		}
+
+	}
+
+	/**
+	 * The location of a record in a segment.
+	 */
+	@AllArgsConstructor
+	private static class Location {
+		/** The segment containing the record. */
+		private final Segment segment;
+		/** The position of the record in the segment. */
+		private final long recordPos;
+		/** The size of the record. */
+		private final long recordSize;
+		/** The position of the data in the segment. */
+		private final long dataPos;
+		/** The length of the data. */
+		private final int length;
+	}
+
+	/**
+	 * The header of a record read from a segment.
+	 */
+	@AllArgsConstructor
+	private static class Header {
+		/** The path of the ID of the record. */
+		private final String path;
+		/** The length of the data, or {@link #TOMBSTONE}. */
+		private final int length;
+		/** The position of the data in the segment. */
+		private final long dataPos;
+
+		/**
+		 * @return The position after the end of the record.
+		 */
+		long end() {
+			return dataPos + Math.max(0, length) + Long.BYTES;
+		}
+
+	}
+
+	/**
+	 * Creates a new segment store using the default segment size.
+	 *
+	 * @param dir The directory containing the segment files.
+	 */
+	public SegmentStore(File dir) {
+		this(dir, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Creates a new segment store.
+	 *
+	 * @param dir            The directory containing the segment files.
+	 * @param maxSegmentSize The size after which a new segment is started.
+	 */
+	public SegmentStore(File dir, long maxSegmentSize) {
+		this.dir = dir;
+		this.maxSegmentSize = maxSegmentSize;
+		compactionThread = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "segment-compaction");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Opens the segments in the directory and rebuilds the index.
+	 * Records with a path rejected by the factory are ignored.
+	 * A damaged record at the end of the last segment is truncated. A damaged record in a
+	 * sealed segment is reported, and the records after it are skipped. The segment file is
+	 * left untouched and is never compacted. Only the checksums of the records in the last
+	 * segment are verified here, those of the sealed segments are verified when they are read.
+	 *
+	 * @param idFactory The factory used to parse the paths of the records.
+	 *
+	 * @return The stored files mapped to their size, from the least to the most recently written.
+	 *
+	 * @throws IOException If the segments could not be opened.
+	 */
+	public LinkedHashMap<FileId, Long> open(FileIdFactory<? extends FileId> idFactory)
+			throws IOException {
+		lock.writeLock().lock();
+		try {
+			this.idFactory = idFactory;
+			File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_EXT));
+			if (files != null) {
+				for (File file : files) {
+					String name = file.getName();
+					try {
+						int seq = Integer.parseInt(name.substring(
+								SEGMENT_PREFIX.length(),
+								name.length() - SEGMENT_EXT.length()));
+						segments.put(seq, new Segment(seq, file));
+					} catch (NumberFormatException e) {
+						LOGGER.warn("Ignoring unknown segment file " + file);
+					}
+				}
+			}
+
+			LinkedHashMap<FileId, Long> stored = new LinkedHashMap<>();
+			for (Segment segment : segments.values()) {
+				boolean last = segment == segments.lastEntry().getValue();
+				long pos = 0;
+				while (pos < segment.size) {
+					Header header;
+					try {
+						header = readHeader(segment, pos);
+						if (last && header.length != TOMBSTONE &&
+								readVerified(segment, header.dataPos, header.length) == null) {
+							// Only the last segment can contain a partially written record.
+							throw new IOException("Invalid checksum of record in " + segment.file + " at " + pos);
+						}
+					} catch (IOException e) {
+						if (last) {
+							LOGGER.warn("Damaged record in " + segment.file + " at " + pos + ", truncating segment.");
+							segment.channel.truncate(pos);
+							segment.size = pos;
+						} else {
+							LOGGER.error("Damaged record in sealed segment " + segment.file + " at " + pos +
+									", skipping the remaining " + (segment.size - pos) + " bytes.", e);
+							segment.damaged = true;
+						}
+						break;
+					}
+
+					FileId id = idFactory.fromPath(header.path);
+					if (id != null) {
+						Location old = index.remove(id);
+						if (old != null) kill(old);
+						stored.remove(id);
+						if (header.length != TOMBSTONE) {
+							Location loc = new Location(segment, pos, header.end() - pos, header.dataPos, header.length);
+							index.put(id, loc);
+							segment.liveBytes += loc.recordSize;
+							stored.put(id, (long) header.length);
+						}
+					}
+					pos = header.end();
+				}
+			}
+
+			if (segments.isEmpty() || segments.lastEntry().getValue().size >= maxSegmentSize) {
+				roll();
+			} else {
+				active = segments.lastEntry().getValue();
+			}
+			scheduleCompaction();
+			return stored;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @param id The ID of the file.
+	 *
+	 * @return {@code true} if data is stored for the given ID.
+	 */
+	public boolean contains(FileId id) {
+		lock.readLock().lock();
+		try {
+			return index.containsKey(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param id The ID of the file.
+	 *
+	 * @return The length of the data stored for the given ID, or {@code -1} if there is none.
+	 */
+	public long size(FileId id) {
+		lock.readLock().lock();
+		try {
+			Location loc = index.get(id);
+			return loc == null ? -1 : loc.length;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads the data stored for the given ID.
+	 * If the checksum of the data is invalid, the record is dropped.
+	 *
+	 * @param id The ID of the file.
+	 *
+	 * @return The data, or {@code null} if there is none.
+	 *
+	 * @throws IOException If the data could not be read, or its checksum is invalid.
+	 */
+	public byte[] read(FileId id)
+			throws IOException {
+		Location loc;
+		lock.readLock().lock();
+		try {
+			loc = index.get(id);
+			if (loc == null) return null;
+			byte[] data = readVerified(loc.segment, loc.dataPos, loc.length);
+			if (data != null) return data;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		drop(id, loc);
+		throw new IOException("Invalid checksum of " + id.getPath() + " in " + loc.segment.file +
+				" at " + loc.recordPos + ", dropped the record.");
+	}
+
+	/**
+	 * Appends the data of the given ID, replacing any previous data.
+	 *
+	 * @param id   The ID of the file.
+	 * @param data The data to store.
+	 *
+	 * @throws IOException If the data could not be written.
+	 */
+	public void put(FileId id, byte[] data)
+			throws IOException {
+		lock.writeLock().lock();
+		try {
+			Location loc = append(id.getPath(), data, 0, data.length);
+			loc.segment.liveBytes += loc.recordSize;
+			Location old = index.put(id, loc);
+			if (old != null) kill(old);
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Deletes the data of the given ID by appending a tombstone.
+	 *
+	 * @param id The ID of the file.
+	 *
+	 * @return {@code true} if data was stored for the given ID.
+	 *
+	 * @throws IOException If the tombstone could not be written.
+	 */
+	public boolean remove(FileId id)
+			throws IOException {
+		lock.writeLock().lock();
+		try {
+			Location old = index.remove(id);
+			if (old == null) return false;
+			append(id.getPath(), null, 0, TOMBSTONE);
+			kill(old);
+			return true;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void close()
+			throws IOException {
+		compactionThread.shutdownNow();
+		lock.writeLock().lock();
+		try {
+			for (Segment segment : segments.values()) {
+				segment.channel.close();
+			}
+			segments.clear();
+			index.clear();
+			active = null;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Drops the record of the given ID with an invalid checksum, unless it has been
+	 * replaced or deleted in the meantime.
+	 *
+	 * @param id  The ID of the file.
+	 * @param loc The location of the record with the invalid checksum.
+	 *
+	 * @throws IOException If the tombstone could not be written.
+	 */
+	private void drop(FileId id, Location loc)
+			throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (index.get(id) != loc) return;
+			LOGGER.error("Invalid checksum of " + id.getPath() + " in " + loc.segment.file +
+					" at " + loc.recordPos + ", dropping the record.");
+			index.remove(id);
+			append(id.getPath(), null, 0, TOMBSTONE);
+			kill(loc);
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Marks the given record as dead. Must be called while holding the write lock.
+	 *
+	 * @param loc The location of the record.
+	 */
+	private void kill(Location loc) {
+		loc.segment.liveBytes -= loc.recordSize;
+		if (loc.segment != active && loc.segment.isSparse()) {
+			scheduleCompaction();
+		}
+	}
+
+	/**
+	 * Appends a record to the active segment. Must be called while holding the write lock.
+	 *
+	 * @param path   The path of the ID of the record.
+	 * @param data   The data of the record, or {@code null} for a tombstone.
+	 * @param off    The offset of the data in the array.
+	 * @param length The length of the data, or {@link #TOMBSTONE}.
+	 *
+	 * @return The location of the appended record.
+	 *
+	 * @throws IOException If the record could not be written.
+	 */
+	private Location append(String path, byte[] data, int off, int length)
+			throws IOException {
+		if (active == null) {
+			throw new IOException("Segment store " + dir + " has not been opened!");
+		}
+		byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+		if (pathBytes.length > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Path is too long: " + path);
+		}
+		int dataLength = Math.max(0, length);
+		ByteBuffer buffer = ByteBuffer.allocate(
+				PREFIX_SIZE + pathBytes.length + Integer.BYTES + dataLength + Long.BYTES);
+		buffer.putInt(RECORD_MAGIC);
+		buffer.putShort((short) pathBytes.length);
+		buffer.put(pathBytes);
+		buffer.putInt(length);
+		CRC32 crc = new CRC32();
+		if (data != null) {
+			buffer.put(data, off, dataLength);
+			crc.update(data, off, dataLength);
+		}
+		buffer.putLong(crc.getValue());
+		buffer.flip();
+
+		Segment segment = active;
+		long pos = segment.size;
+		while (buffer.hasRemaining()) {
+			pos += segment.channel.write(buffer, pos);
+		}
+		long recordPos = segment.size;
+		segment.size = pos;
+		if (segment.size >= maxSegmentSize) {
+			roll();
+		}
+		return new Location(
+				segment,
+				recordPos,
+				pos - recordPos,
+				recordPos + PREFIX_SIZE + pathBytes.length + Integer.BYTES,
+				length);
+	}
+
+	/**
+	 * Starts a new active segment. Must be called while holding the write lock.
+	 *
+	 * @throws IOException If the segment file could not be created.
+	 */
+	private void roll()
+			throws IOException {
+		int seq = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+		Segment old = active;
+		active = new Segment(seq, new File(dir, SEGMENT_PREFIX + seq + SEGMENT_EXT));
+		segments.put(seq, active);
+		if (old != null && old.isSparse()) {
+			scheduleCompaction();
+		}
+	}
+
+	private Header readHeader(Segment segment, long pos)
+			throws IOException {
+		ByteBuffer prefix = readFully(segment, pos, PREFIX_SIZE);
+		if (prefix.getInt() != RECORD_MAGIC) {
+			throw new IOException("Invalid record magic in " + segment.file + " at " + pos);
+		}
+		int pathLength = Short.toUnsignedInt(prefix.getShort());
+		ByteBuffer rest = readFully(segment, pos + PREFIX_SIZE, pathLength + Integer.BYTES);
+		String path = new String(rest.array(), 0, pathLength, StandardCharsets.UTF_8);
+		rest.position(pathLength);
+		int length = rest.getInt();
+		Header header = new Header(path, length, pos + PREFIX_SIZE + pathLength + Integer.BYTES);
+		if (length < TOMBSTONE || header.end() > segment.size) {
+			throw new EOFException("Record in " + segment.file + " at " + pos + " exceeds the segment");
+		}
+		return header;
+	}
+
+	/**
+	 * Reads the data of a record and verifies its checksum.
+	 *
+	 * @param segment The segment containing the record.
+	 * @param dataPos The position of the data in the segment.
+	 * @param length  The length of the data.
+	 *
+	 * @return The data, or {@code null} if its checksum is invalid.
+	 *
+	 * @throws IOException If the data could not be read.
+	 */
+	private static byte[] readVerified(Segment segment, long dataPos, int length)
+			throws IOException {
+		ByteBuffer buffer = readFully(segment, dataPos, length + Long.BYTES);
+		byte[] data = Arrays.copyOf(buffer.array(), length);
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		buffer.position(length);
+		return buffer.getLong() == crc.getValue() ? data : null;
+	}
+
+	private static ByteBuffer readFully(Segment segment, long pos, int length)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			int read = segment.channel.read(buffer, pos + buffer.position());
+			if (read < 0) {
+				throw new EOFException(length, buffer.position());
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private void scheduleCompaction() {
+		if (compactionScheduled.compareAndSet(false, true)) {
+			compactionThread.execute(() -> {
+				compactionScheduled.set(false);
+				try {
+					//noinspection StatementWithEmptyBody
+					while (compactOne()) ;
+				} catch (IOException e) {
+					LOGGER.error("Could not compact segment store " + dir, e);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Compacts the first sealed segment with too little live data which is not damaged.
+	 * Live records are appended to the active segment, except for those with an invalid
+	 * checksum, which are dropped. Tombstones are kept only if they shadow a record in an
+	 * older segment.
+	 *
+	 * @return {@code true} if a segment was compacted. {@code false} if there was none to compact.
+	 *
+	 * @throws IOException If the segment could not be compacted.
+	 */
+	private boolean compactOne()
+			throws IOException {
+		lock.writeLock().lock();
+		try {
+			Segment victim = null;
+			for (Segment segment : segments.values()) {
+				if (segment != active && !segment.damaged && segment.isSparse()) {
+					victim = segment;
+					break;
+				}
+			}
+			if (victim == null) return false;
+			boolean oldest = victim == segments.firstEntry().getValue();
+
+			long pos = 0;
+			long moved = 0;
+			while (pos < victim.size) {
+				Header header = readHeader(victim, pos);
+				FileId id = idFactory.fromPath(header.path);
+				if (id != null) {
+					Location loc = index.get(id);
+					if (header.length == TOMBSTONE) {
+						if (!oldest && loc == null) {
+							append(header.path, null, 0, TOMBSTONE);
+						}
+					} else if (loc != null && loc.segment == victim && loc.recordPos == pos) {
+						byte[] data = readVerified(victim, header.dataPos, header.length);
+						if (data == null) {
+							LOGGER.error("Invalid checksum of " + header.path + " in " + victim.file +
+									" at " + pos + ", dropping the record.");
+							index.remove(id);
+							if (!oldest) {
+								append(header.path, null, 0, TOMBSTONE);
+							}
+							pos = header.end();
+							continue;
+						}
+						Location newLoc = append(header.path, data, 0, data.length);
+						newLoc.segment.liveBytes += newLoc.recordSize;
+						index.put(id, newLoc);
+						moved += header.length;
+					}
+				}
+				pos = header.end();
+			}
+
+			for (Segment segment : segments.values()) {
+				if (segment != victim) segment.channel.force(false);
+			}
+			segments.remove(victim.seq);
+			victim.channel.close();
+			Files.delete(victim.file.toPath());
+			LOGGER.info("Compacted " + victim.file + ", moved " + moved + " of " + victim.size + " bytes.");
+			return true;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+}
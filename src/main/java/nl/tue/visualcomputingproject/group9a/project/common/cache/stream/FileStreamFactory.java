@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A factory for creating input- and output streams for files.
@@ -29,5 +30,22 @@ public interface FileStreamFactory {
 	 */
 	InputStream read(File file)
 			throws IOException;
+
+	/**
+	 * Reads the given file into memory at once. This is only supported if the
+	 * data written by {@link #write(File)} is stored as is in the file.
+	 * The returned buffer does not refer to the file anymore.
+	 * 
+	 * @param file The file to read.
+	 * 
+	 * @return A buffer containing the contents of the file, or {@code null}
+	 *     if this factory does not support reading files at once.
+	 * 
+	 * @throws IOException If some IO exception occurs.
+	 */
+	default ByteBuffer map(File file)
+			throws IOException {
+		return null;
+	}
 	
 }
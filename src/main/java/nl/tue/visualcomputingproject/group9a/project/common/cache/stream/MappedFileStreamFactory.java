@@ -0,0 +1,50 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.stream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Uncompressed buffered file stream factory which additionally supports
+ * reading the files into memory at once. <br>
+ * <br>
+ * The files are read into a direct buffer using a single bulk read instead of being
+ * mapped, since a mapped file cannot be replaced or deleted on Windows until the mapping
+ * is garbage collected. The returned buffer does not refer to the file, so the cache can
+ * replace or delete the file while the buffer is in use.
+ */
+public class MappedFileStreamFactory
+		implements FileStreamFactory {
+	@Override
+	public OutputStream write(File file)
+			throws IOException {
+		return new BufferedOutputStream(new FileOutputStream(file, false));
+	}
+
+	@Override
+	public InputStream read(File file)
+			throws IOException {
+		return new BufferedInputStream(new FileInputStream(file));
+	}
+
+	@Override
+	public ByteBuffer map(File file)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File " + file + " is too large to read at once: " + size + " bytes.");
+			}
+			ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("File " + file + " was truncated while reading it.");
+				}
+			}
+			buffer.flip();
+			return buffer;
+		}
+	}
+	
+}
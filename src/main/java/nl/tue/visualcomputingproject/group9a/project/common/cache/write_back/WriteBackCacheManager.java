@@ -6,6 +6,8 @@ import nl.tue.visualcomputingproject.group9a.project.common.cache.*;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.CachePolicy;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.stream.FileStreamFactory;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.ObjectSerializer;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.LatencyHistogram;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +25,10 @@ public class WriteBackCacheManager<T extends CacheableObject>
 		implements CacheManager<WriteBackReadCacheClaim<T>, WriteBackReadWriteCacheClaim<T>> {
 	/** The logger object of this class. */
 	static private final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The latency of reading an object from disk into memory. */
+	static final LatencyHistogram READ_LATENCY = MetricsRegistry.histogram("cache.read");
+	/** The latency of writing an object from memory to disk. */
+	static final LatencyHistogram WRITE_LATENCY = MetricsRegistry.histogram("cache.write");
 	/** The map containing all claims. */
 	protected final Map<FileId, WriteBackClaimElem> claimMap;
 	
@@ -245,10 +251,12 @@ public class WriteBackCacheManager<T extends CacheableObject>
 					final File file = new File(cacheDir, id.getPath() + Settings.CACHE_EXT);
 					final File tmpFile = new File(file.getPath() + Settings.TMP_CACHE_EXT);
 					try {
+						final long start = System.nanoTime();
 						try (OutputStream os = streamFactory.write(tmpFile)) {
 							serializer.serialize(os, elem.store.get());
 						}
 						Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+						WRITE_LATENCY.recordSince(start);
 						
 					} catch (IOException e) {
 						e.printStackTrace();
@@ -334,6 +342,14 @@ public class WriteBackCacheManager<T extends CacheableObject>
 		}
 	}
 
+	/**
+	 * {@inheritDoc} <br>
+	 * <br>
+	 * If the cache directory contains a valid {@link CacheIndex}, then the indexed files
+	 * are tracked without accessing the files, and the directory is reconciled in the background.
+	 * Otherwise, the whole directory is walked. Snapshots of the index are written periodically
+	 * and on shutdown.
+	 */
 	@Override
 	public void indexCache(FileIdFactory<? extends FileId> idFactory) {
 		try {
@@ -350,50 +366,30 @@ public class WriteBackCacheManager<T extends CacheableObject>
 				return;
 			}
 
-			String cachePath = cacheDir.getAbsolutePath();
-			int rootDirLength = cachePath.length() +
-					(cachePath.endsWith(File.separator)
-							? 0
-							: File.separator.length());
-			File[] fileArr = cacheDir.listFiles();
-			if (fileArr == null) return;
-			List<File> files = new ArrayList<>(Arrays.asList(fileArr));
-			for (int i = 0; i < files.size(); i++) {
-				File file = files.get(i);
-				if (file.isDirectory()) {
-					fileArr = file.listFiles();
-					if (fileArr != null) {
-						files.addAll(Arrays.asList(fileArr));
+			final long startTime = System.currentTimeMillis();
+			CacheIndex index = CacheIndex.read(cacheDir);
+			if (index == null) {
+				CacheIndex.walk(cacheDir, startTime, (name, file) -> track(idFactory, name, -1));
+				
+			} else {
+				for (Map.Entry<String, Long> entry : index.getEntries().entrySet()) {
+					track(idFactory, entry.getKey(), entry.getValue());
+				}
+				index.reconcile(cacheDir, startTime, new CacheIndex.Reconciler() {
+					@Override
+					public void refresh(String path) {
+						FileId id = idFactory.fromPath(path);
+						if (id != null) retrack(id);
 					}
 
-				} else if (file.getName().endsWith(Settings.CACHE_EXT)) {
-					String path = file.getAbsolutePath();
-					String name = path.substring(
-							rootDirLength,
-							path.length() - Settings.CACHE_EXT.length());
-					try {
-						FileId id = idFactory.fromPath(name);
-						if (id == null) continue;
-						WriteBackClaimElem elem = getOrPutDefaultAndLock(id, (v) -> new WriteBackClaimElem());
-						try {
-							track(id, elem, false, true);
-							
-						} finally {
-							elem.unlock();
-						}
-						LOGGER.info("Added " + name + " to disk cache!");
-						
-					} catch (Exception e) {
-						LOGGER.info("Exception occurred while indexing " + name);
-						e.printStackTrace();
+					@Override
+					public void missing(String path) {
+						FileId id = idFactory.fromPath(path);
+						if (id != null) forget(id);
 					}
-					
-				} else if (file.getName().endsWith(Settings.TMP_CACHE_EXT)) {
-					// Delete old temporary cache files if found.
-					//noinspection ResultOfMethodCallIgnored
-					file.delete();
-				}
+				});
 			}
+			CacheIndex.scheduleSnapshots(cacheDir, () -> filePolicy.getTracked(this));
 
 			LOGGER.info("Finished indexing disk cache!");
 
@@ -402,6 +398,85 @@ public class WriteBackCacheManager<T extends CacheableObject>
 			e.printStackTrace();
 		}
 	}
+
+	/**
+	 * Tracks the file with the given path on disk.
+	 *
+	 * @param idFactory The factory used to generate the id of the file.
+	 * @param name      The path of the file.
+	 * @param size      The indexed size of the file, or {@code -1} if unknown.
+	 */
+	private void track(FileIdFactory<? extends FileId> idFactory, String name, long size) {
+		try {
+			FileId id = idFactory.fromPath(name);
+			if (id == null) return;
+			WriteBackClaimElem elem = getOrPutDefaultAndLock(id, (v) -> new WriteBackClaimElem());
+			try {
+				elem.fileWriteClaim = new WriteBackReadWriteFilePolicyCacheClaim<>(id, cacheDir, size);
+				filePolicy.track(id, this, elem.fileWriteClaim);
+				
+			} finally {
+				elem.unlock();
+			}
+			LOGGER.debug("Added " + name + " to disk cache!");
+			
+		} catch (Exception e) {
+			LOGGER.info("Exception occurred while indexing " + name);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Tracks the file with the given ID on disk again, such that the file policy
+	 * updates its size. Does nothing if the file is claimed by the user.
+	 *
+	 * @param id The ID of the file to track again.
+	 */
+	private void retrack(FileId id) {
+		WriteBackClaimElem elem = getOrPutDefaultAndLock(id, (v) -> new WriteBackClaimElem());
+		try {
+			if (elem.hasUserWriteClaim() || !elem.readClaims.isEmpty()) {
+				return;
+			}
+			if (elem.isFileTracked()) {
+				// If the policy fails to untrack the file, then it is being deleted by the policy.
+				if (!filePolicy.untrack(id)) return;
+				elem.fileWriteClaim.invalidate();
+			}
+			elem.fileWriteClaim = new WriteBackReadWriteFilePolicyCacheClaim<>(id, cacheDir);
+			filePolicy.track(id, this, elem.fileWriteClaim);
+			
+		} finally {
+			elem.unlock();
+		}
+	}
+
+	/**
+	 * Removes the file with the given ID from the file policy without deleting it.
+	 * Does nothing if the file is claimed by the user.
+	 *
+	 * @param id The ID of the file to forget.
+	 */
+	private void forget(FileId id) {
+		WriteBackClaimElem elem = getOrPutDefaultAndLock(id, null);
+		if (elem == null) return;
+		try {
+			if (!elem.isFileTracked() || elem.hasUserWriteClaim() || !elem.readClaims.isEmpty()) {
+				return;
+			}
+			// If the policy fails to untrack the file, then it is being deleted by the policy.
+			if (!filePolicy.untrack(id)) return;
+			elem.fileWriteClaim.invalidate();
+			elem.fileWriteClaim = null;
+			if (!elem.isMemoryTracked()) {
+				elem.valid = false;
+				claimMap.remove(id);
+			}
+			
+		} finally {
+			elem.unlock();
+		}
+	}
 	
 	private void invalidateClaim(ReadCacheClaim claim) {
 		if (claim == null) {
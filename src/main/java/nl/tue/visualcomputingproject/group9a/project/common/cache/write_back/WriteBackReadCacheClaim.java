@@ -5,19 +5,26 @@ import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.CacheableObject;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.FileId;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.ReadCacheClaim;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.MappedObjectSerializer;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.MemoryStore;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.stream.FileStreamFactory;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.ObjectSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class WriteBackReadCacheClaim<T extends CacheableObject>
 		implements ReadCacheClaim {
+	/** The logger object of this class. */
+	static private final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 	@Getter
 	private final FileId id;
 	
@@ -132,15 +139,38 @@ public class WriteBackReadCacheClaim<T extends CacheableObject>
 		return isInMemory() || isOnDisk();
 	}
 
+	/**
+	 * Reads the object from the file into the memory store. If the file cannot be
+	 * read at once using {@link FileStreamFactory#map(File)}, then it is read as a stream.
+	 * If that fails as well, then the store stays empty and {@link #get()} returns {@code null}.
+	 */
+	@SuppressWarnings("unchecked")
 	protected void fetch() {
+		final long start = System.nanoTime();
 		lock.lock();
 		store.lock();
 		try {
+			if (serializer instanceof MappedObjectSerializer) {
+				// Use the data of the file directly if supported.
+				try {
+					ByteBuffer data = streamFactory.map(file);
+					if (data != null) {
+						store.set(((MappedObjectSerializer<T>) serializer).deserialize(data));
+						WriteBackCacheManager.READ_LATENCY.recordSince(start);
+						return;
+					}
+					
+				} catch (IOException | RuntimeException e) {
+					LOGGER.warn("Could not load " + file + " at once, reading it as a stream instead.", e);
+				}
+			}
+			
 			try (InputStream is = streamFactory.read(file)) {
 				store.set(serializer.deserialize(is));
+				WriteBackCacheManager.READ_LATENCY.recordSince(start);
 				
-			} catch (IOException e) {
-				e.printStackTrace();
+			} catch (IOException | RuntimeException e) {
+				LOGGER.error("Could not read " + file + ".", e);
 			}
 
 		} finally {
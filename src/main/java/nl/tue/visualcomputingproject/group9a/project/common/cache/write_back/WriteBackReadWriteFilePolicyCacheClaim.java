@@ -22,8 +22,16 @@ public class WriteBackReadWriteFilePolicyCacheClaim<T extends CacheableObject>
 	@Getter
 	private final File file;
 	
+	/** The size of the file as stored in the cache index, or {@code -1} if unknown. */
+	private final long indexedSize;
+	
 	public WriteBackReadWriteFilePolicyCacheClaim(FileId id, File cacheDir) {
+		this(id, cacheDir, -1);
+	}
+	
+	public WriteBackReadWriteFilePolicyCacheClaim(FileId id, File cacheDir, long indexedSize) {
 		this.id = id;
+		this.indexedSize = indexedSize;
 		file = new File(cacheDir, id.getPath() + Settings.CACHE_EXT);
 	}
 	
@@ -51,7 +59,7 @@ public class WriteBackReadWriteFilePolicyCacheClaim<T extends CacheableObject>
 
 	@Override
 	public long size() {
-		return file.length();
+		return indexedSize < 0 ? file.length() : indexedSize;
 	}
 
 	@Override
@@ -61,6 +61,7 @@ public class WriteBackReadWriteUserCacheClaim<T extends CacheableObject>
 				store.unlock();
 			}
 			
+			final long start = System.nanoTime();
 			final File tmpFile = new File(file.getPath() + Settings.TMP_CACHE_EXT);
 			try (OutputStream os = streamFactory.write(tmpFile)) {
 				serializer.serialize(os, obj);
@@ -71,6 +72,7 @@ public class WriteBackReadWriteUserCacheClaim<T extends CacheableObject>
 			
 			try {
 				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				WriteBackCacheManager.WRITE_LATENCY.recordSince(start);
 				
 			} catch (IOException e) {
 				e.printStackTrace();
@@ -0,0 +1,98 @@
+package nl.tue.visualcomputingproject.group9a.project.common.chunk;
+
+import nl.tue.visualcomputingproject.group9a.project.common.Point;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Chunk data class which views the data of several partial chunks as a single data set. <br>
+ * <br>
+ * The parts are not copied: the iterators visit the points of the parts in the order in which
+ * the parts were added. Consumers which can handle the separate parts more efficiently, such as
+ * the point stores of the generators, can use {@link #getParts()} instead. Parts can be added
+ * while the data of the remaining parts is still being extracted.
+ */
+public class CompositePointData
+		implements PointData {
+	/** The parts of the data. */
+	private final List<PointData> parts = new ArrayList<>();
+	/** The total number of points of the parts. */
+	private int size;
+
+	/**
+	 * Adds a part to the data.
+	 *
+	 * @param part The part to add.
+	 */
+	public void add(PointData part) {
+		parts.add(part);
+		size += part.size();
+	}
+
+	/**
+	 * @return The parts of the data, in the order in which they were added.
+	 */
+	public List<PointData> getParts() {
+		return Collections.unmodifiableList(parts);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Creates an iterator over the elements of all parts.
+	 *
+	 * @param iterable The function returning the elements of a part.
+	 */
+	private <E> Iterator<E> concat(Function<PointData, Iterable<E>> iterable) {
+		return new Iterator<E>() {
+			final Iterator<PointData> partIt = parts.iterator();
+			Iterator<E> it = Collections.emptyIterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!it.hasNext()) {
+					if (!partIt.hasNext()) return false;
+					it = iterable.apply(partIt.next()).iterator();
+				}
+				return true;
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return it.next();
+			}
+		};
+	}
+
+	@Override
+	public Iterable<Point> getPointIterator() {
+		return () -> concat(PointData::getPointIterator);
+	}
+
+	@Override
+	public Iterable<Vector3d> getVector3D() {
+		return () -> concat(PointData::getVector3D);
+	}
+
+	@Override
+	public Iterable<Vector2d> getVector2D() {
+		return () -> concat(PointData::getVector2D);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d points in %d parts", size, parts.size());
+	}
+
+}
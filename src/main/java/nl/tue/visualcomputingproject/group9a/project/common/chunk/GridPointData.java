@@ -0,0 +1,240 @@
+package nl.tue.visualcomputingproject.group9a.project.common.chunk;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.Point;
+import org.joml.Vector2d;
+import org.joml.Vector3d;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+/**
+ * Chunk data class for storing points interpolated on a regular grid. <br>
+ * <br>
+ * Only the heights are stored, in row-major order. The coordinates of the cells are derived
+ * from the origin and spacing of the grid, so a sample takes 4 bytes instead of the 24 bytes
+ * of a {@link PointCloudChunkData}. Cells without data are marked in a mask and are skipped
+ * by the iterators. The points are iterated column by column, in the same order as the
+ * interleaved points produced by the extractor.
+ */
+public class GridPointData
+		implements PointData {
+	/** The value used by the AHN sheets for missing data. */
+	public static final float NO_DATA = Float.MAX_VALUE;
+
+	/** The world x-coordinate of the center of cell {@code (0, 0)}. */
+	@Getter
+	private final double originX;
+	/** The world y-coordinate of the center of cell {@code (0, 0)}. */
+	@Getter
+	private final double originY;
+	/** The world distance between two neighbouring columns. */
+	@Getter
+	private final double spacingX;
+	/** The world distance between two neighbouring rows. Negative for north-up rasters. */
+	@Getter
+	private final double spacingY;
+	/** The number of columns of the grid. */
+	@Getter
+	private final int columns;
+	/** The number of rows of the grid. */
+	@Getter
+	private final int rows;
+	/** The heights of the cells in row-major order. */
+	private final float[] heights;
+	/** The cells without data, indexed by {@code col + row*columns}. */
+	private final BitSet noData;
+	/** The number of cells with data. */
+	private final int size;
+
+	/**
+	 * Creates a new grid. The cells of which the height is {@link #isNoData(float) no data}
+	 * are masked.
+	 *
+	 * @param originX  The world x-coordinate of the center of cell {@code (0, 0)}.
+	 * @param originY  The world y-coordinate of the center of cell {@code (0, 0)}.
+	 * @param spacingX The world distance between two neighbouring columns.
+	 * @param spacingY The world distance between two neighbouring rows.
+	 * @param columns  The number of columns.
+	 * @param rows     The number of rows.
+	 * @param heights  The heights of the cells in row-major order. Not copied.
+	 */
+	public GridPointData(
+			double originX,
+			double originY,
+			double spacingX,
+			double spacingY,
+			int columns,
+			int rows,
+			float[] heights) {
+		if (heights.length < columns * rows) {
+			throw new IllegalArgumentException("Expected " + columns * rows + " heights, got " + heights.length);
+		}
+		this.originX = originX;
+		this.originY = originY;
+		this.spacingX = spacingX;
+		this.spacingY = spacingY;
+		this.columns = columns;
+		this.rows = rows;
+		this.heights = heights;
+
+		noData = new BitSet(columns * rows);
+		for (int i = 0; i < columns * rows; i++) {
+			if (isNoData(heights[i])) noData.set(i);
+		}
+		size = columns * rows - noData.cardinality();
+	}
+
+	/**
+	 * @param height The height to check.
+	 *
+	 * @return {@code true} if the given height represents a cell without data.
+	 *     This is the case for {@link #NO_DATA}, {@code NaN} and infinite heights.
+	 */
+	public static boolean isNoData(float height) {
+		return !(Math.abs(height) < NO_DATA);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return {@code true} if the grid has no cells.
+	 */
+	public boolean isEmpty() {
+		return columns == 0 || rows == 0;
+	}
+
+	/**
+	 * @param col The column of the cell.
+	 * @param row The row of the cell.
+	 *
+	 * @return {@code true} if the cell lies in the grid and contains data.
+	 */
+	public boolean hasData(int col, int row) {
+		return 0 <= col && col < columns &&
+				0 <= row && row < rows &&
+				!noData.get(col + row*columns);
+	}
+
+	/**
+	 * @param col The column of the cell.
+	 * @param row The row of the cell.
+	 *
+	 * @return The height of the cell, which is only meaningful if {@link #hasData(int, int)}.
+	 */
+	public float getHeightAt(int col, int row) {
+		return heights[col + row*columns];
+	}
+
+	/**
+	 * @param col The column.
+	 *
+	 * @return The world x-coordinate of the centers of the cells in the given column.
+	 */
+	public double getX(int col) {
+		return originX + col * spacingX;
+	}
+
+	/**
+	 * @param row The row.
+	 *
+	 * @return The world y-coordinate of the centers of the cells in the given row.
+	 */
+	public double getY(int row) {
+		return originY + row * spacingY;
+	}
+
+	/**
+	 * @return The points with data interleaved as {@code (x, y, height)}, in the layout of
+	 *     {@link PointCloudChunkData#getInterleavedPoints()}.
+	 */
+	public double[] toInterleavedPoints() {
+		double[] points = new double[3 * size];
+		int ctr = 0;
+		for (int col = 0; col < columns; col++) {
+			for (int row = 0; row < rows; row++) {
+				if (noData.get(col + row*columns)) continue;
+				points[ctr++] = getX(col);
+				points[ctr++] = getY(row);
+				points[ctr++] = heights[col + row*columns];
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * Creates an iterator over the cells with data, column by column.
+	 *
+	 * @param mapper The function creating an element from the index of a cell.
+	 */
+	private <E> Iterator<E> cellIterator(IntFunction<E> mapper) {
+		return new Iterator<E>() {
+			int col = 0;
+			int row = -1;
+
+			{
+				if (isEmpty()) {
+					col = columns;
+				} else {
+					advance();
+				}
+			}
+
+			private void advance() {
+				do {
+					if (++row >= rows) {
+						row = 0;
+						col++;
+					}
+				} while (col < columns && noData.get(col + row*columns));
+			}
+
+			@Override
+			public boolean hasNext() {
+				return col < columns;
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				E e = mapper.apply(col + row*columns);
+				advance();
+				return e;
+			}
+		};
+	}
+
+	@Override
+	public Iterable<Point> getPointIterator() {
+		return () -> cellIterator(c -> new Point(
+				getX(c % columns),
+				getY(c / columns),
+				heights[c]));
+	}
+
+	@Override
+	public Iterable<Vector3d> getVector3D() {
+		return () -> cellIterator(c -> new Vector3d(
+				getX(c % columns),
+				heights[c],
+				-getY(c / columns)));
+	}
+
+	@Override
+	public Iterable<Vector2d> getVector2D() {
+		return () -> cellIterator(c -> new Vector2d(
+				getX(c % columns),
+				-getY(c / columns)));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d points on a %dx%d grid", size, columns, rows);
+	}
+
+}
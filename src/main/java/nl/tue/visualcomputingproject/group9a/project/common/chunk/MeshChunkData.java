@@ -2,11 +2,15 @@ package nl.tue.visualcomputingproject.group9a.project.common.chunk;
 
 import lombok.*;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.CacheableObject;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.EOFException;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.MappedObjectSerializer;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.ObjectSerializer;
 import org.joml.Vector2f;
+import org.lwjgl.BufferUtils;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
@@ -47,11 +51,20 @@ public class MeshChunkData
 
 	/**
 	 * @return The buffer storing the vertex data as a {@link FloatBuffer}.
+	 *     Only valid for vertex types storing floats.
 	 */
 	public FloatBuffer getVertexBuffer() {
 		return vertexBuffer.asFloatBuffer();
 	}
 
+	/**
+	 * @return The buffer storing the vertex data as a {@link ByteBuffer}
+	 *     in the byte order of the data.
+	 */
+	public ByteBuffer getVertexByteBuffer() {
+		return vertexBuffer.duplicate().order(vertexBuffer.order());
+	}
+
 	/**
 	 * @return The buffer storing the mesh data as a {@link IntBuffer}.
 	 */
@@ -105,11 +118,183 @@ public class MeshChunkData
 		
 	}
 
+	/**
+	 * Factory class for serializing and deserializing a {@link MeshChunkData} object
+	 * in a page-aligned layout, such that the buffers can be used directly from a file read at once. <br>
+	 * <br>
+	 * The first page contains the header: a magic number, the byte order of the buffers
+	 * and the word size of the vertex buffer, the position and size of both buffers,
+	 * and the offset. The vertex and mesh buffers follow at the next page boundaries,
+	 * in the byte order they had in memory.
+	 */
+	private static class MappedMeshChunkDataSerializer
+			implements MappedObjectSerializer<MeshChunkData> {
+		/** The magic number identifying the layout. */
+		private static final int MAGIC = 0x4D434431; // "MCD1"
+		/** The size of the header in bytes. */
+		private static final int HEADER_SIZE = 8 * Integer.BYTES;
+		/** The size of the values in the vertex buffers written by this serializer. */
+		private final int vertexWordSize;
+
+		MappedMeshChunkDataSerializer(VertexBufferType vertexType) {
+			vertexWordSize = vertexType.getWordSize();
+		}
+		
+		@Override
+		public void serialize(OutputStream os, MeshChunkData mcd)
+				throws IOException {
+			int vertexSize = mcd.vertexBuffer.remaining();
+			int meshSize = mcd.meshBuffer.remaining();
+			long vertexPos = MappedObjectSerializer.align(HEADER_SIZE);
+			long meshPos = MappedObjectSerializer.align(vertexPos + vertexSize);
+			
+			ObjectSerializer.writeInt(os, MAGIC);
+			ObjectSerializer.writeInt(os, encodeOrder(mcd.vertexBuffer.order(), vertexWordSize));
+			ObjectSerializer.writeInt(os, (int) vertexPos);
+			ObjectSerializer.writeInt(os, vertexSize);
+			ObjectSerializer.writeInt(os, (int) meshPos);
+			ObjectSerializer.writeInt(os, meshSize);
+			ObjectSerializer.writeFloat(os, mcd.offset.x());
+			ObjectSerializer.writeFloat(os, mcd.offset.y());
+			
+			long pos = MappedObjectSerializer.writePadding(os, HEADER_SIZE);
+			MappedObjectSerializer.writeRaw(os, mcd.vertexBuffer);
+			MappedObjectSerializer.writePadding(os, pos + vertexSize);
+			MappedObjectSerializer.writeRaw(os, mcd.meshBuffer);
+		}
+
+		@Override
+		public MeshChunkData deserialize(InputStream is)
+				throws IOException {
+			int magic = ObjectSerializer.readInt(is);
+			if (magic != MAGIC) {
+				throw new IOException("Invalid mesh chunk header: " + Integer.toHexString(magic));
+			}
+			int orderField = ObjectSerializer.readInt(is);
+			int vertexPos = ObjectSerializer.readInt(is);
+			int vertexSize = ObjectSerializer.readInt(is);
+			int meshPos = ObjectSerializer.readInt(is);
+			int meshSize = ObjectSerializer.readInt(is);
+			Vector2f offset = new Vector2f(
+					ObjectSerializer.readFloat(is),
+					ObjectSerializer.readFloat(is)
+			);
+			
+			skip(is, vertexPos - HEADER_SIZE);
+			ByteBuffer vertexBuffer = BufferUtils.createByteBuffer(vertexSize);
+			vertexBuffer.put(ObjectSerializer.read(is, vertexSize)).flip();
+			skip(is, meshPos - vertexPos - vertexSize);
+			ByteBuffer meshBuffer = BufferUtils.createByteBuffer(meshSize);
+			meshBuffer.put(ObjectSerializer.read(is, meshSize)).flip();
+			
+			return new MeshChunkData(
+					toNativeOrder(vertexBuffer, decodeOrder(orderField), decodeWordSize(orderField)),
+					toNativeOrder(meshBuffer, decodeOrder(orderField), Integer.BYTES),
+					offset
+			);
+		}
+
+		@Override
+		public MeshChunkData deserialize(ByteBuffer buffer)
+				throws IOException {
+			buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+			int magic = buffer.getInt(0);
+			if (magic != MAGIC) {
+				throw new IOException("Invalid mesh chunk header: " + Integer.toHexString(magic));
+			}
+			int orderField = buffer.getInt(4);
+			int vertexPos = buffer.getInt(8);
+			int vertexSize = buffer.getInt(12);
+			int meshPos = buffer.getInt(16);
+			int meshSize = buffer.getInt(20);
+			Vector2f offset = new Vector2f(
+					buffer.getFloat(24),
+					buffer.getFloat(28)
+			);
+			
+			return new MeshChunkData(
+					toNativeOrder(slice(buffer, vertexPos, vertexSize), decodeOrder(orderField), decodeWordSize(orderField)),
+					toNativeOrder(slice(buffer, meshPos, meshSize), decodeOrder(orderField), Integer.BYTES),
+					offset
+			);
+		}
+
+		/**
+		 * Encodes the byte order in the lowest bit, and the word size in the second byte.
+		 * Headers written before the word size was stored contain 0 as word size.
+		 */
+		private static int encodeOrder(ByteOrder order, int wordSize) {
+			return (order == ByteOrder.LITTLE_ENDIAN ? 1 : 0) | (wordSize << 8);
+		}
+
+		private static ByteOrder decodeOrder(int field) {
+			return (field & 1) == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		}
+
+		private static int decodeWordSize(int field) {
+			int wordSize = (field >>> 8) & 0xFF;
+			return wordSize == 0 ? Float.BYTES : wordSize;
+		}
+		
+		private static ByteBuffer slice(ByteBuffer buffer, int pos, int size)
+				throws IOException {
+			if (pos < 0 || size < 0 || pos + size > buffer.capacity()) {
+				throw new EOFException(pos + size, buffer.capacity());
+			}
+			ByteBuffer slice = buffer.duplicate();
+			slice.limit(pos + size).position(pos);
+			return slice.slice();
+		}
+
+		/**
+		 * Returns a buffer in native byte order with the given data. The data is only
+		 * copied if it was serialized on a machine with a different byte order.
+		 */
+		private static ByteBuffer toNativeOrder(ByteBuffer buffer, ByteOrder order, int wordSize) {
+			if (order == ByteOrder.nativeOrder() || wordSize == 1) {
+				return buffer.order(ByteOrder.nativeOrder());
+			}
+			// The buffers only contain values of the word size, so swapping the words suffices.
+			ByteBuffer copy = BufferUtils.createByteBuffer(buffer.remaining());
+			if (wordSize == Short.BYTES) {
+				copy.asShortBuffer().put(buffer.order(order).asShortBuffer());
+			} else {
+				copy.asIntBuffer().put(buffer.order(order).asIntBuffer());
+			}
+			return copy;
+		}
+		
+		private static void skip(InputStream is, long amt)
+				throws IOException {
+			while (amt > 0) {
+				long skipped = is.skip(amt);
+				if (skipped <= 0) {
+					if (is.read() == -1) throw new EOFException((int) amt, 0);
+					skipped = 1;
+				}
+				amt -= skipped;
+			}
+		}
+		
+	}
+
 	/**
 	 * @return A {@link ObjectSerializer} used to serialize and deserialize a {@link MeshChunkData} object.
 	 */
 	public static ObjectSerializer<MeshChunkData> createSerializer() {
 		return new MeshChunkDataSerializer();
 	}
+
+	/**
+	 * @param vertexType The type of the vertex buffers which will be serialized.
+	 *                   Used to convert the byte order when reading a file written
+	 *                   on a machine with a different byte order.
+	 *
+	 * @return A {@link MappedObjectSerializer} used to serialize and deserialize a {@link MeshChunkData}
+	 *     object in a page-aligned layout, which can be read without decoding from a file read at once.
+	 */
+	public static MappedObjectSerializer<MeshChunkData> createMappedSerializer(VertexBufferType vertexType) {
+		return new MappedMeshChunkDataSerializer(vertexType);
+	}
 	
 }
@@ -2,7 +2,9 @@ package nl.tue.visualcomputingproject.group9a.project.common.chunk;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
-import lombok.Value;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
 
 /**
  * Enum for the type of a vertex buffer.
@@ -10,16 +12,86 @@ import lombok.Value;
 @Getter
 @AllArgsConstructor
 public enum VertexBufferType {
-	VERTEX_3_FLOAT_NORMAL_3_FLOAT(0),
-	INTERLEAVED_VERTEX_3_FLOAT_NORMAL_3_FLOAT(1);
+	VERTEX_3_FLOAT_NORMAL_3_FLOAT(0, 6 * Float.BYTES, Float.BYTES),
+	INTERLEAVED_VERTEX_3_FLOAT_NORMAL_3_FLOAT(1, 6 * Float.BYTES, Float.BYTES),
+	/**
+	 * Interleaved vertices of 8 bytes: the x-, y- and z-coordinates as unsigned 16-bit
+	 * fixed point numbers, followed by the normal as two signed bytes in octahedral encoding.
+	 * The coordinates are decoded using {@link #QUANTIZED_XZ_SCALE}, {@link #QUANTIZED_XZ_OFFSET},
+	 * {@link #QUANTIZED_Y_SCALE} and {@link #QUANTIZED_Y_OFFSET}.
+	 */
+	INTERLEAVED_QUANTIZED_VERTEX_3_SHORT_NORMAL_2_BYTE(2, 4 * Short.BYTES, Short.BYTES);
+
+	/** The distance between two quantized x- or z-coordinates, about 4 mm. */
+	public static final float QUANTIZED_XZ_SCALE = 1f / 256;
+	/** The x- or z-coordinate of the quantized value 0, relative to the chunk offset. */
+	public static final float QUANTIZED_XZ_OFFSET = -64;
+	/** The distance between two quantized heights, 1 cm. */
+	public static final float QUANTIZED_Y_SCALE = 1f / 100;
+	/** The height of the quantized value 0. */
+	public static final float QUANTIZED_Y_OFFSET = -100;
 
 	private final int id;
-	
+	/** The number of bytes used per vertex. */
+	private final int vertexSize;
+	/** The size of the largest value in the buffer, used when converting between byte orders. */
+	private final int wordSize;
+
 	static VertexBufferType fromId(int id) {
 		for (VertexBufferType type : values()) {
 			if (type.id == id) return type;
 		}
 		return null;
 	}
-	
+
+	/**
+	 * @return {@code true} if the vertices are stored in a quantized format.
+	 */
+	public boolean isQuantized() {
+		return this == INTERLEAVED_QUANTIZED_VERTEX_3_SHORT_NORMAL_2_BYTE;
+	}
+
+	/**
+	 * @param buffer The vertex buffer.
+	 *
+	 * @return The number of vertices in the remaining part of the buffer.
+	 */
+	public int countVertices(ByteBuffer buffer) {
+		return buffer.remaining() / vertexSize;
+	}
+
+	/**
+	 * Decodes the position of a vertex. The byte order of the buffer must be
+	 * the order in which the vertices were written.
+	 *
+	 * @param buffer The vertex buffer, starting at its position.
+	 * @param index  The index of the vertex.
+	 * @param dest   The vector to store the position in.
+	 *
+	 * @return {@code dest}.
+	 */
+	public Vector3f getVertex(ByteBuffer buffer, int index, Vector3f dest) {
+		int pos = buffer.position();
+		switch (this) {
+			case VERTEX_3_FLOAT_NORMAL_3_FLOAT:
+				pos += 3 * Float.BYTES * index;
+				return dest.set(buffer.getFloat(pos),
+						buffer.getFloat(pos + Float.BYTES),
+						buffer.getFloat(pos + 2*Float.BYTES));
+			case INTERLEAVED_VERTEX_3_FLOAT_NORMAL_3_FLOAT:
+				pos += vertexSize * index;
+				return dest.set(buffer.getFloat(pos),
+						buffer.getFloat(pos + Float.BYTES),
+						buffer.getFloat(pos + 2*Float.BYTES));
+			case INTERLEAVED_QUANTIZED_VERTEX_3_SHORT_NORMAL_2_BYTE:
+				pos += vertexSize * index;
+				return dest.set(
+						Short.toUnsignedInt(buffer.getShort(pos)) * QUANTIZED_XZ_SCALE + QUANTIZED_XZ_OFFSET,
+						Short.toUnsignedInt(buffer.getShort(pos + Short.BYTES)) * QUANTIZED_Y_SCALE + QUANTIZED_Y_OFFSET,
+						Short.toUnsignedInt(buffer.getShort(pos + 2*Short.BYTES)) * QUANTIZED_XZ_SCALE + QUANTIZED_XZ_OFFSET);
+			default:
+				throw new IllegalStateException("Unsupported vertex type: " + this);
+		}
+	}
+
 }
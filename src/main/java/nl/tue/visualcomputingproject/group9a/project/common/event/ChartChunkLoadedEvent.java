@@ -4,7 +4,7 @@ import lombok.EqualsAndHashCode;
 import lombok.Value;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.Chunk;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkId;
-import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointCloudChunkData;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointData;
 
 /**
  * Sent by the chart module when a new chunk is loaded.
@@ -12,5 +12,5 @@ import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointCloudChun
 @EqualsAndHashCode(callSuper = true)
 @Value
 public class ChartChunkLoadedEvent extends AbstractEvent {
-	Chunk<ChunkId, PointCloudChunkData> chunk;
+	Chunk<ChunkId, PointData> chunk;
 }
@@ -0,0 +1,155 @@
+package nl.tue.visualcomputingproject.group9a.project.common.event;
+
+import com.google.common.eventbus.Subscribe;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.common.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records the {@link RendererChunkStatusEvent}s posted on the event bus to a file,
+ * such that the chunk access pattern of a session can be replayed later, e.g. to
+ * compare cache policies. <br>
+ * <br>
+ * Every event is stored as a single line containing the time in milliseconds since
+ * the start of the recording, followed by entries of the form {@code +x,y,w,h} for
+ * new chunks, {@code -x,y,w,h} for unloaded chunks and {@code @x,y,w,h} for the chunk
+ * containing the camera, separated by spaces.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class ChunkStatusTrace
+		implements Closeable {
+	/** The logger of this class. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+	/** The writer of the trace file. */
+	private final Writer writer;
+	/** The time at which the recording started. */
+	private final long start = System.currentTimeMillis();
+
+	/**
+	 * Creates a new trace recorder. Register it on the event bus to start recording.
+	 *
+	 * @param file The file to write the trace to.
+	 *
+	 * @throws IOException If the file could not be created.
+	 */
+	public ChunkStatusTrace(File file)
+			throws IOException {
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes the given event to the trace.
+	 *
+	 * @param e The renderer status event.
+	 */
+	@Subscribe
+	public synchronized void record(RendererChunkStatusEvent e) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(System.currentTimeMillis() - start);
+		append(sb, '+', e.getNewChunks());
+		append(sb, '-', e.getUnloadedChunks());
+		if (e.getCameraChunk() != null) {
+			append(sb, '@', Collections.singletonList(e.getCameraChunk()));
+		}
+		try {
+			writer.write(sb.append('\n').toString());
+			writer.flush();
+
+		} catch (IOException ex) {
+			LOGGER.error("Could not write chunk status trace!", ex);
+		}
+	}
+
+	private static void append(StringBuilder sb, char prefix, Collection<ChunkPosition> positions) {
+		for (ChunkPosition pos : positions) {
+			sb.append(' ').append(prefix)
+					.append(pos.getX()).append(',')
+					.append(pos.getY()).append(',')
+					.append(pos.getWidth()).append(',')
+					.append(pos.getHeight());
+		}
+	}
+
+	@Override
+	public synchronized void close()
+			throws IOException {
+		writer.close();
+	}
+
+	/**
+	 * Reads a trace written by this class.
+	 *
+	 * @param file The trace file.
+	 *
+	 * @return The recorded events in order.
+	 *
+	 * @throws IOException If the file could not be read or is malformed.
+	 */
+	public static List<RendererChunkStatusEvent> read(File file)
+			throws IOException {
+		List<RendererChunkStatusEvent> events = new ArrayList<>();
+		for (Pair<Long, RendererChunkStatusEvent> entry : readTimed(file)) {
+			events.add(entry.getSecond());
+		}
+		return events;
+	}
+
+	/**
+	 * Reads a trace written by this class, including the time of every event.
+	 *
+	 * @param file The trace file.
+	 *
+	 * @return The recorded events in order, paired with the time in milliseconds
+	 *     since the start of the recording at which they were posted.
+	 *
+	 * @throws IOException If the file could not be read or is malformed.
+	 */
+	public static List<Pair<Long, RendererChunkStatusEvent>> readTimed(File file)
+			throws IOException {
+		List<Pair<Long, RendererChunkStatusEvent>> events = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) continue;
+				String[] parts = line.split(" ");
+				List<ChunkPosition> newChunks = new ArrayList<>();
+				List<ChunkPosition> unloadedChunks = new ArrayList<>();
+				ChunkPosition cameraChunk = null;
+				for (int i = 1; i < parts.length; i++) {
+					String[] v = parts[i].substring(1).split(",");
+					if (v.length != 4) {
+						throw new IOException("Malformed trace entry: " + parts[i]);
+					}
+					ChunkPosition pos = new ChunkPosition(
+							Double.parseDouble(v[0]),
+							Double.parseDouble(v[1]),
+							Double.parseDouble(v[2]),
+							Double.parseDouble(v[3]));
+					if (parts[i].charAt(0) == '+') newChunks.add(pos);
+					else if (parts[i].charAt(0) == '@') cameraChunk = pos;
+					else unloadedChunks.add(pos);
+				}
+				long time;
+				try {
+					time = Long.parseLong(parts[0]);
+				} catch (NumberFormatException e) {
+					throw new IOException("Malformed trace time: " + parts[0], e);
+				}
+				events.add(new Pair<>(time, new RendererChunkStatusEvent(newChunks, unloadedChunks, cameraChunk)));
+			}
+		}
+		return events;
+	}
+
+}
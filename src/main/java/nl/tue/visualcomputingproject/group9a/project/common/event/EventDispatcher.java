@@ -0,0 +1,559 @@
+package nl.tue.visualcomputingproject.group9a.project.common.event;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import nl.tue.visualcomputingproject.group9a.project.common.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Event bus which dispatches the events of every subscriber on its own thread. <br>
+ * <br>
+ * Every registered object gets a bounded queue and a dispatch thread, so a slow subscriber only
+ * delays its own events. The events of a subscriber are handled in the order in which they were
+ * posted, and never concurrently, like the {@link Subscribe} methods of a Guava {@link EventBus}
+ * without {@link com.google.common.eventbus.AllowConcurrentEvents}. Posting blocks while the queue
+ * of a subscriber is full, except when a subscriber posts to itself. <br>
+ * <br>
+ * The {@link Subscribe} methods of a registered object are resolved once on registration, and
+ * are invoked using method handles. Subscribers can also be added without reflection using
+ * {@link #subscribe(String, Class, Consumer)} and {@link #subscribeBatch(String, Class, Consumer)},
+ * where the latter receives all queued events of a type at once. Event types for which only
+ * the latest event per key matters can be coalesced using {@link #coalesce(Class, Function)}:
+ * a posted event then replaces a queued event with the same key. <br>
+ * <br>
+ * The events of a subscriber are only ordered among themselves. A subscriber may handle an event
+ * before another subscriber has handled an earlier event, so a subscriber cannot assume that the
+ * other subscribers have seen the events it has seen. A coalesced event takes the place of the
+ * event it replaces, so it is handled before the events posted between both, and the replaced
+ * event is never handled. Subscribers which must see the events in the same order as the other
+ * subscribers, and before them, can be registered using {@link #registerDirect(Object)}. These
+ * handle every event on the posting thread before it is queued for the other subscribers. <br>
+ * <br>
+ * The queue depths and the dispatch latencies, i.e. the time between posting and handling
+ * an event, are available using {@link #report()}, which is logged periodically.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class EventDispatcher
+		extends EventBus {
+	/** The logger of this class. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The maximum number of events taken from a queue at once. */
+	private static final int BATCH_SIZE = 64;
+	/** The thread logging the reports of the dispatchers. */
+	private static final ScheduledExecutorService REPORT_THREAD = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "event-report");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * A handler of a subscriber for events of a type.
+	 */
+	private static class Handler {
+		/** The type of events handled. */
+		final Class<?> type;
+		/** The function handling a single event, or {@code null} if the handler handles batches. */
+		final Consumer<Object> single;
+		/** The function handling a batch of events, or {@code null} if the handler handles single events. */
+		final Consumer<List<Object>> batch;
+
+		Handler(Class<?> type, Consumer<Object> single, Consumer<List<Object>> batch) {
+			this.type = type;
+			this.single = single;
+			this.batch = batch;
+		}
+	}
+
+	/**
+	 * A queued event.
+	 */
+	private static class Slot {
+		/** The event, which is replaced by newer events with the same key. */
+		Object event;
+		/** The coalescing key of the event, or {@code null} if the event is not coalesced. */
+		final Object key;
+		/** The value of {@link System#nanoTime()} when the event was posted. */
+		final long posted;
+
+		Slot(Object event, Object key, long posted) {
+			this.event = event;
+			this.key = key;
+			this.posted = posted;
+		}
+	}
+
+	/**
+	 * A subscriber with its own queue and dispatch thread,
+	 * or a direct subscriber which handles the events on the posting thread.
+	 */
+	private class Subscriber
+			implements Runnable {
+		/** The name of the subscriber. */
+		final String name;
+		/** The registered object, or {@code null} if subscribed without object. */
+		final Object target;
+		/** Whether the events are handled on the posting thread instead of being queued. */
+		final boolean direct;
+		/** The handlers of the subscriber. */
+		final List<Handler> handlers = new ArrayList<>();
+		/** The lock guarding the queue and the statistics. */
+		final Lock lock = new ReentrantLock();
+		/** The condition signalled when an event is queued. */
+		final Condition notEmpty = lock.newCondition();
+		/** The condition signalled when events are taken from the queue. */
+		final Condition notFull = lock.newCondition();
+		/** The queued events. */
+		final ArrayDeque<Slot> queue = new ArrayDeque<>();
+		/** The queued coalesced events by key. */
+		final Map<Object, Slot> keyed = new HashMap<>();
+		/** The dispatch thread, or {@code null} for a direct subscriber. */
+		final Thread thread;
+
+		/** The maximum number of queued events. */
+		int maxDepth;
+		/** The number of dispatched events. */
+		long dispatched;
+		/** The number of events replaced by newer events. */
+		long coalesced;
+		/** The total dispatch latency of the dispatched events, in nanoseconds. */
+		long totalLatency;
+		/** The maximum dispatch latency, in nanoseconds. */
+		long maxLatency;
+
+		Subscriber(String name, Object target, boolean direct) {
+			this.name = name;
+			this.target = target;
+			this.direct = direct;
+			if (direct) {
+				thread = null;
+			} else {
+				thread = new Thread(this, identifier() + "-" + name);
+				thread.setDaemon(true);
+			}
+		}
+
+		/**
+		 * @return Whether the subscriber handles events of the given type.
+		 */
+		boolean accepts(Class<?> type) {
+			for (Handler handler : handlers) {
+				if (handler.type.isAssignableFrom(type)) return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Queues an event, or replaces the queued event with the same key.
+		 */
+		void enqueue(Object event, Object key, long posted) {
+			lock.lock();
+			try {
+				if (key != null) {
+					Slot slot = keyed.get(key);
+					if (slot != null) {
+						slot.event = event;
+						coalesced++;
+						return;
+					}
+				}
+				// A subscriber posting to itself is never blocked, since it would wait for itself.
+				boolean interrupted = false;
+				while (queue.size() >= capacity && Thread.currentThread() != thread) {
+					try {
+						notFull.await();
+					} catch (InterruptedException e) {
+						interrupted = true;
+						break;
+					}
+				}
+				Slot slot = new Slot(event, key, posted);
+				queue.add(slot);
+				if (key != null) keyed.put(key, slot);
+				maxDepth = Math.max(maxDepth, queue.size());
+				notEmpty.signal();
+				if (interrupted) Thread.currentThread().interrupt();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Handles an event on the posting thread. The events are handled one at a time.
+		 */
+		void dispatchDirect(Object event, long posted) {
+			lock.lock();
+			try {
+				dispatch(Collections.singletonList(new Slot(event, null, posted)));
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void run() {
+			final List<Slot> batch = new ArrayList<>(BATCH_SIZE);
+			while (!Thread.currentThread().isInterrupted()) {
+				lock.lock();
+				try {
+					while (queue.isEmpty()) {
+						notEmpty.await();
+					}
+					while (!queue.isEmpty() && batch.size() < BATCH_SIZE) {
+						Slot slot = queue.poll();
+						if (slot.key != null) keyed.remove(slot.key);
+						batch.add(slot);
+					}
+					notFull.signalAll();
+				} catch (InterruptedException e) {
+					return;
+				} finally {
+					lock.unlock();
+				}
+				dispatch(batch);
+				batch.clear();
+			}
+		}
+
+		/**
+		 * Handles a batch of events taken from the queue.
+		 */
+		private void dispatch(List<Slot> batch) {
+			long latency = 0;
+			long max = 0;
+			long start = System.nanoTime();
+			for (Slot slot : batch) {
+				long l = start - slot.posted;
+				latency += l;
+				max = Math.max(max, l);
+			}
+			for (Handler handler : handlers) {
+				if (handler.batch == null) continue;
+				List<Object> events = new ArrayList<>(batch.size());
+				for (Slot slot : batch) {
+					if (handler.type.isInstance(slot.event)) events.add(slot.event);
+				}
+				if (!events.isEmpty()) invoke(() -> handler.batch.accept(events));
+			}
+			for (Slot slot : batch) {
+				for (Handler handler : handlers) {
+					if (handler.single != null && handler.type.isInstance(slot.event)) {
+						invoke(() -> handler.single.accept(slot.event));
+					}
+				}
+			}
+
+			lock.lock();
+			try {
+				dispatched += batch.size();
+				totalLatency += latency;
+				maxLatency = Math.max(maxLatency, max);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Invokes a handler, logging its exceptions like a Guava {@link EventBus}.
+		 */
+		private void invoke(Runnable handler) {
+			try {
+				handler.run();
+			} catch (Throwable e) {
+				LOGGER.error("Exception thrown by subscriber " + name + " of " + identifier() + "!", e);
+			}
+		}
+
+		/**
+		 * @return A line describing the queue and the dispatch latency of the subscriber.
+		 */
+		String report() {
+			lock.lock();
+			try {
+				return String.format("%s: depth=%d max-depth=%d dispatched=%d coalesced=%d avg-latency=%.2f ms max-latency=%.2f ms",
+						name, queue.size(), maxDepth, dispatched, coalesced,
+						dispatched == 0 ? 0 : totalLatency / 1e6 / dispatched,
+						maxLatency / 1e6);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Immutable snapshot of the subscribers, with the subscribers per event type computed from it.
+	 * Every change of the subscribers publishes a new snapshot, such that a route computed from
+	 * an old snapshot can never be cached in a newer one.
+	 */
+	private static class Routes {
+		/** The subscribers at the time of the snapshot. */
+		final Subscriber[] subscribers;
+		/** The subscribers per event type, computed on the first post of the type. */
+		final Map<Class<?>, Subscriber[]> byType = new ConcurrentHashMap<>();
+
+		Routes(Subscriber[] subscribers) {
+			this.subscribers = subscribers;
+		}
+
+		/**
+		 * @return The subscribers of the given event type.
+		 */
+		Subscriber[] get(Class<?> type) {
+			Subscriber[] targets = byType.get(type);
+			if (targets == null) {
+				// The direct subscribers come first, such that they handle the event
+				// before it is queued for the other subscribers.
+				targets = Arrays.stream(subscribers)
+						.filter(s -> s.accepts(type))
+						.sorted(Comparator.comparing(s -> !s.direct))
+						.toArray(Subscriber[]::new);
+				byType.put(type, targets);
+			}
+			return targets;
+		}
+	}
+
+	/** The maximum number of queued events per subscriber. */
+	private final int capacity;
+	/** The subscribers. */
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+	/** The current snapshot of the subscribers, replaced by {@link #updateRoutes()}. */
+	private volatile Routes routes = new Routes(new Subscriber[0]);
+	/** The functions computing the coalescing keys per event type. */
+	private final Map<Class<?>, Function<Object, ?>> coalescers = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a new dispatcher.
+	 *
+	 * @param name           The name of the dispatcher, used for the dispatch threads.
+	 * @param capacity       The maximum number of queued events per subscriber.
+	 * @param reportInterval The interval in seconds between logging the reports,
+	 *                       or a non-positive value to never log them.
+	 */
+	public EventDispatcher(String name, int capacity, int reportInterval) {
+		super(name);
+		this.capacity = Math.max(1, capacity);
+		if (reportInterval > 0) {
+			REPORT_THREAD.scheduleWithFixedDelay(
+					() -> LOGGER.info(report()),
+					reportInterval,
+					reportInterval,
+					TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Coalesces the queued events of the given type: a posted event replaces the queued
+	 * event of the same subscriber with the same key, if that has not been dispatched yet.
+	 * The replacing event keeps the position of the replaced event in the queue.
+	 *
+	 * @param type The type of events to coalesce. Events of subclasses are not coalesced.
+	 * @param key  The function computing the key of an event.
+	 * @param <E>  The type of events.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E> void coalesce(Class<E> type, Function<? super E, ?> key) {
+		coalescers.put(type, (Function<Object, ?>) key);
+	}
+
+	/**
+	 * Registers all {@link Subscribe} methods of the given object.
+	 * The events of the object are handled on a new dispatch thread.
+	 *
+	 * @param object The object to register.
+	 */
+	@Override
+	public void register(Object object) {
+		register(object, false);
+	}
+
+	/**
+	 * Registers all {@link Subscribe} methods of the given object, which are invoked on the
+	 * posting thread before the event is queued for the other subscribers. The methods are
+	 * never invoked concurrently, and block the posting thread, so they should be cheap.
+	 *
+	 * @param object The object to register.
+	 */
+	public void registerDirect(Object object) {
+		register(object, true);
+	}
+
+	/**
+	 * Registers all {@link Subscribe} methods of the given object.
+	 *
+	 * @param object The object to register.
+	 * @param direct Whether the events are handled on the posting thread.
+	 */
+	private void register(Object object, boolean direct) {
+		Subscriber subscriber = new Subscriber(object.getClass().getSimpleName(), object, direct);
+		for (Class<?> c = object.getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+			for (Method method : c.getDeclaredMethods()) {
+				if (!method.isAnnotationPresent(Subscribe.class) || method.isBridge()) continue;
+				if (method.getParameterCount() != 1) {
+					throw new IllegalArgumentException("Method " + method + " has @Subscribe annotation but has "
+							+ method.getParameterCount() + " parameters. Subscriber methods must have exactly 1 parameter.");
+				}
+				subscriber.handlers.add(new Handler(
+						wrap(method.getParameterTypes()[0]),
+						createHandle(method, object),
+						null));
+			}
+		}
+		add(subscriber);
+	}
+
+	/**
+	 * Adds a subscriber for single events of the given type, handled on a new dispatch thread.
+	 *
+	 * @param name    The name of the subscriber.
+	 * @param type    The type of events.
+	 * @param handler The function handling an event.
+	 * @param <E>     The type of events.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E> void subscribe(String name, Class<E> type, Consumer<? super E> handler) {
+		Subscriber subscriber = new Subscriber(name, null, false);
+		subscriber.handlers.add(new Handler(type, (Consumer<Object>) handler, null));
+		add(subscriber);
+	}
+
+	/**
+	 * Adds a subscriber for batches of events of the given type, handled on a new dispatch thread.
+	 * The handler receives the events which were queued at the same time in a single list.
+	 *
+	 * @param name    The name of the subscriber.
+	 * @param type    The type of events.
+	 * @param handler The function handling a batch of events.
+	 * @param <E>     The type of events.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E> void subscribeBatch(String name, Class<E> type, Consumer<? super List<E>> handler) {
+		Subscriber subscriber = new Subscriber(name, null, false);
+		subscriber.handlers.add(new Handler(type, null, (Consumer<List<Object>>) (Consumer<?>) handler));
+		add(subscriber);
+	}
+
+	/**
+	 * Unregisters the given object and stops its dispatch thread, if any.
+	 * The events which are still queued for the object are discarded.
+	 *
+	 * @param object The object to unregister.
+	 */
+	@Override
+	public void unregister(Object object) {
+		for (Subscriber subscriber : subscribers) {
+			if (subscriber.target == object) {
+				subscribers.remove(subscriber);
+				updateRoutes();
+				if (subscriber.thread != null) subscriber.thread.interrupt();
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Missing event subscriber for an annotated method. Is " + object + " registered?");
+	}
+
+	/**
+	 * Posts an event to all subscribers of its type. The direct subscribers handle the
+	 * event before returning, and the event is queued for the other subscribers.
+	 *
+	 * @param event The event to post.
+	 */
+	@Override
+	public void post(Object event) {
+		final long posted = System.nanoTime();
+		final Class<?> type = event.getClass();
+		Subscriber[] targets = routes.get(type);
+		if (targets.length == 0) {
+			LOGGER.debug("No subscribers for event {}.", event);
+			return;
+		}
+		Function<Object, ?> coalescer = coalescers.get(type);
+		Object key = coalescer == null ? null : new Pair<>(type, coalescer.apply(event));
+		for (Subscriber subscriber : targets) {
+			if (subscriber.direct) {
+				subscriber.dispatchDirect(event, posted);
+			} else {
+				subscriber.enqueue(event, key, posted);
+			}
+		}
+	}
+
+	/**
+	 * @return A report of the queue depth and the dispatch latency of every subscriber.
+	 */
+	public String report() {
+		StringBuilder sb = new StringBuilder("Event dispatch of ").append(identifier()).append(':');
+		for (Subscriber subscriber : subscribers) {
+			sb.append(System.lineSeparator()).append("  ").append(subscriber.report());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Adds and starts a subscriber.
+	 */
+	private void add(Subscriber subscriber) {
+		subscribers.add(subscriber);
+		updateRoutes();
+		if (subscriber.thread != null) subscriber.thread.start();
+	}
+
+	/**
+	 * Publishes a new snapshot of the subscribers. The snapshots are taken one at a time,
+	 * such that the last published snapshot contains all preceding changes.
+	 */
+	private synchronized void updateRoutes() {
+		routes = new Routes(subscribers.toArray(new Subscriber[0]));
+	}
+
+	/**
+	 * Creates a function invoking the given subscriber method on the given object.
+	 * The method is resolved into a method handle once, such that no reflection is used
+	 * when the events are dispatched.
+	 */
+	private static Consumer<Object> createHandle(Method method, Object target) {
+		final MethodHandle handle;
+		try {
+			method.setAccessible(true);
+			handle = MethodHandles.lookup()
+					.unreflect(method)
+					.bindTo(target)
+					.asType(MethodType.methodType(void.class, Object.class));
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Cannot access subscriber method " + method, e);
+		}
+		return event -> {
+			try {
+				handle.invokeExact(event);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		};
+	}
+
+	/**
+	 * @return The wrapper class of the given primitive type, or the given type otherwise.
+	 */
+	private static Class<?> wrap(Class<?> type) {
+		return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+	}
+
+}
@@ -3,8 +3,11 @@ package nl.tue.visualcomputingproject.group9a.project.common.event;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkId;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Sent by the preprocessor to the chart module to request chunks be loaded from the map sheets.
@@ -13,4 +16,27 @@ import java.util.Collection;
 @Value
 public class ProcessorChunkRequestedEvent extends AbstractEvent {
 	Collection<ChunkId> newChunksRequested;
+	/** The cancellation tokens of the requested chunks. */
+	Map<ChunkId, CancellationToken> tokens;
+
+	public ProcessorChunkRequestedEvent(
+			Collection<ChunkId> newChunksRequested,
+			Map<ChunkId, CancellationToken> tokens) {
+		this.newChunksRequested = newChunksRequested;
+		this.tokens = tokens;
+	}
+
+	public ProcessorChunkRequestedEvent(Collection<ChunkId> newChunksRequested) {
+		this(newChunksRequested, Collections.emptyMap());
+	}
+
+	/**
+	 * @param id The id of a requested chunk.
+	 *
+	 * @return The cancellation token of the chunk, or {@link CancellationToken#NONE}
+	 *     if the request cannot be cancelled.
+	 */
+	public CancellationToken getToken(ChunkId id) {
+		return tokens.getOrDefault(id, CancellationToken.NONE);
+	}
 }
@@ -16,4 +16,24 @@ public class RendererChunkStatusEvent
 		extends AbstractEvent {
 	Collection<ChunkPosition> newChunks;
 	Collection<ChunkPosition> unloadedChunks;
+	/**
+	 * The position of the chunk containing the camera, or {@code null} if the event
+	 * was not caused by a movement of the camera.
+	 */
+	ChunkPosition cameraChunk;
+	
+	public RendererChunkStatusEvent(
+			Collection<ChunkPosition> newChunks,
+			Collection<ChunkPosition> unloadedChunks,
+			ChunkPosition cameraChunk) {
+		this.newChunks = newChunks;
+		this.unloadedChunks = unloadedChunks;
+		this.cameraChunk = cameraChunk;
+	}
+	
+	public RendererChunkStatusEvent(
+			Collection<ChunkPosition> newChunks,
+			Collection<ChunkPosition> unloadedChunks) {
+		this(newChunks, unloadedChunks, null);
+	}
 }
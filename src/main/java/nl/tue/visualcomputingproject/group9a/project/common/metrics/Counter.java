@@ -0,0 +1,49 @@
+package nl.tue.visualcomputingproject.group9a.project.common.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing count of events, such as the number of downloaded bytes.
+ * Create counters using {@link MetricsRegistry#counter(String)}.
+ */
+public class Counter
+		implements CounterMXBean {
+	/** The name of the counter. */
+	@Getter
+	private final String name;
+	/** The current count. */
+	private final LongAdder count = new LongAdder();
+
+	Counter(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Increments the counter by one.
+	 */
+	public void increment() {
+		count.increment();
+	}
+
+	/**
+	 * Increments the counter.
+	 *
+	 * @param n The amount to increment the counter with.
+	 */
+	public void add(long n) {
+		count.add(n);
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public String toString() {
+		return name + ": count=" + getCount();
+	}
+
+}
@@ -0,0 +1,11 @@
+package nl.tue.visualcomputingproject.group9a.project.common.metrics;
+
+/**
+ * The view of a counter exported over JMX.
+ */
+public interface CounterMXBean {
+	/**
+	 * @return The current count.
+	 */
+	long getCount();
+}
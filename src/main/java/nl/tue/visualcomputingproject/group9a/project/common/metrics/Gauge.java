@@ -0,0 +1,34 @@
+package nl.tue.visualcomputingproject.group9a.project.common.metrics;
+
+import lombok.Getter;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Instantaneous value which is sampled when the metrics are read, such as the length of a queue.
+ * Create gauges using {@link MetricsRegistry#gauge(String, LongSupplier)}.
+ */
+public class Gauge
+		implements GaugeMXBean {
+	/** The name of the gauge. */
+	@Getter
+	private final String name;
+	/** The function sampling the value. */
+	private final LongSupplier supplier;
+
+	Gauge(String name, LongSupplier supplier) {
+		this.name = name;
+		this.supplier = supplier;
+	}
+
+	@Override
+	public long getValue() {
+		return supplier.getAsLong();
+	}
+
+	@Override
+	public String toString() {
+		return name + ": value=" + getValue();
+	}
+
+}
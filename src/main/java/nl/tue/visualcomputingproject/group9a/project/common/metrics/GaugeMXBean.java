@@ -0,0 +1,11 @@
+package nl.tue.visualcomputingproject.group9a.project.common.metrics;
+
+/**
+ * The view of a gauge exported over JMX.
+ */
+public interface GaugeMXBean {
+	/**
+	 * @return The current value.
+	 */
+	long getValue();
+}
@@ -0,0 +1,177 @@
+package nl.tue.visualcomputingproject.group9a.project.common.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds with a bounded relative error. <br>
+ * <br>
+ * Like an HDR histogram, the values are counted in buckets of which the width doubles
+ * every power of two. Every power of two is split into {@code 2^}{@link #SUB_BUCKET_BITS}
+ * linear sub-buckets, so the reported percentiles are at most about 3% larger than the
+ * recorded values. Recording a value only increments a few atomic counters, so it does not
+ * allocate and can be used on the hot path. Values of {@code 2^}{@link #MAX_BITS} nanoseconds
+ * or more, i.e. more than about an hour, are counted as the maximum value. <br>
+ * <br>
+ * Create histograms using {@link MetricsRegistry#histogram(String)}.
+ */
+public class LatencyHistogram
+		implements LatencyHistogramMXBean {
+	/** The number of bits of a value resolved linearly within a power of two. */
+	static final int SUB_BUCKET_BITS = 5;
+	/** The number of sub-buckets per power of two. */
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/** The number of bits of the largest value which can be recorded. */
+	static final int MAX_BITS = 42;
+	/** The largest value which can be recorded. */
+	static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+	/** The total number of buckets. */
+	static final int NUM_BUCKETS = (MAX_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	/** The name of the histogram. */
+	@Getter
+	private final String name;
+	/** The number of recorded values per bucket. */
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+	/** The number of recorded values. */
+	private final LongAdder count = new LongAdder();
+	/** The sum of the recorded values. */
+	private final LongAdder sum = new LongAdder();
+	/** The largest recorded value. */
+	private final AtomicLong max = new AtomicLong();
+
+	LatencyHistogram(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param nanos The latency in nanoseconds. Negative values are recorded as zero.
+	 */
+	public void record(long nanos) {
+		long value = Math.min(MAX_VALUE, Math.max(0, nanos));
+		counts.incrementAndGet(indexOf(value));
+		count.increment();
+		sum.add(value);
+		long m = max.get();
+		while (value > m && !max.compareAndSet(m, value)) {
+			m = max.get();
+		}
+	}
+
+	/**
+	 * Records the time elapsed since the given start time.
+	 *
+	 * @param start The value of {@link System#nanoTime()} at the start of the measured work.
+	 *
+	 * @return The current value of {@link System#nanoTime()}, which can be used
+	 *     as start time of the next measurement.
+	 */
+	public long recordSince(long start) {
+		long now = System.nanoTime();
+		record(now - start);
+		return now;
+	}
+
+	/**
+	 * @param value The value in the range {@code [0, MAX_VALUE]}.
+	 *
+	 * @return The index of the bucket containing the value.
+	 */
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) return (int) value;
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exp - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * @param index The index of a bucket.
+	 *
+	 * @return The largest value counted in the bucket.
+	 */
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKETS) return index;
+		int shift = index / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * Computes a percentile of the recorded values. Values which are recorded concurrently
+	 * may or may not be included.
+	 *
+	 * @param percentile The percentile, in the range {@code [0, 100]}.
+	 *
+	 * @return The percentile of the recorded values in nanoseconds,
+	 *     or {@code 0} if no values are recorded.
+	 */
+	public long percentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) return 0;
+		long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= target) {
+				return Math.min(highestValueOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : toMillis(sum.sum()) / n;
+	}
+
+	@Override
+	public double getP50() {
+		return toMillis(percentile(50));
+	}
+
+	@Override
+	public double getP90() {
+		return toMillis(percentile(90));
+	}
+
+	@Override
+	public double getP99() {
+		return toMillis(percentile(99));
+	}
+
+	@Override
+	public double getP999() {
+		return toMillis(percentile(99.9));
+	}
+
+	@Override
+	public double getMax() {
+		return toMillis(max.get());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: count=%d mean=%.2f ms p50=%.2f ms p90=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms",
+				name, getCount(), getMean(), getP50(), getP90(), getP99(), getP999(), getMax());
+	}
+
+}
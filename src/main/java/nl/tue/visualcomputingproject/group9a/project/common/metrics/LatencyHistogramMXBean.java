@@ -0,0 +1,41 @@
+package nl.tue.visualcomputingproject.group9a.project.common.metrics;
+
+/**
+ * The view of a histogram exported over JMX. All latencies are in milliseconds.
+ */
+public interface LatencyHistogramMXBean {
+	/**
+	 * @return The number of recorded values.
+	 */
+	long getCount();
+
+	/**
+	 * @return The mean of the recorded values, in milliseconds.
+	 */
+	double getMean();
+
+	/**
+	 * @return The median of the recorded values, in milliseconds.
+	 */
+	double getP50();
+
+	/**
+	 * @return The 90th percentile of the recorded values, in milliseconds.
+	 */
+	double getP90();
+
+	/**
+	 * @return The 99th percentile of the recorded values, in milliseconds.
+	 */
+	double getP99();
+
+	/**
+	 * @return The 99.9th percentile of the recorded values, in milliseconds.
+	 */
+	double getP999();
+
+	/**
+	 * @return The largest recorded value, in milliseconds.
+	 */
+	double getMax();
+}
@@ -0,0 +1,171 @@
+package nl.tue.visualcomputingproject.group9a.project.common.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the metrics of the chunk pipeline. <br>
+ * <br>
+ * The stages of the pipeline record the time they spend on a chunk in a {@link LatencyHistogram},
+ * and count their work using {@link Counter}s. Other state, such as queue lengths, is sampled
+ * using {@link Gauge}s. The metrics are created once, usually in a static field of the class
+ * recording them, such that recording a value does not look up or allocate anything. <br>
+ * <br>
+ * Every metric is exported as an MBean in the {@link #DOMAIN} domain, and all metrics can
+ * periodically be written to a dump file using {@link #scheduleDumps(File, int)}.
+ */
+public final class MetricsRegistry {
+	/** The logger of this class. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The JMX domain of the metrics. */
+	public static final String DOMAIN = "nl.tue.visualcomputingproject.group9a.project";
+	/** The extension of a partially written dump file. */
+	private static final String TMP_EXT = ".tmp";
+	/** The thread used to write the dump file. */
+	private static final ScheduledExecutorService DUMP_THREAD = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "metrics-dump");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/** The metrics by name, in order of name. */
+	private static final Map<String, Object> METRICS = new ConcurrentSkipListMap<>();
+	/** The histograms by name. */
+	private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+	/** The counters by name. */
+	private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+
+	// Disallow instantiation.
+	private MetricsRegistry() {
+	}
+
+	/**
+	 * Returns the histogram with the given name, creating and exporting it if it does not exist yet.
+	 *
+	 * @param name The name of the histogram, e.g. {@code chart.download}.
+	 *
+	 * @return The histogram with the given name.
+	 */
+	public static LatencyHistogram histogram(String name) {
+		return HISTOGRAMS.computeIfAbsent(name, n -> register(n, "Histogram",
+				new LatencyHistogram(n), LatencyHistogramMXBean.class));
+	}
+
+	/**
+	 * Returns the counter with the given name, creating and exporting it if it does not exist yet.
+	 *
+	 * @param name The name of the counter, e.g. {@code chart.download.bytes}.
+	 *
+	 * @return The counter with the given name.
+	 */
+	public static Counter counter(String name) {
+		return COUNTERS.computeIfAbsent(name, n -> register(n, "Counter",
+				new Counter(n), CounterMXBean.class));
+	}
+
+	/**
+	 * Creates and exports a gauge, replacing any existing gauge with the same name.
+	 *
+	 * @param name     The name of the gauge.
+	 * @param supplier The function sampling the value of the gauge.
+	 *
+	 * @return The new gauge.
+	 */
+	public static Gauge gauge(String name, LongSupplier supplier) {
+		return register(name, "Gauge", new Gauge(name, supplier), GaugeMXBean.class);
+	}
+
+	/**
+	 * Adds a metric to {@link #METRICS} and exports it as an MBean.
+	 * Failing to export a metric is logged, but does not prevent recording it.
+	 */
+	private static <M extends V, V> M register(String name, String type, M metric, Class<V> view) {
+		METRICS.put(name, metric);
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(new StandardMBean(metric, view, true), objectName);
+
+		} catch (JMException | RuntimeException e) {
+			LOGGER.warn("Could not export metric " + name + " over JMX.", e);
+		}
+		return metric;
+	}
+
+	/**
+	 * @return A line per metric describing its current state, in order of name.
+	 */
+	public static String dump() {
+		StringBuilder sb = new StringBuilder();
+		for (Object metric : METRICS.values()) {
+			sb.append(metric).append(System.lineSeparator());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes {@link #dump()} to the given file. The file is replaced atomically,
+	 * such that it can be read while it is being written.
+	 *
+	 * @param file The file to write to.
+	 *
+	 * @throws IOException If the file could not be written.
+	 */
+	public static void dump(File file)
+			throws IOException {
+		File tmpFile = new File(file.getPath() + TMP_EXT);
+		try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8))) {
+			pw.println("# Metrics at " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+			pw.print(dump());
+		}
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Writes the metrics to the given file periodically and on shutdown.
+	 *
+	 * @param file     The file to write to.
+	 * @param interval The interval between the dumps in seconds. A non-positive
+	 *                 value only writes the metrics on shutdown.
+	 */
+	public static void scheduleDumps(File file, int interval) {
+		Runnable dump = () -> {
+			try {
+				dump(file);
+
+			} catch (Exception e) {
+				LOGGER.error("Could not write the metrics to " + file, e);
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(new Thread(dump, "metrics-dump-shutdown"));
+		if (interval > 0) {
+			DUMP_THREAD.scheduleWithFixedDelay(dump, interval, interval, TimeUnit.SECONDS);
+		}
+	}
+
+}
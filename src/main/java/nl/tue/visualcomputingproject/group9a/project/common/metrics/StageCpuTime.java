@@ -0,0 +1,148 @@
+package nl.tue.visualcomputingproject.group9a.project.common.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * CPU time spent by the stages of the chunk pipeline. <br>
+ * <br>
+ * The stages share their threads, e.g. the lookup, extraction and generation all run on the
+ * workers of the scheduler, so the CPU time of a stage cannot be derived from the threads
+ * running it. Instead, a stage measures the CPU time of the current thread using
+ * {@link ThreadMXBean#getCurrentThreadCpuTime()} at the start and end of its work, and adds
+ * the difference to its {@link Counter} in nanoseconds. <br>
+ * <br>
+ * Work forked into a {@link java.util.concurrent.ForkJoinPool} by a stage is measured by the
+ * pool workers themselves using {@link #forked(IntConsumer)}, since the forking thread only
+ * measures its own CPU time.
+ */
+public final class StageCpuTime {
+	/** The suffix of the names of the counters. */
+	private static final String SUFFIX = ".cpu";
+	/** The bean providing the CPU time of the current thread. */
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	/** Whether the CPU time of the current thread can be measured. */
+	private static final boolean SUPPORTED = enable();
+	/** The counters of the stages by name of the stage. */
+	private static final Map<String, Counter> STAGES = new ConcurrentHashMap<>();
+	/** The counter of the stage of which the current thread is doing the work. */
+	private static final ThreadLocal<Counter> CURRENT = new ThreadLocal<>();
+
+	// Disallow instantiation.
+	private StageCpuTime() {
+	}
+
+	private static boolean enable() {
+		if (!THREADS.isCurrentThreadCpuTimeSupported()) return false;
+		try {
+			if (!THREADS.isThreadCpuTimeEnabled()) {
+				THREADS.setThreadCpuTimeEnabled(true);
+			}
+			return true;
+
+		} catch (UnsupportedOperationException | SecurityException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the counter of the CPU time of the given stage, creating it if it does not exist yet.
+	 *
+	 * @param stage The name of the stage, e.g. {@code chart.lookup}.
+	 *
+	 * @return The counter named {@code <stage>.cpu}.
+	 */
+	public static Counter counter(String stage) {
+		return STAGES.computeIfAbsent(stage, s -> MetricsRegistry.counter(s + SUFFIX));
+	}
+
+	/**
+	 * @return The CPU time of the current thread in nanoseconds,
+	 *     or {@code 0} if it cannot be measured.
+	 */
+	public static long now() {
+		return SUPPORTED ? THREADS.getCurrentThreadCpuTime() : 0;
+	}
+
+	/**
+	 * Adds the CPU time of the current thread since the given start time to the counter.
+	 *
+	 * @param counter The counter of the stage.
+	 * @param start   The value of {@link #now()} at the start of the measured work.
+	 *
+	 * @return The current value of {@link #now()}.
+	 */
+	public static long recordSince(Counter counter, long start) {
+		long now = now();
+		counter.add(now - start);
+		return now;
+	}
+
+	/**
+	 * Wraps the work of a stage, such that its CPU time is added to the counter of the stage.
+	 * The CPU time is also added if the work throws an exception.
+	 *
+	 * @param counter The counter of the stage.
+	 * @param task    The work of the stage.
+	 *
+	 * @return The wrapped work.
+	 */
+	public static Runnable wrap(Counter counter, Runnable task) {
+		return () -> {
+			Counter previous = CURRENT.get();
+			CURRENT.set(counter);
+			final long start = now();
+			try {
+				task.run();
+			} finally {
+				recordSince(counter, start);
+				CURRENT.set(previous);
+			}
+		};
+	}
+
+	/**
+	 * Wraps a function which is applied in parallel by the pool workers, such that the CPU time
+	 * spent by the workers is added to the counter of the stage calling this method, see
+	 * {@link #wrap(Counter, Runnable)}. The function is applied as is if the calling thread
+	 * is not doing the work of a stage. The calling thread may apply the function itself while
+	 * it waits for the workers, which it already measures as part of its stage.
+	 *
+	 * @param function The function applied by the pool workers.
+	 *
+	 * @return The wrapped function.
+	 */
+	public static IntConsumer forked(IntConsumer function) {
+		final Counter counter = CURRENT.get();
+		if (counter == null) return function;
+		final Thread caller = Thread.currentThread();
+		return i -> {
+			if (Thread.currentThread() == caller) {
+				function.accept(i);
+				return;
+			}
+			final long start = now();
+			try {
+				function.accept(i);
+			} finally {
+				recordSince(counter, start);
+			}
+		};
+	}
+
+	/**
+	 * @return The CPU time in nanoseconds spent by every stage, in order of name of the stage.
+	 */
+	public static Map<String, Long> byStage() {
+		Map<String, Long> result = new TreeMap<>();
+		for (Map.Entry<String, Counter> entry : STAGES.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().getCount());
+		}
+		return result;
+	}
+
+}
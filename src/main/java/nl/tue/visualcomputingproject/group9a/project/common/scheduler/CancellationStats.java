@@ -0,0 +1,138 @@
+package nl.tue.visualcomputingproject.group9a.project.common.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps track of the work saved by cancelling the stages of chunk requests. <br>
+ * <br>
+ * Every stage reports the time its workers spent on completed work, and the work it cancelled.
+ * The time saved by a cancellation is estimated as the average time of the completed work of
+ * the stage, minus the time which was already spent on the cancelled work. The time is the
+ * time the worker thread of the stage was occupied, which includes the time spent waiting on
+ * parallel sub-tasks and, for downloads, on the network.
+ */
+public final class CancellationStats {
+	/** The logger of this class. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+	/**
+	 * The stages of the chunk pipeline which can be cancelled.
+	 */
+	public enum Stage {
+		LOOKUP,
+		DOWNLOAD,
+		EXTRACTION,
+		ASSEMBLY,
+		GENERATION,
+		TEXTURE,
+	}
+
+	/**
+	 * The counters of a single stage.
+	 */
+	private static class Counters {
+		/** The number of completed units of work. */
+		final LongAdder completed = new LongAdder();
+		/** The total time spent on the completed units of work, in nanoseconds. */
+		final LongAdder completedNanos = new LongAdder();
+		/** The number of cancelled units of work. */
+		final LongAdder cancelled = new LongAdder();
+		/** The estimated time saved by the cancelled units of work, in nanoseconds. */
+		final LongAdder savedNanos = new LongAdder();
+	}
+
+	/** The counters per stage. */
+	private static final Map<Stage, Counters> COUNTERS = new EnumMap<>(Stage.class);
+	static {
+		for (Stage stage : Stage.values()) {
+			COUNTERS.put(stage, new Counters());
+		}
+	}
+
+	// Disallow instantiation.
+	private CancellationStats() {
+	}
+
+	/**
+	 * Records completed work of a stage.
+	 *
+	 * @param stage The stage.
+	 * @param start The value of {@link System#nanoTime()} when the work started.
+	 * @param units The number of units of work, e.g. the number of chunks.
+	 */
+	public static void completed(Stage stage, long start, int units) {
+		if (units <= 0) return;
+		Counters c = COUNTERS.get(stage);
+		c.completed.add(units);
+		c.completedNanos.add(System.nanoTime() - start);
+	}
+
+	/**
+	 * Records cancelled work of a stage before any time was spent on it.
+	 *
+	 * @param stage The stage.
+	 * @param units The number of cancelled units of work.
+	 */
+	public static void cancelled(Stage stage, int units) {
+		cancelled(stage, System.nanoTime(), units);
+	}
+
+	/**
+	 * Records work of a stage which was cancelled at a checkpoint.
+	 *
+	 * @param stage The stage.
+	 * @param start The value of {@link System#nanoTime()} when the work started.
+	 * @param units The number of cancelled units of work.
+	 */
+	public static void cancelled(Stage stage, long start, int units) {
+		if (units <= 0) return;
+		Counters c = COUNTERS.get(stage);
+		long spent = System.nanoTime() - start;
+		long completed = c.completed.sum();
+		long expected = completed == 0 ? 0 : c.completedNanos.sum() / completed * units;
+		long saved = Math.max(0, expected - spent);
+		c.cancelled.add(units);
+		c.savedNanos.add(saved);
+		LOGGER.info("Cancelled {} {} units, saving about {} ms. Saved {} ms by {} cancellations in total.",
+				units, stage, saved / 1_000_000,
+				c.savedNanos.sum() / 1_000_000, c.cancelled.sum());
+	}
+
+	/**
+	 * @param stage The stage.
+	 *
+	 * @return The number of cancelled units of work of the stage.
+	 */
+	public static long getCancelled(Stage stage) {
+		return COUNTERS.get(stage).cancelled.sum();
+	}
+
+	/**
+	 * @param stage The stage.
+	 *
+	 * @return The estimated time saved by cancelling work of the stage, in nanoseconds.
+	 */
+	public static long getSavedNanos(Stage stage) {
+		return COUNTERS.get(stage).savedNanos.sum();
+	}
+
+	/**
+	 * @return A summary of the cancelled work and the saved time of all stages.
+	 */
+	public static String summary() {
+		StringBuilder sb = new StringBuilder("Cancellations:");
+		for (Stage stage : Stage.values()) {
+			Counters c = COUNTERS.get(stage);
+			sb.append(String.format(" %s=%d (%d ms)",
+					stage, c.cancelled.sum(), c.savedNanos.sum() / 1_000_000));
+		}
+		return sb.toString();
+	}
+
+}
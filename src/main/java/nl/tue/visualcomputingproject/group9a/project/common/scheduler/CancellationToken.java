@@ -0,0 +1,100 @@
+package nl.tue.visualcomputingproject.group9a.project.common.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Token used to cancel the work of a chunk request. <br>
+ * <br>
+ * The token of a request is created by the pre-processing module and passed along with the
+ * request through the download, extraction, assembly, generation and texture stages. The token
+ * is cancelled when the chunk is unloaded by the renderer. The stages check the token before
+ * they start working on a request, and long running stages also check it at checkpoints using
+ * {@link #checkpoint()}. The token is only read by the stages, so checking it is cheap.
+ */
+public class CancellationToken {
+	/** Token which is never cancelled, used for work which was not requested by a chunk. */
+	public static final CancellationToken NONE = new CancellationToken() {
+		@Override
+		public void cancel() {
+			throw new UnsupportedOperationException("The NONE token cannot be cancelled.");
+		}
+	};
+
+	/** Whether the token has been cancelled. */
+	private volatile boolean cancelled;
+
+	/**
+	 * Cancels the work of the token.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return Whether the work of the token has been cancelled.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Checks whether the work has been cancelled, and aborts it if so.
+	 *
+	 * @throws CancellationException If the token has been cancelled.
+	 */
+	public void checkpoint()
+			throws CancellationException {
+		if (isCancelled()) {
+			throw new CancellationException("The chunk is not requested anymore.");
+		}
+	}
+
+	/**
+	 * Creates a token for work shared by several requests, which is cancelled
+	 * once all of the given tokens are cancelled.
+	 *
+	 * @param tokens The tokens of the requests sharing the work.
+	 *
+	 * @return A token which is cancelled if all given tokens are cancelled.
+	 */
+	public static CancellationToken allOf(Collection<CancellationToken> tokens) {
+		if (tokens.size() == 1) {
+			return tokens.iterator().next();
+		}
+		final List<CancellationToken> parents = new ArrayList<>(tokens);
+		return new CancellationToken() {
+			@Override
+			public void cancel() {
+				throw new UnsupportedOperationException("A shared token is cancelled by its parents.");
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return allCancelled(parents);
+			}
+		};
+	}
+
+	/**
+	 * @param tokens The tokens to check.
+	 *
+	 * @return Whether all given tokens are cancelled. If no tokens are given, then
+	 *     {@code false} is returned, since the work was not requested by a chunk.
+	 */
+	public static boolean allCancelled(Collection<CancellationToken> tokens) {
+		if (tokens.isEmpty()) return false;
+		for (CancellationToken token : tokens) {
+			if (!token.isCancelled()) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return isCancelled() ? "cancelled" : "active";
+	}
+
+}
@@ -0,0 +1,360 @@
+package nl.tue.visualcomputingproject.group9a.project.common.scheduler;
+
+import com.google.common.eventbus.Subscribe;
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
+import nl.tue.visualcomputingproject.group9a.project.common.event.RendererChunkStatusEvent;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scheduler which executes the tasks of the chunk pipeline in order of distance to the camera. <br>
+ * <br>
+ * Every task is submitted with the positions of the chunks it works on, in the coordinates of the
+ * renderer, and the quality level it produces. Queued tasks are executed in order of the ring
+ * distance in chunks between the nearest of their positions and the chunk of the camera, then in
+ * order of quality level, such that coarse chunks are shown before any chunk is refined, and finally
+ * in order of submission. <br>
+ * <br>
+ * The scheduler listens to the {@link RendererChunkStatusEvent}s of the renderer. The priorities of
+ * the queued tasks are re-evaluated whenever the camera moves to another chunk. A droppable task of
+ * which all positions have been unloaded is removed from the queue without being executed. Tasks are
+ * marked as dropped and skipped by the workers, so dropping a task takes constant time. A position
+ * which is loaded again counts as not unloaded anymore for the tasks which are still queued, such
+ * that unloading the other positions of such a task does not drop it.
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class PriorityScheduler {
+	/** The logger of this class. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The number of bits of the priority reserved for the quality level. */
+	private static final int QUALITY_BITS = 8;
+
+	/**
+	 * A queued task.
+	 */
+	private static class Task {
+		/** The positions of the chunks the task works on. */
+		final Collection<ChunkPosition> positions;
+		/** The order of the quality level the task produces. */
+		final int quality;
+		/** The order of submission. */
+		final long seq;
+		/** The task to execute. */
+		final Runnable runnable;
+		/** The task to execute when the task is dropped, or {@code null} if it cannot be dropped. */
+		final Runnable onDrop;
+		/** The number of positions which have not been unloaded. */
+		int remaining;
+		/** The priority of the task, lower is more important. */
+		long priority;
+		/** Whether the task has been dropped. */
+		boolean dropped;
+
+		Task(Collection<ChunkPosition> positions, int quality, long seq, Runnable runnable, Runnable onDrop) {
+			this.positions = positions;
+			this.quality = quality;
+			this.seq = seq;
+			this.runnable = runnable;
+			this.onDrop = onDrop;
+			this.remaining = positions.size();
+		}
+	}
+
+	/** The order of the tasks in the queue. */
+	private static final Comparator<Task> ORDER = Comparator
+			.comparingLong((Task t) -> t.priority)
+			.thenComparingLong(t -> t.seq);
+
+	/** The name of the scheduler, used for the worker threads. */
+	private final String name;
+	/** The lock guarding the state of the scheduler. */
+	private final Lock lock = new ReentrantLock();
+	/** The condition signalled when a task is queued. */
+	private final Condition taskAvailable = lock.newCondition();
+	/** The queued tasks. */
+	private PriorityQueue<Task> queue = new PriorityQueue<>(ORDER);
+	/** The queued droppable tasks per position. */
+	private final Map<ChunkPosition, List<Task>> byPosition = new HashMap<>();
+	/** The queued droppable tasks per unloaded position, which were kept by their other positions. */
+	private final Map<ChunkPosition, List<Task>> unloaded = new HashMap<>();
+	/** The position of the chunk containing the camera, or {@code null} if unknown. */
+	private ChunkPosition camera;
+	/** The number of submitted tasks. */
+	private long submitted;
+
+	/**
+	 * Creates a new scheduler and starts its worker threads.
+	 *
+	 * @param name    The name of the scheduler.
+	 * @param threads The number of worker threads.
+	 */
+	public PriorityScheduler(String name, int threads) {
+		this.name = name;
+		for (int i = 0; i < threads; i++) {
+			Thread t = Executors.defaultThreadFactory().newThread(this::work);
+			t.setName(name + "-worker-" + i);
+			t.setDaemon(true);
+			t.setUncaughtExceptionHandler((Thread thread, Throwable e) -> {
+				e.printStackTrace();
+			});
+			t.start();
+		}
+		MetricsRegistry.gauge("scheduler." + name + ".queue", this::getQueueSize);
+	}
+
+	/**
+	 * Schedules a task which is always executed.
+	 *
+	 * @param positions The positions of the chunks the task works on, in renderer coordinates.
+	 * @param quality   The quality level the task produces, or {@code null} if not applicable.
+	 * @param task      The task to execute.
+	 */
+	public void submit(Collection<ChunkPosition> positions, QualityLevel quality, Runnable task) {
+		submit(positions, quality, task, null);
+	}
+
+	/**
+	 * Schedules a task which is dropped if all of its positions are unloaded before it is executed.
+	 *
+	 * @param positions The positions of the chunks the task works on, in renderer coordinates.
+	 * @param quality   The quality level the task produces, or {@code null} if not applicable.
+	 * @param task      The task to execute.
+	 * @param onDrop    The task to execute instead if the task is dropped, e.g. to release claims,
+	 *                  or {@code null} if the task cannot be dropped. It is executed by the thread
+	 *                  handling the unload event, so it should be cheap.
+	 */
+	public void submit(Collection<ChunkPosition> positions, QualityLevel quality, Runnable task, Runnable onDrop) {
+		lock.lock();
+		try {
+			Task t = new Task(
+					new ArrayList<>(positions),
+					quality == null ? 0 : quality.getOrder(),
+					submitted++,
+					task,
+					onDrop);
+			t.priority = priorityOf(t);
+			if (onDrop != null) {
+				for (ChunkPosition pos : t.positions) {
+					byPosition.computeIfAbsent(pos, p -> new ArrayList<>()).add(t);
+				}
+			}
+			queue.add(t);
+			taskAvailable.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Schedules a task which does not belong to a chunk. Such tasks are executed before the chunk tasks.
+	 *
+	 * @param task The task to execute.
+	 */
+	public void submit(Runnable task) {
+		submit(Collections.emptyList(), null, task, null);
+	}
+
+	/**
+	 * @return The number of queued tasks, including the dropped tasks which have not been removed yet.
+	 */
+	public int getQueueSize() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Computes the priority of a task for the current camera position.
+	 * Must be called while holding {@link #lock}.
+	 */
+	private long priorityOf(Task t) {
+		long ring = 0;
+		if (camera != null && !t.positions.isEmpty()) {
+			ring = Long.MAX_VALUE >>> QUALITY_BITS;
+			double cx = camera.getX() + camera.getWidth() / 2;
+			double cy = camera.getY() + camera.getHeight() / 2;
+			for (ChunkPosition pos : t.positions) {
+				double dx = Math.abs(pos.getX() + pos.getWidth() / 2 - cx) / Settings.CHUNK_WIDTH;
+				double dy = Math.abs(pos.getY() + pos.getHeight() / 2 - cy) / Settings.CHUNK_HEIGHT;
+				ring = Math.min(ring, (long) Math.max(dx, dy));
+			}
+		}
+		return (ring << QUALITY_BITS) | t.quality;
+	}
+
+	/**
+	 * Updates the position of the camera and re-evaluates the priorities of the queued tasks.
+	 *
+	 * @param camera The position of the chunk containing the camera, in renderer coordinates.
+	 */
+	public void updateCamera(ChunkPosition camera) {
+		lock.lock();
+		try {
+			if (Objects.equals(this.camera, camera)) return;
+			this.camera = camera;
+			PriorityQueue<Task> newQueue = new PriorityQueue<>(Math.max(1, queue.size()), ORDER);
+			for (Task t : queue) {
+				if (t.dropped) continue;
+				t.priority = priorityOf(t);
+				newQueue.add(t);
+			}
+			queue = newQueue;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Drops the queued droppable tasks of which all positions have been unloaded.
+	 *
+	 * @param positions The unloaded positions, in renderer coordinates.
+	 *
+	 * @return The number of dropped tasks.
+	 */
+	public int drop(Collection<ChunkPosition> positions) {
+		List<Runnable> onDrop = new ArrayList<>();
+		lock.lock();
+		try {
+			for (ChunkPosition pos : positions) {
+				List<Task> tasks = byPosition.remove(pos);
+				if (tasks == null) continue;
+				for (Task t : tasks) {
+					if (t.dropped) continue;
+					if (--t.remaining > 0) {
+						// Remember the task in case the position is loaded again.
+						unloaded.computeIfAbsent(pos, p -> new ArrayList<>()).add(t);
+						continue;
+					}
+					// The task stays in the queue until it is polled by a worker.
+					t.dropped = true;
+					forget(t, unloaded);
+					onDrop.add(t.onDrop);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		for (Runnable r : onDrop) {
+			r.run();
+		}
+		if (!onDrop.isEmpty()) {
+			LOGGER.info("Dropped {} {} tasks of unloaded chunks.", onDrop.size(), name);
+		}
+		return onDrop.size();
+	}
+
+	/**
+	 * Restores the positions of the queued droppable tasks which have been loaded again after
+	 * being unloaded, such that these tasks are only dropped once these positions are unloaded again.
+	 *
+	 * @param positions The loaded positions, in renderer coordinates.
+	 *
+	 * @return The number of restored tasks.
+	 */
+	public int reload(Collection<ChunkPosition> positions) {
+		int restored = 0;
+		lock.lock();
+		try {
+			for (ChunkPosition pos : positions) {
+				List<Task> tasks = unloaded.remove(pos);
+				if (tasks == null) continue;
+				for (Task t : tasks) {
+					t.remaining++;
+					byPosition.computeIfAbsent(pos, p -> new ArrayList<>()).add(t);
+					restored++;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		return restored;
+	}
+
+	/**
+	 * Removes the given task from the lists of its positions in the given map.
+	 * Must be called while holding {@link #lock}.
+	 */
+	private static void forget(Task t, Map<ChunkPosition, List<Task>> tasksByPosition) {
+		for (ChunkPosition pos : t.positions) {
+			List<Task> tasks = tasksByPosition.get(pos);
+			if (tasks == null) continue;
+			tasks.remove(t);
+			if (tasks.isEmpty()) tasksByPosition.remove(pos);
+		}
+	}
+
+	/**
+	 * Restores the tasks of reloaded chunks, and re-evaluates the priorities and drops the tasks
+	 * of unloaded chunks when the renderer reports a new camera position. The events without
+	 * camera position only cancel the refinement of chunks which remain loaded, so these do not
+	 * drop any tasks.
+	 *
+	 * @param e The event.
+	 */
+	@Subscribe
+	public void onChunkStatus(RendererChunkStatusEvent e) {
+		reload(e.getNewChunks());
+		if (e.getCameraChunk() == null) return;
+		updateCamera(e.getCameraChunk());
+		drop(e.getUnloadedChunks());
+	}
+
+	/**
+	 * Takes the most important task which has not been dropped, waiting until one is available.
+	 */
+	private Task take() throws InterruptedException {
+		lock.lock();
+		try {
+			while (true) {
+				Task t = queue.poll();
+				if (t == null) {
+					taskAvailable.await();
+					continue;
+				}
+				if (t.dropped) continue;
+				if (t.onDrop != null) {
+					// The task can no longer be dropped.
+					forget(t, byPosition);
+					forget(t, unloaded);
+				}
+				return t;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The loop of the worker threads.
+	 */
+	private void work() {
+		//noinspection InfiniteLoopStatement
+		while (true) {
+			Task t;
+			try {
+				t = take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				t.runnable.run();
+			} catch (Exception e) {
+				LOGGER.error("Task of the " + name + " scheduler failed!", e);
+			}
+		}
+	}
+
+}
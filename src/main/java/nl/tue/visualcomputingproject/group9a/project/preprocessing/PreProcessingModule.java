@@ -5,6 +5,7 @@ import com.google.common.eventbus.Subscribe;
 import nl.tue.visualcomputingproject.group9a.project.common.Module;
 import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.CachePolicy;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.stream.MappedFileStreamFactory;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.stream.ZipBufferedFileStreamFactory;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.write_back.WriteBackCacheManager;
 import nl.tue.visualcomputingproject.group9a.project.common.cache.write_back.WriteBackReadCacheClaim;
@@ -14,17 +15,26 @@ import nl.tue.visualcomputingproject.group9a.project.common.event.ChartChunkLoad
 import nl.tue.visualcomputingproject.group9a.project.common.event.ProcessorChunkLoadedEvent;
 import nl.tue.visualcomputingproject.group9a.project.common.event.ProcessorChunkRequestedEvent;
 import nl.tue.visualcomputingproject.group9a.project.common.event.RendererChunkStatusEvent;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.Counter;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.LatencyHistogram;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.StageCpuTime;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationStats;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
 import nl.tue.visualcomputingproject.group9a.project.common.util.Pair;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.Generator;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.HeightGrid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 /**
  * Class for the pre-processing module.
@@ -36,6 +46,12 @@ public class PreProcessingModule
 	private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 	/** The thread used for io-operations. */
 	private static final ExecutorService ioThread = Executors.newSingleThreadExecutor();
+	/** The latency of generating a single chunk, indexed by quality level. */
+	private static final LatencyHistogram[] GENERATION_LATENCY = createHistograms("preprocessing.generation.");
+	/** The latency of generating all chunks of a region, indexed by quality level. */
+	private static final LatencyHistogram[] REGION_LATENCY = createHistograms("preprocessing.generation.region.");
+	/** The CPU time spent on generating chunks, including the pool workers. */
+	private static final Counter GENERATION_CPU = StageCpuTime.counter("preprocessing.generation");
 	
 	/** Map storing which chunks are requested from the chart module. */
 	private final Map<ChunkPosition, MeshChunkId> requesting = new HashMap<>();
@@ -43,6 +59,12 @@ public class PreProcessingModule
 	private final Set<MeshChunkId> processing = new HashSet<>();
 	/** Set storing which chunks should be delivered to the renderer module. */
 	private final Set<MeshChunkId> deliver = new HashSet<>();
+	/** Map storing the positions of the chunks of the regions requested from the chart module, keyed by the region. */
+	private final Map<ChunkPosition, List<ChunkPosition>> regions = new HashMap<>();
+	/** Map storing the height grid of the last generated lower quality level, used to seed the next level. */
+	private final Map<ChunkPosition, HeightGrid> seeds = new HashMap<>();
+	/** Map storing the cancellation tokens of the requested chunks, which are cancelled when the chunks are unloaded. */
+	private final Map<ChunkPosition, CancellationToken> tokens = new HashMap<>();
 	/** The lock used for concurrently accessing the requesting map. */
 	private final Lock lock = new ReentrantLock();
 	
@@ -51,6 +73,20 @@ public class PreProcessingModule
 	/** The cache manager used to store the mesh chunk data. */
 	private WriteBackCacheManager<MeshChunkData> cache;
 	
+	/**
+	 * @param prefix The prefix of the names of the histograms.
+	 * 
+	 * @return A histogram for every quality level, indexed by {@link QualityLevel#ordinal()}.
+	 */
+	private static LatencyHistogram[] createHistograms(String prefix) {
+		QualityLevel[] levels = QualityLevel.values();
+		LatencyHistogram[] histograms = new LatencyHistogram[levels.length];
+		for (QualityLevel level : levels) {
+			histograms[level.ordinal()] = MetricsRegistry.histogram(prefix + level.name().toLowerCase(Locale.ROOT));
+		}
+		return histograms;
+	}
+	
 	@Override
 	public void startup(EventBus eventBus, CachePolicy diskPolicy, CachePolicy memoryPolicy) {
 		LOGGER.info("Preprocessing starting up!");
@@ -58,12 +94,21 @@ public class PreProcessingModule
 		this.eventBus = eventBus;
 		eventBus.register(this);
 		
-		cache = new WriteBackCacheManager<>(
-				memoryPolicy,
-				diskPolicy,
-				Settings.CACHE_DIR, "mesh_chunk",
-				new ZipBufferedFileStreamFactory(),
-				MeshChunkData.createSerializer());
+		if (Settings.MESH_CACHE_COMPRESSION) {
+			cache = new WriteBackCacheManager<>(
+					memoryPolicy,
+					diskPolicy,
+					Settings.CACHE_DIR, "mesh_chunk",
+					new ZipBufferedFileStreamFactory(),
+					MeshChunkData.createSerializer());
+		} else {
+			cache = new WriteBackCacheManager<>(
+					memoryPolicy,
+					diskPolicy,
+					Settings.CACHE_DIR, "mesh_chunk_mapped",
+					new MappedFileStreamFactory(),
+					MeshChunkData.createMappedSerializer(Settings.VERTEX_TYPE));
+		}
 		cache.indexCache(MeshChunkId.createMeshChunkIdFactory());
 	}
 
@@ -142,52 +187,64 @@ public class PreProcessingModule
 
 			// Request the cache misses from the chart module.
 			if (!request.isEmpty()) {
-				List<ChunkId> req = new ArrayList<>(request.size());
+				Map<ChunkId, CancellationToken> req;
 				lock.lock();
 				try {
-					for (MeshChunkId id : request) {
-						requesting.put(id.getPosition(), id);
-						req.add(id.asExtraBorderChunkId(Settings.CHUNK_VERTEX_BORDER));
-					}
+					req = createRequests(request);
 				} finally {
 					lock.unlock();
 				}
 				LOGGER.info("Posting chunk request event!");
-				eventBus.post(new ProcessorChunkRequestedEvent(req));
+				eventBus.post(new ProcessorChunkRequestedEvent(new ArrayList<>(req.keySet()), req));
 			}
 			
 			// Load the chunks from disk.
 			if (!claims.isEmpty()) {
 				ioThread.submit(() -> {
 					int reqAmt = 0;
+					Map<MeshChunkId, HeightGrid> seedGrids = new HashMap<>();
+					Set<MeshChunkId> unreadable = new HashSet<>();
 					for (Pair<MeshChunkId, WriteBackReadCacheClaim<MeshChunkData>> pair : claims) {
 						MeshChunkId id = pair.getFirst();
+						MeshChunkData data = pair.getSecond().get();
+						if (data == null) {
+							// Generate the chunk again, which replaces the unreadable file.
+							LOGGER.warn("Could not read the cached mesh of " + id + ", generating it again.");
+							cache.releaseCacheClaim(pair.getSecond());
+							unreadable.add(id);
+							continue;
+						}
 						LOGGER.info("Posting preprocessor loaded event!");
 						eventBus.post(new ProcessorChunkLoadedEvent(
-								new Chunk<>(id, pair.getSecond().get())));
-						cache.releaseCacheClaim(pair.getSecond());
+								new Chunk<>(id, data)));
 						if (id.getQuality() != QualityLevel.getBest()) {
+							// Keep the heights to seed the generation of the next quality level.
+							seedGrids.put(id, HeightGrid.fromMesh(id, data));
 							reqAmt++;
 						}
+						cache.releaseCacheClaim(pair.getSecond());
 					}
 					
-					if (reqAmt > 0) {
-						List<ChunkId> req = new ArrayList<>(reqAmt);
+					if (reqAmt > 0 || !unreadable.isEmpty()) {
+						List<MeshChunkId> reqIds = new ArrayList<>(reqAmt + unreadable.size());
+						reqIds.addAll(unreadable);
+						Map<ChunkId, CancellationToken> req;
 						lock.lock();
 						try {
 							for (Pair<MeshChunkId, WriteBackReadCacheClaim<MeshChunkData>> pair : claims) {
 								MeshChunkId id = pair.getFirst();
-								if (id.getQuality() != QualityLevel.getBest()) {
-									MeshChunkId reqId = id.withQuality(id.getQuality().next());
-									requesting.put(reqId.getPosition(), reqId);
-									req.add(reqId.asExtraBorderChunkId(Settings.CHUNK_VERTEX_BORDER));
+								if (!unreadable.contains(id) && id.getQuality() != QualityLevel.getBest()) {
+									HeightGrid seed = seedGrids.get(id);
+									if (seed != null) seeds.put(id.getPosition(), seed);
+									reqIds.add(id.withQuality(id.getQuality().next()));
 								}
 							}
+							req = createRequests(reqIds);
 							
 						} finally {
 							lock.unlock();
 						}
-						eventBus.post(new ProcessorChunkRequestedEvent(req));
+						eventBus.post(new ProcessorChunkRequestedEvent(new ArrayList<>(req.keySet()), req));
 					}
 				});
 			}
@@ -198,6 +255,10 @@ public class PreProcessingModule
 			try {
 				for (ChunkPosition pos : e.getUnloadedChunks()) {
 					requesting.remove(pos);
+					seeds.remove(pos);
+					// Cancel the work of the chart module and the generators for the chunk.
+					CancellationToken token = tokens.remove(pos);
+					if (token != null) token.cancel();
 					for (QualityLevel level : QualityLevel.values()) {
 						MeshChunkId id = new MeshChunkId(
 								pos,
@@ -207,10 +268,13 @@ public class PreProcessingModule
 						deliver.remove(id);
 					}
 				}
+				// Forget the regions of which no chunk is requested anymore.
+				regions.values().removeIf(positions -> positions.stream().noneMatch(requesting::containsKey));
 				
 			} finally {
 				lock.unlock();
 			}
+			LOGGER.info(CancellationStats.summary());
 		}
 	}
 
@@ -222,13 +286,28 @@ public class PreProcessingModule
 	@Subscribe
 	public void chunkLoaded(ChartChunkLoadedEvent e) {
 		LOGGER.info("Got chunk loaded event: " + e.getChunk().getChunkId().getPosition());
+		final ChunkPosition eventPos = e.getChunk().getChunkId().getPosition()
+				.transformedAddBorder(-Settings.CHUNK_VERTEX_BORDER);
+		List<ChunkPosition> regionPositions;
+		lock.lock();
+		try {
+			regionPositions = regions.get(eventPos);
+		} finally {
+			lock.unlock();
+		}
+		if (regionPositions != null) {
+			regionLoaded(e, eventPos, regionPositions);
+			return;
+		}
+		
 		// First determine if the event is valid.
 		// If so, then update the request map accordingly.
 		final MeshChunkId id;
+		final CancellationToken token;
 		lock.lock();
 		try {
 			final ChunkId eventId = e.getChunk().getChunkId();
-			MeshChunkId reqId = requesting.get(eventId.getPosition().transformedAddBorder(-Settings.CHUNK_VERTEX_BORDER));
+			MeshChunkId reqId = requesting.get(eventPos);
 			if (reqId == null) {
 				// Ignore event since the chunk is not needed anymore.
 				LOGGER.info("Ignoring '" + e.getChunk().getChunkId() + "' since it is not needed anymore.");
@@ -258,20 +337,38 @@ public class PreProcessingModule
 				LOGGER.info("The id '" + id + "' is already being processed. Ignoring current request.");
 				return;
 			}
+			token = tokens.getOrDefault(id.getPosition(), CancellationToken.NONE);
 			
 		} finally {
 			lock.unlock();
 		}
 		
 		// Pre-process the chunk.
-		Settings.executorService.submit(() -> {
+		generateChunk(e, id, token);
+	}
+	
+	/**
+	 * Generates the mesh of a single chunk from the data of the chart module.
+	 * Must be called after the id has been added to {@link #processing}.
+	 * 
+	 * @param e     The chunk loaded event containing the data of the chunk.
+	 * @param id    The id of the chunk to generate.
+	 * @param token The cancellation token of the chunk.
+	 */
+	private void generateChunk(ChartChunkLoadedEvent e, MeshChunkId id, CancellationToken token) {
+		Settings.scheduler.submit(Collections.singletonList(id.getPosition()), id.getQuality(), StageCpuTime.wrap(GENERATION_CPU, () -> {
 			// Check if the data still needs to be processed.
+			final long start = System.nanoTime();
+			final HeightGrid seed;
 			lock.lock();
 			try {
 				if (!deliver.contains(id)) {
 					LOGGER.info("Ignoring " + id + " since it is no longer requested!");
+					processing.remove(id);
+					CancellationStats.cancelled(CancellationStats.Stage.GENERATION, 1);
 					return;
 				}
+				seed = seeds.get(id.getPosition());
 				
 			} finally {
 				lock.unlock();
@@ -280,67 +377,411 @@ public class PreProcessingModule
 			// Process the data.
 			MeshChunkData data;
 			try {
-				Chunk<ChunkId, PointCloudChunkData> chunk = new Chunk<>(
+				Chunk<ChunkId, PointData> chunk = new Chunk<>(
 						id.asExtraBorder(Settings.CHUNK_VERTEX_BORDER),
 						e.getChunk().getData()
 				);
-				data = Generator
-						.createGeneratorFor(id.getQuality())
-						.generateChunkData(chunk, id.getPosition());
+				Generator<ChunkId, PointData> generator = Generator.<ChunkId, PointData>createGeneratorFor(id.getQuality())
+						.withCancellation(token);
+				if (seed != null && Settings.INTERIM_MESH) {
+					// Show a rough version of the refined chunk while the full quality is computed.
+					MeshChunkData interim = generator.generateInterimChunkData(chunk, id.getPosition(), seed);
+					if (interim != null) {
+						lock.lock();
+						try {
+							if (deliver.contains(id)) {
+								eventBus.post(new ProcessorChunkLoadedEvent(new Chunk<>(
+										id,
+										interim)));
+							}
+						} finally {
+							lock.unlock();
+						}
+					}
+				}
+				data = generator.generateChunkData(chunk, id.getPosition(), seed);
+				
+			} catch (CancellationException ex) {
+				LOGGER.info("Cancelled the generation of " + id + " since it is no longer requested!");
+				CancellationStats.cancelled(CancellationStats.Stage.GENERATION, start, 1);
+				Map<MeshChunkId, CancellationToken> retry = releaseCancelled(Collections.singletonList(id));
+				if (!retry.isEmpty()) {
+					generateChunk(e, id, retry.get(id));
+				}
+				return;
 				
 			} catch (Exception ex) {
 				ex.printStackTrace();
 				throw ex;
 			}
 
-			lock.lock();
-			try {
-				// Remove the id from the deliver set and notify the renderer
-				// about the data if it is still needed.
-				if (deliver.remove(id)) {
-					eventBus.post(new ProcessorChunkLoadedEvent(new Chunk<>(
-							id,
-							data)));
+			GENERATION_LATENCY[id.getQuality().ordinal()].recordSince(start);
+			finishChunk(id, data);
+			CancellationStats.completed(CancellationStats.Stage.GENERATION, start, 1);
+		}), () -> {
+			// The chunk was unloaded before it was processed.
+			// Generate it anyway if it has been loaded again in the meantime.
+			CancellationStats.cancelled(CancellationStats.Stage.GENERATION, 1);
+			Map<MeshChunkId, CancellationToken> retry = releaseCancelled(Collections.singletonList(id));
+			if (!retry.isEmpty()) {
+				generateChunk(e, id, retry.get(id));
+			}
+		});
+	}
+	
+	/**
+	 * Removes the ids of which the generation has been cancelled or dropped from {@link #processing}.
+	 * The chunks which have been loaded again by the renderer while their generation was
+	 * being cancelled or dropped remain processing, and are returned with a new cancellation token
+	 * such that they can be generated again.
+	 * 
+	 * @param ids The ids of which the generation has been cancelled or dropped.
+	 * 
+	 * @return The ids to generate again, mapped to their new cancellation tokens.
+	 */
+	private Map<MeshChunkId, CancellationToken> releaseCancelled(Collection<MeshChunkId> ids) {
+		Map<MeshChunkId, CancellationToken> retry = new LinkedHashMap<>();
+		lock.lock();
+		try {
+			for (MeshChunkId id : ids) {
+				if (deliver.contains(id)) {
+					retry.put(id, tokens.computeIfAbsent(id.getPosition(), p -> new CancellationToken()));
+				} else {
+					processing.remove(id);
 				}
-				
-			} finally {
-				lock.unlock();
 			}
-			
-			// Put the data in the cache.
-			WriteBackReadWriteCacheClaim<MeshChunkData> claim = cache.requestReadWriteClaim(id);
-			if (claim != null) {
-				// Cache new data.
-				claim.set(data);
-				if (!claim.isOnDisk()) claim.toDisk();
-				cache.releaseCacheClaim(claim);
-				
-				// Delete old data.
-				MeshChunkId mcId = id;
-				while (mcId.getQuality() != null && mcId.getQuality().getOrder() >= 0) {
-					mcId = mcId.withQuality(mcId.getQuality().prev());
-					claim = cache.requestReadWriteClaim(mcId);
-					if (claim != null) {
-						claim.delete();
-						cache.releaseCacheClaim(claim);
+		} finally {
+			lock.unlock();
+		}
+		return retry;
+	}
+	
+	/**
+	 * Registers the given ids as requested, and creates the requests for the chart module.
+	 * Ids of the same quality within the same aligned block of {@link Settings#REGION_SIZE}
+	 * by {@link Settings#REGION_SIZE} chunks are split into rectangles using
+	 * {@link #splitRectangles(ChunkPosition, List)}, and every rectangle of more than one chunk
+	 * is requested as a single region, which is generated at once by
+	 * {@link #regionLoaded(ChartChunkLoadedEvent, ChunkPosition, List)}. Since the regions are
+	 * covered completely by their chunks, the regions of different requests only coincide if they
+	 * contain the same chunks. In that case, the chunks are requested separately, such that the
+	 * pending region is not requested twice. Must be called while holding {@link #lock}.
+	 * 
+	 * @param ids The ids to request.
+	 * 
+	 * @return The chunk ids to request from the chart module, mapped to the cancellation tokens of the requests.
+	 */
+	Map<ChunkId, CancellationToken> createRequests(Collection<MeshChunkId> ids) {
+		Map<Pair<QualityLevel, ChunkPosition>, List<MeshChunkId>> blocks = new HashMap<>();
+		for (MeshChunkId id : ids) {
+			requesting.put(id.getPosition(), id);
+			tokens.computeIfAbsent(id.getPosition(), p -> new CancellationToken());
+			ChunkPosition pos = id.getPosition();
+			double blockWidth = pos.getWidth() * Settings.REGION_SIZE;
+			double blockHeight = pos.getHeight() * Settings.REGION_SIZE;
+			ChunkPosition block = new ChunkPosition(
+					Math.floor(pos.getX() / blockWidth) * blockWidth,
+					Math.floor(pos.getY() / blockHeight) * blockHeight,
+					blockWidth, blockHeight);
+			blocks.computeIfAbsent(new Pair<>(id.getQuality(), block), k -> new ArrayList<>()).add(id);
+		}
+		
+		Map<ChunkId, CancellationToken> req = new LinkedHashMap<>(blocks.size());
+		for (Map.Entry<Pair<QualityLevel, ChunkPosition>, List<MeshChunkId>> block : blocks.entrySet()) {
+			for (List<MeshChunkId> members : splitRectangles(block.getKey().getSecond(), block.getValue())) {
+				double minX = Double.POSITIVE_INFINITY;
+				double minY = Double.POSITIVE_INFINITY;
+				double maxX = Double.NEGATIVE_INFINITY;
+				double maxY = Double.NEGATIVE_INFINITY;
+				List<ChunkPosition> positions = new ArrayList<>(members.size());
+				List<CancellationToken> memberTokens = new ArrayList<>(members.size());
+				for (MeshChunkId id : members) {
+					memberTokens.add(tokens.get(id.getPosition()));
+					ChunkPosition pos = id.getPosition();
+					minX = Math.min(minX, pos.getX());
+					minY = Math.min(minY, pos.getY());
+					maxX = Math.max(maxX, pos.getX() + pos.getWidth());
+					maxY = Math.max(maxY, pos.getY() + pos.getHeight());
+					positions.add(pos);
+				}
+				ChunkPosition region = new ChunkPosition(minX, minY, maxX - minX, maxY - minY);
+				if (members.size() == 1 || regions.containsKey(region)) {
+					for (MeshChunkId id : members) {
+						req.put(id.asExtraBorderChunkId(Settings.CHUNK_VERTEX_BORDER), tokens.get(id.getPosition()));
 					}
+					continue;
+				}
+				regions.put(region, positions);
+				// The region is only cancelled once all of its chunks are unloaded.
+				req.put(new ChunkId(
+						region.transformedAddBorder(Settings.CHUNK_VERTEX_BORDER),
+						block.getKey().getFirst()),
+						CancellationToken.allOf(memberTokens));
+			}
+		}
+		return req;
+	}
+	
+	/**
+	 * Splits the ids within an aligned block into rectangles, such that the bounding box of
+	 * every rectangle contains exactly the chunks of the ids of the rectangle. The ids of every
+	 * row of the block are split into runs of neighbouring chunks, and the runs spanning the
+	 * same columns in consecutive rows are merged.
+	 * 
+	 * @param block The aligned block containing the ids.
+	 * @param ids   The ids within the block, which all have the same size.
+	 * 
+	 * @return The ids of every rectangle.
+	 */
+	static List<List<MeshChunkId>> splitRectangles(ChunkPosition block, List<MeshChunkId> ids) {
+		final ChunkPosition first = ids.get(0).getPosition();
+		final int width = (int) Math.round(block.getWidth() / first.getWidth());
+		final int height = (int) Math.round(block.getHeight() / first.getHeight());
+		final MeshChunkId[][] grid = new MeshChunkId[height][width];
+		for (MeshChunkId id : ids) {
+			ChunkPosition pos = id.getPosition();
+			int x = (int) Math.round((pos.getX() - block.getX()) / pos.getWidth());
+			int z = (int) Math.round((pos.getY() - block.getY()) / pos.getHeight());
+			grid[z][x] = id;
+		}
+		
+		List<List<MeshChunkId>> rectangles = new ArrayList<>();
+		// The rectangles which can be extended by the next row, keyed by the columns they span.
+		Map<Integer, List<MeshChunkId>> open = new HashMap<>();
+		for (int z = 0; z < height; z++) {
+			Map<Integer, List<MeshChunkId>> next = new HashMap<>();
+			int x = 0;
+			while (x < width) {
+				if (grid[z][x] == null) {
+					x++;
+					continue;
 				}
+				int begin = x;
+				while (x < width && grid[z][x] != null) x++;
+				int columns = begin * (width + 1) + x;
+				List<MeshChunkId> rectangle = open.remove(columns);
+				if (rectangle == null) rectangle = new ArrayList<>();
+				rectangle.addAll(Arrays.asList(grid[z]).subList(begin, x));
+				next.put(columns, rectangle);
+			}
+			rectangles.addAll(open.values());
+			open = next;
+		}
+		rectangles.addAll(open.values());
+		return rectangles;
+	}
+	
+	/**
+	 * Handles the data of a region requested by {@link #createRequests(Collection)}.
+	 * The chunks of the region which are still requested are generated together,
+	 * such that the border of neighbouring chunks is only processed once.
+	 * 
+	 * @param e         The chunk loaded event containing the data of the region.
+	 * @param region    The position of the region.
+	 * @param positions The positions of the chunks in the region.
+	 */
+	private void regionLoaded(ChartChunkLoadedEvent e, ChunkPosition region, List<ChunkPosition> positions) {
+		final QualityLevel quality = e.getChunk().getChunkId().getQuality();
+		final List<MeshChunkId> ids = new ArrayList<>(positions.size());
+		final List<CancellationToken> idTokens = new ArrayList<>(positions.size());
+		lock.lock();
+		try {
+			boolean needed = false;
+			for (ChunkPosition pos : positions) {
+				MeshChunkId reqId = requesting.get(pos);
+				if (reqId == null || quality.getOrder() < reqId.getQuality().getOrder()) {
+					// The chunk is not needed anymore, or already has a better quality.
+					continue;
+				}
+				MeshChunkId id = reqId.withQuality(quality);
+				if (quality == QualityLevel.getBest()) {
+					requesting.remove(pos);
+				} else {
+					requesting.put(pos, id.withQuality(quality.next()));
+					needed = true;
+				}
+				
+				deliver.add(id);
+				if (processing.add(id)) {
+					ids.add(id);
+					idTokens.add(tokens.getOrDefault(pos, CancellationToken.NONE));
+				} else {
+					LOGGER.info("The id '" + id + "' is already being processed. Ignoring current request.");
+				}
+			}
+			if (!needed) {
+				// No higher quality of the region will be needed anymore.
+				regions.remove(region);
 			}
 			
-			// Finish processing.
+		} finally {
+			lock.unlock();
+		}
+		if (ids.isEmpty()) {
+			LOGGER.info("Ignoring region '" + region + "' since it is not needed anymore.");
+			return;
+		}
+		
+		// Pre-process the region.
+		generateRegion(e, region, quality, ids, CancellationToken.allOf(idTokens));
+	}
+	
+	/**
+	 * Generates the meshes of the given chunks of a region from the data of the chart module.
+	 * Must be called after the ids have been added to {@link #processing}.
+	 * 
+	 * @param e       The chunk loaded event containing the data of the region.
+	 * @param region  The position of the region.
+	 * @param quality The quality level of the data.
+	 * @param ids     The ids of the chunks to generate.
+	 * @param token   The cancellation token of the chunks.
+	 */
+	private void generateRegion(
+			ChartChunkLoadedEvent e,
+			ChunkPosition region,
+			QualityLevel quality,
+			List<MeshChunkId> ids,
+			CancellationToken token) {
+		List<ChunkPosition> idPositions = ids.stream().map(MeshChunkId::getPosition).collect(Collectors.toList());
+		Settings.scheduler.submit(idPositions, quality, StageCpuTime.wrap(GENERATION_CPU, () -> {
+			// Check which chunks still need to be processed.
+			final long start = System.nanoTime();
+			final List<MeshChunkId> generate = new ArrayList<>(ids.size());
+			final List<ChunkPosition> crops = new ArrayList<>(ids.size());
+			final Map<ChunkPosition, HeightGrid> regionSeeds = new HashMap<>();
 			lock.lock();
 			try {
-				processing.remove(id);
-				// Check if the data still needs to be delivered again, and do so if needed.
-				if (deliver.remove(id)) {
-					eventBus.post(new ProcessorChunkLoadedEvent(new Chunk<>(
-							id,
-							data)));
+				for (MeshChunkId id : ids) {
+					if (!deliver.contains(id)) {
+						LOGGER.info("Ignoring " + id + " since it is no longer requested!");
+						processing.remove(id);
+						CancellationStats.cancelled(CancellationStats.Stage.GENERATION, 1);
+						continue;
+					}
+					generate.add(id);
+					crops.add(id.getPosition());
+					HeightGrid seed = seeds.get(id.getPosition());
+					if (seed != null) regionSeeds.put(id.getPosition(), seed);
 				}
 			} finally {
 				lock.unlock();
 			}
+			if (generate.isEmpty()) return;
+			
+			// Process the data.
+			List<MeshChunkData> data;
+			try {
+				Chunk<ChunkId, PointData> chunk = new Chunk<>(
+						new ChunkId(region.addBorder(Settings.CHUNK_VERTEX_BORDER), quality),
+						e.getChunk().getData()
+				);
+				Generator<ChunkId, PointData> generator = Generator.<ChunkId, PointData>createGeneratorFor(quality)
+						.withCancellation(token);
+				data = generator.generateRegionChunkData(
+						chunk, region, crops, HeightGrid.merge(region, regionSeeds));
+				
+			} catch (CancellationException ex) {
+				LOGGER.info("Cancelled the generation of region '" + region + "' since it is no longer requested!");
+				CancellationStats.cancelled(CancellationStats.Stage.GENERATION, start, generate.size());
+				Map<MeshChunkId, CancellationToken> retry = releaseCancelled(generate);
+				if (!retry.isEmpty()) {
+					generateRegion(e, region, quality,
+							new ArrayList<>(retry.keySet()),
+							CancellationToken.allOf(retry.values()));
+				}
+				return;
+				
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				lock.lock();
+				try {
+					processing.removeAll(generate);
+				} finally {
+					lock.unlock();
+				}
+				throw ex;
+			}
+			
+			REGION_LATENCY[quality.ordinal()].recordSince(start);
+			for (int i = 0; i < generate.size(); i++) {
+				finishChunk(generate.get(i), data.get(i));
+			}
+			CancellationStats.completed(CancellationStats.Stage.GENERATION, start, generate.size());
+		}), () -> {
+			// All chunks of the region were unloaded before they were processed.
+			// Generate the chunks which have been loaded again in the meantime anyway.
+			CancellationStats.cancelled(CancellationStats.Stage.GENERATION, ids.size());
+			Map<MeshChunkId, CancellationToken> retry = releaseCancelled(ids);
+			if (!retry.isEmpty()) {
+				generateRegion(e, region, quality,
+						new ArrayList<>(retry.keySet()),
+						CancellationToken.allOf(retry.values()));
+			}
 		});
 	}
 	
+	/**
+	 * Delivers the generated data of a chunk to the renderer if it is still needed,
+	 * stores it in the cache, and keeps its heights to seed the next quality level.
+	 * 
+	 * @param id   The id of the generated chunk.
+	 * @param data The generated data.
+	 */
+	private void finishChunk(MeshChunkId id, MeshChunkData data) {
+		lock.lock();
+		try {
+			// Remove the id from the deliver set and notify the renderer
+			// about the data if it is still needed.
+			if (deliver.remove(id)) {
+				eventBus.post(new ProcessorChunkLoadedEvent(new Chunk<>(
+						id,
+						data)));
+			}
+			
+		} finally {
+			lock.unlock();
+		}
+		
+		// Put the data in the cache.
+		WriteBackReadWriteCacheClaim<MeshChunkData> claim = cache.requestReadWriteClaim(id);
+		if (claim != null) {
+			// Cache new data.
+			claim.set(data);
+			if (!claim.isOnDisk()) claim.toDisk();
+			cache.releaseCacheClaim(claim);
+			
+			// Delete old data.
+			MeshChunkId mcId = id;
+			while (mcId.getQuality() != null && mcId.getQuality().getOrder() >= 0) {
+				mcId = mcId.withQuality(mcId.getQuality().prev());
+				claim = cache.requestReadWriteClaim(mcId);
+				if (claim != null) {
+					claim.delete();
+					cache.releaseCacheClaim(claim);
+				}
+			}
+		}
+		
+		// Finish processing.
+		// Keep the heights to seed the generation of the next quality level.
+		HeightGrid nextSeed = id.getQuality() == QualityLevel.getBest() ? null : HeightGrid.fromMesh(id, data);
+		lock.lock();
+		try {
+			processing.remove(id);
+			if (nextSeed != null && requesting.containsKey(id.getPosition())) {
+				seeds.put(id.getPosition(), nextSeed);
+			} else {
+				seeds.remove(id.getPosition());
+			}
+			// Check if the data still needs to be delivered again, and do so if needed.
+			if (deliver.remove(id)) {
+				eventBus.post(new ProcessorChunkLoadedEvent(new Chunk<>(
+						id,
+						data)));
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
 }
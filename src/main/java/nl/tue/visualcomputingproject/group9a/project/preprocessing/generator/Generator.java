@@ -1,10 +1,14 @@
 package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator;
 
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.HeightGrid;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.ScaleGridTransform;
 import org.joml.Vector3d;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * The generator used to pre-process a raw data chunk with point data.
@@ -14,6 +18,23 @@ import java.util.Iterator;
 public abstract class Generator<ID extends ChunkId, T extends PointData> {
 	/** The height threshold for the points. */
 	public static final double HEIGHT_THRESHOLD = 1_000;
+	
+	/** The token checked at the checkpoints of the generation. */
+	protected CancellationToken token = CancellationToken.NONE;
+
+	/**
+	 * Sets the token of the request of the generated chunk. The generation is aborted
+	 * with a {@link java.util.concurrent.CancellationException} at the next checkpoint
+	 * after the token has been cancelled.
+	 * 
+	 * @param token The cancellation token.
+	 * 
+	 * @return This generator.
+	 */
+	public Generator<ID, T> withCancellation(CancellationToken token) {
+		this.token = token;
+		return this;
+	}
 
 	/**
 	 * Generates the mesh data chunk.
@@ -24,6 +45,63 @@ public abstract class Generator<ID extends ChunkId, T extends PointData> {
 	 */
 	public abstract MeshChunkData generateChunkData(Chunk<ID, ? extends T> chunk, ChunkPosition crop);
 
+	/**
+	 * Generates the mesh data chunk using the heights of a lower quality level
+	 * of the same chunk as initial estimate. Generators which cannot make use
+	 * of the seed ignore it.
+	 *
+	 * @param chunk The raw data chunk.
+	 * @param crop  The crop of the chunk.
+	 * @param seed  The heights of a lower quality level, or {@code null} if not available.
+	 *
+	 * @return A data chunk containing a vertex buffer and a mesh of the processed data.
+	 */
+	public MeshChunkData generateChunkData(Chunk<ID, ? extends T> chunk, ChunkPosition crop, HeightGrid seed) {
+		return generateChunkData(chunk, crop);
+	}
+
+	/**
+	 * Quickly generates an interim mesh data chunk, which can be shown while
+	 * {@link #generateChunkData(Chunk, ChunkPosition, HeightGrid)} is still running.
+	 *
+	 * @param chunk The raw data chunk.
+	 * @param crop  The crop of the chunk.
+	 * @param seed  The heights of a lower quality level.
+	 *
+	 * @return A data chunk containing a vertex buffer and a mesh of the roughly
+	 *     processed data, or {@code null} if the generator does not support interim meshes.
+	 */
+	public MeshChunkData generateInterimChunkData(Chunk<ID, ? extends T> chunk, ChunkPosition crop, HeightGrid seed) {
+		return null;
+	}
+
+	/**
+	 * Generates the mesh data chunks of several neighbouring chunks from the raw data of a
+	 * region containing all of them. Generators which support this process the region once,
+	 * such that the borders of neighbouring chunks do not have to be processed twice and match.
+	 * The default implementation generates every chunk separately without seed.
+	 *
+	 * @param chunk  The raw data chunk of the region.
+	 * @param region The crop of the region, containing all chunks.
+	 * @param crops  The crops of the chunks to generate.
+	 * @param seed   The heights of a lower quality level in the local coordinates of the region,
+	 *               or {@code null} if not available.
+	 *
+	 * @return The data chunks of the given crops, in the same order.
+	 */
+	public List<MeshChunkData> generateRegionChunkData(
+			Chunk<ID, ? extends T> chunk,
+			ChunkPosition region,
+			List<ChunkPosition> crops,
+			HeightGrid seed) {
+		List<MeshChunkData> data = new ArrayList<>(crops.size());
+		for (ChunkPosition crop : crops) {
+			token.checkpoint();
+			data.add(generateChunkData(chunk, crop));
+		}
+		return data;
+	}
+
 	/**
 	 * Creates a generator based on the quality level.
 	 * 
@@ -69,6 +147,56 @@ public abstract class Generator<ID extends ChunkId, T extends PointData> {
 		return rtn;
 	}
 	
+	/**
+	 * Allocation free variant of {@link #upProjection(Vector3d, Vector3d)}, which adds the
+	 * up projection of the line {@code target -> source} scaled by the length of that line
+	 * to {@code dest}. This is a single term of {@link #generateWLSNormalFor(Vector3d, Iterator)}.
+	 *
+	 * @param sx   The x-coordinate of the source vertex.
+	 * @param sy   The y-coordinate of the source vertex.
+	 * @param sz   The z-coordinate of the source vertex.
+	 * @param tx   The x-coordinate of the target vertex.
+	 * @param ty   The y-coordinate of the target vertex.
+	 * @param tz   The z-coordinate of the target vertex.
+	 * @param dest The vector to add the term to.
+	 */
+	public static void addWLSNormalTerm(
+			double sx, double sy, double sz,
+			double tx, double ty, double tz,
+			Vector3d dest) {
+		double x = sx - tx;
+		double y = sy - ty;
+		double z = sz - tz;
+		double dist2 = x*x + y*y + z*z;
+		double dotOverDist = y / dist2;
+		double rx = 0 - x*dotOverDist;
+		double ry = 1 - y*dotOverDist;
+		double rz = 0 - z*dotOverDist;
+		double div = Math.sqrt(ry);
+		double dist = Math.sqrt(dist2);
+		dest.add(rx / div * dist, ry / div * dist, rz / div * dist);
+	}
+
+	/**
+	 * Finalizes a normal accumulated using {@link #addWLSNormalTerm(double, double, double, double, double, double, Vector3d)}.
+	 *
+	 * @param normal       The accumulated normal. Will be normalized in place.
+	 * @param hasNeighbors Whether any term was added to the normal.
+	 *
+	 * @return The given normal.
+	 */
+	public static Vector3d finishWLSNormal(Vector3d normal, boolean hasNeighbors) {
+		if (!hasNeighbors) {
+			return normal.set(0, 1, 0);
+		}
+		if (normal.x == 0 && normal.y == 0 && normal.z == 0) {
+			normal.y = 1;
+		} else {
+			normal.normalize();
+		}
+		return normal;
+	}
+
 	public static Vector3d generateWLSNormalFor(Vector3d point, Iterator<Vector3d> neighbors) {
 		if (!neighbors.hasNext()) {
 			return new Vector3d(0, 1, 0);
@@ -90,10 +218,27 @@ public abstract class Generator<ID extends ChunkId, T extends PointData> {
 	protected static ChunkPosition refineCrop(
 			ChunkPosition crop,
 			ScaleGridTransform transform) {
+		return refineCrop(crop, crop, transform);
+	}
+
+	/**
+	 * Converts the given crop to the local coordinates of the given region,
+	 * and extends it by one cell on every side.
+	 *
+	 * @param crop      The crop to refine.
+	 * @param region    The region whose corner is the origin of the local coordinates.
+	 * @param transform The transform of the grid.
+	 *
+	 * @return The refined crop in the local coordinates of the region.
+	 */
+	protected static ChunkPosition refineCrop(
+			ChunkPosition crop,
+			ChunkPosition region,
+			ScaleGridTransform transform) {
 		double dx = transform.getScaleX();
 		double dz = transform.getScaleZ();
 		return new ChunkPosition(
-				-dx, -dz,
+				crop.getX() - region.getX() - dx, crop.getY() - region.getY() - dz,
 				crop.getWidth() + 2*dx, crop.getHeight() + 2*dz
 		);
 	}
@@ -3,6 +3,7 @@ package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator;
 import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
 import nl.tue.visualcomputingproject.group9a.project.common.util.FunctionIterator;
+import nl.tue.visualcomputingproject.group9a.project.common.util.GeneratorIterator;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.buffer_manager.VertexBufferManager;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.mesh.FullMeshGenerator;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.*;
@@ -16,6 +17,7 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 public class RIMLSGenerator<ID extends ChunkId, T extends PointData>
@@ -52,6 +54,152 @@ public class RIMLSGenerator<ID extends ChunkId, T extends PointData>
 		return px.mul(-8*val / h2, new Vector3d());
 	};
 	
+	/** The pool used to process a single chunk in parallel, or {@code null} to process it serially. */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates a new generator using the pool from {@link Settings#generatorPool}.
+	 */
+	public RIMLSGenerator() {
+		this(Settings.generatorPool);
+	}
+
+	/**
+	 * Creates a new generator.
+	 * The output does not depend on the given pool.
+	 *
+	 * @param pool The pool used to process a single chunk in parallel,
+	 *     or {@code null} to process it serially.
+	 */
+	public RIMLSGenerator(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Creates a deep copy of the positions and normals of the given store.
+	 * 
+	 * @param store The store to copy.
+	 * @param pos   The position of the chunk.
+	 *
+	 * @return A copy of the given store.
+	 */
+	private Store<PointNormalIndexData> snapshot(Store<PointNormalIndexData> store, ChunkPosition pos) {
+		Store<PointNormalIndexData> snapshot = new ArrayStore<>(pos, store.getTransform());
+		RowBands.forEachRow(pool, store.getHeight(), z -> {
+			for (int x = 0; x < store.getWidth(); x++) {
+				StoreElement<PointNormalIndexData> elem = store.get(x, z);
+				if (elem == null) continue;
+				StoreElement<PointNormalIndexData> copy = new StoreElement<>();
+				for (PointNormalIndexData data : elem) {
+					copy.add(new PointNormalIndexData(
+							new Vector3d(data.getVec()),
+							new Vector3d(data.getNormal())));
+				}
+				snapshot.set(x, z, copy);
+			}
+		});
+		return snapshot;
+	}
+
+	/**
+	 * Creates an iterator over the neighbors of a point in the snapshot, excluding the point itself.
+	 */
+	private static Iterator<PointNormalIndexData> neighborsOf(
+			Store<PointNormalIndexData> snapshot,
+			PointNormalIndexData self,
+			Vector3d x,
+			int xCoord, int zCoord,
+			double dist) {
+		final Iterator<PointNormalIndexData> it = snapshot.neighborIteratorOf(x, xCoord, zCoord, dist);
+		return new GeneratorIterator<PointNormalIndexData>() {
+			@Override
+			protected PointNormalIndexData generateNext() {
+				while (it.hasNext()) {
+					PointNormalIndexData neighbor = it.next();
+					if (neighbor != self) return neighbor;
+				}
+				done();
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Projects a single point onto the RIMLS surface defined by the snapshot.
+	 * 
+	 * @param snapshot The snapshot containing the positions and normals before the projection.
+	 * @param pni      The point to project. Its position and normal are updated.
+	 * @param self     The copy of the point in the snapshot.
+	 * @param xCoord   The x-coordinate of the cell of the point.
+	 * @param zCoord   The z-coordinate of the cell of the point.
+	 * @param dist     The maximum distance of the neighbors.
+	 */
+	private static void project(
+			Store<PointNormalIndexData> snapshot,
+			PointNormalIndexData pni,
+			PointNormalIndexData self,
+			int xCoord, int zCoord,
+			double dist) {
+		Vector3d diff;
+		int diffIterRem = MAX_DIFF_ITERATIONS;
+		do {
+			double f = 0;
+			Vector3d gradF = new Vector3d();
+			Vector3d x = pni.getVec();
+
+			for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
+				Iterator<PointNormalIndexData> it = neighborsOf(snapshot, self, x, xCoord, zCoord, dist);
+				if (!it.hasNext()) break;
+
+				double sumW, sumF;
+				sumW = sumF = 0;
+				Vector3d sumGw = new Vector3d();
+				Vector3d sumGF = new Vector3d();
+				Vector3d sumN = new Vector3d();
+				while (it.hasNext()) {
+					PointNormalIndexData neighbor = it.next();
+					Vector3d p = neighbor.getVec();
+					Vector3d pNormal = neighbor.getNormal();
+					Vector3d px = x.sub(p, new Vector3d());
+					double fx = px.dot(pNormal);
+
+					double alpha = 1;
+					if (iter > 0) {
+						double v1 = (fx - f) / SIGMA_R;
+						double v2 = pNormal.distanceSquared(gradF) / (SIGMA_N * SIGMA_N);
+						alpha = Math.exp(-v1 * v1 - v2);
+					}
+
+//					double w = alpha * phi.apply(px);
+//					Vector3d gradW = dPhi.apply(px).mul(alpha);
+					double pxLengthSquared = px.lengthSquared();
+					double w = alpha * phiD2.apply(pxLengthSquared);
+					Vector3d gradW = px.mul(dPhiD2.apply(pxLengthSquared)).mul(2 * alpha);
+
+					sumW += w;
+					sumGw.add(gradW);
+					sumF += w * fx;
+					sumGF.add(gradW.mul(fx, new Vector3d()));
+					sumN.add(pNormal.mul(w, new Vector3d()));
+				}
+				if (sumW == 0) {
+					break;
+				}
+				f = sumF / sumW;
+				gradF = sumGw.mul(-f, new Vector3d()).add(sumGF).add(sumN).div(sumW);
+			}
+			diff = gradF.mul(f, new Vector3d());
+			diff.x = Math.max(-0.1, Math.min(diff.x, 0.1));
+			diff.z = Math.max(-0.1, Math.min(diff.z, 0.1));
+			x.sub(diff);
+			Iterator<Vector3d> neighbors = new FunctionIterator<>(
+					neighborsOf(snapshot, self, x, xCoord, zCoord, dist),
+					PointIndexData::getVec
+			);
+			pni.setNormal(Generator.generateWLSNormalFor(x, neighbors));
+		} while (diff.lengthSquared() > 0.1 && --diffIterRem > 0);
+	}
+	
 	@Override
 	public MeshChunkData generateChunkData(Chunk<ID, ? extends T> chunk, ChunkPosition crop) {
 		ChunkPosition pos = chunk.getPosition();
@@ -65,6 +213,7 @@ public class RIMLSGenerator<ID extends ChunkId, T extends PointData>
 				PointNormalIndexData::new
 		);
 		LOGGER.info("Loaded " + numLoaded + " points.");
+		token.checkpoint();
 		PreProcessing.fillNullPoints(
 				store,
 				PointNormalIndexData::new
@@ -83,78 +232,29 @@ public class RIMLSGenerator<ID extends ChunkId, T extends PointData>
 			store = newStore;
 		}
 
-		Store.genWLSNormals(store, dist);
+		token.checkpoint();
+		Store.genWLSNormals(store, dist, pool);
 
-		for (int zCoord = 0; zCoord < store.getHeight(); zCoord++) {
-			for (int xCoord = 0; xCoord < store.getWidth(); xCoord++) {
-				StoreElement<PointNormalIndexData> elem = store.get(xCoord, zCoord);
+		// Project the points onto the surface. Every point is projected using the positions
+		// and normals before the projection, so the result does not depend on the order
+		// in which the points are processed. This allows processing the rows in parallel.
+		final Store<PointNormalIndexData> target = store;
+		final Store<PointNormalIndexData> snapshot = snapshot(store, pos);
+		RowBands.forEachRow(pool, target.getHeight(), zCoord -> {
+			token.checkpoint();
+			for (int xCoord = 0; xCoord < target.getWidth(); xCoord++) {
+				StoreElement<PointNormalIndexData> elem = target.get(xCoord, zCoord);
 				if (elem == null) continue;
-				
-				for (PointNormalIndexData pni : elem) {
-					Vector3d diff;
-					int diffIterRem = MAX_DIFF_ITERATIONS;
-					do {
-						double f = 0;
-						Vector3d gradF = new Vector3d();
-						Vector3d x = pni.getVec();
-
-						for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
-							Iterator<PointNormalIndexData> it = store.neighborIteratorOf(x, xCoord, zCoord, dist);
-							if (!it.hasNext()) break;
-
-							double sumW, sumF;
-							sumW = sumF = 0;
-							Vector3d sumGw = new Vector3d();
-							Vector3d sumGF = new Vector3d();
-							Vector3d sumN = new Vector3d();
-							while (it.hasNext()) {
-								PointNormalIndexData neighbor = it.next();
-								Vector3d p = neighbor.getVec();
-								Vector3d pNormal = neighbor.getNormal();
-								Vector3d px = x.sub(p, new Vector3d());
-								double fx = px.dot(pNormal);
-
-								double alpha = 1;
-								if (iter > 0) {
-									double v1 = (fx - f) / SIGMA_R;
-									double v2 = pNormal.distanceSquared(gradF) / (SIGMA_N * SIGMA_N);
-									alpha = Math.exp(-v1 * v1 - v2);
-								}
-
-//								double w = alpha * phi.apply(px);
-//								Vector3d gradW = dPhi.apply(px).mul(alpha);
-						   		double pxLengthSquared = px.lengthSquared();
-								double w = alpha * phiD2.apply(pxLengthSquared);
-								Vector3d gradW = px.mul(dPhiD2.apply(pxLengthSquared)).mul(2 * alpha);
-
-								sumW += w;
-								sumGw.add(gradW);
-								sumF += w * fx;
-								sumGF.add(gradW.mul(fx, new Vector3d()));
-								sumN.add(pNormal.mul(w, new Vector3d()));
-							}
-							if (sumW == 0) {
-								break;
-							}
-							f = sumF / sumW;
-							gradF = sumGw.mul(-f, new Vector3d()).add(sumGF).add(sumN).div(sumW);
-						}
-						diff = gradF.mul(f, new Vector3d());
-						diff.x = Math.max(-0.1, Math.min(diff.x, 0.1));
-						diff.z = Math.max(-0.1, Math.min(diff.z, 0.1));
-						x.sub(diff);
-						Iterator<Vector3d> neighbors = new FunctionIterator<>(
-								new NeighborIterator<>(x, store, xCoord, zCoord, dist, scaleDist, true),
-								PointIndexData::getVec
-						);
-						pni.setNormal(Generator.generateWLSNormalFor(x, neighbors));
-					} while (diff.lengthSquared() > 0.1 && --diffIterRem > 0);
+				StoreElement<PointNormalIndexData> prevElem = snapshot.get(xCoord, zCoord);
+				for (int i = 0; i < elem.size(); i++) {
+					project(snapshot, elem.get(i), prevElem.get(i), xCoord, zCoord, dist);
 				}
 			}
-		}
+		});
 
 		// Recompute normals
-		Store.genWLSNormals(store, transform.getScaleX() * 1.5);
+		token.checkpoint();
+		Store.genWLSNormals(store, transform.getScaleX() * 1.5, pool);
 		
 		// Create vertex buffer.
 		FullMeshGenerator.preprocess(store);
@@ -4,9 +4,7 @@ import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.buffer_manager.VertexBufferManager;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.mesh.FullMeshGenerator;
-import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.ArrayStore;
-import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PointIndexData;
-import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.Store;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PrimitiveStore;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.GridTransform;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.ScaleGridTransform;
 import org.joml.Vector2f;
@@ -21,12 +19,8 @@ public class RawGenerator<ID extends ChunkId, T extends PointData>
 		ScaleGridTransform transform = GridTransform.createTransformFor(chunk, crop);
 		Vector3d offset = new Vector3d(crop.getX(), 0, crop.getY());
 		crop = refineCrop(crop, transform);
-		Store<PointIndexData> store = new ArrayStore<>(pos, transform);
-		store.addPoints(
-				offset,
-				chunk.getData().getVector3D(),
-				PointIndexData::new
-		);
+		PrimitiveStore store = new PrimitiveStore(pos, transform);
+		store.addPoints(offset, chunk.getData());
 
 		// Create vertex buffer.
 		VertexBufferManager vertexManager = VertexBufferManager.createManagerFor(
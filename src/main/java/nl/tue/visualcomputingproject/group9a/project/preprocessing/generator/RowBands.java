@@ -0,0 +1,71 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator;
+
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.StageCpuTime;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Utility class for processing the rows of a grid in parallel.
+ * The rows are recursively split into bands using fork/join until the bands
+ * are small enough to be processed by a single task.
+ */
+public final class RowBands {
+	/** The maximum number of rows processed by a single task. */
+	private static final int BAND_SIZE = 8;
+
+	// Disallow instantiation.
+	private RowBands() {
+	}
+
+	/**
+	 * Task processing a band of rows.
+	 */
+	private static class BandTask
+			extends RecursiveAction {
+		private final IntConsumer function;
+		private final int begin;
+		private final int end;
+
+		private BandTask(IntConsumer function, int begin, int end) {
+			this.function = function;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - begin <= BAND_SIZE) {
+				for (int z = begin; z < end; z++) {
+					function.accept(z);
+				}
+			} else {
+				int mid = (begin + end) >>> 1;
+				invokeAll(new BandTask(function, begin, mid), new BandTask(function, mid, end));
+			}
+		}
+	}
+
+	/**
+	 * Applies the given function to each row {@code 0 <= z < height}.
+	 * The function must only modify the data of the row it was invoked with.
+	 * If no pool is given, then the rows are processed serially in increasing order.
+	 * The CPU time spent by the pool workers is added to the stage of the calling thread,
+	 * see {@link StageCpuTime#forked(IntConsumer)}.
+	 *
+	 * @param pool     The pool to run the tasks in, or {@code null} to run serially.
+	 * @param height   The number of rows.
+	 * @param function The function to apply to each row.
+	 */
+	public static void forEachRow(ForkJoinPool pool, int height, IntConsumer function) {
+		if (pool == null || pool.getParallelism() <= 1) {
+			for (int z = 0; z < height; z++) {
+				function.accept(z);
+			}
+		} else {
+			pool.invoke(new BandTask(StageCpuTime.forked(function), 0, height));
+		}
+	}
+
+}
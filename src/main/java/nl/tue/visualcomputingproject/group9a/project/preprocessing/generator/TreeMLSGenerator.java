@@ -4,9 +4,8 @@ import nl.tue.visualcomputingproject.group9a.project.common.Settings;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.buffer_manager.VertexBufferManager;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.mesh.FullMeshGenerator;
-import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.ArrayStore;
-import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PointIndexData;
-import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.Store;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.HeightGrid;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PrimitiveStore;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.pre_processing.PreProcessing;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.GridTransform;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.ScaleGridTransform;
@@ -26,36 +25,114 @@ public class TreeMLSGenerator<ID extends ChunkId, T extends PointData>
 	
 	@Override
 	public MeshChunkData generateChunkData(Chunk<ID, ? extends T> chunk, ChunkPosition crop) {
-		ChunkPosition pos = chunk.getPosition();
+		return generateChunkData(chunk, crop, null);
+	}
+	
+	@Override
+	public MeshChunkData generateChunkData(Chunk<ID, ? extends T> chunk, ChunkPosition crop, HeightGrid seed) {
+		return generate(chunk, crop, seed, chunk.getQualityLevel().getOrder() >= QualityLevel.HALF_BY_HALF.getOrder());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <br>
+	 * The interim mesh contains the raw points of the chunk, where the holes
+	 * are filled using the seed. The tree smoothing step is skipped.
+	 */
+	@Override
+	public MeshChunkData generateInterimChunkData(Chunk<ID, ? extends T> chunk, ChunkPosition crop, HeightGrid seed) {
+		return generate(chunk, crop, seed, false);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <br>
+	 * The points of the whole region are filled and smoothed in a single store,
+	 * which is then sliced into the vertex buffers and meshes of the separate chunks.
+	 * The normals near the borders of the chunks take the points of the neighbouring
+	 * chunks into account, so the chunks connect without seams.
+	 */
+	@Override
+	public List<MeshChunkData> generateRegionChunkData(
+			Chunk<ID, ? extends T> chunk,
+			ChunkPosition region,
+			List<ChunkPosition> crops,
+			HeightGrid seed) {
+		ScaleGridTransform transform = GridTransform.createTransformFor(chunk, region);
+		PrimitiveStore store = createStore(chunk, region, transform, seed,
+				chunk.getQualityLevel().getOrder() >= QualityLevel.HALF_BY_HALF.getOrder());
+		
+		List<MeshChunkData> data = new ArrayList<>(crops.size());
+		for (ChunkPosition crop : crops) {
+			token.checkpoint();
+			data.add(createMeshData(
+					store, chunk,
+					refineCrop(crop, region, transform),
+					crop.getX() - region.getX(),
+					crop.getY() - region.getY(),
+					crop));
+		}
+		return data;
+	}
+	
+	private MeshChunkData generate(
+			Chunk<ID, ? extends T> chunk,
+			ChunkPosition crop,
+			HeightGrid seed,
+			boolean smoothTrees) {
 		ScaleGridTransform transform = GridTransform.createTransformFor(chunk, crop);
+		PrimitiveStore store = createStore(chunk, crop, transform, seed, smoothTrees);
+		return createMeshData(store, chunk, refineCrop(crop, transform), 0, 0, crop);
+	}
+
+	/**
+	 * Creates a store containing the points of the chunk in the local coordinates of the
+	 * given crop, where the holes are filled and the trees are optionally smoothed.
+	 */
+	private PrimitiveStore createStore(
+			Chunk<ID, ? extends T> chunk,
+			ChunkPosition crop,
+			ScaleGridTransform transform,
+			HeightGrid seed,
+			boolean smoothTrees) {
 		Vector3d offset = new Vector3d(crop.getX(), 0, crop.getY());
-		crop = refineCrop(crop, transform);
-		Store<PointIndexData> store = new ArrayStore<>(pos, transform);
-		store.addPoints(
-				offset,
-				chunk.getData().getVector3D(),
-				PointIndexData::new
-		);
+		PrimitiveStore store = new PrimitiveStore(chunk.getPosition(), transform);
+		store.addPoints(offset, chunk.getData());
 
+		token.checkpoint();
 		FullMeshGenerator.preprocess(store);
-		PreProcessing.fillNullPoints(store, PointIndexData::new);
+		PreProcessing.fillNullPoints(store, seed);
 		
-		if (chunk.getQualityLevel().getOrder() >= QualityLevel.HALF_BY_HALF.getOrder()) {
-			Store<PointIndexData> newStore = new ArrayStore<>(pos, transform);
-			PreProcessing.treeSmoothing2(store, newStore, PointIndexData::new);
-			store = newStore;
+		if (smoothTrees) {
+			token.checkpoint();
+			PreProcessing.treeSmoothing2(store, seed);
 		}
-		
+		token.checkpoint();
+		return store;
+	}
+
+	/**
+	 * Creates the vertex buffer and mesh of the points of the store within the local crop.
+	 * The vertices are stored relative to {@code (originX, originZ)}, which is the corner
+	 * of the given chunk crop in the local coordinates of the store.
+	 */
+	private MeshChunkData createMeshData(
+			PrimitiveStore store,
+			Chunk<ID, ? extends T> chunk,
+			ChunkPosition localCrop,
+			double originX,
+			double originZ,
+			ChunkPosition crop) {
 		// Create vertex buffer.
 		VertexBufferManager vertexManager = VertexBufferManager.createManagerFor(
-				Settings.VERTEX_TYPE, store.countCropped(crop)
+				Settings.VERTEX_TYPE, store.countCropped(localCrop)
 		);
-		store.addToVertexManagerGenWLSNormals(vertexManager, crop);
+		store.addToVertexManagerGenWLSNormals(vertexManager, localCrop, originX, originZ);
 
 		return new MeshChunkData(
 				vertexManager.finalizeBuffer(),
-				FullMeshGenerator.generateMesh(store, chunk, crop, false),
-				new Vector2f((float) offset.x(), (float) offset.z()));
+				FullMeshGenerator.generateMesh(store, chunk, localCrop, false),
+				new Vector2f((float) crop.getX(), (float) crop.getY()));
 	}
 	
 }
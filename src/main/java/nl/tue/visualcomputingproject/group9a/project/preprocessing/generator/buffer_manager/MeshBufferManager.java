@@ -20,6 +20,31 @@ public interface MeshBufferManager
 	 */
 	void add(int... indices);
 
+	/**
+	 * Adds a triangle to the buffer.
+	 * Equivalent to {@code add(new int[] {i0, i1, i2})}, but without allocating an array.
+	 *
+	 * @param i0 The first index of the face.
+	 * @param i1 The second index of the face.
+	 * @param i2 The third index of the face.
+	 */
+	default void add(int i0, int i1, int i2) {
+		add(new int[] {i0, i1, i2});
+	}
+
+	/**
+	 * Adds a quad to the buffer.
+	 * Equivalent to {@code add(new int[] {i0, i1, i2, i3})}, but without allocating an array.
+	 *
+	 * @param i0 The first index of the face.
+	 * @param i1 The second index of the face.
+	 * @param i2 The third index of the face.
+	 * @param i3 The fourth index of the face.
+	 */
+	default void add(int i0, int i1, int i2, int i3) {
+		add(new int[] {i0, i1, i2, i3});
+	}
+
 	/**
 	 * Finalizes the buffer for reading and returns it as an {@link IntBuffer}.
 	 * Both this method as well as {@link #finalizeBuffer()} should
@@ -61,6 +61,32 @@ public class MeshIntBufferManager
 		size++;
 	}
 
+	@Override
+	public void add(int i0, int i1, int i2) {
+		if (vertexCount != 3) {
+			throw new IllegalArgumentException("Invalid number of indices!");
+		}
+		if (reversed) {
+			intBuffer.put(i2).put(i1).put(i0);
+		} else {
+			intBuffer.put(i0).put(i1).put(i2);
+		}
+		size++;
+	}
+
+	@Override
+	public void add(int i0, int i1, int i2, int i3) {
+		if (vertexCount != 4) {
+			throw new IllegalArgumentException("Invalid number of indices!");
+		}
+		if (reversed) {
+			intBuffer.put(i3).put(i2).put(i1).put(i0);
+		} else {
+			intBuffer.put(i0).put(i1).put(i2).put(i3);
+		}
+		size++;
+	}
+
 	@Override
 	public IntBuffer finalizeIntBuffer() {
 		intBuffer.position(0);
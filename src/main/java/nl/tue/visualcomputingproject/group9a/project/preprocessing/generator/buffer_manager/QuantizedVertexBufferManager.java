@@ -0,0 +1,152 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.buffer_manager;
+
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.Counter;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import org.joml.Vector3f;
+import org.lwjgl.BufferUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static nl.tue.visualcomputingproject.group9a.project.common.chunk.VertexBufferType.*;
+
+/**
+ * Buffer manager class for managing an interleaved quantized vertex buffer. <br>
+ * <br>
+ * Every vertex takes 8 bytes instead of 24: the coordinates are stored as unsigned
+ * 16-bit fixed point numbers, and the normal is stored in octahedral encoding as two
+ * signed bytes. Coordinates outside the representable range are clamped, which is
+ * logged when the buffer is finalized and counted in the {@code preprocessing.quantized.clamped}
+ * counter of the {@link MetricsRegistry}.
+ *
+ * @see nl.tue.visualcomputingproject.group9a.project.common.chunk.VertexBufferType#INTERLEAVED_QUANTIZED_VERTEX_3_SHORT_NORMAL_2_BYTE
+ */
+public class QuantizedVertexBufferManager
+		implements VertexBufferManager {
+	/** The logger object of this class. */
+	static private final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The number of coordinates clamped to the quantized range. */
+	private static final Counter CLAMPED = MetricsRegistry.counter("preprocessing.quantized.clamped");
+	/** The number of bytes per vertex. */
+	private static final int VERTEX_SIZE = INTERLEAVED_QUANTIZED_VERTEX_3_SHORT_NORMAL_2_BYTE.getVertexSize();
+	/** The maximum value of an unsigned short. */
+	private static final int MAX_SHORT = 0xFFFF;
+	/** The maximum value of a normalized signed byte. */
+	private static final int MAX_BYTE = Byte.MAX_VALUE;
+
+	/** The buffer used to write data to. */
+	private final ByteBuffer byteBuffer;
+
+	/** The current amount of elements in the buffer. */
+	private int size = 0;
+	/** The number of coordinates in the buffer which have been clamped. */
+	private int clamped = 0;
+
+	/**
+	 * Creates a new vertex buffer manager.
+	 * Notice that adding more than {@code numVertices} elements will cause
+	 * a {@link java.nio.BufferOverflowException}.
+	 *
+	 * @param numVertices The maximum number of elements in the buffer.
+	 */
+	public QuantizedVertexBufferManager(int numVertices) {
+		byteBuffer = BufferUtils.createByteBuffer(VERTEX_SIZE * numVertices);
+	}
+
+	@Override
+	public int addVertex(double vx, double vy, double vz,
+						 double nx, double ny, double nz) {
+		byteBuffer.putShort(quantize(vx, QUANTIZED_XZ_OFFSET, QUANTIZED_XZ_SCALE));
+		byteBuffer.putShort(quantize(vy, QUANTIZED_Y_OFFSET, QUANTIZED_Y_SCALE));
+		byteBuffer.putShort(quantize(vz, QUANTIZED_XZ_OFFSET, QUANTIZED_XZ_SCALE));
+
+		// Project the normal on the octahedron |x| + |y| + |z| = 1, and fold
+		// the lower half over the upper half. The result is stored as (x, z).
+		double l = Math.abs(nx) + Math.abs(ny) + Math.abs(nz);
+		double ox = 0;
+		double oz = 0;
+		if (l > 0) {
+			ox = nx / l;
+			oz = nz / l;
+			if (ny < 0) {
+				double fx = (1 - Math.abs(oz)) * signNotZero(ox);
+				oz = (1 - Math.abs(ox)) * signNotZero(oz);
+				ox = fx;
+			}
+		}
+		byteBuffer.put((byte) Math.round(ox * MAX_BYTE));
+		byteBuffer.put((byte) Math.round(oz * MAX_BYTE));
+		return size++;
+	}
+
+	@Override
+	public int addVertex(float vx, float vy, float vz,
+						 float nx, float ny, float nz) {
+		return addVertex((double) vx, vy, vz, nx, ny, nz);
+	}
+
+	private short quantize(double v, float offset, float scale) {
+		long q = Math.round((v - offset) / scale);
+		if (q < 0 || q > MAX_SHORT) {
+			clamped++;
+			q = Math.max(0, Math.min(MAX_SHORT, q));
+		}
+		return (short) q;
+	}
+
+	private static double signNotZero(double v) {
+		return v >= 0 ? 1 : -1;
+	}
+
+	/**
+	 * Decodes the quantized vertices into a new buffer with the interleaved layout of
+	 * {@link nl.tue.visualcomputingproject.group9a.project.common.chunk.VertexBufferType#INTERLEAVED_VERTEX_3_FLOAT_NORMAL_3_FLOAT}.
+	 * The decoded coordinates and normals only have the precision of the quantized values.
+	 */
+	@Override
+	@Deprecated
+	public FloatBuffer finalizeFloatBuffer() {
+		ByteBuffer quantized = finalizeBuffer();
+		FloatBuffer floats = BufferUtils.createFloatBuffer(6 * size);
+		Vector3f v = new Vector3f();
+		for (int i = 0; i < size; i++) {
+			INTERLEAVED_QUANTIZED_VERTEX_3_SHORT_NORMAL_2_BYTE.getVertex(quantized, i, v);
+			int pos = i * VERTEX_SIZE + 3 * Short.BYTES;
+			// Unfold the lower half of the octahedron.
+			double ox = quantized.get(pos) / (double) MAX_BYTE;
+			double oz = quantized.get(pos + 1) / (double) MAX_BYTE;
+			double oy = 1 - Math.abs(ox) - Math.abs(oz);
+			if (oy < 0) {
+				double fx = (1 - Math.abs(oz)) * signNotZero(ox);
+				oz = (1 - Math.abs(ox)) * signNotZero(oz);
+				ox = fx;
+			}
+			double l = Math.sqrt(ox * ox + oy * oy + oz * oz);
+			floats.put(v.x).put(v.y).put(v.z)
+					.put((float) (ox / l)).put((float) (oy / l)).put((float) (oz / l));
+		}
+		floats.flip();
+		return floats;
+	}
+
+	@Override
+	public ByteBuffer finalizeBuffer() {
+		if (clamped > 0) {
+			CLAMPED.add(clamped);
+			LOGGER.warn("Clamped " + clamped + " coordinates of " + size + " vertices to the quantized range.");
+			clamped = 0;
+		}
+		byteBuffer.limit(VERTEX_SIZE * size);
+		byteBuffer.position(0);
+		return byteBuffer;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+}
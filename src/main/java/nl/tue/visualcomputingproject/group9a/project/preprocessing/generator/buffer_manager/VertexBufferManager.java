@@ -101,6 +101,8 @@ public interface VertexBufferManager
 				return new SeparatedVertexFloatBufferManager(numVertices);
 			case INTERLEAVED_VERTEX_3_FLOAT_NORMAL_3_FLOAT:
 				return new InterleavedVertexFloatBufferManager(numVertices);
+			case INTERLEAVED_QUANTIZED_VERTEX_3_SHORT_NORMAL_2_BYTE:
+				return new QuantizedVertexBufferManager(numVertices);
 			default:
 				throw new IllegalArgumentException("Invalid vertex buffer type: " + type);
 		}
@@ -8,6 +8,7 @@ import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointData;
 import nl.tue.visualcomputingproject.group9a.project.common.util.Pair;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.buffer_manager.MeshBufferManager;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PointIndexData;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PrimitiveStore;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.StoreElement;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.Store;
 import org.joml.Vector3d;
@@ -186,4 +187,152 @@ public class FullMeshGenerator {
 		return meshManager.finalizeBuffer();
 	}
 	
+	private static void addSide(
+			MeshBufferManager meshManager,
+			PrimitiveStore store,
+			int x1, int z1,
+			int x2, int z2) {
+		int size1 = store.size(x1, z1);
+		int size2 = store.size(x2, z2);
+		if (size1 == 0 || size2 == 0 ||
+				size1 <= 1 && size2 <= 1) return;
+		int first1 = store.getIndex(store.begin(x1, z1));
+		int back1 = store.getIndex(store.end(x1, z1) - 1);
+		int first2 = store.getIndex(store.begin(x2, z2));
+		int back2 = store.getIndex(store.end(x2, z2) - 1);
+
+		switch (Settings.MESH_TYPE) {
+			case TRIANGLES_CLOCKWISE_3_INT:
+			case TRIANGLES_COUNTER_CLOCKWISE_3_INT:
+				if (size1 >= 2) {
+					meshManager.add(back1, first2, first1);
+				}
+				if (size2 >= 2) {
+					meshManager.add(back1, back2, first2);
+				}
+				if (size1 >= 2 && size2 >= 2) {
+					meshManager.add(back1, first2, first1);
+					meshManager.add(back1, back2, first2);
+				}
+				break;
+
+			case QUADS_CLOCKWISE_4_INT:
+			case QUADS_COUNTER_CLOCKWISE_4_INT:
+				if (size1 == 2 && size2 == 2) {
+					meshManager.add(back1, first1, first2, back2);
+				}
+				break;
+
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+	/**
+	 * Variant of {@link #preprocess(Store)} for a {@link PrimitiveStore}.
+	 * Only keeps the lowest and highest point of each cell, in that order.
+	 *
+	 * @param store The store to preprocess.
+	 *
+	 * @return The number of points in the store after preprocessing.
+	 */
+	public static int preprocess(PrimitiveStore store) {
+		int count = 0;
+		for (int z = 0; z < store.getHeight(); z++) {
+			for (int x = 0; x < store.getWidth(); x++) {
+				int begin = store.begin(x, z);
+				int end = store.end(x, z);
+				if (end - begin >= 2) {
+					// Equivalent to a stable sort on height followed by keeping the first and last point.
+					int minS = begin;
+					int maxS = begin;
+					for (int s = begin + 1; s < end; s++) {
+						if (store.getY(s) < store.getY(minS)) minS = s;
+						if (store.getY(s) >= store.getY(maxS)) maxS = s;
+					}
+					store.swap(begin, minS);
+					if (maxS == begin) maxS = minS;
+					store.swap(begin + 1, maxS);
+					store.truncate(x, z, 2);
+				}
+				count += store.size(x, z);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Variant of {@link #generateMesh(Store, Chunk, ChunkPosition, boolean)} for a {@link PrimitiveStore}.
+	 * The indices of the points in the vertex buffer must have been set.
+	 */
+	public static <ID extends ChunkId, T extends PointData> ByteBuffer generateMesh(
+			PrimitiveStore store,
+			Chunk<ID, ? extends T> chunk,
+			ChunkPosition crop,
+			boolean preprocess) {
+		if (preprocess) {
+			preprocess(store);
+		}
+
+		MeshBufferManager meshManager = MeshBufferManager.createManagerFor(
+				chunk.getQualityLevel(),
+				Settings.MESH_TYPE,
+				store.getWidth(), store.getHeight(),
+				store.countCropped(crop)
+		);
+
+		int beginX = Math.max(0, store.getTransform().toGridX(crop.getX()));
+		int endX = Math.min(store.getWidth(), store.getTransform().toGridX(crop.getX() + crop.getWidth()));
+		int beginZ = Math.max(0, store.getTransform().toGridZ(crop.getY()));
+		int endZ = Math.min(store.getHeight(), store.getTransform().toGridZ(crop.getY() + crop.getHeight()));
+		for (int z = beginZ; z < endZ - 1; z++) {
+			for (int x = beginX; x < endX - 1; x++) {
+				addSide(meshManager, store, x    , z    , x + 1, z    );
+				addSide(meshManager, store, x + 1, z    , x + 1, z + 1);
+				addSide(meshManager, store, x + 1, z + 1, x    , z + 1);
+				addSide(meshManager, store, x    , z + 1, x    , z    );
+
+				boolean has00 = store.hasPoint(x    , z    );
+				boolean has10 = store.hasPoint(x + 1, z    );
+				boolean has01 = store.hasPoint(x    , z + 1);
+				boolean has11 = store.hasPoint(x + 1, z + 1);
+				int back00 = has00 ? store.getIndex(store.end(x    , z    ) - 1) : -1;
+				int back10 = has10 ? store.getIndex(store.end(x + 1, z    ) - 1) : -1;
+				int back01 = has01 ? store.getIndex(store.end(x    , z + 1) - 1) : -1;
+				int back11 = has11 ? store.getIndex(store.end(x + 1, z + 1) - 1) : -1;
+
+				switch (Settings.MESH_TYPE) {
+					case TRIANGLES_CLOCKWISE_3_INT:
+					case TRIANGLES_COUNTER_CLOCKWISE_3_INT:
+						if (has00 && has11) {
+							if (has01) {
+								meshManager.add(back00, back01, back11);
+							}
+							if (has10) {
+								meshManager.add(back00, back11, back10);
+							}
+						} else if (has01 && has10) {
+							if (has00) {
+								meshManager.add(back00, back01, back10);
+							} else if (has11) {
+								meshManager.add(back01, back11, back10);
+							}
+						}
+						break;
+
+					case QUADS_CLOCKWISE_4_INT:
+					case QUADS_COUNTER_CLOCKWISE_4_INT:
+						if (has00 && has10 && has01 && has11) {
+							meshManager.add(back00, back01, back11, back10);
+						}
+						break;
+					default:
+						throw new IllegalStateException();
+				}
+			}
+		}
+
+		return meshManager.finalizeBuffer();
+	}
+
 }
@@ -0,0 +1,202 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.MeshChunkData;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.MeshChunkId;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.VertexBufferType;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.GridTransform;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Regular grid of heights in the local coordinates of a chunk.
+ * <br>
+ * The grid is used to pass the result of a lower quality level to the generator
+ * of the next quality level of the same chunk, which uses it as initial estimate.
+ * Cells without a height contain {@link Float#NaN}.
+ */
+public class HeightGrid {
+	/** The x-coordinate of the cell {@code (0, 0)}. */
+	@Getter
+	private final double rootX;
+	/** The z-coordinate of the cell {@code (0, 0)}. */
+	@Getter
+	private final double rootZ;
+	/** The distance between two neighbouring cells. */
+	@Getter
+	private final double scale;
+	/** The number of cells in the x-direction. */
+	@Getter
+	private final int width;
+	/** The number of cells in the z-direction. */
+	@Getter
+	private final int height;
+	/** The heights of the cells, stored as {@code heights[x + z*width]}. */
+	private final float[] heights;
+
+	/**
+	 * Creates a new height grid with no heights.
+	 *
+	 * @param rootX  The x-coordinate of the cell {@code (0, 0)}.
+	 * @param rootZ  The z-coordinate of the cell {@code (0, 0)}.
+	 * @param scale  The distance between two neighbouring cells.
+	 * @param width  The number of cells in the x-direction.
+	 * @param height The number of cells in the z-direction.
+	 */
+	public HeightGrid(double rootX, double rootZ, double scale, int width, int height) {
+		this.rootX = rootX;
+		this.rootZ = rootZ;
+		this.scale = scale;
+		this.width = width;
+		this.height = height;
+		heights = new float[width * height];
+		Arrays.fill(heights, Float.NaN);
+	}
+
+	/**
+	 * Reconstructs the height grid from the vertex buffer of a generated mesh.
+	 * If multiple vertices fall in the same cell, the highest vertex is used.
+	 *
+	 * @param id   The id of the mesh chunk. Used to determine the grid spacing and vertex layout.
+	 * @param data The mesh data.
+	 *
+	 * @return The height grid of the mesh, or {@code null} if the mesh contains no vertices.
+	 */
+	public static HeightGrid fromMesh(MeshChunkId id, MeshChunkData data) {
+		double scale = GridTransform.createTransformFor(id.getQuality(), 0, 0).getScaleX();
+		VertexBufferType type = id.getVertexType();
+		ByteBuffer buffer = data.getVertexByteBuffer();
+		int numVertices = type.countVertices(buffer);
+		if (numVertices == 0) return null;
+
+		Vector3f v = new Vector3f();
+		double minX = Double.POSITIVE_INFINITY;
+		double minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxZ = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < numVertices; i++) {
+			type.getVertex(buffer, i, v);
+			minX = Math.min(minX, v.x);
+			minZ = Math.min(minZ, v.z);
+			maxX = Math.max(maxX, v.x);
+			maxZ = Math.max(maxZ, v.z);
+		}
+
+		HeightGrid grid = new HeightGrid(
+				minX, minZ, scale,
+				(int) Math.round((maxX - minX) / scale) + 1,
+				(int) Math.round((maxZ - minZ) / scale) + 1);
+		for (int i = 0; i < numVertices; i++) {
+			type.getVertex(buffer, i, v);
+			int x = (int) Math.round((v.x - minX) / scale);
+			int z = (int) Math.round((v.z - minZ) / scale);
+			int c = x + z*grid.width;
+			if (Float.isNaN(grid.heights[c]) || grid.heights[c] < v.y) {
+				grid.heights[c] = v.y;
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Combines the height grids of several chunks into a single grid in the local
+	 * coordinates of a region containing these chunks. Where grids overlap, the
+	 * highest height is used. Grids with a different scale than the first grid are skipped.
+	 *
+	 * @param region The position of the region.
+	 * @param grids  The height grids in the local coordinates of the chunks, keyed by the chunk position.
+	 *
+	 * @return The combined height grid, or {@code null} if no grids are given.
+	 */
+	public static HeightGrid merge(ChunkPosition region, Map<ChunkPosition, HeightGrid> grids) {
+		HeightGrid first = null;
+		double minX = Double.POSITIVE_INFINITY;
+		double minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxZ = Double.NEGATIVE_INFINITY;
+		for (Map.Entry<ChunkPosition, HeightGrid> e : grids.entrySet()) {
+			HeightGrid grid = e.getValue();
+			if (first == null) first = grid;
+			else if (grid.scale != first.scale) continue;
+			double rootX = grid.rootX + e.getKey().getX() - region.getX();
+			double rootZ = grid.rootZ + e.getKey().getY() - region.getY();
+			minX = Math.min(minX, rootX);
+			minZ = Math.min(minZ, rootZ);
+			maxX = Math.max(maxX, rootX + (grid.width - 1) * grid.scale);
+			maxZ = Math.max(maxZ, rootZ + (grid.height - 1) * grid.scale);
+		}
+		if (first == null) return null;
+
+		final double scale = first.scale;
+		HeightGrid merged = new HeightGrid(
+				minX, minZ, scale,
+				(int) Math.round((maxX - minX) / scale) + 1,
+				(int) Math.round((maxZ - minZ) / scale) + 1);
+		for (Map.Entry<ChunkPosition, HeightGrid> e : grids.entrySet()) {
+			HeightGrid grid = e.getValue();
+			if (grid.scale != scale) continue;
+			int offX = (int) Math.round((grid.rootX + e.getKey().getX() - region.getX() - minX) / scale);
+			int offZ = (int) Math.round((grid.rootZ + e.getKey().getY() - region.getY() - minZ) / scale);
+			for (int z = 0; z < grid.height; z++) {
+				for (int x = 0; x < grid.width; x++) {
+					float h = grid.heights[x + z*grid.width];
+					if (Float.isNaN(h)) continue;
+					int c = (x + offX) + (z + offZ)*merged.width;
+					if (Float.isNaN(merged.heights[c]) || merged.heights[c] < h) {
+						merged.heights[c] = h;
+					}
+				}
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * @param x The x-index of the cell.
+	 * @param z The z-index of the cell.
+	 *
+	 * @return The height of the cell, or {@link Double#NaN} if the cell has no height.
+	 */
+	public double get(int x, int z) {
+		if (x < 0 || z < 0 || x >= width || z >= height) return Double.NaN;
+		return heights[x + z*width];
+	}
+
+	/**
+	 * Bilinearly interpolates the height at the given local coordinates.
+	 * Cells without a height are left out of the interpolation.
+	 *
+	 * @param x The x-coordinate.
+	 * @param z The z-coordinate.
+	 *
+	 * @return The interpolated height, or {@link Double#NaN} if none of
+	 *     the four surrounding cells has a height.
+	 */
+	public double sample(double x, double z) {
+		double gx = (x - rootX) / scale;
+		double gz = (z - rootZ) / scale;
+		int x0 = (int) Math.floor(gx);
+		int z0 = (int) Math.floor(gz);
+		double fx = gx - x0;
+		double fz = gz - z0;
+
+		double sumHW = 0;
+		double sumW = 0;
+		for (int dz = 0; dz <= 1; dz++) {
+			for (int dx = 0; dx <= 1; dx++) {
+				double h = get(x0 + dx, z0 + dz);
+				if (Double.isNaN(h)) continue;
+				double w = (dx == 0 ? 1 - fx : fx) * (dz == 0 ? 1 - fz : fz);
+				sumHW += h * w;
+				sumW += w;
+			}
+		}
+		if (sumW == 0) return Double.NaN;
+		return sumHW / sumW;
+	}
+
+}
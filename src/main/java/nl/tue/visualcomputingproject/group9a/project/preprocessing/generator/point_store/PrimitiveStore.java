@@ -0,0 +1,474 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.CompositePointData;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.GridPointData;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointCloudChunkData;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.PointData;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.Generator;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.buffer_manager.VertexBufferManager;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.ScaleGridTransform;
+import org.joml.Vector3d;
+
+import java.util.Arrays;
+
+/**
+ * Grid point store backed by flat primitive columns instead of objects.
+ * <br>
+ * The points are stored in compressed sparse row layout: the points of cell
+ * {@code c = x + z*width} occupy the slots {@code offsets[c] .. offsets[c] + counts[c]}
+ * of the columns. Every cell has at least one slot reserved, so an empty cell can
+ * be filled in place using {@link #setSingle(int, int, double, double, double)}.
+ * Slots are addressed using {@link #begin(int, int)} and {@link #end(int, int)}.
+ * <br>
+ * This class is the allocation-free counterpart of {@link ArrayStore}.
+ * None of the operations allocate objects per point.
+ */
+public class PrimitiveStore {
+	/** The width of the grid. */
+	@Getter
+	private final int width;
+	/** The height of the grid. */
+	@Getter
+	private final int height;
+	/** The transform between grid and local coordinates. */
+	@Getter
+	private final ScaleGridTransform transform;
+
+	/** The x-coordinates of the points. */
+	private double[] xs = new double[0];
+	/** The y-coordinates (heights) of the points. */
+	private double[] ys = new double[0];
+	/** The z-coordinates of the points. */
+	private double[] zs = new double[0];
+	/** The indices of the points in the vertex buffer. */
+	private int[] indices = new int[0];
+	/** The first slot of each cell. Has one extra trailing element. */
+	private final int[] offsets;
+	/** The number of used slots of each cell. */
+	private final int[] counts;
+
+	public PrimitiveStore(ChunkPosition pos, ScaleGridTransform transform) {
+		this.transform = transform;
+		width = (int) (pos.getWidth() / transform.getScaleX()) + 1;
+		height = (int) (pos.getHeight() / transform.getScaleZ()) + 1;
+		offsets = new int[width*height + 1];
+		counts = new int[width*height];
+		resize(width*height);
+		for (int c = 0; c <= width*height; c++) {
+			offsets[c] = c;
+		}
+	}
+
+	private void resize(int slots) {
+		xs = new double[slots];
+		ys = new double[slots];
+		zs = new double[slots];
+		indices = new int[slots];
+		Arrays.fill(indices, -1);
+	}
+
+	/**
+	 * Adds the points of the given data set to the store. The points are translated
+	 * by {@code -offset} and filtered using {@link Store#FILTER}.
+	 * If the store already contains points, then the new points are appended to their cells.
+	 *
+	 * @param offset The offset of the points.
+	 * @param data   The points to add.
+	 *
+	 * @return The number of added points.
+	 */
+	public int addPoints(Vector3d offset, PointData data) {
+		if (data instanceof CompositePointData) {
+			// Add the parts separately, such that the grids are placed without binning.
+			int numAdded = 0;
+			for (PointData part : ((CompositePointData) data).getParts()) {
+				numAdded += addPoints(offset, part);
+			}
+			return numAdded;
+		}
+		if (data instanceof GridPointData) {
+			return addGridPoints(offset, (GridPointData) data);
+		}
+		if (data instanceof PointCloudChunkData) {
+			return addInterleavedPoints(offset, ((PointCloudChunkData) data).getInterleavedPoints());
+		}
+		// Fallback for other point types.
+		double[] interleaved = new double[3 * data.size()];
+		int i = 0;
+		for (Vector3d vec : data.getVector3D()) {
+			interleaved[i++] = vec.x;
+			interleaved[i++] = -vec.z;
+			interleaved[i++] = vec.y;
+		}
+		return addInterleavedPoints(offset, interleaved);
+	}
+
+	/**
+	 * Adds the cells with data of the given grid to the store. <br>
+	 * <br>
+	 * A grid with the same spacing as the store maps every cell onto its own cell of the store.
+	 * Such points are written directly into the slot reserved for their cell, without binning
+	 * the points and computing a new layout. Only the points of cells which already contain
+	 * a point are appended using {@link #addInterleavedPoints(Vector3d, double[])}.
+	 *
+	 * @param offset The offset of the points.
+	 * @param grid   The grid to add.
+	 *
+	 * @return The number of added points.
+	 *
+	 * @see #addPoints(Vector3d, PointData)
+	 */
+	public int addGridPoints(Vector3d offset, GridPointData grid) {
+		final Vector3d tmp = new Vector3d();
+		double[] overflow = new double[0];
+		int numOverflow = 0;
+
+		int numAdded = 0;
+		for (int col = 0; col < grid.getColumns(); col++) {
+			double wx = grid.getX(col);
+			for (int row = 0; row < grid.getRows(); row++) {
+				if (!grid.hasData(col, row)) continue;
+				double wy = grid.getY(row);
+				float h = grid.getHeightAt(col, row);
+				tmp.set(wx, h, -wy).sub(offset);
+				Vector3d point = Store.FILTER.filter(tmp);
+				if (point == null) continue;
+				int x = transform.toGridX(point.x());
+				int z = transform.toGridZ(point.z());
+				if (!isInBounds(x, z)) {
+					throw new IllegalArgumentException("Tried to set (" + x + ", " + z + ") for store (" +
+							width + ", " + height + ")");
+				}
+				int c = cell(x, z);
+				if (counts[c] == 0) {
+					int s = offsets[c];
+					xs[s] = point.x();
+					ys[s] = point.y();
+					zs[s] = point.z();
+					counts[c] = 1;
+					numAdded++;
+				} else {
+					if (numOverflow + 3 > overflow.length) {
+						overflow = Arrays.copyOf(overflow, Math.max(48, 2 * overflow.length));
+					}
+					overflow[numOverflow++] = wx;
+					overflow[numOverflow++] = wy;
+					overflow[numOverflow++] = h;
+				}
+			}
+		}
+		if (numOverflow > 0) {
+			numAdded += addInterleavedPoints(offset, Arrays.copyOf(overflow, numOverflow));
+		}
+		return numAdded;
+	}
+
+	/**
+	 * Adds the given interleaved points to the store. The points are stored in the same
+	 * layout as {@link PointCloudChunkData#getInterleavedPoints()}.
+	 *
+	 * @param offset The offset of the points.
+	 * @param points The interleaved points to add.
+	 *
+	 * @return The number of added points.
+	 *
+	 * @see #addPoints(Vector3d, PointData)
+	 */
+	public int addInterleavedPoints(Vector3d offset, double[] points) {
+		final int numCells = width*height;
+		final int numPoints = points.length / 3;
+		final int[] cellOf = new int[numPoints];
+		final int[] added = new int[numCells];
+		final Vector3d tmp = new Vector3d();
+
+		// Determine the cell of each point.
+		int numAdded = 0;
+		for (int i = 0; i < numPoints; i++) {
+			tmp.set(points[3*i], points[3*i + 2], -points[3*i + 1]).sub(offset);
+			Vector3d point = Store.FILTER.filter(tmp);
+			if (point == null) {
+				cellOf[i] = -1;
+				continue;
+			}
+			int x = transform.toGridX(point.x());
+			int z = transform.toGridZ(point.z());
+			if (!isInBounds(x, z)) {
+				throw new IllegalArgumentException("Tried to set (" + x + ", " + z + ") for store (" +
+						width + ", " + height + ")");
+			}
+			int c = cell(x, z);
+			cellOf[i] = c;
+			added[c]++;
+			numAdded++;
+		}
+
+		// Compute the new layout.
+		final int[] newOffset = new int[numCells + 1];
+		for (int c = 0; c < numCells; c++) {
+			newOffset[c + 1] = newOffset[c] + Math.max(1, counts[c] + added[c]);
+		}
+		double[] oldXs = xs;
+		double[] oldYs = ys;
+		double[] oldZs = zs;
+		int[] oldIndices = indices;
+		resize(newOffset[numCells]);
+
+		// Move the existing points.
+		for (int c = 0; c < numCells; c++) {
+			int n = counts[c];
+			if (n == 0) continue;
+			System.arraycopy(oldXs, offsets[c], xs, newOffset[c], n);
+			System.arraycopy(oldYs, offsets[c], ys, newOffset[c], n);
+			System.arraycopy(oldZs, offsets[c], zs, newOffset[c], n);
+			System.arraycopy(oldIndices, offsets[c], indices, newOffset[c], n);
+		}
+		System.arraycopy(newOffset, 0, offsets, 0, numCells + 1);
+
+		// Scatter the new points.
+		for (int i = 0; i < numPoints; i++) {
+			int c = cellOf[i];
+			if (c < 0) continue;
+			tmp.set(points[3*i], points[3*i + 2], -points[3*i + 1]).sub(offset);
+			Vector3d point = Store.FILTER.filter(tmp);
+			int s = offsets[c] + counts[c]++;
+			xs[s] = point.x();
+			ys[s] = point.y();
+			zs[s] = point.z();
+		}
+		return numAdded;
+	}
+
+	/**
+	 * @param x The x-coordinate of the cell.
+	 * @param z The z-coordinate of the cell.
+	 *
+	 * @return The index of the given cell in the offset and count arrays.
+	 */
+	public int cell(int x, int z) {
+		return x + z*width;
+	}
+
+	public boolean isInBounds(int x, int z) {
+		return 0 <= x && x < width &&
+				0 <= z && z < height;
+	}
+
+	public boolean hasPoint(int x, int z) {
+		return isInBounds(x, z) && counts[cell(x, z)] > 0;
+	}
+
+	/**
+	 * @param x The x-coordinate of the cell.
+	 * @param z The z-coordinate of the cell.
+	 *
+	 * @return The number of points in the given cell, or {@code 0} if the cell is out of bounds.
+	 */
+	public int size(int x, int z) {
+		if (!isInBounds(x, z)) return 0;
+		return counts[cell(x, z)];
+	}
+
+	/**
+	 * @param x The x-coordinate of the cell.
+	 * @param z The z-coordinate of the cell.
+	 *
+	 * @return The first slot of the given cell.
+	 */
+	public int begin(int x, int z) {
+		if (!isInBounds(x, z)) return 0;
+		return offsets[cell(x, z)];
+	}
+
+	/**
+	 * @param x The x-coordinate of the cell.
+	 * @param z The z-coordinate of the cell.
+	 *
+	 * @return The slot after the last point of the given cell.
+	 */
+	public int end(int x, int z) {
+		if (!isInBounds(x, z)) return 0;
+		int c = cell(x, z);
+		return offsets[c] + counts[c];
+	}
+
+	public double getX(int slot) {
+		return xs[slot];
+	}
+
+	public double getY(int slot) {
+		return ys[slot];
+	}
+
+	public double getZ(int slot) {
+		return zs[slot];
+	}
+
+	public void setY(int slot, double y) {
+		ys[slot] = y;
+	}
+
+	public int getIndex(int slot) {
+		return indices[slot];
+	}
+
+	public void setIndex(int slot, int index) {
+		indices[slot] = index;
+	}
+
+	/**
+	 * Replaces all points of the given cell by the given point.
+	 *
+	 * @param x  The x-coordinate of the cell.
+	 * @param z  The z-coordinate of the cell.
+	 * @param vx The x-coordinate of the new point.
+	 * @param vy The y-coordinate of the new point.
+	 * @param vz The z-coordinate of the new point.
+	 */
+	public void setSingle(int x, int z, double vx, double vy, double vz) {
+		if (!isInBounds(x, z)) {
+			throw new IllegalArgumentException("Tried to set (" + x + ", " + z + ") for store (" +
+					width + ", " + height + ")");
+		}
+		int c = cell(x, z);
+		int s = offsets[c];
+		xs[s] = vx;
+		ys[s] = vy;
+		zs[s] = vz;
+		indices[s] = -1;
+		counts[c] = 1;
+	}
+
+	/**
+	 * Swaps the points in the two given slots.
+	 *
+	 * @param s1 The first slot.
+	 * @param s2 The second slot.
+	 */
+	public void swap(int s1, int s2) {
+		if (s1 == s2) return;
+		double d;
+		d = xs[s1]; xs[s1] = xs[s2]; xs[s2] = d;
+		d = ys[s1]; ys[s1] = ys[s2]; ys[s2] = d;
+		d = zs[s1]; zs[s1] = zs[s2]; zs[s2] = d;
+		int i = indices[s1];
+		indices[s1] = indices[s2];
+		indices[s2] = i;
+	}
+
+	/**
+	 * Removes all points from the given cell except for the first {@code size} points.
+	 *
+	 * @param x    The x-coordinate of the cell.
+	 * @param z    The z-coordinate of the cell.
+	 * @param size The new number of points of the cell.
+	 */
+	public void truncate(int x, int z, int size) {
+		int c = cell(x, z);
+		counts[c] = Math.min(counts[c], size);
+	}
+
+	/**
+	 * Iterates over all cells within the given crop.
+	 * The bounds are equal to the bounds of {@link Store#forEachInCrop(ChunkPosition, Store.StoreFunction)}.
+	 *
+	 * @param crop     The crop to iterate over.
+	 * @param function The function to apply to the cells containing at least one point.
+	 */
+	public void forEachInCrop(ChunkPosition crop, CellFunction function) {
+		int beginX = Math.max(0, transform.toGridX(crop.getX()));
+		int endX = Math.min(width, transform.toGridX(crop.getX() + crop.getWidth()));
+		int beginZ = Math.max(0, transform.toGridZ(crop.getY()));
+		int endZ = Math.min(height, transform.toGridZ(crop.getY() + crop.getHeight()));
+		for (int z = beginZ; z <= endZ; z++) {
+			for (int x = beginX; x <= endX; x++) {
+				if (!hasPoint(x, z)) continue;
+				function.consume(x, z);
+			}
+		}
+	}
+
+	/**
+	 * @param crop The crop to count the points of.
+	 *
+	 * @return The number of points within the given crop.
+	 */
+	public int countCropped(ChunkPosition crop) {
+		int beginX = Math.max(0, transform.toGridX(crop.getX()));
+		int endX = Math.min(width - 1, transform.toGridX(crop.getX() + crop.getWidth()));
+		int beginZ = Math.max(0, transform.toGridZ(crop.getY()));
+		int endZ = Math.min(height - 1, transform.toGridZ(crop.getY() + crop.getHeight()));
+		int num = 0;
+		for (int z = beginZ; z <= endZ; z++) {
+			for (int x = beginX; x <= endX; x++) {
+				num += counts[cell(x, z)];
+			}
+		}
+		return num;
+	}
+
+	/**
+	 * Allocation-free variant of {@link Store#addToVertexManagerGenWLSNormals(VertexBufferManager, ChunkPosition)}.
+	 * Generates a normal for every point within the crop based on the points in the
+	 * direct neighbouring cells, and adds the points to the vertex manager.
+	 *
+	 * @param vertexManager The vertex manager to add the points to.
+	 * @param crop          The crop of the points to add.
+	 */
+	public void addToVertexManagerGenWLSNormals(
+			final VertexBufferManager vertexManager,
+			ChunkPosition crop) {
+		addToVertexManagerGenWLSNormals(vertexManager, crop, 0, 0);
+	}
+
+	/**
+	 * Variant of {@link #addToVertexManagerGenWLSNormals(VertexBufferManager, ChunkPosition)}
+	 * which adds the points relative to the given origin. This is used to slice a store
+	 * covering several chunks into the vertex buffers of the separate chunks.
+	 * The normals are still computed using all points in the store.
+	 *
+	 * @param vertexManager The vertex manager to add the points to.
+	 * @param crop          The crop of the points to add.
+	 * @param originX       The x-coordinate which is subtracted from the points.
+	 * @param originZ       The z-coordinate which is subtracted from the points.
+	 */
+	public void addToVertexManagerGenWLSNormals(
+			final VertexBufferManager vertexManager,
+			ChunkPosition crop,
+			final double originX,
+			final double originZ) {
+		final Vector3d normal = new Vector3d();
+		forEachInCrop(crop, (x, z) -> {
+			for (int s = begin(x, z); s < end(x, z); s++) {
+				double px = xs[s];
+				double py = ys[s];
+				double pz = zs[s];
+				normal.zero();
+				boolean hasNeighbors = false;
+				for (int dz = -Store.NORMAL_DIST; dz <= Store.NORMAL_DIST; dz++) {
+					for (int dx = -Store.NORMAL_DIST; dx <= Store.NORMAL_DIST; dx++) {
+						if (dx == 0 && dz == 0) continue;
+						int x2 = x + dx;
+						int z2 = z + dz;
+						for (int s2 = begin(x2, z2); s2 < end(x2, z2); s2++) {
+							Generator.addWLSNormalTerm(px, py, pz, xs[s2], ys[s2], zs[s2], normal);
+							hasNeighbors = true;
+						}
+					}
+				}
+				Generator.finishWLSNormal(normal, hasNeighbors);
+				indices[s] = vertexManager.addVertex(px - originX, py, pz - originZ, normal.x, normal.y, normal.z);
+			}
+		});
+	}
+
+	/**
+	 * Functional interface for functions iterating over the cells of the store.
+	 */
+	@FunctionalInterface
+	public interface CellFunction {
+		void consume(int x, int z);
+	}
+
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
 import nl.tue.visualcomputingproject.group9a.project.common.util.FunctionIterator;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.Generator;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.RowBands;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.buffer_manager.VertexBufferManager;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.pre_processing.DeleteInvalidPointFilter;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.pre_processing.PointFilter;
@@ -13,6 +14,7 @@ import org.joml.Vector3d;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 public interface Store<Data extends PointIndexData>
@@ -90,7 +92,19 @@ public interface Store<Data extends PointIndexData>
 	}
 	
 	static void genWLSNormals(Store<? extends PointNormalIndexData> store, double dist) {
-		for (int z = 0; z < store.getHeight(); z++) {
+		genWLSNormals(store, dist, null);
+	}
+
+	/**
+	 * Generates the normals of all points in the store.
+	 * Only the normals are written, hence the result is independent of the pool.
+	 *
+	 * @param store The store to generate the normals for.
+	 * @param dist  The maximum distance of the neighbours used to generate the normals.
+	 * @param pool  The pool used to process the rows in parallel, or {@code null} to process them serially.
+	 */
+	static void genWLSNormals(Store<? extends PointNormalIndexData> store, double dist, ForkJoinPool pool) {
+		RowBands.forEachRow(pool, store.getHeight(), z -> {
 			for (int x = 0; x < store.getWidth(); x++) {
 				StoreElement<? extends PointNormalIndexData> elem = store.get(x, z);
 				for (PointNormalIndexData data : elem) {
@@ -101,7 +115,7 @@ public interface Store<Data extends PointIndexData>
 					data.setNormal(Generator.generateWLSNormalFor(data.getVec(), it));
 				}
 			}
-		}
+		});
 	}
 	
 	default void addToVertexManagerGenWLSNormals(
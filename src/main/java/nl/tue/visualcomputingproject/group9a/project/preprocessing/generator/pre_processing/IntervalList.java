@@ -1,23 +1,27 @@
 package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.pre_processing;
 
-import lombok.AllArgsConstructor;
-import lombok.Getter;
 import nl.tue.visualcomputingproject.group9a.project.common.util.Pair;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
+/**
+ * List of intervals backed by two primitive arrays containing the begin and
+ * end values of the intervals. The list can be reused after calling {@link #clear()}
+ * to avoid allocating new objects for every query.
+ */
 public class IntervalList {
-	private final List<Interval> intervals = new ArrayList<>();
+	/** The initial capacity of the list. */
+	private static final int INITIAL_CAPACITY = 32;
+
+	/** The begin values of the intervals. */
+	private double[] begins = new double[INITIAL_CAPACITY];
+	/** The end values of the intervals. */
+	private double[] ends = new double[INITIAL_CAPACITY];
+	/** The number of intervals in the list. */
+	private int size = 0;
+	/** Whether {@link #begins} and {@link #ends} are sorted. */
 	private boolean sorted = true;
-	
-	@Getter
-	@AllArgsConstructor
-	private static class Interval {
-		final private double value;
-		final private boolean begin;
-	}
-	
+
 	public void addInterval(double v1, double v2) {
 		double min, max;
 		if (v1 < v2) {
@@ -27,70 +31,104 @@ public class IntervalList {
 			min = v2;
 			max = v1;
 		}
-		intervals.add(new Interval(min, true));
-		intervals.add(new Interval(max, false));
+		if (size == begins.length) {
+			begins = Arrays.copyOf(begins, 2 * size);
+			ends = Arrays.copyOf(ends, 2 * size);
+		}
+		begins[size] = min;
+		ends[size] = max;
+		size++;
 		sorted = false;
 	}
-	
+
+	/**
+	 * Removes all intervals from the list while keeping the allocated space.
+	 */
+	public void clear() {
+		size = 0;
+		sorted = true;
+	}
+
 	public int size() {
-		return intervals.size() / 2;
+		return size;
 	}
-	
+
 	private void sort() {
 		if (sorted) return;
-		// Sort on value, then beginning intervals.
-		intervals.sort((i1, i2) -> {
-			int cmp = Double.compare(i1.value, i2.value);
-			if (cmp != 0) return cmp;
-			return Boolean.compare(i1.isBegin(), i2.isBegin());
-		});
+		// Sorting begins and ends separately is equivalent to sorting on value, since
+		// the merge in the functions below puts end values before equal begin values.
+		Arrays.sort(begins, 0, size);
+		Arrays.sort(ends, 0, size);
 		sorted = true;
 	}
-	
+
 	public int countGaps() {
-		if (intervals.isEmpty()) return 0;
+		if (size == 0) return 0;
 		sort();
-		
+
 		int gaps = -1; // To ignore last infinite gap.
 		int open = 0;
-		for (Interval i : intervals) {
-			if (i.isBegin()) {
+		int b = 0;
+		int e = 0;
+		while (e < size) {
+			if (b < size && begins[b] < ends[e]) {
 				open++;
+				b++;
 			} else {
 				if (--open == 0) {
 					gaps++;
 				} else if (open < 0) {
 					throw new IllegalStateException();
 				}
+				e++;
 			}
 		}
-		if (open != 0) {
-			throw new IllegalStateException();
-		}
-		
+
 		return gaps;
 	}
-	
-	public Pair<Double, Double> getTopInterval() {
-		if (intervals.isEmpty()) return null;
+
+	/**
+	 * @return The begin value of the top interval, or {@link Double#NaN} if the list is empty.
+	 *
+	 * @see #getTopInterval()
+	 */
+	public double getTopBegin() {
+		if (size == 0) return Double.NaN;
 		sort();
-		
+
 		int open = 1;
-		for (int i = intervals.size() - 2; i >= 0; i--) {
-			if (intervals.get(i).isBegin()) {
+		int b = size - 1;
+		int e = size - 2;
+		while (b >= 0) {
+			if (e < 0 || begins[b] >= ends[e]) {
 				if (--open == 0) {
-					return new Pair<>(
-							intervals.get(i).getValue(),
-							intervals.get(intervals.size() - 1).getValue()
-					);
+					return begins[b];
 				} else if (open < 0) {
 					throw new IllegalStateException();
 				}
+				b--;
 			} else {
 				open++;
+				e--;
 			}
 		}
 		throw new IllegalStateException();
 	}
-	
+
+	/**
+	 * @return The end value of the top interval, or {@link Double#NaN} if the list is empty.
+	 *
+	 * @see #getTopInterval()
+	 */
+	public double getTopEnd() {
+		if (size == 0) return Double.NaN;
+		sort();
+		return ends[size - 1];
+	}
+
+	public Pair<Double, Double> getTopInterval() {
+		if (size == 0) return null;
+		return new Pair<>(getTopBegin(), getTopEnd());
+	}
+
 }
@@ -3,15 +3,19 @@ package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.pr
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
 import nl.tue.visualcomputingproject.group9a.project.common.util.Pair;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.Generator;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.HeightGrid;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.NeighborIterator;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PointIndexData;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PrimitiveStore;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.StoreElement;
 import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.Store;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.ScaleGridTransform;
 import org.joml.Vector3d;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.function.Function;
 
@@ -26,6 +30,13 @@ public class PreProcessing {
 			{1, 0}, {1, 1}, {0, 1}, {-1, 1},
 			{2, -1}, {2, 0}, {2, 1}, {1, 2}, {0, 2}, {-1, 2}
 	};
+	/** The number of relaxation sweeps used to smooth the filled holes. */
+	private static final int HOLE_SMOOTHING_ITERATIONS = 16;
+	/** The over-relaxation factor used to smooth the filled holes. */
+	private static final double HOLE_SMOOTHING_OMEGA = 1.5;
+	/** The tree classifier of the current thread, which reuses its buffers between chunks. */
+	private static final ThreadLocal<VegetationClassifier> CLASSIFIER =
+			ThreadLocal.withInitial(() -> new VegetationClassifier(MAX_HEIGHT_DIFF));
 	
 	public static <Data extends PointIndexData> void removeIllegalPoints(Store<Data> points) {
 		for (int x = 0; x < points.getWidth(); x++) {
@@ -43,8 +54,8 @@ public class PreProcessing {
 		}
 	}
 	
-	private static <Data extends PointIndexData> int findInDirection(
-			Store<Data> store,
+	private static int findInDirection(
+			PrimitiveStore store,
 			int srcX, int srcZ,
 			int dirX, int dirZ) {
 		if (dirX == 0 && dirZ == 0) return -1;
@@ -185,6 +196,51 @@ public class PreProcessing {
 		}
 	}
 
+	private static void checkIsTree(
+			PrimitiveStore store,
+			boolean[] isTree,
+			int x,
+			int z) {
+		int trees = 0;
+		int nonTrees = 0;
+		int neutral = 0;
+		for (int[] dxdz : DX_DZ_LOCAL_NEIGHBORHOOD) {
+			int x1 = x + dxdz[0];
+			int z1 = z + dxdz[1];
+			int x2 = x - dxdz[0];
+			int z2 = z - dxdz[1];
+
+			boolean has1 = store.hasPoint(x1, z1);
+			boolean has2 = store.hasPoint(x2, z2);
+			if (has1 && has2) {
+				boolean tree1 = isTree[store.cell(x1, z1)];
+				if (tree1 == isTree[store.cell(x2, z2)]) {
+					if (tree1) trees += 3;
+					else nonTrees += 3;
+				} else neutral += 2;
+
+			} else if (has1) {
+				if (isTree[store.cell(x1, z1)]) trees++;
+				else nonTrees++;
+
+			} else if (has2) {
+				if (isTree[store.cell(x2, z2)]) trees++;
+				else nonTrees++;
+			}
+		}
+
+		int c = store.cell(x, z);
+		if (isTree[c]) {
+			if (nonTrees > 1.5 * (trees + neutral)) {
+				isTree[c] = false;
+			}
+		} else {
+			if (trees > 1.5 * (nonTrees + neutral)) {
+				isTree[c] = true;
+			}
+		}
+	}
+
 	public static <Data extends PointIndexData> int treeSmoothing2(
 			Store<Data> srcStore,
 			Store<Data> trgStore,
@@ -304,21 +360,436 @@ public class PreProcessing {
 		return numVertices;
 	}
 	
+	/**
+	 * Fills every empty cell of the store with a single point at the center of the cell.
+	 * The heights are obtained using {@link #fillHoles(double[], int, int)}, which takes
+	 * time linear in the size of the store.
+	 *
+	 * @param store     The store to fill.
+	 * @param generator The function used to create the points.
+	 * @param <Data>    The type of the points.
+	 *
+	 * @return The number of points in the store after filling.
+	 */
 	public static <Data extends PointIndexData> int fillNullPoints(
 			Store<Data> store,
 			Function<Vector3d, Data> generator) {
+		final int width = store.getWidth();
+		final int height = store.getHeight();
+		double[] heights = new double[width * height];
+		boolean[] empty = new boolean[width * height];
+		boolean anyEmpty = false;
+		int count = 0;
+		for (int z = 0; z < height; z++) {
+			for (int x = 0; x < width; x++) {
+				int i = x + z*width;
+				StoreElement<Data> elem = store.get(x, z);
+				if (elem == null || elem.size() == 0) {
+					heights[i] = Double.NaN;
+					empty[i] = anyEmpty = true;
+					continue;
+				}
+				double sum = 0;
+				for (Data data : elem) {
+					sum += data.getVec().y();
+				}
+				heights[i] = sum / elem.size();
+				count += elem.size();
+			}
+		}
+		if (!anyEmpty) return count;
+		fillHoles(heights, width, height);
+
+		for (int z = 0; z < height; z++) {
+			for (int x = 0; x < width; x++) {
+				if (!empty[x + z*width]) continue;
+				store.set(x, z, new StoreElement<>(generator.apply(new Vector3d(
+						store.getTransform().toCoordX(x),
+						heights[x + z*width],
+						store.getTransform().toCoordZ(z)))));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Fills the holes of a height field, i.e. the cells containing {@link Double#NaN}. <br>
+	 * <br>
+	 * First, a two-pass nearest-feature transform determines for every hole the nearest
+	 * cell with a height, which is used as initial height. Then, the holes are smoothed
+	 * using a fixed number of over-relaxed Gauss-Seidel sweeps of the Laplace equation,
+	 * with the known heights as boundary. This approximates the average of the surrounding
+	 * heights used by the former star search, but takes time linear in the size of the
+	 * height field instead of quadratic in the size of the holes. <br>
+	 * <br>
+	 * If the height field contains no heights at all, all holes are set to 0.
+	 *
+	 * @param heights The heights, stored as {@code heights[x + z*width]}. Modified in-place.
+	 * @param width   The number of cells in the x-direction.
+	 * @param height  The number of cells in the z-direction.
+	 */
+	static void fillHoles(double[] heights, int width, int height) {
+		final int n = width * height;
+		int[] nearest = new int[n];
+		boolean[] hole = new boolean[n];
+		boolean anyKnown = false;
+		for (int i = 0; i < n; i++) {
+			hole[i] = Double.isNaN(heights[i]);
+			nearest[i] = hole[i] ? -1 : i;
+			anyKnown |= !hole[i];
+		}
+		if (!anyKnown) {
+			LOGGER.warn("No points found to fill the empty cells with! Using 0 instead.");
+			Arrays.fill(heights, 0);
+			return;
+		}
+
+		// Forward pass: propagate the nearest features from the upper-left neighbours.
+		for (int z = 0; z < height; z++) {
+			for (int x = 0; x < width; x++) {
+				int i = x + z*width;
+				if (!hole[i]) continue;
+				int best = nearest[i];
+				best = closer(nearest, best, x, z, x - 1, z, width, height);
+				best = closer(nearest, best, x, z, x - 1, z - 1, width, height);
+				best = closer(nearest, best, x, z, x, z - 1, width, height);
+				best = closer(nearest, best, x, z, x + 1, z - 1, width, height);
+				nearest[i] = best;
+			}
+		}
+		// Backward pass: propagate the nearest features from the lower-right neighbours.
+		for (int z = height - 1; z >= 0; z--) {
+			for (int x = width - 1; x >= 0; x--) {
+				int i = x + z*width;
+				if (!hole[i]) continue;
+				int best = nearest[i];
+				best = closer(nearest, best, x, z, x + 1, z, width, height);
+				best = closer(nearest, best, x, z, x + 1, z + 1, width, height);
+				best = closer(nearest, best, x, z, x, z + 1, width, height);
+				best = closer(nearest, best, x, z, x - 1, z + 1, width, height);
+				nearest[i] = best;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			if (hole[i]) heights[i] = heights[nearest[i]];
+		}
+
+		// Smooth the steps between the regions of different nearest features.
+		for (int it = 0; it < HOLE_SMOOTHING_ITERATIONS; it++) {
+			for (int z = 0; z < height; z++) {
+				for (int x = 0; x < width; x++) {
+					int i = x + z*width;
+					if (!hole[i]) continue;
+					double sum = 0;
+					int num = 0;
+					if (x > 0) { sum += heights[i - 1]; num++; }
+					if (x < width - 1) { sum += heights[i + 1]; num++; }
+					if (z > 0) { sum += heights[i - width]; num++; }
+					if (z < height - 1) { sum += heights[i + width]; num++; }
+					heights[i] += HOLE_SMOOTHING_OMEGA * (sum / num - heights[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The feature closest to {@code (x, z)} out of {@code best} and the nearest feature
+	 *     of the neighbour {@code (nx, nz)}, or {@code best} if the neighbour is out of bounds.
+	 */
+	private static int closer(
+			int[] nearest, int best,
+			int x, int z,
+			int nx, int nz,
+			int width, int height) {
+		if (nx < 0 || nz < 0 || nx >= width || nz >= height) return best;
+		int candidate = nearest[nx + nz*width];
+		if (candidate < 0) return best;
+		if (best < 0) return candidate;
+		return distSquare(candidate, x, z, width) < distSquare(best, x, z, width) ? candidate : best;
+	}
+
+	private static long distSquare(int feature, int x, int z, int width) {
+		long dx = feature % width - x;
+		long dz = feature / width - z;
+		return dx*dx + dz*dz;
+	}
+	
+	/**
+	 * Reference implementation of {@link VegetationClassifier#classify(PrimitiveStore, double)}
+	 * which collects the height intervals around every cell in an {@link IntervalList}.
+	 * Only used to compare against in benchmarks.
+	 *
+	 * @param store  The store to classify.
+	 * @param dist   The distance in which neighbouring points are taken into account.
+	 * @param isTree The array to store whether a cell is classified as tree in.
+	 * @param low    The array to store the begin value of the top interval of a cell in.
+	 * @param max    The array to store the end value of the top interval of a cell in.
+	 */
+	public static void classifyTreesIntervalList(
+			PrimitiveStore store,
+			double dist,
+			boolean[] isTree,
+			double[] low,
+			double[] max) {
+		final int width = store.getWidth();
+		final int height = store.getHeight();
+		final double distSquare = dist * dist;
+		final int delta = (int) Math.ceil(dist / store.getTransform().getScaleX());
+		
+		IntervalList il = new IntervalList();
+		for (int z = 0; z < height; z++) {
+			for (int x = 0; x < width; x++) {
+				if (!store.hasPoint(x, z)) {
+					continue;
+				}
+				int c = store.cell(x, z);
+				int s0 = store.begin(x, z);
+				double cx = store.getX(s0);
+				double cy = store.getY(s0);
+				double cz = store.getZ(s0);
+
+				il.clear();
+				il.addInterval(cy - MAX_HEIGHT_DIFF / 2, cy + MAX_HEIGHT_DIFF / 2);
+				for (int x2 = x - delta; x2 <= x + delta; x2++) {
+					for (int z2 = z - delta; z2 <= z + delta; z2++) {
+						for (int s = store.begin(x2, z2); s < store.end(x2, z2); s++) {
+							double dx = store.getX(s) - cx;
+							double dz = store.getZ(s) - cz;
+							double d2 = dx*dx + dz*dz;
+							if (d2 == 0 || d2 > distSquare) continue;
+							double h = store.getY(s);
+							il.addInterval(h - MAX_HEIGHT_DIFF / 2, h + MAX_HEIGHT_DIFF / 2);
+						}
+					}
+				}
+				low[c] = il.getTopBegin();
+				max[c] = il.getTopEnd();
+				if (il.size() <= 2) {
+					continue;
+				}
+				int numGaps = il.countGaps();
+
+				if (numGaps > il.size() / 2.0) {
+					// Classified as tree
+					isTree[c] = true;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Allocation-free variant of {@link #treeSmoothing2(Store, Store, Function)}.
+	 * The smoothed points are written back into the given store.
+	 *
+	 * @param store The store to smooth.
+	 *
+	 * @return The number of points in the store after smoothing.
+	 */
+	public static int treeSmoothing2(PrimitiveStore store) {
+		return treeSmoothing2(store, null);
+	}
+	
+	/**
+	 * Variant of {@link #treeSmoothing2(PrimitiveStore)} which uses the heights of a lower
+	 * quality level as initial height of the tree points, instead of the average of the
+	 * surrounding height intervals. Only seed heights within these intervals are used.
+	 *
+	 * @param store The store to smooth.
+	 * @param seed  The heights of a lower quality level, or {@code null} if not available.
+	 *
+	 * @return The number of points in the store after smoothing.
+	 */
+	public static int treeSmoothing2(PrimitiveStore store, HeightGrid seed) {
+		final int width = store.getWidth();
+		final int height = store.getHeight();
+		final double scale = store.getTransform().getScaleX();
+		final double dist = scale * 2.5;
+		final double distSquare = dist * dist;
+		final int delta = (int) Math.ceil(dist / scale);
+		
+		VegetationClassifier classifier = CLASSIFIER.get();
+		classifier.classify(store, dist);
+		boolean[] isTree = classifier.getIsTree();
+		double[] low = classifier.getLow();
+		double[] max = classifier.getMax();
+		double[] newHeight = classifier.getScratch();
+
+		// Improve tree classification by looking at group formation.
+		for (int z = 0; z < height; z++) {
+			for (int x = 0; x < width; x++) {
+				checkIsTree(store, isTree, x, z);
+			}
+		}
+
+		int numVertices = 0;
+		for (int z = 0; z < height; z++) {
+			for (int x = 0; x < width; x++) {
+				int c = store.cell(x, z);
+				if (!isTree[c]) {
+					numVertices += store.size(x, z);
+					continue;
+				}
+				int s0 = store.begin(x, z);
+				double cx = store.getX(s0);
+				double cz = store.getZ(s0);
+				double vy;
+				double minH, maxH;
+				{ // Approximate initial height value.
+					double sumMinW = low[c];
+					double sumMaxW = max[c];
+					double sumW = 1;
+					for (int[] dxdz : DX_DZ_LOCAL_NEIGHBORHOOD) {
+						int x1 = x + dxdz[0];
+						int z1 = z + dxdz[1];
+						int x2 = x - dxdz[0];
+						int z2 = z - dxdz[1];
+						double w = 1.0 / (dxdz[0] * dxdz[0] + dxdz[1] * dxdz[1]);
+						if (store.hasPoint(x1, z1)) {
+							sumMinW += low[store.cell(x1, z1)] * w;
+							sumMaxW += max[store.cell(x1, z1)] * w;
+							sumW += w;
+						}
+						if (store.hasPoint(x2, z2)) {
+							sumMinW += low[store.cell(x2, z2)] * w;
+							sumMaxW += max[store.cell(x2, z2)] * w;
+							sumW += w;
+						}
+					}
+					minH = sumMinW / sumW;
+					maxH = sumMaxW / sumW;
+					vy = (minH + maxH) / 2.0;
+					if (seed != null) {
+						double seedH = seed.sample(cx, cz);
+						if (seedH >= minH && seedH <= maxH) {
+							vy = seedH;
+						}
+					}
+				}
+				{ // Move value to stable position.
+					double sumHW = vy;
+					double sumW = 1;
+					for (int x2 = x - delta; x2 <= x + delta; x2++) {
+						for (int z2 = z - delta; z2 <= z + delta; z2++) {
+							for (int s = store.begin(x2, z2); s < store.end(x2, z2); s++) {
+								double dx = store.getX(s) - cx;
+								double dz = store.getZ(s) - cz;
+								double d2 = dx*dx + dz*dz;
+								if (d2 == 0 || d2 > distSquare) continue;
+								double ny = store.getY(s);
+								if (ny < minH) continue;
+								double dy = ny - vy;
+								double w = 1.0 / Math.sqrt(d2 + dy*dy);
+								sumW += w;
+								sumHW += ny * w;
+							}
+						}
+					}
+					newHeight[c] = sumHW / sumW;
+				}
+				numVertices++;
+			}
+		}
+		
+		// Write back the smoothed trees only after all values have been computed.
+		for (int z = 0; z < height; z++) {
+			for (int x = 0; x < width; x++) {
+				int c = store.cell(x, z);
+				if (!isTree[c]) continue;
+				int s0 = store.begin(x, z);
+				store.setSingle(x, z, store.getX(s0), newHeight[c], store.getZ(s0));
+			}
+		}
+		
+		return numVertices;
+	}
+	
+	/**
+	 * Allocation-free variant of {@link #fillNullPoints(Store, Function)}.
+	 *
+	 * @param store The store to fill.
+	 *
+	 * @return The number of points in the store after filling.
+	 */
+	public static int fillNullPoints(PrimitiveStore store) {
+		return fillNullPoints(store, null);
+	}
+	
+	/**
+	 * Variant of {@link #fillNullPoints(PrimitiveStore)} which fills the empty cells
+	 * covered by the given seed with the interpolated seed height. Only the cells
+	 * outside of the seed are filled using {@link #fillHoles(double[], int, int)}.
+	 *
+	 * @param store The store to fill.
+	 * @param seed  The heights of a lower quality level, or {@code null} if not available.
+	 *
+	 * @return The number of points in the store after filling.
+	 */
+	public static int fillNullPoints(PrimitiveStore store, HeightGrid seed) {
+		final ScaleGridTransform transform = store.getTransform();
+		final int width = store.getWidth();
+		final int height = store.getHeight();
+		double[] heights = new double[width * height];
+		boolean anyHole = false;
+		int count = 0;
+		for (int z = 0; z < height; z++) {
+			for (int x = 0; x < width; x++) {
+				int i = x + z*width;
+				if (store.hasPoint(x, z)) {
+					double sum = 0;
+					for (int s = store.begin(x, z); s < store.end(x, z); s++) {
+						sum += store.getY(s);
+					}
+					heights[i] = sum / store.size(x, z);
+					count += store.size(x, z);
+					continue;
+				}
+				double vx = transform.toCoordX(x);
+				double vz = transform.toCoordZ(z);
+				double seedH = seed == null ? Double.NaN : seed.sample(vx, vz);
+				if (!Double.isNaN(seedH)) {
+					store.setSingle(x, z, vx, seedH, vz);
+					count++;
+				} else {
+					anyHole = true;
+				}
+				heights[i] = seedH;
+			}
+		}
+		if (!anyHole) return count;
+		fillHoles(heights, width, height);
+
+		for (int z = 0; z < height; z++) {
+			for (int x = 0; x < width; x++) {
+				if (store.hasPoint(x, z)) continue;
+				store.setSingle(x, z, transform.toCoordX(x), heights[x + z*width], transform.toCoordZ(z));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Reference implementation of {@link #fillNullPoints(PrimitiveStore)}, which searches
+	 * the nearest point in the eight principal directions of every empty cell. Takes time
+	 * quadratic in the size of the holes. Only used to compare against in benchmarks.
+	 *
+	 * @param store The store to fill.
+	 *
+	 * @return The number of points in the store after filling.
+	 */
+	public static int fillNullPointsStar(PrimitiveStore store) {
+		final ScaleGridTransform transform = store.getTransform();
 		int count = 0;
 		for (int x = 0; x < store.getWidth(); x++) {
 			for (int z = 0; z < store.getHeight(); z++) {
 				if (store.hasPoint(x, z)) {
-					count += store.get(x, z).size();
+					count += store.size(x, z);
 					continue;
 				}
-				Vector3d vec = new Vector3d(
-						store.getTransform().toCoordX(x),
-						0,
-						store.getTransform().toCoordZ(z)
-				);
+				double vx = transform.toCoordX(x);
+				double vy = 0;
+				double vz = transform.toCoordZ(z);
 
 				int num = 0;
 				double height = 0;
@@ -330,30 +801,23 @@ public class PreProcessing {
 						if (d <= 0) continue;
 						int otherX = x + d*dirX;
 						int otherZ = z + d*dirZ;
-						StoreElement<Data> elem = store.get(otherX, otherZ);
-						if (elem == null) {
-							LOGGER.error("Should not occur!");
-							continue;
-						}
-						for (Data other : elem) {
+						for (int s = store.begin(otherX, otherZ); s < store.end(otherX, otherZ); s++) {
 							num++;
-							expDX += (other.getVec().x() - store.getTransform().toCoordX(otherX)) / d;
-							height += other.getVec().y();
-							expDZ += (other.getVec().z() - store.getTransform().toCoordZ(otherZ)) / d;
+							expDX += (store.getX(s) - transform.toCoordX(otherX)) / d;
+							height += store.getY(s);
+							expDZ += (store.getZ(s) - transform.toCoordZ(otherZ)) / d;
 						}
 					}
 				}
-				
+
 				if (num == 0) {
 					LOGGER.warn("No point in the star formation found! Using 0 instead for (" + x + ", " + z + ")");
 				} else {
-					vec.add(
-							expDX / num,
-							height / num,
-							expDZ / num
-					);
+					vx += expDX / num;
+					vy += height / num;
+					vz += expDZ / num;
 				}
-				store.set(x, z, new StoreElement<>(generator.apply(vec)));
+				store.setSingle(x, z, vx, vy, vz);
 				count++;
 			}
 		}
@@ -0,0 +1,466 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.pre_processing;
+
+import lombok.Getter;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PrimitiveStore;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.ScaleGridTransform;
+
+import java.util.Arrays;
+
+/**
+ * Streaming classifier of tree cells in a {@link PrimitiveStore}. <br>
+ * <br>
+ * Every point is represented by the height interval {@code [y - d/2, y + d/2]}, where {@code d}
+ * is the maximum height difference. A cell is classified as tree if the intervals of the points
+ * within the given distance of its first point contain more gaps than half the number of points.
+ * The top interval of these points is stored as well. The result is the same as when adding the
+ * intervals to an {@link IntervalList} and using {@link IntervalList#countGaps()} and
+ * {@link IntervalList#getTopInterval()}. <br>
+ * <br>
+ * Instead of collecting and sorting the neighbours of every cell, the classifier slides a window
+ * along each row. Since all intervals have the same length, two neighbouring intervals in height
+ * order are separated by a gap if and only if their heights differ by at least {@code d}. <br>
+ * <br>
+ * If every cell contains at most one point close to its grid position, as for the AHN grids,
+ * then whether a point is within the distance only depends on the offset of its cell. The
+ * neighbours then form a fixed stencil of cells, of which a single cell per row leaves and
+ * enters when moving to the next cell. The heights in the stencil are kept sorted in one array,
+ * and the number of gaps is updated by only looking at the neighbours of the replaced heights.
+ * The top interval starts after the highest gap, which is found by walking down from the top. <br>
+ * <br>
+ * Otherwise, the window covers whole columns of cells. The points in the window are kept sorted
+ * on height in primitive arrays: moving the window one cell removes the leaving column and merges
+ * the sorted entering column. The gaps and top interval of a cell are then found in a single pass
+ * over the window, skipping the points which are too far away. <br>
+ * <br>
+ * The arrays are reused between calls, so an instance should be reused by the same thread.
+ */
+public class VegetationClassifier {
+	/** The maximum height difference between two points on the same surface. */
+	private final double maxHeightDiff;
+	/** Half of {@link #maxHeightDiff}, i.e. the distance from a height to the ends of its interval. */
+	private final double halfDiff;
+	/** The tolerance on the squared distance within which a stencil cell is considered ambiguous. */
+	private static final double STENCIL_TOLERANCE = 1e-9;
+
+	/**
+	 * The number of cells on either side of the center column which are in the stencil,
+	 * indexed by the row offset plus the maximum offset. {@code -1} if the row is not in it.
+	 */
+	private int[] reach = new int[0];
+	/** The heights of the points in the stencil, in ascending order. */
+	private double[] heights = new double[32];
+	/** The number of points in the stencil. */
+	private int numHeights;
+	/** The number of gaps between the intervals of the points in the stencil. */
+	private int numGaps;
+
+	/** The heights of the points in the window, in ascending order. */
+	private double[] winY = new double[64];
+	/** The x-coordinates of the points in the window. */
+	private double[] winX = new double[64];
+	/** The z-coordinates of the points in the window. */
+	private double[] winZ = new double[64];
+	/** The slots of the points in the window. */
+	private int[] winSlot = new int[64];
+	/** The cell x-coordinates of the points in the window. */
+	private int[] winCol = new int[64];
+	/** The number of points in the window. */
+	private int winSize;
+
+	/** The slots of the points of the column entering the window, sorted on height. */
+	private int[] entering = new int[16];
+
+	/** Whether a cell is classified as tree, indexed by {@link PrimitiveStore#cell(int, int)}. */
+	@Getter
+	private boolean[] isTree = new boolean[0];
+	/** The begin value of the top interval of a cell. */
+	@Getter
+	private double[] low = new double[0];
+	/** The end value of the top interval of a cell. */
+	@Getter
+	private double[] max = new double[0];
+	/**
+	 * Array of the same size as the results, which is not used by the classifier.
+	 * Callers can store their own value per cell in it without allocating a new array.
+	 */
+	@Getter
+	private double[] scratch = new double[0];
+
+	/**
+	 * Creates a new classifier.
+	 *
+	 * @param maxHeightDiff The maximum height difference between two points on the same surface.
+	 */
+	public VegetationClassifier(double maxHeightDiff) {
+		this.maxHeightDiff = maxHeightDiff;
+		this.halfDiff = maxHeightDiff / 2;
+	}
+
+	/**
+	 * Classifies the cells of the given store. The results are available through
+	 * {@link #getIsTree()}, {@link #getLow()} and {@link #getMax()} until the next call.
+	 * Only the entries of cells containing points are defined. The contents of
+	 * {@link #getScratch()} are undefined.
+	 *
+	 * @param store The store to classify.
+	 * @param dist  The distance in which neighbouring points are taken into account.
+	 */
+	public void classify(PrimitiveStore store, double dist) {
+		int numCells = store.getWidth() * store.getHeight();
+		if (isTree.length < numCells) {
+			isTree = new boolean[numCells];
+			low = new double[numCells];
+			max = new double[numCells];
+			scratch = new double[numCells];
+		} else {
+			Arrays.fill(isTree, 0, numCells, false);
+		}
+
+		final int delta = (int) Math.ceil(dist / store.getTransform().getScaleX());
+		if (computeStencil(store, dist, delta)) {
+			classifyStencil(store, delta);
+		} else {
+			classifyWindow(store, dist, delta);
+		}
+	}
+
+	/**
+	 * Determines whether the neighbours of a cell only depend on the offsets of their cells.
+	 * This is the case if every cell contains at most one point, and the points deviate so little
+	 * from their grid positions that every cell in the window is either completely within the
+	 * distance of the center cell, or completely outside it. If so, {@link #reach} is computed.
+	 *
+	 * @param store The store to classify.
+	 * @param dist  The distance in which neighbouring points are taken into account.
+	 * @param delta The maximum offset of a neighbouring cell.
+	 *
+	 * @return {@code true} if the stencil can be used, {@code false} otherwise.
+	 */
+	private boolean computeStencil(PrimitiveStore store, double dist, int delta) {
+		final ScaleGridTransform transform = store.getTransform();
+		double minDevX = 0, maxDevX = 0;
+		double minDevZ = 0, maxDevZ = 0;
+		for (int z = 0; z < store.getHeight(); z++) {
+			double coordZ = transform.toCoordZ(z);
+			for (int x = 0; x < store.getWidth(); x++) {
+				int n = store.size(x, z);
+				if (n == 0) continue;
+				if (n > 1) return false;
+				int s = store.begin(x, z);
+				double devX = store.getX(s) - transform.toCoordX(x);
+				double devZ = store.getZ(s) - coordZ;
+				minDevX = Math.min(minDevX, devX);
+				maxDevX = Math.max(maxDevX, devX);
+				minDevZ = Math.min(minDevZ, devZ);
+				maxDevZ = Math.max(maxDevZ, devZ);
+			}
+		}
+
+		// The difference between the deviations of two points is at most the spread.
+		final double spreadX = maxDevX - minDevX;
+		final double spreadZ = maxDevZ - minDevZ;
+		final double scaleX = Math.abs(transform.getScaleX());
+		final double scaleZ = Math.abs(transform.getScaleZ());
+		final double distSquare = dist * dist;
+		final double tolerance = distSquare * STENCIL_TOLERANCE;
+		if (reach.length < 2*delta + 1) {
+			reach = new int[2*delta + 1];
+		}
+		for (int j = -delta; j <= delta; j++) {
+			double minDz = Math.max(0, Math.abs(j) * scaleZ - spreadZ);
+			double maxDz = Math.abs(j) * scaleZ + spreadZ;
+			int r = -1;
+			for (int i = 0; i <= delta; i++) {
+				double minDx = Math.max(0, i * scaleX - spreadX);
+				double maxDx = i * scaleX + spreadX;
+				double minD2 = minDx*minDx + minDz*minDz;
+				double maxD2 = maxDx*maxDx + maxDz*maxDz;
+				if (i == 0 && j == 0) {
+					// The center cell only contains the point itself.
+					r = 0;
+				} else if (minD2 > tolerance && maxD2 < distSquare - tolerance) {
+					r = i;
+				} else if (minD2 <= distSquare + tolerance) {
+					// Either too close to be distinct, or partially within the distance.
+					return false;
+				}
+			}
+			reach[j + delta] = r;
+		}
+		return true;
+	}
+
+	/**
+	 * Classifies the cells using the stencil computed by {@link #computeStencil}.
+	 *
+	 * @param store The store to classify.
+	 * @param delta The maximum offset of a neighbouring cell.
+	 */
+	private void classifyStencil(PrimitiveStore store, int delta) {
+		final int width = store.getWidth();
+		final int height = store.getHeight();
+
+		for (int z = 0; z < height; z++) {
+			numHeights = 0;
+			numGaps = 0;
+			for (int j = -delta; j <= delta; j++) {
+				int r = reach[j + delta];
+				for (int i = -r; i < r; i++) {
+					if (store.hasPoint(i, z + j)) insertHeight(store.getY(store.begin(i, z + j)));
+				}
+			}
+			for (int x = 0; x < width; x++) {
+				// Slide the stencil such that it covers the columns x - r .. x + r of every row.
+				for (int j = -delta; j <= delta; j++) {
+					int r = reach[j + delta];
+					if (r < 0) continue;
+					int z2 = z + j;
+					boolean leaving = store.hasPoint(x - r - 1, z2);
+					boolean entering = store.hasPoint(x + r, z2);
+					if (leaving && entering) {
+						replaceHeight(
+								store.getY(store.begin(x - r - 1, z2)),
+								store.getY(store.begin(x + r, z2)));
+					} else if (leaving) {
+						removeHeight(store.getY(store.begin(x - r - 1, z2)));
+					} else if (entering) {
+						insertHeight(store.getY(store.begin(x + r, z2)));
+					}
+				}
+				if (!store.hasPoint(x, z)) continue;
+
+				int c = store.cell(x, z);
+				int top = numHeights - 1;
+				if (numGaps > 0) {
+					while (!isGap(heights[top - 1], heights[top])) top--;
+				} else {
+					top = 0;
+				}
+				low[c] = heights[top] - halfDiff;
+				max[c] = heights[numHeights - 1] + halfDiff;
+				if (numHeights > 2 && numGaps > numHeights / 2.0) {
+					isTree[c] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return {@code true} if the intervals of the given heights are separated by a gap.
+	 */
+	private boolean isGap(double lower, double upper) {
+		// The same comparison as made on the begin and end values of the intervals.
+		return upper - halfDiff >= lower + halfDiff;
+	}
+
+	/**
+	 * Updates the number of gaps for the neighbours of the height at the given index,
+	 * which is added to ({@code sign = 1}) or removed from ({@code sign = -1}) the stencil.
+	 */
+	private void countGapsAround(int index, int sign) {
+		double y = heights[index];
+		boolean hasPrev = index > 0;
+		boolean hasNext = index < numHeights - 1;
+		int change = 0;
+		if (hasPrev && isGap(heights[index - 1], y)) change++;
+		if (hasNext && isGap(y, heights[index + 1])) change++;
+		if (hasPrev && hasNext && isGap(heights[index - 1], heights[index + 1])) change--;
+		numGaps += sign * change;
+	}
+
+	/**
+	 * @return The index of a height equal to the given height in the stencil.
+	 */
+	private int indexOfHeight(double y) {
+		int lo = 0;
+		int hi = numHeights - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (heights[mid] < y) {
+				lo = mid + 1;
+			} else if (heights[mid] > y) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		throw new IllegalStateException("Height " + y + " is not in the stencil");
+	}
+
+	private void insertHeight(double y) {
+		if (numHeights == heights.length) heights = Arrays.copyOf(heights, 2 * numHeights);
+		int k = numHeights++;
+		while (k > 0 && heights[k - 1] > y) {
+			heights[k] = heights[k - 1];
+			k--;
+		}
+		heights[k] = y;
+		countGapsAround(k, 1);
+	}
+
+	private void removeHeight(double y) {
+		int k = indexOfHeight(y);
+		countGapsAround(k, -1);
+		numHeights--;
+		System.arraycopy(heights, k + 1, heights, k, numHeights - k);
+	}
+
+	/**
+	 * Replaces a height in the stencil by another height. Only the heights in between
+	 * are moved, which are only a few as neighbouring heights are often similar.
+	 */
+	private void replaceHeight(double oldY, double newY) {
+		int k = indexOfHeight(oldY);
+		countGapsAround(k, -1);
+		if (newY >= oldY) {
+			while (k + 1 < numHeights && heights[k + 1] <= newY) {
+				heights[k] = heights[k + 1];
+				k++;
+			}
+		} else {
+			while (k > 0 && heights[k - 1] > newY) {
+				heights[k] = heights[k - 1];
+				k--;
+			}
+		}
+		heights[k] = newY;
+		countGapsAround(k, 1);
+	}
+
+	/**
+	 * Classifies the cells using a window of whole columns, which supports any store.
+	 *
+	 * @param store The store to classify.
+	 * @param dist  The distance in which neighbouring points are taken into account.
+	 * @param delta The maximum offset of a neighbouring cell.
+	 */
+	private void classifyWindow(PrimitiveStore store, double dist, int delta) {
+		final int width = store.getWidth();
+		final int height = store.getHeight();
+		final double distSquare = dist * dist;
+
+		for (int z = 0; z < height; z++) {
+			winSize = 0;
+			for (int x2 = -delta; x2 < delta; x2++) {
+				enterColumn(store, x2, z, delta);
+			}
+			for (int x = 0; x < width; x++) {
+				// Slide the window such that it covers the columns x - delta .. x + delta.
+				leaveColumn(x - delta - 1);
+				enterColumn(store, x + delta, z, delta);
+				if (!store.hasPoint(x, z)) continue;
+
+				int c = store.cell(x, z);
+				int s0 = store.begin(x, z);
+				double cx = store.getX(s0);
+				double cz = store.getZ(s0);
+
+				int size = 0;
+				int gaps = 0;
+				double topBegin = Double.NaN;
+				double prevEnd = Double.NaN;
+				for (int i = 0; i < winSize; i++) {
+					if (winSlot[i] != s0) {
+						double dx = winX[i] - cx;
+						double dz = winZ[i] - cz;
+						double d2 = dx*dx + dz*dz;
+						if (d2 == 0 || d2 > distSquare) continue;
+					}
+					double begin = winY[i] - halfDiff;
+					if (size == 0) {
+						topBegin = begin;
+					} else if (begin >= prevEnd) {
+						// The intervals are sorted and of equal length, so the previous interval
+						// has the largest end value so far.
+						gaps++;
+						topBegin = begin;
+					}
+					prevEnd = winY[i] + halfDiff;
+					size++;
+				}
+				low[c] = topBegin;
+				max[c] = prevEnd;
+				if (size > 2 && gaps > size / 2.0) {
+					isTree[c] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the points of the given column from the window, keeping the order.
+	 */
+	private void leaveColumn(int col) {
+		int j = 0;
+		for (int i = 0; i < winSize; i++) {
+			if (winCol[i] == col) continue;
+			if (i != j) {
+				winY[j] = winY[i];
+				winX[j] = winX[i];
+				winZ[j] = winZ[i];
+				winSlot[j] = winSlot[i];
+				winCol[j] = winCol[i];
+			}
+			j++;
+		}
+		winSize = j;
+	}
+
+	/**
+	 * Merges the points of the cells {@code (col, z - delta) .. (col, z + delta)} into the window.
+	 */
+	private void enterColumn(PrimitiveStore store, int col, int z, int delta) {
+		if (col < 0 || col >= store.getWidth()) return;
+
+		// Collect and insertion sort the entering points, which are only a few.
+		int n = 0;
+		for (int z2 = z - delta; z2 <= z + delta; z2++) {
+			for (int s = store.begin(col, z2); s < store.end(col, z2); s++) {
+				if (n == entering.length) entering = Arrays.copyOf(entering, 2 * n);
+				int k = n++;
+				double y = store.getY(s);
+				while (k > 0 && store.getY(entering[k - 1]) > y) {
+					entering[k] = entering[k - 1];
+					k--;
+				}
+				entering[k] = s;
+			}
+		}
+		if (n == 0) return;
+		ensureCapacity(winSize + n);
+
+		// Merge from the back, such that no temporary arrays are needed.
+		int i = winSize - 1;
+		int k = n - 1;
+		for (int t = winSize + n - 1; k >= 0; t--) {
+			double y = store.getY(entering[k]);
+			if (i >= 0 && winY[i] > y) {
+				winY[t] = winY[i];
+				winX[t] = winX[i];
+				winZ[t] = winZ[i];
+				winSlot[t] = winSlot[i];
+				winCol[t] = winCol[i];
+				i--;
+			} else {
+				int s = entering[k--];
+				winY[t] = y;
+				winX[t] = store.getX(s);
+				winZ[t] = store.getZ(s);
+				winSlot[t] = s;
+				winCol[t] = col;
+			}
+		}
+		winSize += n;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= winY.length) return;
+		int newLength = Math.max(capacity, 2 * winY.length);
+		winY = Arrays.copyOf(winY, newLength);
+		winX = Arrays.copyOf(winX, newLength);
+		winZ = Arrays.copyOf(winZ, newLength);
+		winSlot = Arrays.copyOf(winSlot, newLength);
+		winCol = Arrays.copyOf(winCol, newLength);
+	}
+
+}
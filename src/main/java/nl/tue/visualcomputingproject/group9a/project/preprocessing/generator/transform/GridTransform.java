@@ -18,8 +18,11 @@ public interface GridTransform {
 		ChunkPosition pos = chunk.getPosition();
 		double rootX = pos.getX() - crop.getX();
 		double rootZ = pos.getY() - crop.getY();
-		
-		switch (chunk.getQualityLevel()) {
+		return createTransformFor(chunk.getQualityLevel(), rootX, rootZ);
+	}
+	
+	static ScaleGridTransform createTransformFor(QualityLevel quality, double rootX, double rootZ) {
+		switch (quality) {
 			case FIVE_BY_FIVE:
 				return new FiveByFiveGridTransform(rootX, rootZ);
 			case HALF_BY_HALF:
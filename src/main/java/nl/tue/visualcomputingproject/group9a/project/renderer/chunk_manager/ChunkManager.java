@@ -2,6 +2,9 @@ package nl.tue.visualcomputingproject.group9a.project.renderer.chunk_manager;
 
 import com.google.common.eventbus.EventBus;
 import nl.tue.visualcomputingproject.group9a.project.common.chunk.*;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.LatencyHistogram;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import nl.tue.visualcomputingproject.group9a.project.common.util.Pair;
 import nl.tue.visualcomputingproject.group9a.project.renderer.engine.entities.Camera;
 import nl.tue.visualcomputingproject.group9a.project.renderer.engine.model.Loader;
 import nl.tue.visualcomputingproject.group9a.project.renderer.engine.model.RawModel;
@@ -12,7 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
-import java.nio.FloatBuffer;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -23,8 +26,19 @@ public class ChunkManager {
 
 	/** The logger object of this class. */
 	private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+	/** The latency of uploading a chunk to the GPU. */
+	private static final LatencyHistogram UPLOAD_LATENCY = MetricsRegistry.histogram("renderer.upload");
+	/** The time between requesting a chunk and uploading its mesh, indexed by quality level. */
+	private static final LatencyHistogram[] MESH_LATENCY = new LatencyHistogram[QualityLevel.values().length];
+	static {
+		for (QualityLevel level : QualityLevel.values()) {
+			MESH_LATENCY[level.ordinal()] = MetricsRegistry.histogram(
+					"renderer.time-to-mesh." + level.name().toLowerCase(Locale.ROOT));
+		}
+	}
 	private final Map<ChunkPosition, RawModel> models = new HashMap<>();
-	private final Map<ChunkPosition, FloatBuffer> positionData = new HashMap<>();
+	/** The vertex data of the loaded chunks, used to look up heights. */
+	private final Map<ChunkPosition, Pair<ByteBuffer, VertexBufferType>> positionData = new HashMap<>();
 	private final ChunkManagerHandlerThread handlerThread;
 	
 	public ChunkManager(EventBus eventBus) {
@@ -59,6 +73,16 @@ public class ChunkManager {
 	}
 	
 	private RawModel loadModel(Model model, RawModel raw) {
+		final long start = System.nanoTime();
+		raw = uploadModel(model, raw);
+		long end = UPLOAD_LATENCY.recordSince(start);
+		if (model.hasNewData()) {
+			MESH_LATENCY[model.getQuality().ordinal()].record(end - model.getRequested());
+		}
+		return raw;
+	}
+	
+	private RawModel uploadModel(Model model, RawModel raw) {
 		int texId = -1;
 		if (model.hasNewImage()) {
 			// Only unload the existing image if a new one is available.
@@ -68,10 +92,12 @@ public class ChunkManager {
 			texId = raw.getTexId();
 		}
 
-		FloatBuffer posData = null;
+		Pair<ByteBuffer, VertexBufferType> posData = null;
 		if (model.hasNewData()) {
+			posData = new Pair<>(model.getData().getVertexByteBuffer(), model.getVertexType());
 			raw = Loader.loadToVAO(
-					posData = model.getData().getVertexBuffer(),
+					posData.getFirst(),
+					posData.getSecond(),
 					model.getData().getMeshBuffer(),
 					model.getData().getOffset(),
 					texId
@@ -80,9 +106,12 @@ public class ChunkManager {
 		} else if (raw == null) {
 			ChunkPosition cp = model.getPosition();
 			Vector2f offset = new Vector2f((float) cp.getX(), (float) cp.getY());
-			posData = Loader.createPlaneVertices();
+			posData = new Pair<>(
+					Loader.createPlaneVertices(),
+					VertexBufferType.INTERLEAVED_VERTEX_3_FLOAT_NORMAL_3_FLOAT);
 			raw = Loader.loadToVAO(
-				posData,
+				posData.getFirst(),
+				posData.getSecond(),
 				Loader.createPlaneMesh(),
 				offset,
 				texId
@@ -140,7 +169,7 @@ public class ChunkManager {
 	 */
 	public Optional<Float> getHeight(float x, float z) {
 		ChunkPosition cp = getChunkPosition(x, z);
-		FloatBuffer data = positionData.get(cp);
+		Pair<ByteBuffer, VertexBufferType> data = positionData.get(cp);
 		if (data == null) {
 			return Optional.empty();
 		}
@@ -150,10 +179,14 @@ public class ChunkManager {
 		}
 		float height = 0f;
 		float distSquared = Float.POSITIVE_INFINITY;
-		for (int i = 0; i + 2 < data.remaining(); i += 6) {
-			float xPos = x - (float) cp.getX() - data.get(i);
-			float h = data.get(i+1);
-			float zPos = z - (float) cp.getY() - data.get(i+2);
+		ByteBuffer buffer = data.getFirst();
+		VertexBufferType type = data.getSecond();
+		Vector3f v = new Vector3f();
+		for (int i = type.countVertices(buffer) - 1; i >= 0; i--) {
+			type.getVertex(buffer, i, v);
+			float xPos = x - (float) cp.getX() - v.x;
+			float h = v.y;
+			float zPos = z - (float) cp.getY() - v.z;
 			float d2 = xPos*xPos + zPos*zPos;
 			if (d2 < distSquared) {
 				height = h;
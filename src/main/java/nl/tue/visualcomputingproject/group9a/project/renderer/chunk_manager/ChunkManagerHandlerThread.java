@@ -123,7 +123,7 @@ public class ChunkManagerHandlerThread
 				if (curPos != null) {
 					if (posUpdate) {
 						updateState(curPos);
-						sendUpdate();
+						sendUpdate(curPos);
 					}
 					receiveEvents();
 				}
@@ -214,7 +214,7 @@ public class ChunkManagerHandlerThread
 		};
 	}
 
-	private void sendUpdate() {
+	private void sendUpdate(Vector2i curPos) {
 		for (Model cp : newLoad) {
 			loaded.put(cp.getPosition(), cp);
 		}
@@ -233,7 +233,12 @@ public class ChunkManagerHandlerThread
 		if (!newLoad.isEmpty() || !newUnload.isEmpty()) {
 			eventBus.post(new RendererChunkStatusEvent(
 					newLoad.stream().map(Model::getPosition).collect(Collectors.toList()),
-					newUnload
+					newUnload,
+					new ChunkPosition(
+							curPos.x * Settings.CHUNK_WIDTH,
+							curPos.y * Settings.CHUNK_HEIGHT,
+							Settings.CHUNK_WIDTH,
+							Settings.CHUNK_HEIGHT)
 			));
 			newLoad = new ArrayList<>();
 			newUnload = new ArrayList<>();
@@ -262,7 +267,10 @@ public class ChunkManagerHandlerThread
 			}
 			
 			// Request the renderer to load the chunk and update the internal state.
-			updateModel(model, () -> model.setData(e.getChunk().getData(), e.getChunk().getQualityLevel()));
+			updateModel(model, () -> model.setData(
+					e.getChunk().getData(),
+					e.getChunk().getQualityLevel(),
+					e.getChunk().getChunkId().getVertexType()));
 		}
 		
 		while (!textureEventQueue.isEmpty()) {
@@ -12,18 +12,22 @@ class Model {
 	private final ChunkPosition position;
 	private MeshChunkData data = null;
 	private QualityLevel quality = QualityLevel.FLAT;
+	private VertexBufferType vertexType = null;
 	private ByteBuffer image = null;
 	private int width = -1;
 	private int height = -1;
+	/** The value of {@link System#nanoTime()} when the chunk was requested. */
+	private long requested = System.nanoTime();
 	
 	public Model(@NonNull ChunkPosition position) {
 		this.position = position;
 	}
 
-	public Model(@NonNull ChunkPosition position, MeshChunkData data, QualityLevel quality) {
+	public Model(@NonNull ChunkPosition position, MeshChunkData data, QualityLevel quality, VertexBufferType vertexType) {
 		this.position = position;
 		this.data = data;
 		this.quality = quality;
+		this.vertexType = vertexType;
 	}
 
 	public Model(@NonNull ChunkPosition position, ByteBuffer image, int width, int height) {
@@ -34,7 +38,7 @@ class Model {
 	}
 	
 	public Model extract() {
-		Model newModel = new Model(position, data, quality, image, width, height);
+		Model newModel = new Model(position, data, quality, vertexType, image, width, height, requested);
 		data = null;
 		image = null;
 		return newModel;
@@ -62,9 +66,10 @@ class Model {
 		return quality != QualityLevel.FLAT;
 	}
 	
-	public void setData(MeshChunkData data, QualityLevel quality) {
+	public void setData(MeshChunkData data, QualityLevel quality, VertexBufferType vertexType) {
 		this.data = data;
 		this.quality = quality;
+		this.vertexType = vertexType;
 	}
 	
 	@Override
@@ -1,6 +1,7 @@
 package nl.tue.visualcomputingproject.group9a.project.renderer.engine.model;
 
 import de.matthiasmann.twl.utils.PNGDecoder;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.VertexBufferType;
 import nl.tue.visualcomputingproject.group9a.project.renderer.engine.utils.Maths;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
@@ -58,8 +59,14 @@ public class Loader {
 			0, 2, 3
 	};
 
-	public static FloatBuffer createPlaneVertices() {
-		return storeDataInFloatBuffer(PLANE_VERTICES);
+	/**
+	 * @return The vertices of a flat chunk, of type
+	 *     {@link VertexBufferType#INTERLEAVED_VERTEX_3_FLOAT_NORMAL_3_FLOAT}.
+	 */
+	public static ByteBuffer createPlaneVertices() {
+		ByteBuffer buffer = BufferUtils.createByteBuffer(Float.BYTES * PLANE_VERTICES.length);
+		buffer.asFloatBuffer().put(PLANE_VERTICES);
+		return buffer;
 	}
 	
 	public static IntBuffer createPlaneMesh() {
@@ -71,6 +78,40 @@ public class Loader {
 			IntBuffer indices,
 			Vector2f offset,
 			int texId) {
+		// Store the vertex data in a VBO
+		int vertexVBO = createVBO();
+		storeBufferInVBO(vertexVBO, vertices);
+		return loadToVAO(vertexVBO, VertexBufferType.INTERLEAVED_VERTEX_3_FLOAT_NORMAL_3_FLOAT, indices, offset, texId);
+	}
+
+	/**
+	 * Make a RawModel in a VAO from a vertex buffer of the given type and indices
+	 *
+	 * @param vertices   The vertex data.
+	 * @param vertexType The layout of the vertex data. Must be interleaved.
+	 * @param indices    The indices of the triangles.
+	 * @param offset     The offset of the model.
+	 * @param texId      The texture of the model, or {@code -1} if it has none.
+	 * @return RawModel created from the input
+	 */
+	public static RawModel loadToVAO(
+			ByteBuffer vertices,
+			VertexBufferType vertexType,
+			IntBuffer indices,
+			Vector2f offset,
+			int texId) {
+		// Store the vertex data in a VBO
+		int vertexVBO = createVBO();
+		storeBufferInVBO(vertexVBO, vertices);
+		return loadToVAO(vertexVBO, vertexType, indices, offset, texId);
+	}
+
+	private static RawModel loadToVAO(
+			int vertexVBO,
+			VertexBufferType vertexType,
+			IntBuffer indices,
+			Vector2f offset,
+			int texId) {
 		// Determine how many indices there are
 		int indicesCount = indices.remaining();
 
@@ -87,14 +128,24 @@ public class Loader {
 		int indicesVBO = bindIndicesBuffer(indices);
 		modelVBOs.add(indicesVBO);
 
-		// Store other data in a VBO
-		int vertexVBO = createVBO();
 		modelVBOs.add(vertexVBO);
-		storeBufferInVBO(vertexVBO, vertices);
 
 		// Configure the attribute lists to point to the types of vertex data
-		setAttributePointer(vertexVBO, 0, 3, 6, 0); // Positions
-		setAttributePointer(vertexVBO, 1, 3, 6, 3); // Normals
+		switch (vertexType) {
+			case INTERLEAVED_VERTEX_3_FLOAT_NORMAL_3_FLOAT:
+				setAttributePointer(vertexVBO, 0, 3, 6, 0); // Positions
+				setAttributePointer(vertexVBO, 1, 3, 6, 3); // Normals
+				break;
+			case INTERLEAVED_QUANTIZED_VERTEX_3_SHORT_NORMAL_2_BYTE:
+				// Positions are decoded in the shader, normals are normalized to [-1, 1]
+				setAttributePointer(vertexVBO, 0, 3, GL11.GL_UNSIGNED_SHORT, false,
+						vertexType.getVertexSize(), 0);
+				setAttributePointer(vertexVBO, 1, 2, GL11.GL_BYTE, true,
+						vertexType.getVertexSize(), 3 * Short.BYTES);
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported vertex type: " + vertexType);
+		}
 
 		// Unbind the VAO as we are no longer working on it
 		unbindVAO();
@@ -104,6 +155,7 @@ public class Loader {
 				indicesCount,
 				Maths.createTransformationMatrix(new Vector3f(offset.x, 0, offset.y), 0, 0, 0, 1),
 				modelVBOs,
+				vertexType,
 				texId
 		);
 	}
@@ -222,6 +274,18 @@ public class Loader {
 		unbindVBO();
 	}
 
+	/**
+	 * Store data from a byte buffer into a VBO
+	 *
+	 * @param vbo  ID of the VBO to store the data in
+	 * @param data Data to store in the VBO
+	 */
+	private static void storeBufferInVBO(int vbo, ByteBuffer data) {
+		bindVBO(vbo);
+		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, data, GL15.GL_STATIC_DRAW);
+		unbindVBO();
+	}
+
 	/**
 	 * Bind an indices buffer to the VAO
 	 *
@@ -252,6 +316,30 @@ public class Loader {
 			int floatsPerVertex,
 			int totalFloatsPerVertex,
 			int floatsOffset) {
+		setAttributePointer(vbo, attributeNumber, floatsPerVertex, GL11.GL_FLOAT, false,
+				Float.BYTES * totalFloatsPerVertex, Float.BYTES * floatsOffset);
+	}
+
+	/**
+	 * Attach data of any type from a VBO to the VAO in attribute position {@code attributeNumber}.
+	 * The values are converted to floats, which are available in the shader.
+	 *
+	 * @param vbo             ID of the VBO to take the data from.
+	 * @param attributeNumber Attribute number to bind this data to in the VAO.
+	 * @param valuesPerVertex Number of values this attribute has per vertex.
+	 * @param type            The OpenGL type of the values, e.g. {@link GL11#GL_UNSIGNED_SHORT}.
+	 * @param normalized      Whether integer values are mapped to {@code [0, 1]} or {@code [-1, 1]}.
+	 * @param stride          Number of bytes (for any attribute) in the VBO per vertex.
+	 * @param offset          Number of bytes after position 0 to start from.
+	 */
+	private static void setAttributePointer(
+			int vbo,
+			int attributeNumber,
+			int valuesPerVertex,
+			int type,
+			boolean normalized,
+			int stride,
+			int offset) {
 
 		// Enable the VBO so we can work on it here
 		bindVBO(vbo);
@@ -259,11 +347,11 @@ public class Loader {
 		// Specify the location and organization in the VAO
 		GL20.glVertexAttribPointer(
 				attributeNumber, // Position in the VAO
-				floatsPerVertex, // Number of data points per vertex
-				GL11.GL_FLOAT, // Type of vertices
-				false, // Not normalized
-				Float.BYTES * totalFloatsPerVertex, // Distance between vertices in the array
-				Float.BYTES * floatsOffset // Offset
+				valuesPerVertex, // Number of data points per vertex
+				type, // Type of vertices
+				normalized, // Whether the values are normalized
+				stride, // Distance between vertices in the array
+				offset // Offset
 		);
 
 		// Unbind the VBO as we are no longer working on it
@@ -311,6 +399,7 @@ public class Loader {
 				vertices.length / 3,
 				Maths.createTransformationMatrix(new Vector3f(), 0, 0, 0, 1),
 				Collections.singletonList(vbo),
+				null, // Not rendered by the static shader
 				-1
 		);
 	}
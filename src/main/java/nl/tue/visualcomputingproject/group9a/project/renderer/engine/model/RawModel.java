@@ -2,6 +2,7 @@ package nl.tue.visualcomputingproject.group9a.project.renderer.engine.model;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.VertexBufferType;
 import org.joml.Matrix4f;
 
 import java.util.Collection;
@@ -14,6 +15,8 @@ public class RawModel {
 	private final int indicesCount;
 	private final Matrix4f modelMatrix;
 	private final Collection<Integer> vboIds;
+	/** The layout of the vertex data, used to decode the vertices in the shader. */
+	private final VertexBufferType vertexType;
 	private int texId;
 
 }
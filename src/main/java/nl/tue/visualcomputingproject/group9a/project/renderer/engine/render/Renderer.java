@@ -34,6 +34,7 @@ public class Renderer {
 		// Load transformation matrix into the shader
 		Matrix4f transformationMatrix = model.getModelMatrix();
 		shader.loadTransformationMatrix(transformationMatrix);
+		shader.loadVertexType(model.getVertexType());
 
 		// Load view matrix into the shader
 		shader.loadViewMatrix(camera);
@@ -1,6 +1,7 @@
 package nl.tue.visualcomputingproject.group9a.project.renderer.engine.shaders;
 
 import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.VertexBufferType;
 import nl.tue.visualcomputingproject.group9a.project.renderer.engine.entities.Camera;
 import nl.tue.visualcomputingproject.group9a.project.renderer.engine.entities.Light;
 import nl.tue.visualcomputingproject.group9a.project.renderer.engine.io.SwingCanvas;
@@ -8,12 +9,24 @@ import nl.tue.visualcomputingproject.group9a.project.renderer.engine.io.SwingWin
 import nl.tue.visualcomputingproject.group9a.project.renderer.engine.io.Window;
 import nl.tue.visualcomputingproject.group9a.project.renderer.engine.utils.Maths;
 import org.joml.Matrix4f;
+import org.joml.Vector3f;
 
 public class StaticShader extends ShaderProgram {
 
 	private static final String VERTEX_FILE = "/shaders/vertexShader.vert";
 	private static final String FRAGMENT_FILE = "/shaders/fragmentShader.frag";
 
+	private static final Vector3f FLOAT_SCALE = new Vector3f(1);
+	private static final Vector3f FLOAT_OFFSET = new Vector3f(0);
+	private static final Vector3f QUANTIZED_SCALE = new Vector3f(
+			VertexBufferType.QUANTIZED_XZ_SCALE,
+			VertexBufferType.QUANTIZED_Y_SCALE,
+			VertexBufferType.QUANTIZED_XZ_SCALE);
+	private static final Vector3f QUANTIZED_OFFSET = new Vector3f(
+			VertexBufferType.QUANTIZED_XZ_OFFSET,
+			VertexBufferType.QUANTIZED_Y_OFFSET,
+			VertexBufferType.QUANTIZED_XZ_OFFSET);
+
 	private int locationTransformationMatrix;
 	private int locationViewMatrix;
 	private int locationProjectionMatrix;
@@ -24,6 +37,9 @@ public class StaticShader extends ShaderProgram {
 	private int locationTextureSampler;
 	private int locationTextureAvailable;
 	private int locationBorder;
+	private int locationPositionScale;
+	private int locationPositionOffset;
+	private int locationOctNormal;
 
 	public StaticShader() {
 		super(VERTEX_FILE, FRAGMENT_FILE);
@@ -48,6 +64,9 @@ public class StaticShader extends ShaderProgram {
 		locationTextureSampler = super.getUniformLocation("textureSampler");
 		locationTextureAvailable = super.getUniformLocation("textureAvailable");
 		locationBorder = super.getUniformLocation("border");
+		locationPositionScale = super.getUniformLocation("positionScale");
+		locationPositionOffset = super.getUniformLocation("positionOffset");
+		locationOctNormal = super.getUniformLocation("octNormal");
 	}
 
 	public void loadTransformationMatrix(Matrix4f matrix) {
@@ -71,6 +90,22 @@ public class StaticShader extends ShaderProgram {
 		super.loadFloat(locationBorder, (float) Settings.CHUNK_TILE_BORDER);
 	}
 
+	/**
+	 * Loads the parameters used to decode vertices of the given type.
+	 *
+	 * @param type The type of the vertex buffer of the model.
+	 */
+	public void loadVertexType(VertexBufferType type) {
+		if (type.isQuantized()) {
+			super.loadVector3f(locationPositionScale, QUANTIZED_SCALE);
+			super.loadVector3f(locationPositionOffset, QUANTIZED_OFFSET);
+		} else {
+			super.loadVector3f(locationPositionScale, FLOAT_SCALE);
+			super.loadVector3f(locationPositionOffset, FLOAT_OFFSET);
+		}
+		super.loadBoolean(locationOctNormal, type.isQuantized());
+	}
+
 	public void loadLight(Light light) {
 		super.loadVector3f(locationLightPosition, light.getPosition());
 		super.loadVector3f(locationLightColor, light.getColor());
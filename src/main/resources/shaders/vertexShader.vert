@@ -15,14 +15,29 @@ uniform mat4 viewMatrix;
 uniform vec3 lightPosition;
 uniform vec3 cameraPosition;
 uniform float time;
+uniform vec3 positionScale;
+uniform vec3 positionOffset;
+uniform bool octNormal;
 
 const float PI = 3.14159265359;
 
+// Decodes a normal stored as (x, z) on an octahedron folded over the y = 0 plane
+vec3 decodeOctNormal(vec2 e) {
+    vec3 n = vec3(e.x, 1.0 - abs(e.x) - abs(e.y), e.y);
+    if (n.y < 0.0) {
+        vec2 signs = vec2(n.x >= 0.0 ? 1.0 : -1.0, n.z >= 0.0 ? 1.0 : -1.0);
+        n.xz = (1.0 - abs(n.zx)) * signs;
+    }
+    return normalize(n);
+}
+
 void main(void) {
-    flatPosition = position.xz;
+    // Decode quantized positions, the identity for float positions
+    vec3 localPosition = position * positionScale + positionOffset;
+    flatPosition = localPosition.xz;
 
     // Transform the vertex position according to entity movement and rotation
-    vec4 transPosition = transformationMatrix * vec4(position, 1.0);
+    vec4 transPosition = transformationMatrix * vec4(localPosition, 1.0);
 
     // Vector pointing from vertex to light
     // Light position is already in globe space
@@ -32,7 +47,7 @@ void main(void) {
     gl_Position = projectionMatrix * viewMatrix * transPosition;
 
     // normal
-    surfaceNormal = (vec4(normal, 1.0)).xyz; //(transformationMatrix * vec4(normal, 1.0)).xyz;
+    surfaceNormal = octNormal ? decodeOctNormal(normal.xy) : normal; //(transformationMatrix * vec4(normal, 1.0)).xyz;
 
     // color
     color = vec3(1, 1, 1);
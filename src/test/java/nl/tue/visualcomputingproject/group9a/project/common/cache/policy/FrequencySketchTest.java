@@ -0,0 +1,40 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.policy;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the estimates of the {@link FrequencySketch}.
+ */
+public class FrequencySketchTest {
+
+	/**
+	 * Growing the sketch should preserve the estimates of all keys.
+	 */
+	@Test
+	public void keepsCountsWhenGrowing() {
+		FrequencySketch sketch = new FrequencySketch(128);
+		Random random = new Random(42);
+		int[] hashes = new int[100];
+		for (int i = 0; i < hashes.length; i++) {
+			hashes[i] = random.nextInt();
+			for (int j = i % 8; j >= 0; j--) {
+				sketch.increment(hashes[i]);
+			}
+		}
+		int[] before = new int[hashes.length];
+		for (int i = 0; i < hashes.length; i++) {
+			before[i] = sketch.frequency(hashes[i]);
+			assertTrue(before[i] >= Math.min(15, i % 8 + 1));
+		}
+
+		sketch.ensureCapacity(4096);
+		for (int i = 0; i < hashes.length; i++) {
+			assertEquals(before[i], sketch.frequency(hashes[i]));
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.policy;
+
+import nl.tue.visualcomputingproject.group9a.project.common.cache.CacheIndex;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.FileId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the eviction of the {@link LRUCachePolicy}.
+ */
+public class LRUCachePolicyTest {
+	/** The size of every file. */
+	private static final long SIZE = 10;
+
+	/** The directory to write the cache indices to. */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Evicting a file should only evict the least recently used files,
+	 * and should forget them.
+	 */
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		LRUCachePolicy policy = new LRUCachePolicy(3 * SIZE);
+		StubCache cache = new StubCache(true);
+		FileId a = cache.track(policy, "a", SIZE);
+		FileId b = cache.track(policy, "b", SIZE);
+		FileId c = cache.track(policy, "c", SIZE);
+		assertTrue(policy.update(a));
+		FileId d = cache.track(policy, "d", SIZE);
+
+		assertEquals(1, cache.getDeleted().size());
+		assertEquals(b, cache.getDeleted().get(0));
+		assertEquals(3 * SIZE, policy.getCurSize());
+		assertFalse(policy.update(b));
+		assertTrue(policy.update(a));
+		assertTrue(policy.update(c));
+		assertTrue(policy.update(d));
+		assertFalse(policy.getTracked(cache).containsKey(b));
+		assertEquals(3, policy.getTracked(cache).size());
+	}
+
+	/**
+	 * Replays a trace in which a small working set is accessed repeatedly, followed by a scan
+	 * of more files than fit in the cache. The working set must be evicted by the scan, so its
+	 * accesses after the scan are misses.
+	 */
+	@Test
+	public void scanEvictsWorkingSet() {
+		final int capacity = 20;
+		LRUCachePolicy policy = new LRUCachePolicy(capacity * SIZE);
+		StubCache cache = new StubCache(true);
+		List<FileId> home = new ArrayList<>();
+		for (int i = 0; i < capacity / 2; i++) {
+			home.add(cache.track(policy, "home" + i, SIZE));
+		}
+		int hits = replay(policy, home);
+		assertEquals(home.size(), hits);
+
+		for (int i = 0; i < 5 * capacity; i++) {
+			cache.track(policy, "scan" + i, SIZE);
+			assertTrue(policy.getCurSize() <= capacity * SIZE);
+		}
+		assertEquals(capacity, policy.getTracked(cache).size());
+		assertEquals(4 * capacity + capacity / 2, cache.getDeleted().size());
+
+		hits = replay(policy, home);
+		assertEquals(0, hits);
+	}
+
+	/**
+	 * A snapshot written after an eviction should not contain the evicted file, and tracking
+	 * the snapshot in a new policy should restore the eviction order of the old policy.
+	 */
+	@Test
+	public void snapshotAfterEviction()
+			throws IOException {
+		LRUCachePolicy policy = new LRUCachePolicy(3 * SIZE);
+		StubCache cache = new StubCache(true);
+		FileId a = cache.track(policy, "a", SIZE);
+		FileId b = cache.track(policy, "b", SIZE);
+		cache.track(policy, "c", SIZE);
+		policy.update(a);
+		cache.track(policy, "d", SIZE);
+		assertEquals(Collections.singletonList(b), cache.getDeleted());
+
+		File dir = folder.newFolder();
+		CacheIndex.write(dir, System.currentTimeMillis(), policy.getTracked(cache));
+		CacheIndex index = CacheIndex.read(dir);
+		assertNotNull(index);
+		assertEquals(Arrays.asList("c", "a", "d"), new ArrayList<>(index.getEntries().keySet()));
+
+		LRUCachePolicy reloaded = new LRUCachePolicy(3 * SIZE);
+		StubCache reloadedCache = new StubCache(true);
+		for (Map.Entry<String, Long> entry : index.getEntries().entrySet()) {
+			reloadedCache.track(reloaded, entry.getKey(), entry.getValue());
+		}
+		assertTrue(reloadedCache.getDeleted().isEmpty());
+		assertEquals(policy.getCurSize(), reloaded.getCurSize());
+		assertEquals(
+				new ArrayList<>(policy.getTracked(cache).keySet()),
+				new ArrayList<>(reloaded.getTracked(reloadedCache).keySet()));
+
+		// The first file of the snapshot is the next to be evicted after reloading.
+		reloadedCache.track(reloaded, "e", SIZE);
+		assertEquals(Collections.singletonList(new StubCache.Id("c")), reloadedCache.getDeleted());
+	}
+
+	/**
+	 * Accesses the given files, and tracks them again if they have been evicted.
+	 *
+	 * @return The number of accesses of which the file was still tracked.
+	 */
+	private static int replay(LRUCachePolicy policy, List<FileId> ids) {
+		StubCache cache = new StubCache(true);
+		int hits = 0;
+		for (FileId id : ids) {
+			if (policy.update(id)) {
+				hits++;
+			} else {
+				cache.track(policy, id.getPath(), SIZE);
+			}
+		}
+		return hits;
+	}
+
+}
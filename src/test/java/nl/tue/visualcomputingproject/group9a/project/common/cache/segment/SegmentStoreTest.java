@@ -0,0 +1,143 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.segment;
+
+import nl.tue.visualcomputingproject.group9a.project.common.cache.FileId;
+import nl.tue.visualcomputingproject.group9a.project.common.cache.policy.StubCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the recovery of damaged records in a {@link SegmentStore}.
+ */
+public class SegmentStoreTest {
+	/** The length of the data of every record. */
+	private static final int LENGTH = 20;
+	/** The size of a record with a path of one character. */
+	private static final int RECORD_SIZE = Integer.BYTES + Short.BYTES + 1 + Integer.BYTES + LENGTH + Long.BYTES;
+
+	/** The directory containing the segment files. */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * A partially written record at the end of the last segment should be truncated.
+	 */
+	@Test
+	public void truncatesLastSegment()
+			throws IOException {
+		File dir = folder.newFolder();
+		SegmentStore store = new SegmentStore(dir);
+		store.open(StubCache.Id::new);
+		store.put(new StubCache.Id("a"), data('a'));
+		store.put(new StubCache.Id("b"), data('b'));
+		store.close();
+
+		File segment = new File(dir, "segment_0" + SegmentStore.SEGMENT_EXT);
+		try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+			raf.setLength(raf.length() - 1);
+		}
+
+		store = new SegmentStore(dir);
+		LinkedHashMap<FileId, Long> stored = store.open(StubCache.Id::new);
+		assertEquals(1, stored.size());
+		assertArrayEquals(data('a'), store.read(new StubCache.Id("a")));
+		assertFalse(store.contains(new StubCache.Id("b")));
+		assertEquals(RECORD_SIZE, segment.length());
+		store.close();
+	}
+
+	/**
+	 * A damaged record in a sealed segment should stop the indexing of that segment,
+	 * without modifying it, and the newer segments should still be indexed.
+	 */
+	@Test
+	public void keepsSealedSegment()
+			throws IOException {
+		File dir = folder.newFolder();
+		SegmentStore store = new SegmentStore(dir, 3 * RECORD_SIZE);
+		store.open(StubCache.Id::new);
+		store.put(new StubCache.Id("a"), data('a'));
+		store.put(new StubCache.Id("b"), data('b'));
+		store.put(new StubCache.Id("c"), data('c'));
+		store.put(new StubCache.Id("d"), data('d'));
+		store.close();
+
+		File sealed = new File(dir, "segment_0" + SegmentStore.SEGMENT_EXT);
+		try (RandomAccessFile raf = new RandomAccessFile(sealed, "rw")) {
+			raf.seek(RECORD_SIZE);
+			raf.writeInt(0);
+		}
+		byte[] damaged = Files.readAllBytes(sealed.toPath());
+
+		store = new SegmentStore(dir, 3 * RECORD_SIZE);
+		LinkedHashMap<FileId, Long> stored = store.open(StubCache.Id::new);
+		assertEquals(2, stored.size());
+		assertArrayEquals(data('a'), store.read(new StubCache.Id("a")));
+		assertFalse(store.contains(new StubCache.Id("b")));
+		assertFalse(store.contains(new StubCache.Id("c")));
+		assertArrayEquals(data('d'), store.read(new StubCache.Id("d")));
+		assertArrayEquals(damaged, Files.readAllBytes(sealed.toPath()));
+		store.close();
+	}
+
+	/**
+	 * A record in a sealed segment of which the data is damaged should be dropped when it
+	 * is read, and should not be indexed again after reopening the store.
+	 */
+	@Test
+	public void dropsRecordWithInvalidChecksum()
+			throws IOException {
+		File dir = folder.newFolder();
+		SegmentStore store = new SegmentStore(dir, 3 * RECORD_SIZE);
+		store.open(StubCache.Id::new);
+		store.put(new StubCache.Id("a"), data('a'));
+		store.put(new StubCache.Id("b"), data('b'));
+		store.put(new StubCache.Id("c"), data('c'));
+		store.close();
+
+		File sealed = new File(dir, "segment_0" + SegmentStore.SEGMENT_EXT);
+		try (RandomAccessFile raf = new RandomAccessFile(sealed, "rw")) {
+			raf.seek(RECORD_SIZE + RECORD_SIZE - Long.BYTES - 1);
+			raf.write('x');
+		}
+
+		store = new SegmentStore(dir, 3 * RECORD_SIZE);
+		store.open(StubCache.Id::new);
+		assertTrue(store.contains(new StubCache.Id("b")));
+		try {
+			store.read(new StubCache.Id("b"));
+			fail("Read data with an invalid checksum");
+		} catch (IOException e) {
+			// Expected.
+		}
+		assertFalse(store.contains(new StubCache.Id("b")));
+		assertArrayEquals(data('a'), store.read(new StubCache.Id("a")));
+		assertArrayEquals(data('c'), store.read(new StubCache.Id("c")));
+		store.close();
+
+		store = new SegmentStore(dir, 3 * RECORD_SIZE);
+		LinkedHashMap<FileId, Long> stored = store.open(StubCache.Id::new);
+		assertEquals(2, stored.size());
+		assertFalse(store.contains(new StubCache.Id("b")));
+		store.close();
+	}
+
+	/**
+	 * @return The data of a record, filled with the given character.
+	 */
+	private static byte[] data(char c) {
+		byte[] data = new byte[LENGTH];
+		Arrays.fill(data, (byte) c);
+		return data;
+	}
+
+}
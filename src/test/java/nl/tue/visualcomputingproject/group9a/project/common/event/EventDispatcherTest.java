@@ -0,0 +1,102 @@
+package nl.tue.visualcomputingproject.group9a.project.common.event;
+
+import com.google.common.eventbus.Subscribe;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the routing of the events by the {@link EventDispatcher}.
+ */
+public class EventDispatcherTest {
+	/** The number of subscribers added while events are posted. */
+	private static final int SUBSCRIBERS = 200;
+
+	/**
+	 * A subscriber added after an event type has been posted receives the next events of that type.
+	 */
+	@Test
+	public void routesToNewSubscriber()
+			throws InterruptedException {
+		EventDispatcher dispatcher = new EventDispatcher("test", 16, 0);
+		CountDownLatch first = new CountDownLatch(1);
+		dispatcher.subscribe("first", String.class, e -> first.countDown());
+		dispatcher.post("a");
+		assertTrue(first.await(5, TimeUnit.SECONDS));
+
+		CountDownLatch second = new CountDownLatch(1);
+		dispatcher.subscribe("second", String.class, e -> second.countDown());
+		dispatcher.post("b");
+		assertTrue(second.await(5, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Every subscriber added while another thread keeps posting events of the same type
+	 * receives the events posted after it has been added.
+	 */
+	@Test
+	public void routesWhilePosting()
+			throws InterruptedException {
+		EventDispatcher dispatcher = new EventDispatcher("test", 1024, 0);
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread poster = new Thread(() -> {
+			while (running.get()) {
+				dispatcher.post(0);
+			}
+		});
+		poster.start();
+		try {
+			for (int i = 0; i < SUBSCRIBERS; i++) {
+				// Adding two subscribers at once makes it likely that the poster computes
+				// the route between the two additions.
+				CountDownLatch received = new CountDownLatch(1);
+				dispatcher.subscribe("a" + i, Integer.class, e -> {});
+				dispatcher.subscribe("b" + i, Integer.class, e -> received.countDown());
+				assertTrue("Subscriber " + i + " missed the events", received.await(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			running.set(false);
+			poster.join();
+		}
+	}
+
+	/**
+	 * A direct subscriber handles the events on the posting thread,
+	 * before they are queued for the other subscribers.
+	 */
+	@Test
+	public void directBeforeQueued()
+			throws InterruptedException {
+		EventDispatcher dispatcher = new EventDispatcher("test", 16, 0);
+		List<String> handled = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch queued = new CountDownLatch(2);
+		dispatcher.subscribe("queued", String.class, e -> {
+			handled.add("queued " + e);
+			queued.countDown();
+		});
+		final Thread poster = Thread.currentThread();
+		dispatcher.registerDirect(new Object() {
+			@Subscribe
+			public void onEvent(String e) {
+				// Exceptions of subscribers are only logged, so record the thread instead.
+				handled.add(Thread.currentThread() == poster ? "direct " + e : "wrong thread");
+			}
+		});
+
+		dispatcher.post("a");
+		assertTrue(handled.contains("direct a"));
+		dispatcher.post("b");
+		assertTrue(queued.await(5, TimeUnit.SECONDS));
+		assertEquals(4, handled.size());
+		assertTrue(handled.indexOf("direct a") < handled.indexOf("queued a"));
+		assertTrue(handled.indexOf("direct b") < handled.indexOf("queued b"));
+	}
+
+}
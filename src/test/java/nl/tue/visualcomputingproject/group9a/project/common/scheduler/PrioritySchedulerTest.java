@@ -0,0 +1,77 @@
+package nl.tue.visualcomputingproject.group9a.project.common.scheduler;
+
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.common.event.RendererChunkStatusEvent;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests dropping the tasks of unloaded chunks by the {@link PriorityScheduler}.
+ * The schedulers have no worker threads, such that the tasks stay queued.
+ */
+public class PrioritySchedulerTest {
+	/** The first chunk of the region. */
+	private static final ChunkPosition A = new ChunkPosition(0, 0, Settings.CHUNK_WIDTH, Settings.CHUNK_HEIGHT);
+	/** The second chunk of the region. */
+	private static final ChunkPosition B = new ChunkPosition(Settings.CHUNK_WIDTH, 0, Settings.CHUNK_WIDTH, Settings.CHUNK_HEIGHT);
+
+	/**
+	 * A task is dropped once all of its positions have been unloaded.
+	 */
+	@Test
+	public void dropsWhenAllUnloaded() {
+		PriorityScheduler scheduler = new PriorityScheduler("test", 0);
+		AtomicInteger dropped = new AtomicInteger();
+		scheduler.submit(Arrays.asList(A, B), null, () -> {}, dropped::incrementAndGet);
+
+		assertEquals(0, scheduler.drop(Collections.singletonList(A)));
+		assertEquals(1, scheduler.drop(Collections.singletonList(B)));
+		assertEquals(1, dropped.get());
+		assertEquals(0, scheduler.drop(Arrays.asList(A, B)));
+	}
+
+	/**
+	 * A task is not dropped when a position is unloaded and loaded again,
+	 * and the other positions are unloaded afterwards.
+	 */
+	@Test
+	public void keepsReloadedPosition() {
+		PriorityScheduler scheduler = new PriorityScheduler("test", 0);
+		AtomicInteger dropped = new AtomicInteger();
+		scheduler.submit(Arrays.asList(A, B), null, () -> {}, dropped::incrementAndGet);
+
+		scheduler.onChunkStatus(new RendererChunkStatusEvent(
+				Collections.emptyList(), Collections.singletonList(A), B));
+		scheduler.onChunkStatus(new RendererChunkStatusEvent(
+				Collections.singletonList(A), Collections.emptyList(), A));
+		scheduler.onChunkStatus(new RendererChunkStatusEvent(
+				Collections.emptyList(), Collections.singletonList(B), A));
+		assertEquals(0, dropped.get());
+
+		assertEquals(1, scheduler.drop(Collections.singletonList(A)));
+		assertEquals(1, dropped.get());
+	}
+
+	/**
+	 * Loading a position again does not restore tasks which have already been dropped.
+	 */
+	@Test
+	public void reloadAfterDrop() {
+		PriorityScheduler scheduler = new PriorityScheduler("test", 0);
+		AtomicInteger dropped = new AtomicInteger();
+		scheduler.submit(Arrays.asList(A, B), null, () -> {}, dropped::incrementAndGet);
+
+		assertEquals(0, scheduler.drop(Collections.singletonList(A)));
+		assertEquals(1, scheduler.drop(Collections.singletonList(B)));
+		assertEquals(0, scheduler.reload(Arrays.asList(A, B)));
+		assertEquals(0, scheduler.drop(Arrays.asList(A, B)));
+		assertEquals(1, dropped.get());
+	}
+
+}
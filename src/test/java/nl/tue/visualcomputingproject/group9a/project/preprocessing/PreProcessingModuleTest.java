@@ -0,0 +1,124 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing;
+
+import nl.tue.visualcomputingproject.group9a.project.common.Settings;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkId;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.MeshChunkId;
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.QualityLevel;
+import nl.tue.visualcomputingproject.group9a.project.common.scheduler.CancellationToken;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests grouping the requested chunks into regions by the {@link PreProcessingModule}.
+ */
+public class PreProcessingModuleTest {
+
+	/**
+	 * @return The id of the chunk in the given column and row.
+	 */
+	private static MeshChunkId id(int x, int z) {
+		return new MeshChunkId(
+				new ChunkPosition(x * Settings.CHUNK_WIDTH, z * Settings.CHUNK_HEIGHT,
+						Settings.CHUNK_WIDTH, Settings.CHUNK_HEIGHT),
+				QualityLevel.getWorst(),
+				Settings.VERTEX_TYPE,
+				Settings.MESH_TYPE);
+	}
+
+	/**
+	 * @return The number of chunks covered by the given requests.
+	 */
+	private static long chunksCovered(Map<ChunkId, CancellationToken> requests) {
+		long chunks = 0;
+		for (ChunkId id : requests.keySet()) {
+			ChunkPosition pos = id.getPosition();
+			chunks += Math.round((pos.getWidth() - 2 * Settings.CHUNK_VERTEX_BORDER) / Settings.CHUNK_WIDTH) *
+					Math.round((pos.getHeight() - 2 * Settings.CHUNK_VERTEX_BORDER) / Settings.CHUNK_HEIGHT);
+		}
+		return chunks;
+	}
+
+	/**
+	 * The neighbouring chunks of a block are requested as a single region.
+	 */
+	@Test
+	public void requestsBlockAsRegion() {
+		assumeTrue(Settings.REGION_SIZE >= 2);
+		PreProcessingModule module = new PreProcessingModule();
+		Map<ChunkId, CancellationToken> requests = module.createRequests(
+				Arrays.asList(id(0, 0), id(1, 0), id(0, 1), id(1, 1)));
+		assertEquals(1, requests.size());
+		assertEquals(4, chunksCovered(requests));
+	}
+
+	/**
+	 * Two disjoint sets of chunks with the same bounding box are requested separately,
+	 * and neither request covers chunks which have not been requested.
+	 */
+	@Test
+	public void separatesSharedBoundingBox() {
+		assumeTrue(Settings.REGION_SIZE >= 2);
+		PreProcessingModule module = new PreProcessingModule();
+		Map<ChunkId, CancellationToken> first = module.createRequests(Arrays.asList(id(0, 0), id(1, 1)));
+		Map<ChunkId, CancellationToken> second = module.createRequests(Arrays.asList(id(1, 0), id(0, 1)));
+
+		assertEquals(2, chunksCovered(first));
+		assertEquals(2, chunksCovered(second));
+		Set<ChunkId> shared = new HashSet<>(first.keySet());
+		shared.retainAll(second.keySet());
+		assertTrue("Requested twice: " + shared, shared.isEmpty());
+	}
+
+	/**
+	 * The same chunks are not requested as a region again while the region is pending.
+	 */
+	@Test
+	public void doesNotRequestPendingRegionTwice() {
+		assumeTrue(Settings.REGION_SIZE >= 2);
+		PreProcessingModule module = new PreProcessingModule();
+		Map<ChunkId, CancellationToken> first = module.createRequests(Arrays.asList(id(0, 0), id(1, 0)));
+		Map<ChunkId, CancellationToken> second = module.createRequests(Arrays.asList(id(0, 0), id(1, 0)));
+
+		assertEquals(1, first.size());
+		Set<ChunkId> shared = new HashSet<>(first.keySet());
+		shared.retainAll(second.keySet());
+		assertTrue("Requested twice: " + shared, shared.isEmpty());
+	}
+
+	/**
+	 * The bounding box of every rectangle only contains the chunks of the rectangle.
+	 */
+	@Test
+	public void splitsIntoRectangles() {
+		assumeTrue(Settings.REGION_SIZE >= 3);
+		double size = Settings.REGION_SIZE;
+		ChunkPosition block = new ChunkPosition(0, 0, size * Settings.CHUNK_WIDTH, size * Settings.CHUNK_HEIGHT);
+		// Two rows of which the runs span different columns.
+		List<List<MeshChunkId>> rectangles = PreProcessingModule.splitRectangles(block, Arrays.asList(
+				id(0, 0), id(1, 0), id(0, 1), id(1, 1), id(2, 1)));
+
+		int chunks = 0;
+		for (List<MeshChunkId> rectangle : rectangles) {
+			double minX = Double.POSITIVE_INFINITY;
+			double minZ = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxZ = Double.NEGATIVE_INFINITY;
+			for (MeshChunkId id : rectangle) {
+				minX = Math.min(minX, id.getPosition().getX());
+				minZ = Math.min(minZ, id.getPosition().getY());
+				maxX = Math.max(maxX, id.getPosition().getX() + Settings.CHUNK_WIDTH);
+				maxZ = Math.max(maxZ, id.getPosition().getY() + Settings.CHUNK_HEIGHT);
+			}
+			long area = Math.round((maxX - minX) / Settings.CHUNK_WIDTH) * Math.round((maxZ - minZ) / Settings.CHUNK_HEIGHT);
+			assertEquals("Sparse rectangle: " + rectangle, rectangle.size(), area);
+			chunks += rectangle.size();
+		}
+		assertEquals(5, chunks);
+	}
+
+}
@@ -0,0 +1,76 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.buffer_manager;
+
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.Counter;
+import nl.tue.visualcomputingproject.group9a.project.common.metrics.MetricsRegistry;
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static nl.tue.visualcomputingproject.group9a.project.common.chunk.VertexBufferType.QUANTIZED_XZ_SCALE;
+import static nl.tue.visualcomputingproject.group9a.project.common.chunk.VertexBufferType.QUANTIZED_Y_SCALE;
+import static org.junit.Assert.*;
+
+/**
+ * Tests encoding and decoding vertices using the {@link QuantizedVertexBufferManager}.
+ */
+public class QuantizedVertexBufferManagerTest {
+	/** The maximum error of a decoded x- or z-coordinate, including the rounding error of a float. */
+	private static final double XZ_DELTA = QUANTIZED_XZ_SCALE / 2 + 1e-4;
+	/** The maximum error of a decoded height, including the rounding error of a float. */
+	private static final double Y_DELTA = QUANTIZED_Y_SCALE / 2 + 1e-4;
+
+	/**
+	 * The decoded vertices and normals are within the precision of the quantized values.
+	 */
+	@Test
+	public void decodesFloats() {
+		Random random = new Random(42);
+		int n = 1000;
+		double[][] vertices = new double[n][6];
+		QuantizedVertexBufferManager manager = new QuantizedVertexBufferManager(n);
+		for (double[] v : vertices) {
+			v[0] = random.nextDouble() * 120 - 10;
+			v[1] = random.nextDouble() * 400 - 50;
+			v[2] = random.nextDouble() * 120 - 10;
+			double nx = random.nextGaussian();
+			double ny = random.nextGaussian();
+			double nz = random.nextGaussian();
+			double l = Math.sqrt(nx * nx + ny * ny + nz * nz);
+			v[3] = nx / l;
+			v[4] = ny / l;
+			v[5] = nz / l;
+			manager.addVertex(v[0], v[1], v[2], v[3], v[4], v[5]);
+		}
+
+		FloatBuffer floats = manager.finalizeFloatBuffer();
+		assertEquals(6 * n, floats.remaining());
+		for (double[] v : vertices) {
+			assertEquals(v[0], floats.get(), XZ_DELTA);
+			assertEquals(v[1], floats.get(), Y_DELTA);
+			assertEquals(v[2], floats.get(), XZ_DELTA);
+			double dot = v[3] * floats.get() + v[4] * floats.get() + v[5] * floats.get();
+			// The normals of the octahedral encoding using bytes are accurate to about a degree.
+			assertTrue("Normal deviates by " + Math.toDegrees(Math.acos(Math.min(1, dot))) + " degrees",
+					dot > Math.cos(Math.toRadians(2)));
+		}
+	}
+
+	/**
+	 * Coordinates outside the quantized range are clamped and counted.
+	 */
+	@Test
+	public void countsClamped() {
+		Counter counter = MetricsRegistry.counter("preprocessing.quantized.clamped");
+		long before = counter.getCount();
+		QuantizedVertexBufferManager manager = new QuantizedVertexBufferManager(2);
+		manager.addVertex(50.0, 20.0, 50.0, 0.0, 1.0, 0.0);
+		manager.addVertex(50.0, 1000.0, -100.0, 0.0, 1.0, 0.0);
+
+		FloatBuffer floats = manager.finalizeFloatBuffer();
+		assertEquals(2, counter.getCount() - before);
+		assertEquals(20, floats.get(1), Y_DELTA);
+		assertTrue(floats.get(7) < 1000);
+	}
+
+}
@@ -0,0 +1,112 @@
+package nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.pre_processing;
+
+import nl.tue.visualcomputingproject.group9a.project.common.chunk.ChunkPosition;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.point_store.PrimitiveStore;
+import nl.tue.visualcomputingproject.group9a.project.preprocessing.generator.transform.HalfByHalfGridTransform;
+import org.joml.Vector3d;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the {@link VegetationClassifier} against the reference implementation
+ * {@link PreProcessing#classifyTreesIntervalList}.
+ */
+public class VegetationClassifierTest {
+	/** The width and height of the generated chunks. */
+	private static final double SIZE = 20;
+	/** The distance between two grid points. */
+	private static final double SCALE = 0.5;
+	/** The distance in which neighbouring points are taken into account. */
+	private static final double DIST = SCALE * 2.5;
+
+	/**
+	 * A grid with one point per cell, which is classified using the stencil.
+	 */
+	@Test
+	public void grid() {
+		assertSameAsReference(createStore(0, 0, 1));
+	}
+
+	/**
+	 * A grid with missing cells and repeated heights, which is classified using the stencil.
+	 */
+	@Test
+	public void gridWithHoles() {
+		assertSameAsReference(createStore(0, 0.2, 2));
+	}
+
+	/**
+	 * Points which deviate from their grid positions, which are classified using the window.
+	 */
+	@Test
+	public void jittered() {
+		assertSameAsReference(createStore(0.4, 0, 3));
+	}
+
+	/**
+	 * Creates a store containing terrain with noisy canopies.
+	 *
+	 * @param jitter   The maximum deviation of a point from its grid position.
+	 * @param holeRate The fraction of cells without point.
+	 * @param seed     The seed of the random generator.
+	 */
+	private static PrimitiveStore createStore(double jitter, double holeRate, long seed) {
+		Random random = new Random(seed);
+		int n = (int) (SIZE / SCALE) + 1;
+		double[] points = new double[3 * n * n];
+		int ctr = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (random.nextDouble() < holeRate) continue;
+				double x = i * SCALE + jitter * random.nextDouble();
+				double z = j * SCALE + jitter * random.nextDouble();
+				double h = Math.sin(x / 3) + Math.cos(z / 5);
+				if ((i / 8 + j / 8) % 2 == 0 && random.nextDouble() < 0.7) {
+					// Canopy, rounded such that some heights are equal.
+					h += Math.round(40 * random.nextDouble()) / 10.0;
+				}
+				points[ctr++] = x;
+				points[ctr++] = -z;
+				points[ctr++] = h;
+			}
+		}
+		double[] used = new double[ctr];
+		System.arraycopy(points, 0, used, 0, ctr);
+
+		PrimitiveStore store = new PrimitiveStore(
+				new ChunkPosition(0, 0, SIZE, SIZE),
+				new HalfByHalfGridTransform(0, 0));
+		store.addInterleavedPoints(new Vector3d(), used);
+		return store;
+	}
+
+	private static void assertSameAsReference(PrimitiveStore store) {
+		int numCells = store.getWidth() * store.getHeight();
+		boolean[] isTree = new boolean[numCells];
+		double[] low = new double[numCells];
+		double[] max = new double[numCells];
+		PreProcessing.classifyTreesIntervalList(store, DIST, isTree, low, max);
+
+		VegetationClassifier classifier = new VegetationClassifier(0.1);
+		// Classify twice, such that reusing the arrays is tested as well.
+		classifier.classify(store, DIST);
+		classifier.classify(store, DIST);
+		int trees = 0;
+		for (int z = 0; z < store.getHeight(); z++) {
+			for (int x = 0; x < store.getWidth(); x++) {
+				if (!store.hasPoint(x, z)) continue;
+				int c = store.cell(x, z);
+				String cell = "(" + x + ", " + z + ")";
+				assertEquals(cell, isTree[c], classifier.getIsTree()[c]);
+				assertEquals(cell, low[c], classifier.getLow()[c], 0);
+				assertEquals(cell, max[c], classifier.getMax()[c], 0);
+				if (isTree[c]) trees++;
+			}
+		}
+		assertTrue("No trees were classified", trees > 0);
+	}
+
+}
@@ -0,0 +1,189 @@
+package nl.tue.visualcomputingproject.group9a.project.common.cache.policy;
+
+import nl.tue.visualcomputingproject.group9a.project.common.cache.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link CacheManager} without any storage, used to drive a {@link CachePolicy}
+ * in tests and benchmarks. It counts the number of files evicted by the policy,
+ * and optionally records the files deleted by the policy.
+ */
+public class StubCache
+		implements CacheManager<StubCache.Claim, StubCache.Claim> {
+	/** The number of files evicted by the policy. */
+	private final LongAdder evictions = new LongAdder();
+	/** The IDs of the files deleted by the policy, in order of deletion, or {@code null} if they are not recorded. */
+	private final List<FileId> deleted;
+
+	/**
+	 * The ID of a file in the stub cache.
+	 */
+	public static class Id
+			implements FileId {
+		private final String path;
+
+		public Id(String path) {
+			this.path = path;
+		}
+
+		@Override
+		public String getPath() {
+			return path;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Id && path.equals(((Id) obj).path);
+		}
+
+		@Override
+		public int hashCode() {
+			return path.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return path;
+		}
+	}
+
+	/**
+	 * A claim of a file with a fixed size which only exists in the policy.
+	 */
+	public class Claim
+			implements ReadWriteCacheClaim {
+		private final FileId id;
+		private final long size;
+		private volatile boolean valid = true;
+
+		Claim(FileId id, long size) {
+			this.id = id;
+			this.size = size;
+		}
+
+		@Override
+		public FileId getId() {
+			return id;
+		}
+
+		@Override
+		public void delete() {
+			if (deleted != null) deleted.add(id);
+		}
+
+		@Override
+		public boolean isValid() {
+			return valid;
+		}
+
+		@Override
+		public boolean invalidate() {
+			boolean old = valid;
+			valid = false;
+			return old;
+		}
+
+		@Override
+		public long size() {
+			return size;
+		}
+
+		@Override
+		public boolean exists() {
+			return valid;
+		}
+	}
+
+	/**
+	 * Creates a new stub cache which only counts the evicted files.
+	 */
+	public StubCache() {
+		this(false);
+	}
+
+	/**
+	 * Creates a new stub cache.
+	 *
+	 * @param recordDeleted Whether to record the IDs of the files deleted by the policy.
+	 *                      Benchmarks should not record them, since the list grows with every eviction.
+	 */
+	public StubCache(boolean recordDeleted) {
+		deleted = recordDeleted ? Collections.synchronizedList(new ArrayList<>()) : null;
+	}
+
+	/**
+	 * Creates a claim of a file which only exists in the policy.
+	 *
+	 * @param id   The ID of the file.
+	 * @param size The size of the file.
+	 *
+	 * @return The claim of the file.
+	 */
+	public Claim claim(FileId id, long size) {
+		return new Claim(id, size);
+	}
+
+	/**
+	 * Tracks a new file in the given policy.
+	 *
+	 * @param policy The policy to track the file in.
+	 * @param path   The path of the file.
+	 * @param size   The size of the file.
+	 *
+	 * @return The ID of the file.
+	 */
+	public FileId track(CachePolicy policy, String path, long size) {
+		FileId id = new Id(path);
+		policy.track(id, this, claim(id, size));
+		return id;
+	}
+
+	/**
+	 * @return The IDs of the files deleted by the policy so far, in order of deletion.
+	 *
+	 * @throws IllegalStateException If the deleted files are not recorded.
+	 */
+	public List<FileId> getDeleted() {
+		if (deleted == null) {
+			throw new IllegalStateException("The deleted files are not recorded!");
+		}
+		return deleted;
+	}
+
+	/**
+	 * @return The number of files evicted by the policy so far.
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public Claim requestReadClaim(FileId id) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Claim requestReadWriteClaim(FileId id) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void releaseCacheClaim(Claim claim) {
+		claim.invalidate();
+		evictions.increment();
+	}
+
+	@Override
+	public Claim degradeClaim(Claim readWrite) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void indexCache(FileIdFactory<? extends FileId> idFactory) {
+	}
+
+}